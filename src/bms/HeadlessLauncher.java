@@ -0,0 +1,147 @@
+package bms;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.building.Checkpointer;
+import bms.building.SimulationFarm;
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Entry point which runs the Building Management System simulation without a
+ * GUI.
+ * <p>
+ * Unlike {@link Launcher}, which elapses one minute per second of real time,
+ * the headless launcher elapses minutes as fast as possible and reports the
+ * throughput achieved, followed by the final state of every building. It does
+ * not depend on any JavaFX classes, so it can be run on machines without a
+ * display.
+ */
+public class HeadlessLauncher {
+
+    /**
+     * Entry point to the headless simulation.
+     * <p>
+     * Command line arguments: [filename] [minutes] [threads]
+     * <p>
+     * where <code>filename</code> is the path of the file containing the
+     * buildings to simulate (either a save file or a checkpoint written by
+     * {@link Checkpointer}), and <code>minutes</code> is the number of
+     * minutes to elapse on every building. If <code>threads</code> is given,
+     * the buildings are advanced concurrently by a {@link SimulationFarm}
+     * with that many worker threads.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        long minutes = -1;
+        int threads = 0;
+        if (args.length == 2 || args.length == 3) {
+            try {
+                minutes = Long.parseLong(args[1]);
+                if (args.length == 3) {
+                    threads = Integer.parseInt(args[2]);
+                    if (threads < 1) {
+                        minutes = -1;
+                    }
+                }
+            } catch (NumberFormatException e) {
+                minutes = -1;
+            }
+        }
+        if (minutes < 0) {
+            System.out.println("Usage: [filename] [minutes] [threads]");
+            System.exit(1);
+        }
+
+        List<Building> buildings;
+        try {
+            if (Checkpointer.isCheckpoint(args[0])) {
+                buildings = Checkpointer.restore(args[0]);
+            } else {
+                buildings = BuildingInitialiser.loadBuildings(args[0]);
+            }
+        } catch (IOException | FileFormatException e) {
+            System.err.println("Error loading from file \"" + args[0]
+                    + "\". Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        if (threads > 0) {
+            SimulationFarm farm = new SimulationFarm(buildings, threads);
+            farm.run(minutes);
+            TimedItemManager.getInstance().elapseMinutes(minutes);
+            System.out.println(farm);
+            for (Building building : buildings) {
+                printState(building);
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+        run(buildings, minutes);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(String.format(
+                "Simulated %d minutes of %d building(s) in %.3fs "
+                        + "(%.1f minutes/sec)",
+                minutes, buildings.size(), seconds,
+                seconds > 0 ? minutes / seconds : 0.0));
+        for (Building building : buildings) {
+            printState(building);
+        }
+    }
+
+    /**
+     * Elapses the given number of minutes on each building's clock, one
+     * minute at a time, as the GUI would. The global manager (see
+     * TimedItemManager.getInstance()) is ticked after the buildings each
+     * minute, for items created outside the scope of any building's clock.
+     *
+     * @param buildings buildings to simulate
+     * @param minutes number of minutes to elapse
+     */
+    public static void run(List<Building> buildings, long minutes) {
+        for (long i = 0; i < minutes; i++) {
+            for (Building building : buildings) {
+                building.getClock().elapseOneMinute();
+            }
+            TimedItemManager.getInstance().elapseOneMinute();
+        }
+    }
+
+    /**
+     * Prints the current state of the given building and each of its floors,
+     * rooms and sensors.
+     *
+     * @param building building to print
+     */
+    private static void printState(Building building) {
+        System.out.println(building);
+        for (Floor floor : building.getFloors()) {
+            System.out.println("  " + floor);
+            for (Room room : floor.getRooms()) {
+                StringBuilder line = new StringBuilder("    " + room
+                        + ", state=" + room.evaluateRoomState());
+                if (room.getHazardEvaluator() != null) {
+                    line.append(", hazard=").append(
+                            room.getHazardEvaluator().evaluateHazardLevel());
+                }
+                System.out.println(line);
+                for (Sensor sensor : room.getSensors()) {
+                    System.out.println("      "
+                            + sensor.getClass().getSimpleName()
+                            + ": reading=" + sensor.getCurrentReading());
+                }
+            }
+        }
+    }
+}
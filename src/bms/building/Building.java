@@ -8,6 +8,9 @@ import bms.floor.Floor;
 import bms.room.RoomType;
 import bms.util.Encodable;
 import bms.util.FireDrill;
+import bms.util.StructureHashCodes;
+import bms.util.StructureVersion;
+import bms.util.TimedItemManager;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -33,6 +36,23 @@ public class Building implements FireDrill, Encodable {
      */
     private List<Floor> floors;
 
+    /**
+     * Timed item manager acting as this building's simulation clock.
+     */
+    private final TimedItemManager clock;
+
+    /**
+     * Version recording structural changes to the building, its floors and
+     * their rooms.
+     */
+    private final StructureVersion structureVersion;
+
+    /**
+     * Hash codes of the building, or null if they have not been calculated
+     * (see bms.util.StructureHashCodes).
+     */
+    private volatile StructureHashCodes hashCodes;
+
     /**
      * Creates a new empty building with no rooms.
      *
@@ -42,6 +62,22 @@ public class Building implements FireDrill, Encodable {
     public Building(String name) {
         this.name = name;
         this.floors = new ArrayList<>();
+        this.clock = new TimedItemManager();
+        this.structureVersion = new StructureVersion();
+    }
+
+    /**
+     * Returns the building's own simulation clock.
+     * <p>
+     * Sensors and maintenance schedules created while this clock is in scope
+     * (see bms.util.ClockScope) are registered with it, as is done when
+     * buildings are loaded by BuildingInitialiser. The clock, and every item
+     * registered with it, can be garbage collected along with the building.
+     *
+     * @return timed item manager for this building
+     */
+    public TimedItemManager getClock() {
+        return clock;
     }
 
     /**
@@ -139,6 +175,9 @@ public class Building implements FireDrill, Encodable {
 
         // No problems, so add floor to the list of floors
         floors.add(newFloor);
+        newFloor.setStructureVersion(structureVersion);
+        newFloor.setClock(clock);
+        structureVersion.advance();
     }
 
     /**
@@ -278,39 +317,86 @@ public class Building implements FireDrill, Encodable {
             return false;
         }
         Building building =  (Building) obj;
-        boolean floorsEqual = false;
-        if (this.getFloors().size() == 0 && building.getFloors().size() == 0) {
-            floorsEqual = true;
+        if (!this.name.equals(building.name)
+                || this.floors.size() != building.floors.size()) {
+            return false;
         }
-        //checking if all floors in the building are equal
-        for (Floor f : this.getFloors()) {
-            floorsEqual = false;
-            for (Floor m : building.getFloors()) {
-                if (f.equals(m)) {
-                    floorsEqual = true;
-                    break;
-                }
-            }
-            if (!floorsEqual) {
-                break;
+        if (updateHashCodes().getStructureHashCode()
+                != building.updateHashCodes().getStructureHashCode()) {
+            return false;
+        }
+        // addFloor() only accepts a floor once the floor below it has been
+        // added, so floor n is always at index n - 1 and floors with the same
+        // number are at the same index
+        for (int i = 0; i < floors.size(); i++) {
+            if (!floors.get(i).equals(building.floors.get(i))) {
+                return false;
             }
         }
-        return this.getName().equals(building.getName()) && floorsEqual
-                && building.getFloors().size() == this.getFloors().size();
+        return true;
     }
 
     /**
      * Returns the hash code of this building.
      * Two buildings that are equal according to equals(Object) should
      * have the same hash code.
+     * The hash code is cached until the structure of the building changes
+     * (see bms.util.StructureVersion).
      * @return hash code of this building
      */
     public int hashCode() {
-        int total = 0;
-        for (Floor f : getFloors()) {
-            total += f.hashCode();
+        return updateHashCodes().getHashCode();
+    }
+
+    /**
+     * Returns true if every floor of the building records its changes in
+     * the building's structure version.
+     * @return true if the floors share the building's version
+     */
+    private boolean floorsShareVersion() {
+        for (int i = 0; i < floors.size(); i++) {
+            if (floors.get(i).getStructureVersion() != structureVersion) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the version recording structural changes to this building,
+     * its floors and their rooms.
+     * @return structure version of this building
+     */
+    public StructureVersion getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Returns the building's hash codes, calculating them again if its
+     * structure has changed since they were calculated. The structure hash
+     * code leaves out the floors' dimensions (see Floor.structureHashCode()).
+     * <p>
+     * A floor added to another building afterwards records its changes in
+     * that building's version instead, so the hash codes are calculated
+     * every time while any floor does so.
+     * @return current hash codes of this building
+     */
+    private StructureHashCodes updateHashCodes() {
+        long version = structureVersion.current();
+        StructureHashCodes codes = hashCodes;
+        if (codes == null || !codes.isCurrent(structureVersion, version)
+                || !floorsShareVersion()) {
+            int total = 0;
+            int structureTotal = 0;
+            for (int i = 0; i < floors.size(); i++) {
+                total += floors.get(i).hashCode();
+                structureTotal += floors.get(i).structureHashCode();
+            }
+            codes = new StructureHashCodes(structureVersion, version,
+                    total + name.hashCode(), structureTotal + name.hashCode());
+            hashCodes = codes;
         }
-        return total + name.hashCode();
+        return codes;
     }
 
     /**
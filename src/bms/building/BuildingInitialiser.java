@@ -2,12 +2,15 @@ package bms.building;
 
 import bms.exceptions.*;
 import bms.floor.Floor;
+import bms.hazardevaluation.HazardRule;
 import bms.hazardevaluation.RuleBasedHazardEvaluator;
 import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.ClockScope;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
@@ -17,6 +20,12 @@ import java.util.*;
  * and writing data to a file.
  */
 public class BuildingInitialiser {
+    /**
+     * Suffix appended to a save file's filename to give the filename of its
+     * trace file.
+     */
+    public static final String TRACE_FILE_SUFFIX = ".traces";
+
     /**
      * Loads a list of buildings from a save file with the given filename.
      * Save files have the following structure. Square brackets indicate that
@@ -35,6 +44,11 @@ public class BuildingInitialiser {
      *  <p>
      *  sensorType:list,of,sensor,readings[:sensorAttributes...][@weighting]
      *  <p>
+     *  or, for a sensor whose readings are in the save file's trace file
+     *  (see loadBuildings(String, boolean)),
+     *  <p>
+     *  sensorType:#traceNumber[:sensorAttributes...][@weighting]
+     *  <p>
      *  ...       (more sensors)
      *  <p>
      *  ...     (more rooms)
@@ -73,9 +87,14 @@ public class BuildingInitialiser {
      *      <li> A room's hazard evaluator type is invalid.
      *      <li> A room's weighting-based hazard evaluator weightings are
      *      invalid according to WeightingBasedHazardEvaluator(Map).
+     *      <li> A room's rule-based hazard evaluator rule is invalid according
+     *      to HazardRule(String), or refers to a sensor the room does not
+     *      have according to RuleBasedHazardEvaluator(List, HazardRule).
      *      <li> A room has two sensors of the same type (a duplicate sensor).
      *      <li> A sensor's type does not match one of the concrete sensor
      *      types (e.g. NoiseSensor, OccupancySensor, ...).
+     *      <li> A sensor refers to a trace that is not in the save file's
+     *      trace file, or the save file has no trace file.
      *      <li> A sensor's update frequency does not meet the restrictions
      *      outlined in TimedSensor(int[], int).
      *      <li> A carbon dioxide sensor's variation limit is greater than its
@@ -112,22 +131,83 @@ public class BuildingInitialiser {
      */
     public static List<Building> loadBuildings(String filename)
             throws IOException, FileFormatException {
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        return loadBuildings(filename, false);
+    }
+
+    /**
+     * Loads a list of buildings from a save file with the given filename, as
+     * in loadBuildings(String).
+     * <p>
+     * If useSensorStore is true, each building's clock is given its own
+     * SensorStore before any sensors are loaded, so that the state of all of
+     * the building's sensors is held in the store (see
+     * bms.util.TimedItemManager.setSensorStore(SensorStore)).
+     * <p>
+     * A sensor's readings may be kept in a binary trace file alongside the
+     * save file, named as the save file with TRACE_FILE_SUFFIX appended, in
+     * which case the sensor's line gives the position of its trace in the
+     * trace file instead of a list of readings. The trace file is
+     * memory-mapped (see TraceFile), so such readings are not parsed or
+     * copied onto the heap, unless the sensor's state is kept in a sensor
+     * store. Buildings are always encoded with their readings listed in
+     * full.
+     *
+     * @param filename path of the file from which to load a list of buildings
+     * @param useSensorStore whether to keep sensor state in a sensor store
+     * @return a list containing all the buildings loaded from the file
+     * @throws IOException if an IOException is encountered when calling any
+     *      IO methods
+     * @throws FileFormatException  if the file format of the given file is
+     *      invalid according to the rules in loadBuildings(String)
+     */
+    public static List<Building> loadBuildings(String filename,
+            boolean useSensorStore) throws IOException, FileFormatException {
+        TraceFile traces = null;
+        if (new File(filename + TRACE_FILE_SUFFIX).exists()) {
+            traces = TraceFile.open(filename + TRACE_FILE_SUFFIX);
+        }
+        return loadBuildings(new BufferedReader(new FileReader(filename)),
+                useSensorStore, traces);
+    }
+
+    /**
+     * Loads a list of buildings in the save file format described in
+     * loadBuildings(String) from the given reader, closing it afterwards.
+     *
+     * @param reader reader positioned at the start of the encoded buildings
+     * @param useSensorStore whether to keep sensor state in a sensor store
+     * @param traces trace file holding sensors' readings, or null if there is
+     *               none
+     * @return a list containing all the buildings read
+     * @throws FileFormatException if the data read is not in the save file
+     *      format, or an IOException is encountered while reading it
+     */
+    static List<Building> loadBuildings(BufferedReader reader,
+            boolean useSensorStore, TraceFile traces)
+            throws FileFormatException {
         List<Building> loadedBuildings = new ArrayList<>();
-        try {
+        try (reader) {
             boolean buildingsRemaining = true;
             String buildingName = reader.readLine();
             // loads 1 building per loop
             while (buildingsRemaining) {
                 Building building = new Building(buildingName);
-                int numberFloors = Integer.parseInt(reader.readLine());
-                if (numberFloors < 0) {
-                    throw new FileFormatException();
+                if (useSensorStore) {
+                    building.getClock().setSensorStore(new SensorStore());
                 }
-                // adds 1 floor to building per loop
-                for (int i = 0; i < numberFloors; i++) {
-                    Floor floor = loadFloor(reader);
-                    building.addFloor(floor);
+                // sensors and schedules are registered with the building's
+                // own clock rather than the global one
+                ClockScope scope = new ClockScope(building.getClock());
+                try (scope) {
+                    int numberFloors = Integer.parseInt(reader.readLine());
+                    if (numberFloors < 0) {
+                        throw new FileFormatException();
+                    }
+                    // adds 1 floor to building per loop
+                    for (int i = 0; i < numberFloors; i++) {
+                        Floor floor = loadFloor(reader, traces);
+                        building.addFloor(floor);
+                    }
                 }
                 loadedBuildings.add(building);
                 buildingName = reader.readLine();
@@ -161,6 +241,7 @@ public class BuildingInitialiser {
     /**
      * Constructs a floor object from the provided encoded file.
      * @param reader Buffered reader that is being used to read provided file.
+     * @param traces trace file holding sensors' readings, or null
      * @return floor object corresponding to provided encoded information
      * @throws IOException if an IOException is encountered when calling any
      * IO methods
@@ -173,7 +254,8 @@ public class BuildingInitialiser {
      * @throws DuplicateSensorException the file attempts to load a duplicate
      * sensor
      */
-    private static Floor loadFloor(BufferedReader reader) throws
+    private static Floor loadFloor(BufferedReader reader, TraceFile traces)
+            throws
             IOException, FileFormatException, InsufficientSpaceException,
             DuplicateRoomException, DuplicateSensorException {
         // Initialising Floor
@@ -199,7 +281,7 @@ public class BuildingInitialiser {
             throw new FileFormatException();
         }
         for (int j = 0; j < numberRooms; j++) {
-            Room room = loadRoom(reader);
+            Room room = loadRoom(reader, traces);
             floor.addRoom(room);
         }
 
@@ -222,6 +304,7 @@ public class BuildingInitialiser {
     /**
      * Constructs a room object from the provided encoded file.
      * @param reader buffered reader that is being used to read provided file.
+     * @param traces trace file holding sensors' readings, or null
      * @return room object corresponding to provided encoded information
      * @throws IOException if an IOException is encountered when calling any
      * IO methods
@@ -230,8 +313,8 @@ public class BuildingInitialiser {
      * @throws DuplicateSensorException the file attempts to load a duplicate
      * sensor
      */
-    private static Room loadRoom(BufferedReader reader) throws IOException,
-            FileFormatException, DuplicateSensorException {
+    private static Room loadRoom(BufferedReader reader, TraceFile traces)
+            throws IOException, FileFormatException, DuplicateSensorException {
 
         // initialising Room
         String[] roomLine = reader.readLine().split(":",5);
@@ -242,23 +325,32 @@ public class BuildingInitialiser {
 
         // checking for Hazard Evaluator
         String hazardEvalType = null;
+        HazardRule rule = HazardRule.DEFAULT;
         if (roomLine.length > 4) {
             hazardEvalType = roomLine[4];
             if (hazardEvalType.equals("")) {
                 throw new FileFormatException();
             }
+            // a rule other than the default follows the type
+            if (hazardEvalType.startsWith("RuleBased:")) {
+                rule = new HazardRule(hazardEvalType.substring(
+                        "RuleBased:".length()));
+                hazardEvalType = "RuleBased";
+            }
         }
 
         // adding sensors to room
         int numberSensors = Integer.parseInt(roomLine[3]);
+        // kept in file order, which is the order of the room's sensors
         Map<HazardSensor,Integer> weightingBasedHazardEvaluator =
-                new HashMap<>();
+                new LinkedHashMap<>();
         List<HazardSensor> ruleBasedHazardEvaluator = new ArrayList<>();
         if (numberSensors < 0) {
             throw new FileFormatException();
         }
         for (int k = 0; k < numberSensors; k++) {
-            Map<String, Object> sensorMap  = loadSensor(reader, hazardEvalType);
+            Map<String, Object> sensorMap  = loadSensor(reader, hazardEvalType,
+                    traces);
             TimedSensor timedSensor = (TimedSensor) sensorMap.get("Sensor");
             //generating hazard evaluator if it exists
             if (hazardEvalType != null &&
@@ -283,7 +375,7 @@ public class BuildingInitialiser {
         } else if (hazardEvalType != null &&
                 hazardEvalType.equals("RuleBased")) {
             room.setHazardEvaluator(new RuleBasedHazardEvaluator
-                    (ruleBasedHazardEvaluator));
+                    (ruleBasedHazardEvaluator, rule));
         }
         return room;
     }
@@ -293,6 +385,7 @@ public class BuildingInitialiser {
      * @param reader buffered reader that is being used to read provided file.
      * @param hazardEvalType string which denotes weather hazard evaluator
      *                       exists
+     * @param traces trace file holding sensors' readings, or null
      * @return sensor object corresponding to provided encoded information
      * @throws FileFormatException if the file format of the given file is
      * invalid
@@ -300,7 +393,8 @@ public class BuildingInitialiser {
      * IO methods
      */
     private static Map<String, Object> loadSensor(BufferedReader reader,
-                                                  String hazardEvalType)
+                                                  String hazardEvalType,
+                                                  TraceFile traces)
             throws FileFormatException, IOException {
 
         TreeMap<String, Object> sensorOutput = new TreeMap<>();
@@ -320,8 +414,17 @@ public class BuildingInitialiser {
         // initialising sensor based upon sensor type
         String[] sensorValues = sensorInformation.split(":");
         TimedSensor timedSensor;
-        int[] readings = convertStringArray(
-                sensorValues[1].split(","));
+        Readings readings;
+        if (sensorValues[1].startsWith("#")) {
+            if (traces == null) {
+                throw new FileFormatException();
+            }
+            readings = traces.get(
+                    Integer.parseInt(sensorValues[1].substring(1)));
+        } else {
+            readings = Readings.of(convertStringArray(
+                    sensorValues[1].split(",")));
+        }
         switch (sensorValues[0]) {
             case "CarbonDioxideSensor" -> {
                 int varLimit = Integer.parseInt(sensorValues[4]);
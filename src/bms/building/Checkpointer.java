@@ -0,0 +1,474 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.exceptions.UnsupportedSensorException;
+import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.sensors.HazardSensor;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Saves and restores the full state of a running simulation.
+ * <p>
+ * A save file (see {@link Building#encode()}) only records the structure of
+ * the buildings. A checkpoint additionally records the runtime state needed
+ * to resume the simulation from the minute it was taken:
+ * <ul>
+ *     <li> the number of minutes elapsed on each building's clock
+ *     <li> the time elapsed by each sensor, from which its current reading
+ *     is derived
+ *     <li> the progress of each floor's maintenance schedule
+ *     <li> whether each room has a fire drill or maintenance ongoing
+ *     <li> the weighting of each sensor in a weighting-based hazard
+ *     evaluator, since encoded rooms do not always list them in the order of
+ *     the room's sensors
+ * </ul>
+ * Checkpoints are stored in a compressed binary format, consisting of the
+ * encoded buildings followed by the runtime state of each building in the
+ * order of its floors, rooms and sensors (see {@link Room#getSensors()}).
+ * <p>
+ * Only timed sensors whose readings are known in advance can be
+ * checkpointed. Streaming sensors (see TimedSensor.canLookAhead()) depend on
+ * readings pushed from outside the simulation, which a checkpoint cannot
+ * replay, so buildings containing them are refused.
+ * <p>
+ * A checkpointer can also be used to run a simulation which is checkpointed
+ * automatically every given number of minutes, so that at most that many
+ * minutes need to be simulated again after a crash.
+ */
+public class Checkpointer {
+    /**
+     * Bytes at the start of every checkpoint file ("BMSC").
+     */
+    private static final int MAGIC = 0x424D5343;
+
+    /**
+     * Version of the checkpoint format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Flag set in a room's state if a fire drill is ongoing.
+     */
+    private static final int FIRE_DRILL = 1;
+
+    /**
+     * Flag set in a room's state if maintenance is ongoing.
+     */
+    private static final int MAINTENANCE = 2;
+
+    /**
+     * Buildings being simulated.
+     */
+    private final List<Building> buildings;
+
+    /**
+     * Path of the file to write checkpoints to.
+     */
+    private final String filename;
+
+    /**
+     * Number of minutes between automatic checkpoints.
+     */
+    private final long interval;
+
+    /**
+     * Number of minutes elapsed since the last checkpoint was written.
+     */
+    private long sinceCheckpoint;
+
+    /**
+     * Creates a new checkpointer which writes a checkpoint of the given
+     * buildings to the given file every interval minutes.
+     *
+     * @param buildings buildings to simulate
+     * @param filename path of the file to write checkpoints to
+     * @param interval number of minutes between checkpoints
+     * @throws IllegalArgumentException if interval &lt; 1
+     */
+    public Checkpointer(List<Building> buildings, String filename,
+                        long interval) throws IllegalArgumentException {
+        if (interval < 1) {
+            throw new IllegalArgumentException(
+                    "Checkpoint interval must be at least 1 minute");
+        }
+        this.buildings = new ArrayList<>(buildings);
+        this.filename = filename;
+        this.interval = interval;
+        this.sinceCheckpoint = 0;
+    }
+
+    /**
+     * Elapses the given number of minutes on each building's clock, one
+     * minute at a time, writing a checkpoint whenever the interval has
+     * passed since the last one.
+     * <p>
+     * Each checkpoint is written to a temporary file and then moved over the
+     * previous one, so a crash while writing never leaves the checkpoint file
+     * incomplete.
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     * @throws IOException if a checkpoint cannot be written
+     * @throws UnsupportedSensorException if a building contains a sensor
+     * which cannot be checkpointed
+     */
+    public void run(long minutes) throws IllegalArgumentException,
+            IOException, UnsupportedSensorException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        for (long i = 0; i < minutes; i++) {
+            for (Building building : buildings) {
+                building.getClock().elapseOneMinute();
+            }
+            sinceCheckpoint++;
+            if (sinceCheckpoint == interval) {
+                checkpoint();
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the buildings immediately.
+     *
+     * @throws IOException if the checkpoint cannot be written
+     * @throws UnsupportedSensorException if a building contains a sensor
+     * which cannot be checkpointed
+     */
+    public void checkpoint() throws IOException, UnsupportedSensorException {
+        Path target = Paths.get(filename);
+        Path temporary = Paths.get(filename + ".tmp");
+        save(buildings, temporary.toString());
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        sinceCheckpoint = 0;
+    }
+
+    /**
+     * Writes a checkpoint of the given buildings to the file with the given
+     * filename.
+     * <p>
+     * Buildings whose clocks are event-driven are synchronised first (see
+     * bms.util.TimedItemManager.synchronise()).
+     *
+     * @param buildings buildings to save
+     * @param filename path of the file to write to
+     * @throws IOException if an IOException is encountered when writing
+     * @throws UnsupportedSensorException if a building contains a sensor
+     * which cannot be checkpointed, in which case no file is written
+     */
+    public static void save(List<Building> buildings, String filename)
+            throws IOException, UnsupportedSensorException {
+        checkSupported(buildings);
+        try (OutputStream file = new FileOutputStream(filename)) {
+            save(buildings, file);
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the given buildings to the given stream. The
+     * stream is not closed.
+     *
+     * @param buildings buildings to save
+     * @param stream stream to write to
+     * @throws IOException if an IOException is encountered when writing
+     * @throws UnsupportedSensorException if a building contains a sensor
+     * which cannot be checkpointed, in which case nothing is written
+     */
+    public static void save(List<Building> buildings, OutputStream stream)
+            throws IOException, UnsupportedSensorException {
+        checkSupported(buildings);
+        DataOutputStream header = new DataOutputStream(stream);
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.flush();
+
+        Deflater deflater = new Deflater();
+        try {
+            DeflaterOutputStream compressed =
+                    new DeflaterOutputStream(stream, deflater);
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(compressed));
+            StringBuilder structure = new StringBuilder();
+            for (int i = 0; i < buildings.size(); i++) {
+                if (i > 0) {
+                    structure.append(System.lineSeparator());
+                }
+                structure.append(buildings.get(i).encode());
+            }
+            byte[] encoded =
+                    structure.toString().getBytes(StandardCharsets.UTF_8);
+            writeVarLong(out, encoded.length);
+            out.write(encoded);
+
+            for (Building building : buildings) {
+                building.getClock().synchronise();
+                writeVarLong(out, building.getClock().getMinutesElapsed());
+                for (Floor floor : building.getFloors()) {
+                    MaintenanceSchedule schedule =
+                            floor.getMaintenanceSchedule();
+                    if (schedule != null) {
+                        writeVarLong(out, schedule.getRoomIndexCounter());
+                        writeVarLong(out, schedule.getTimeElapsedCurrentRoom());
+                    }
+                    for (Room room : floor.getRooms()) {
+                        int flags = 0;
+                        if (room.fireDrillOngoing()) {
+                            flags |= FIRE_DRILL;
+                        }
+                        if (room.maintenanceOngoing()) {
+                            flags |= MAINTENANCE;
+                        }
+                        out.writeByte(flags);
+                        // sensors were checked by checkSupported(List)
+                        for (Sensor sensor : room.getSensors()) {
+                            writeVarLong(out,
+                                    ((TimedSensor) sensor).getTimeElapsed());
+                        }
+                        if (room.getHazardEvaluator()
+                                instanceof WeightingBasedHazardEvaluator) {
+                            WeightingBasedHazardEvaluator evaluator =
+                                    (WeightingBasedHazardEvaluator)
+                                            room.getHazardEvaluator();
+                            for (Sensor sensor : room.getSensors()) {
+                                writeVarLong(out, evaluator.getWeighting(
+                                        (HazardSensor) sensor));
+                            }
+                        }
+                    }
+                }
+            }
+            out.flush();
+            compressed.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Checks that every sensor in the given buildings can be checkpointed.
+     * A sensor can be checkpointed if it is a timed sensor which can look
+     * ahead in time, and, if its room has a weighting-based hazard
+     * evaluator, a hazard sensor.
+     *
+     * @param buildings buildings to check
+     * @throws UnsupportedSensorException if any sensor cannot be
+     * checkpointed
+     */
+    private static void checkSupported(List<Building> buildings)
+            throws UnsupportedSensorException {
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloors()) {
+                for (Room room : floor.getRooms()) {
+                    boolean weighted = room.getHazardEvaluator()
+                            instanceof WeightingBasedHazardEvaluator;
+                    for (Sensor sensor : room.getSensors()) {
+                        if (!(sensor instanceof TimedSensor)) {
+                            throw new UnsupportedSensorException(
+                                    "Cannot checkpoint "
+                                            + sensor.getClass().getName()
+                                            + ", which is not a timed sensor");
+                        }
+                        if (!sensor.canLookAhead()) {
+                            throw new UnsupportedSensorException(
+                                    "Cannot checkpoint streaming sensor in "
+                                            + "room " + room.getRoomNumber());
+                        }
+                        if (weighted && !(sensor instanceof HazardSensor)) {
+                            throw new UnsupportedSensorException(
+                                    "Cannot checkpoint weighting of "
+                                            + sensor.getClass().getName()
+                                            + ", which is not a hazard "
+                                            + "sensor");
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Restores the buildings saved in the checkpoint file with the given
+     * filename.
+     * <p>
+     * The buildings are loaded from the encoded structure stored in the
+     * checkpoint, each with its own clock, and then brought to the state
+     * they were in when the checkpoint was taken.
+     *
+     * @param filename path of the checkpoint file
+     * @return list of restored buildings
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the file is not a valid checkpoint
+     */
+    public static List<Building> restore(String filename)
+            throws IOException, FileFormatException {
+        try (InputStream file = new BufferedInputStream(
+                new FileInputStream(filename))) {
+            return restore(file);
+        }
+    }
+
+    /**
+     * Restores the buildings saved in a checkpoint read from the given
+     * stream. The stream is not closed.
+     *
+     * @param stream stream to read from
+     * @return list of restored buildings
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the data read is not a valid checkpoint
+     */
+    public static List<Building> restore(InputStream stream)
+            throws IOException, FileFormatException {
+        DataInputStream header = new DataInputStream(stream);
+        if (header.readInt() != MAGIC || header.readByte() != VERSION) {
+            throw new FileFormatException();
+        }
+
+        Inflater inflater = new Inflater();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(stream, inflater)));
+        try {
+            byte[] encoded = new byte[Math.toIntExact(readVarLong(in))];
+            in.readFully(encoded);
+            List<Building> buildings = BuildingInitialiser.loadBuildings(
+                    new BufferedReader(new StringReader(
+                            new String(encoded, StandardCharsets.UTF_8))),
+                    false, null);
+
+            for (Building building : buildings) {
+                long minutesElapsed = readVarLong(in);
+                for (Floor floor : building.getFloors()) {
+                    MaintenanceSchedule schedule =
+                            floor.getMaintenanceSchedule();
+                    if (schedule != null) {
+                        schedule.restore(Math.toIntExact(readVarLong(in)),
+                                Math.toIntExact(readVarLong(in)));
+                    }
+                    for (Room room : floor.getRooms()) {
+                        int flags = in.readUnsignedByte();
+                        room.setFireDrill((flags & FIRE_DRILL) != 0);
+                        room.setMaintenance((flags & MAINTENANCE) != 0);
+                        for (Sensor sensor : room.getSensors()) {
+                            // the loader only creates timed sensors
+                            if (!(sensor instanceof TimedSensor)) {
+                                throw new FileFormatException();
+                            }
+                            ((TimedSensor) sensor).elapseMinutes(
+                                    readVarLong(in));
+                        }
+                        if (room.getHazardEvaluator()
+                                instanceof WeightingBasedHazardEvaluator) {
+                            // same map type and order as the loader, which
+                            // adds the weightings in sensor order
+                            Map<HazardSensor, Integer> weightings =
+                                    new LinkedHashMap<>();
+                            for (Sensor sensor : room.getSensors()) {
+                                if (!(sensor instanceof HazardSensor)) {
+                                    throw new FileFormatException();
+                                }
+                                weightings.put((HazardSensor) sensor,
+                                        Math.toIntExact(readVarLong(in)));
+                            }
+                            room.setHazardEvaluator(
+                                    new WeightingBasedHazardEvaluator(
+                                            weightings));
+                        }
+                    }
+                }
+                building.getClock().restoreMinutesElapsed(minutesElapsed);
+            }
+            return buildings;
+        } catch (IOException | IllegalArgumentException
+                | ArithmeticException e) {
+            throw new FileFormatException();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Returns whether the file with the given filename is a checkpoint, as
+     * opposed to a save file.
+     *
+     * @param filename path of the file to check
+     * @return true if the file starts with the checkpoint header
+     * @throws IOException if an IOException is encountered when reading
+     */
+    public static boolean isCheckpoint(String filename) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new FileInputStream(filename))) {
+            return in.available() >= 4 && in.readInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Writes a non-negative value using as few bytes as possible, seven bits
+     * per byte with the high bit set on all but the last byte.
+     *
+     * @param out stream to write to
+     * @param value value to write
+     * @throws IOException if an IOException is encountered when writing
+     */
+    private static void writeVarLong(DataOutputStream out, long value)
+            throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a value written by writeVarLong(DataOutputStream, long).
+     *
+     * @param in stream to read from
+     * @return value read
+     * @throws IOException if an IOException is encountered when reading
+     */
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length value");
+    }
+}
@@ -0,0 +1,561 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.sensors.ComfortSensor;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.TickListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Roll-ups of the hazard and comfort levels of a building's rooms to its
+ * floors, to ranges of floors and to the whole building.
+ * <p>
+ * The hazard level of a floor or range of floors is the highest hazard level
+ * of its rooms that have a hazard evaluator. The comfort level of a room is
+ * the average comfort level of its comfort sensors, and the comfort level of
+ * a floor or range of floors is the mean comfort level of its rooms that
+ * have comfort sensors.
+ * <p>
+ * The rooms are the leaves of a segment tree, in the order of a HazardSweep
+ * of the building, which lists the rooms floor by floor. The rooms of a
+ * floor, and of a range of floors, are therefore a contiguous range of
+ * leaves. Each node of the tree holds the highest hazard level, the sum of
+ * the comfort levels and the number of rooms with comfort sensors beneath
+ * it, so the roll-up of any range of floors is combined from O(log n) nodes.
+ * <p>
+ * The tree is brought up to date when it is asked for a roll-up after the
+ * building's clock has elapsed time, so any number of roll-ups can be asked
+ * for between ticks at O(log n) cost each. If any sensor in the building
+ * can change between ticks, such as a streaming sensor whose readings are
+ * pushed to it (see Sensor.canLookAhead()), the tree is instead brought up
+ * to date every time it is asked for a roll-up. The hazard levels are swept,
+ * which reports the rooms whose levels changed, and the comfort sensors'
+ * readings are compared with their readings as of the last update. Only the
+ * leaves of rooms whose levels changed, and the nodes above them, are
+ * combined again. Each node is combined from its children rather than
+ * adjusted, so the sums of comfort levels do not drift. If the building's
+ * structure has changed, the tree is built again.
+ * <p>
+ * Floors are found by their floor numbers, and the floors of a building are
+ * always in increasing order of floor number, since a floor can only be
+ * added on top of the floor below it.
+ */
+public class FloorRollup implements TickListener {
+    /**
+     * Building whose rooms are rolled up.
+     */
+    private final Building building;
+
+    /**
+     * Hazard levels of the building's rooms.
+     */
+    private final HazardSweep sweep;
+
+    /**
+     * Structure version at which the tree was built, or -1 if it has never
+     * been built.
+     */
+    private long version;
+
+    /**
+     * Whether the sensors' readings may have changed since the last update,
+     * which is always the case once the roll-up has been closed.
+     */
+    private boolean stale;
+
+    /**
+     * Whether the roll-up is told when the building's clock elapses time.
+     */
+    private boolean listening;
+
+    /**
+     * Whether any sensor in the building can change between ticks of the
+     * building's clock, as of the last time the tree was built.
+     */
+    private boolean live;
+
+    /**
+     * Floor number of each floor, in increasing order.
+     */
+    private int[] floorNumbers;
+
+    /**
+     * Index of the first room of each floor, and the number of rooms after
+     * the last floor.
+     */
+    private int[] floorStarts;
+
+    /**
+     * Index of the first leaf in the tree's arrays; the node at position i
+     * has children at positions 2i and 2i + 1.
+     */
+    private int leaves;
+
+    /**
+     * Highest hazard level beneath each node, or HazardSweep.NO_HAZARD_LEVEL
+     * if no room beneath it has a hazard evaluator.
+     */
+    private int[] maxHazardLevels;
+
+    /**
+     * Sum of the comfort levels of the rooms beneath each node.
+     */
+    private double[] comfortSums;
+
+    /**
+     * Number of rooms with comfort sensors beneath each node.
+     */
+    private int[] comfortRooms;
+
+    /**
+     * Comfort sensors of every room, one room after another.
+     */
+    private ComfortSensor[] sensors;
+
+    /**
+     * Each comfort sensor as a timed sensor, or null if it is not one.
+     */
+    private TimedSensor[] timedSensors;
+
+    /**
+     * Index of the first comfort sensor of each room, and the number of
+     * comfort sensors after the last room.
+     */
+    private int[] sensorStarts;
+
+    /**
+     * Index of the room of each comfort sensor.
+     */
+    private int[] sensorRooms;
+
+    /**
+     * Reading of each timed comfort sensor as of the last update.
+     */
+    private int[] readings;
+
+    /**
+     * Comfort level of each comfort sensor as of the last update.
+     */
+    private int[] comfortLevels;
+
+    /**
+     * Sum of the comfort levels of each room's comfort sensors.
+     */
+    private int[] roomComfortTotals;
+
+    /**
+     * Creates a new roll-up of the hazard and comfort levels of the given
+     * building's rooms, which is told when the building's clock elapses
+     * time.
+     *
+     * @param building building whose rooms to roll up
+     */
+    public FloorRollup(Building building) {
+        this.building = building;
+        this.sweep = new HazardSweep(building);
+        this.version = -1;
+        this.stale = true;
+        this.listening = true;
+        this.live = false;
+        building.getClock().addTickListener(this);
+    }
+
+    /**
+     * Stops being told when the building's clock elapses time. The roll-up
+     * then compares the sensors' readings every time it is asked for a
+     * roll-up, which also picks up sensors advanced other than by the
+     * building's clock.
+     */
+    public void close() {
+        building.getClock().removeTickListener(this);
+        listening = false;
+        stale = true;
+    }
+
+    /**
+     * Marks the sensors' readings as possibly changed when the building's
+     * clock has finished elapsing time.
+     *
+     * @param minutesElapsed minutes elapsed by the clock so far
+     */
+    @Override
+    public void tickCompleted(long minutesElapsed) {
+        stale = true;
+    }
+
+    /**
+     * Returns the highest current hazard level of any room in the building.
+     *
+     * @return highest hazard level, or HazardSweep.NO_HAZARD_LEVEL if no room
+     * has a hazard evaluator
+     */
+    public int getMaxHazardLevel() {
+        update();
+        return maxHazardLevels[1];
+    }
+
+    /**
+     * Returns the highest current hazard level of any room on the floor with
+     * the given number.
+     *
+     * @param floorNumber floor number of the floor
+     * @return highest hazard level, or HazardSweep.NO_HAZARD_LEVEL if no room
+     * on the floor has a hazard evaluator
+     * @throws IllegalArgumentException if the building has no floor with the
+     * number
+     */
+    public int getMaxHazardLevel(int floorNumber)
+            throws IllegalArgumentException {
+        update();
+        int floor = floorIndex(floorNumber);
+        return maxHazardLevel(floorStarts[floor], floorStarts[floor + 1]);
+    }
+
+    /**
+     * Returns the highest current hazard level of any room on the floors
+     * numbered from the first given floor number to the last, inclusive.
+     * The range need not only hold floor numbers the building has.
+     *
+     * @param fromFloor lowest floor number in the range
+     * @param toFloor highest floor number in the range
+     * @return highest hazard level, or HazardSweep.NO_HAZARD_LEVEL if no room
+     * on the floors has a hazard evaluator
+     * @throws IllegalArgumentException if fromFloor &gt; toFloor
+     */
+    public int getMaxHazardLevel(int fromFloor, int toFloor)
+            throws IllegalArgumentException {
+        checkRange(fromFloor, toFloor);
+        update();
+        return maxHazardLevel(floorStarts[firstFloor(fromFloor)],
+                floorStarts[firstFloor((long) toFloor + 1)]);
+    }
+
+    /**
+     * Returns the mean current comfort level of the rooms in the building
+     * that have comfort sensors.
+     *
+     * @return mean comfort level, or 0 if no room has comfort sensors
+     */
+    public double getMeanComfortLevel() {
+        update();
+        return comfortRooms[1] == 0 ? 0 : comfortSums[1] / comfortRooms[1];
+    }
+
+    /**
+     * Returns the mean current comfort level of the rooms on the floor with
+     * the given number that have comfort sensors.
+     *
+     * @param floorNumber floor number of the floor
+     * @return mean comfort level, or 0 if no room on the floor has comfort
+     * sensors
+     * @throws IllegalArgumentException if the building has no floor with the
+     * number
+     */
+    public double getMeanComfortLevel(int floorNumber)
+            throws IllegalArgumentException {
+        update();
+        int floor = floorIndex(floorNumber);
+        return meanComfortLevel(floorStarts[floor], floorStarts[floor + 1]);
+    }
+
+    /**
+     * Returns the mean current comfort level of the rooms that have comfort
+     * sensors on the floors numbered from the first given floor number to the
+     * last, inclusive. The range need not only hold floor numbers the
+     * building has.
+     *
+     * @param fromFloor lowest floor number in the range
+     * @param toFloor highest floor number in the range
+     * @return mean comfort level, or 0 if no room on the floors has comfort
+     * sensors
+     * @throws IllegalArgumentException if fromFloor &gt; toFloor
+     */
+    public double getMeanComfortLevel(int fromFloor, int toFloor)
+            throws IllegalArgumentException {
+        checkRange(fromFloor, toFloor);
+        update();
+        return meanComfortLevel(floorStarts[firstFloor(fromFloor)],
+                floorStarts[firstFloor((long) toFloor + 1)]);
+    }
+
+    /**
+     * Checks that the given range of floor numbers is not empty.
+     *
+     * @param fromFloor lowest floor number in the range
+     * @param toFloor highest floor number in the range
+     * @throws IllegalArgumentException if fromFloor &gt; toFloor
+     */
+    private static void checkRange(int fromFloor, int toFloor)
+            throws IllegalArgumentException {
+        if (fromFloor > toFloor) {
+            throw new IllegalArgumentException("Floor range " + fromFloor
+                    + " to " + toFloor + " is empty");
+        }
+    }
+
+    /**
+     * Returns the index of the floor with the given number.
+     *
+     * @param floorNumber floor number of the floor
+     * @return index of the floor
+     * @throws IllegalArgumentException if there is no floor with the number
+     */
+    private int floorIndex(int floorNumber) throws IllegalArgumentException {
+        int floor = firstFloor(floorNumber);
+        if (floor == floorNumbers.length
+                || floorNumbers[floor] != floorNumber) {
+            throw new IllegalArgumentException("No floor #" + floorNumber);
+        }
+        return floor;
+    }
+
+    /**
+     * Returns the index of the first floor whose number is at least the
+     * given number.
+     *
+     * @param floorNumber floor number to search for
+     * @return index of the floor, or the number of floors if there is none
+     */
+    private int firstFloor(long floorNumber) {
+        int low = 0;
+        int high = floorNumbers.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (floorNumbers[middle] < floorNumber) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the highest hazard level of the rooms with indices in the
+     * given range.
+     *
+     * @param start index of the first room
+     * @param end index after the last room
+     * @return highest hazard level, or HazardSweep.NO_HAZARD_LEVEL if none
+     */
+    private int maxHazardLevel(int start, int end) {
+        int result = HazardSweep.NO_HAZARD_LEVEL;
+        for (int low = start + leaves, high = end + leaves; low < high;
+                low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                result = Math.max(result, maxHazardLevels[low++]);
+            }
+            if ((high & 1) == 1) {
+                result = Math.max(result, maxHazardLevels[--high]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the mean comfort level of the rooms with comfort sensors with
+     * indices in the given range.
+     *
+     * @param start index of the first room
+     * @param end index after the last room
+     * @return mean comfort level, or 0 if there are no such rooms
+     */
+    private double meanComfortLevel(int start, int end) {
+        double sum = 0;
+        int count = 0;
+        for (int low = start + leaves, high = end + leaves; low < high;
+                low >>= 1, high >>= 1) {
+            if ((low & 1) == 1) {
+                sum += comfortSums[low];
+                count += comfortRooms[low++];
+            }
+            if ((high & 1) == 1) {
+                sum += comfortSums[--high];
+                count += comfortRooms[high];
+            }
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * Sweeps the building's hazard levels and compares the comfort sensors'
+     * readings if the clock has elapsed time since the last update or any
+     * sensor can change between ticks, and
+     * combines the nodes above the rooms whose levels changed, or builds the
+     * tree again if the building's structure has changed.
+     */
+    private void update() {
+        long current = building.getStructureVersion().current();
+        if (!stale && !live && version == current) {
+            return;
+        }
+        stale = !listening;
+        sweep.update();
+        if (version != current) {
+            build();
+            version = current;
+            return;
+        }
+        for (int n = 0; n < sweep.getChangedRoomCount(); n++) {
+            int room = sweep.getChangedRoom(n);
+            maxHazardLevels[leaves + room] = sweep.getHazardLevel(room);
+            combineAbove(room);
+        }
+        int lastRoom = -1;
+        for (int i = 0; i < sensors.length; i++) {
+            TimedSensor timedSensor = timedSensors[i];
+            if (timedSensor != null) {
+                int reading = timedSensor.getCurrentReading();
+                if (reading == readings[i]) {
+                    continue;
+                }
+                readings[i] = reading;
+            }
+            int comfortLevel = sensors[i].getComfortLevel();
+            if (comfortLevel == comfortLevels[i]) {
+                continue;
+            }
+            int room = sensorRooms[i];
+            roomComfortTotals[room] += comfortLevel - comfortLevels[i];
+            comfortLevels[i] = comfortLevel;
+            // the sensors are in room order, so each room is combined once,
+            // after its last changed sensor
+            if (room != lastRoom && lastRoom >= 0) {
+                setComfortLevel(lastRoom);
+            }
+            lastRoom = room;
+        }
+        if (lastRoom >= 0) {
+            setComfortLevel(lastRoom);
+        }
+    }
+
+    /**
+     * Sets the leaf of the given room to the room's comfort level, and
+     * combines the nodes above it.
+     *
+     * @param room index of the room
+     */
+    private void setComfortLevel(int room) {
+        int count = sensorStarts[room + 1] - sensorStarts[room];
+        comfortSums[leaves + room] = (double) roomComfortTotals[room] / count;
+        combineAbove(room);
+    }
+
+    /**
+     * Combines each node above the leaf of the given room from its
+     * children.
+     *
+     * @param room index of the room
+     */
+    private void combineAbove(int room) {
+        for (int node = (leaves + room) >> 1; node >= 1; node >>= 1) {
+            combine(node);
+        }
+    }
+
+    /**
+     * Combines the given node from its children.
+     *
+     * @param node position of the node
+     */
+    private void combine(int node) {
+        int left = 2 * node;
+        int right = left + 1;
+        maxHazardLevels[node] = Math.max(maxHazardLevels[left],
+                maxHazardLevels[right]);
+        comfortSums[node] = comfortSums[left] + comfortSums[right];
+        comfortRooms[node] = comfortRooms[left] + comfortRooms[right];
+    }
+
+    /**
+     * Builds the tree from every room in the building.
+     */
+    private void build() {
+        int roomCount = sweep.getRoomCount();
+        List<Integer> numberList = new ArrayList<>();
+        List<Integer> startList = new ArrayList<>();
+        for (int room = 0; room < roomCount; room++) {
+            int floor = sweep.getFloorIndex(room);
+            while (startList.size() <= floor) {
+                startList.add(room);
+            }
+        }
+        List<Floor> floors = building.getFloors();
+        for (Floor floor : floors) {
+            numberList.add(floor.getFloorNumber());
+        }
+        while (startList.size() <= floors.size()) {
+            startList.add(roomCount);
+        }
+        floorNumbers = new int[numberList.size()];
+        floorStarts = new int[startList.size()];
+        for (int f = 0; f < floorNumbers.length; f++) {
+            floorNumbers[f] = numberList.get(f);
+        }
+        for (int f = 0; f < floorStarts.length; f++) {
+            floorStarts[f] = startList.get(f);
+        }
+
+        leaves = 1;
+        while (leaves < Math.max(roomCount, 1)) {
+            leaves *= 2;
+        }
+        maxHazardLevels = new int[2 * leaves];
+        comfortSums = new double[2 * leaves];
+        comfortRooms = new int[2 * leaves];
+        Arrays.fill(maxHazardLevels, HazardSweep.NO_HAZARD_LEVEL);
+
+        List<ComfortSensor> sensorList = new ArrayList<>();
+        List<Integer> roomOfSensorList = new ArrayList<>();
+        sensorStarts = new int[roomCount + 1];
+        live = false;
+        for (int room = 0; room < roomCount; room++) {
+            sensorStarts[room] = sensorList.size();
+            for (Sensor sensor : sweep.getRoom(room).getSensors()) {
+                // readings known in advance only change as the clock ticks
+                if (!sensor.canLookAhead()) {
+                    live = true;
+                }
+                if (sensor instanceof ComfortSensor) {
+                    sensorList.add((ComfortSensor) sensor);
+                    roomOfSensorList.add(room);
+                }
+            }
+        }
+        sensorStarts[roomCount] = sensorList.size();
+        int sensorCount = sensorList.size();
+        sensors = sensorList.toArray(new ComfortSensor[0]);
+        timedSensors = new TimedSensor[sensorCount];
+        sensorRooms = new int[sensorCount];
+        readings = new int[sensorCount];
+        comfortLevels = new int[sensorCount];
+        roomComfortTotals = new int[roomCount];
+        for (int i = 0; i < sensorCount; i++) {
+            if (sensors[i] instanceof TimedSensor) {
+                timedSensors[i] = (TimedSensor) sensors[i];
+                readings[i] = timedSensors[i].getCurrentReading();
+            }
+            sensorRooms[i] = roomOfSensorList.get(i);
+            comfortLevels[i] = sensors[i].getComfortLevel();
+            roomComfortTotals[sensorRooms[i]] += comfortLevels[i];
+        }
+
+        for (int room = 0; room < roomCount; room++) {
+            int leaf = leaves + room;
+            maxHazardLevels[leaf] = sweep.getHazardLevel(room);
+            int count = sensorStarts[room + 1] - sensorStarts[room];
+            if (count > 0) {
+                comfortSums[leaf] = (double) roomComfortTotals[room] / count;
+                comfortRooms[leaf] = 1;
+            }
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            combine(node);
+        }
+    }
+}
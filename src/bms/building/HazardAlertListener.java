@@ -0,0 +1,33 @@
+package bms.building;
+
+import bms.room.Room;
+
+/**
+ * Denotes a class that is told when the hazard level of a room crosses the
+ * thresholds of a subscription (see HazardAlerts).
+ */
+public interface HazardAlertListener {
+    /**
+     * Called when a room's hazard level rises to or above the raise level of
+     * the subscription, while the room was not already raised.
+     *
+     * @param subscription subscription whose threshold was crossed
+     * @param room room whose hazard level crossed the threshold
+     * @param hazardLevel new hazard level of the room
+     */
+    void hazardRaised(HazardSubscription subscription, Room room,
+            int hazardLevel);
+
+    /**
+     * Called when the hazard level of a raised room falls to or below the
+     * clear level of the subscription. The level is
+     * HazardSweep.NO_HAZARD_LEVEL if the room's hazard evaluator has been
+     * removed.
+     *
+     * @param subscription subscription whose threshold was crossed
+     * @param room room whose hazard level crossed the threshold
+     * @param hazardLevel new hazard level of the room
+     */
+    void hazardCleared(HazardSubscription subscription, Room room,
+            int hazardLevel);
+}
@@ -0,0 +1,550 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.util.TickListener;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Alerts subscribers when the hazard levels of a building's rooms cross
+ * thresholds.
+ * <p>
+ * Subscriptions watch a single room, every room on a floor, or every room
+ * in the building, with a raise level and a lower clear level (see
+ * HazardSubscription). The building's hazard levels are checked each time
+ * its clock finishes elapsing time, and listeners are told of every
+ * threshold crossed since the previous check, during the clock's tick. If
+ * the clock elapses several minutes at once, only the levels at the end of
+ * those minutes are checked.
+ * <p>
+ * Each check sweeps the building's hazard levels (see HazardSweep), which
+ * reports the rooms whose levels changed. Only the subscriptions of those
+ * rooms, of their floors and of the building are looked at, and those are
+ * indexed by threshold, so that a change in level only visits the
+ * subscriptions whose thresholds lie between the old and new levels. A check
+ * in which no threshold is crossed does not allocate any memory.
+ */
+public class HazardAlerts implements TickListener {
+    /**
+     * Highest possible hazard level.
+     */
+    private static final int MAX_HAZARD_LEVEL = 100;
+
+    /**
+     * Building whose rooms are watched.
+     */
+    private final Building building;
+
+    /**
+     * Hazard levels of the building's rooms.
+     */
+    private final HazardSweep sweep;
+
+    /**
+     * Subscriptions watching each room that has any.
+     */
+    private final Map<Room, ThresholdIndex> roomSubscriptions;
+
+    /**
+     * Subscriptions watching each floor that has any.
+     */
+    private final Map<Floor, ThresholdIndex> floorSubscriptions;
+
+    /**
+     * Subscriptions watching the whole building.
+     */
+    private final ThresholdIndex buildingSubscriptions;
+
+    /**
+     * Subscriptions made since the last check, which are put in effect at
+     * the end of the next check.
+     */
+    private final List<HazardSubscription> pending;
+
+    /**
+     * Subscriptions cancelled during the current check, which are removed
+     * from their indices at the end of the check.
+     */
+    private final List<HazardSubscription> cancelled;
+
+    /**
+     * Whether a check is in progress.
+     */
+    private boolean checking;
+
+    /**
+     * Structure version at which the arrays of rooms were built, or -1 if
+     * they have never been built.
+     */
+    private long version;
+
+    /**
+     * Whether a room or floor has had its first subscription put in effect
+     * since the arrays of subscriptions by room were last filled.
+     */
+    private boolean indicesAdded;
+
+    /**
+     * Every room in the building, in order of their index in the sweep.
+     */
+    private Room[] rooms;
+
+    /**
+     * Hazard level of each room as of the last check.
+     */
+    private int[] levels;
+
+    /**
+     * Subscriptions watching each room, or null if it has none.
+     */
+    private ThresholdIndex[] roomIndices;
+
+    /**
+     * Subscriptions watching each room's floor, or null if it has none.
+     */
+    private ThresholdIndex[] floorIndices;
+
+    /**
+     * Creates a new alerting engine for the given building, which checks
+     * the building's hazard levels whenever its clock finishes elapsing
+     * time.
+     *
+     * @param building building whose rooms to watch
+     */
+    public HazardAlerts(Building building) {
+        this.building = building;
+        this.sweep = new HazardSweep(building);
+        this.roomSubscriptions = new IdentityHashMap<>();
+        this.floorSubscriptions = new IdentityHashMap<>();
+        this.buildingSubscriptions = new ThresholdIndex();
+        this.pending = new ArrayList<>();
+        this.cancelled = new ArrayList<>();
+        this.version = -1;
+        building.getClock().addTickListener(this);
+    }
+
+    /**
+     * Subscribes to alerts when the hazard level of the given room crosses
+     * the given thresholds. The subscription takes effect at the next check,
+     * which raises the room straight away if its level is already at or
+     * above the raise level.
+     *
+     * @param room room to watch
+     * @param raiseLevel hazard level at or above which the room is raised
+     * @param clearLevel hazard level at or below which the room is cleared
+     * @param listener listener to tell of alerts
+     * @return new subscription
+     * @throws IllegalArgumentException if the room is not in the building,
+     * or the levels are not 0 &lt;= clearLevel &lt; raiseLevel &lt;= 100
+     */
+    public HazardSubscription subscribe(Room room, int raiseLevel,
+            int clearLevel, HazardAlertListener listener)
+            throws IllegalArgumentException {
+        if (sweep.indexOf(room) < 0) {
+            throw new IllegalArgumentException("Room is not in the building");
+        }
+        return addSubscription(new HazardSubscription(room, null,
+                raiseLevel, clearLevel, listener));
+    }
+
+    /**
+     * Subscribes to alerts when the hazard level of any room on the given
+     * floor crosses the given thresholds, as described in
+     * subscribe(Room, int, int, HazardAlertListener).
+     *
+     * @param floor floor whose rooms to watch
+     * @param raiseLevel hazard level at or above which a room is raised
+     * @param clearLevel hazard level at or below which a room is cleared
+     * @param listener listener to tell of alerts
+     * @return new subscription
+     * @throws IllegalArgumentException if the floor is not in the building,
+     * or the levels are not 0 &lt;= clearLevel &lt; raiseLevel &lt;= 100
+     */
+    public HazardSubscription subscribe(Floor floor, int raiseLevel,
+            int clearLevel, HazardAlertListener listener)
+            throws IllegalArgumentException {
+        boolean found = false;
+        for (Floor buildingFloor : building.getFloors()) {
+            found |= buildingFloor == floor;
+        }
+        if (!found) {
+            throw new IllegalArgumentException(
+                    "Floor is not in the building");
+        }
+        return addSubscription(new HazardSubscription(null, floor,
+                raiseLevel, clearLevel, listener));
+    }
+
+    /**
+     * Subscribes to alerts when the hazard level of any room in the
+     * building crosses the given thresholds, as described in
+     * subscribe(Room, int, int, HazardAlertListener).
+     *
+     * @param raiseLevel hazard level at or above which a room is raised
+     * @param clearLevel hazard level at or below which a room is cleared
+     * @param listener listener to tell of alerts
+     * @return new subscription
+     * @throws IllegalArgumentException if the levels are not
+     * 0 &lt;= clearLevel &lt; raiseLevel &lt;= 100
+     */
+    public HazardSubscription subscribe(int raiseLevel, int clearLevel,
+            HazardAlertListener listener) throws IllegalArgumentException {
+        return addSubscription(new HazardSubscription(null, null,
+                raiseLevel, clearLevel, listener));
+    }
+
+    /**
+     * Cancels the given subscription, whose listener is not told of any
+     * further alerts. Cancelling a subscription which has already been
+     * cancelled has no effect.
+     *
+     * @param subscription subscription to cancel
+     */
+    public void unsubscribe(HazardSubscription subscription) {
+        if (!subscription.isActive()) {
+            return;
+        }
+        subscription.cancel();
+        if (checking) {
+            cancelled.add(subscription);
+        } else if (!pending.remove(subscription)) {
+            indexFor(subscription).remove(subscription);
+        }
+    }
+
+    /**
+     * Stops checking the building's hazard levels when its clock elapses
+     * time. The hazard levels are then only checked by calling check().
+     */
+    public void close() {
+        building.getClock().removeTickListener(this);
+    }
+
+    /**
+     * Checks the building's hazard levels when its clock has finished
+     * elapsing time.
+     *
+     * @param minutesElapsed minutes elapsed by the clock so far
+     */
+    @Override
+    public void tickCompleted(long minutesElapsed) {
+        check();
+    }
+
+    /**
+     * Checks the hazard levels of the building's rooms, and tells the
+     * listeners of every subscription whose thresholds have been crossed
+     * since the last check. Subscriptions made or cancelled by listeners
+     * during the check take effect at the end of the check.
+     */
+    public void check() {
+        checking = true;
+        try {
+            long current = building.getStructureVersion().current();
+            sweep.update();
+            if (version != current) {
+                buildRooms();
+                version = current;
+            } else if (indicesAdded) {
+                fillIndices();
+            }
+            for (int n = 0; n < sweep.getChangedRoomCount(); n++) {
+                int room = sweep.getChangedRoom(n);
+                int level = sweep.getHazardLevel(room);
+                if (level != levels[room]) {
+                    levelChanged(room, levels[room], level);
+                    levels[room] = level;
+                }
+            }
+            // listeners may subscribe again while these are put in effect
+            for (int i = 0; i < pending.size(); i++) {
+                putInEffect(pending.get(i));
+            }
+            pending.clear();
+        } finally {
+            checking = false;
+            for (int i = 0; i < cancelled.size(); i++) {
+                indexFor(cancelled.get(i)).remove(cancelled.get(i));
+            }
+            cancelled.clear();
+        }
+    }
+
+    /**
+     * Checks the given thresholds and queues a new subscription to take
+     * effect at the next check.
+     *
+     * @param subscription new subscription
+     * @return the subscription
+     * @throws IllegalArgumentException if the levels are not
+     * 0 &lt;= clearLevel &lt; raiseLevel &lt;= 100
+     */
+    private HazardSubscription addSubscription(
+            HazardSubscription subscription) throws IllegalArgumentException {
+        if (subscription.getClearLevel() < 0
+                || subscription.getClearLevel() >= subscription.getRaiseLevel()
+                || subscription.getRaiseLevel() > MAX_HAZARD_LEVEL) {
+            throw new IllegalArgumentException("Levels must satisfy 0 <= "
+                    + "clear level < raise level <= " + MAX_HAZARD_LEVEL);
+        }
+        pending.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Adds a pending subscription to its index, and raises the rooms it
+     * watches whose hazard levels are already at or above its raise level.
+     *
+     * @param subscription subscription to put in effect
+     */
+    private void putInEffect(HazardSubscription subscription) {
+        if (!subscription.isActive()) {
+            return;
+        }
+        indexFor(subscription).add(subscription);
+        List<Room> watched;
+        if (subscription.getRoom() != null) {
+            watched = List.of(subscription.getRoom());
+        } else if (subscription.getFloor() != null) {
+            watched = subscription.getFloor().getRooms();
+        } else {
+            watched = List.of(rooms);
+        }
+        for (Room room : watched) {
+            int level = levels[sweep.indexOf(room)];
+            if (level >= subscription.getRaiseLevel()) {
+                subscription.raise(room, level);
+            }
+        }
+    }
+
+    /**
+     * Returns the index holding the given subscription, creating it if the
+     * subscription's room or floor has none.
+     *
+     * @param subscription subscription to find the index of
+     * @return index for the subscription
+     */
+    private ThresholdIndex indexFor(HazardSubscription subscription) {
+        if (subscription.getRoom() != null) {
+            return roomSubscriptions.computeIfAbsent(subscription.getRoom(),
+                    room -> newIndex());
+        } else if (subscription.getFloor() != null) {
+            return floorSubscriptions.computeIfAbsent(
+                    subscription.getFloor(), floor -> newIndex());
+        }
+        return buildingSubscriptions;
+    }
+
+    /**
+     * Creates the index of a room or floor which has had no subscriptions,
+     * which is added to the arrays of subscriptions by room at the next
+     * check.
+     *
+     * @return new empty index
+     */
+    private ThresholdIndex newIndex() {
+        indicesAdded = true;
+        return new ThresholdIndex();
+    }
+
+    /**
+     * Tells the subscriptions watching the room with the given index that
+     * its hazard level has changed.
+     *
+     * @param room index of the room
+     * @param oldLevel previous hazard level of the room
+     * @param newLevel new hazard level of the room
+     */
+    private void levelChanged(int room, int oldLevel, int newLevel) {
+        if (roomIndices[room] != null) {
+            roomIndices[room].levelChanged(rooms[room], oldLevel, newLevel);
+        }
+        if (floorIndices[room] != null) {
+            floorIndices[room].levelChanged(rooms[room], oldLevel, newLevel);
+        }
+        buildingSubscriptions.levelChanged(rooms[room], oldLevel, newLevel);
+    }
+
+    /**
+     * Builds the arrays of rooms again after the building's structure has
+     * changed, keeping the last known hazard level of each room. Rooms new to
+     * the building are taken to have had no hazard level.
+     */
+    private void buildRooms() {
+        Map<Room, Integer> oldLevels = new IdentityHashMap<>();
+        for (int i = 0; rooms != null && i < rooms.length; i++) {
+            oldLevels.put(rooms[i], levels[i]);
+        }
+        int roomCount = sweep.getRoomCount();
+        rooms = new Room[roomCount];
+        levels = new int[roomCount];
+        for (int i = 0; i < roomCount; i++) {
+            rooms[i] = sweep.getRoom(i);
+            levels[i] = oldLevels.getOrDefault(rooms[i],
+                    HazardSweep.NO_HAZARD_LEVEL);
+        }
+        fillIndices();
+    }
+
+    /**
+     * Fills the arrays of the subscriptions watching each room and each
+     * room's floor.
+     */
+    private void fillIndices() {
+        roomIndices = new ThresholdIndex[rooms.length];
+        floorIndices = new ThresholdIndex[rooms.length];
+        for (int i = 0; i < rooms.length; i++) {
+            roomIndices[i] = roomSubscriptions.get(rooms[i]);
+            floorIndices[i] = floorSubscriptions.get(floorOf(i));
+        }
+        indicesAdded = false;
+    }
+
+    /**
+     * Returns the floor of the room with the given index.
+     *
+     * @param room index of the room
+     * @return floor containing the room
+     */
+    private Floor floorOf(int room) {
+        return building.getFloors().get(sweep.getFloorIndex(room));
+    }
+
+    /**
+     * Subscriptions watching one room, one floor or the whole building,
+     * indexed by their raise and clear levels.
+     * <p>
+     * Each subscription knows its position in the lists for its levels, so
+     * it is removed by moving the last subscription of each list into its
+     * place. Subscriptions with the same level are therefore in no
+     * particular order.
+     */
+    private static class ThresholdIndex {
+        /**
+         * Subscriptions with each raise level, or null for levels that no
+         * subscription has.
+         */
+        private final List<List<HazardSubscription>> byRaiseLevel;
+
+        /**
+         * Subscriptions with each clear level, or null for levels that no
+         * subscription has.
+         */
+        private final List<List<HazardSubscription>> byClearLevel;
+
+        /**
+         * Lowest raise level of any subscription that has been added.
+         */
+        private int lowestRaiseLevel;
+
+        /**
+         * Highest clear level of any subscription that has been added.
+         */
+        private int highestClearLevel;
+
+        /**
+         * Creates a new empty index.
+         */
+        ThresholdIndex() {
+            this.byRaiseLevel = new ArrayList<>();
+            this.byClearLevel = new ArrayList<>();
+            for (int level = 0; level <= MAX_HAZARD_LEVEL; level++) {
+                byRaiseLevel.add(null);
+                byClearLevel.add(null);
+            }
+            this.lowestRaiseLevel = MAX_HAZARD_LEVEL + 1;
+            this.highestClearLevel = -1;
+        }
+
+        /**
+         * Adds a subscription to the index.
+         *
+         * @param subscription subscription to add
+         */
+        void add(HazardSubscription subscription) {
+            int raiseLevel = subscription.getRaiseLevel();
+            int clearLevel = subscription.getClearLevel();
+            if (byRaiseLevel.get(raiseLevel) == null) {
+                byRaiseLevel.set(raiseLevel, new ArrayList<>());
+            }
+            if (byClearLevel.get(clearLevel) == null) {
+                byClearLevel.set(clearLevel, new ArrayList<>());
+            }
+            List<HazardSubscription> raised = byRaiseLevel.get(raiseLevel);
+            subscription.setRaisePosition(raised.size());
+            raised.add(subscription);
+            List<HazardSubscription> cleared = byClearLevel.get(clearLevel);
+            subscription.setClearPosition(cleared.size());
+            cleared.add(subscription);
+            lowestRaiseLevel = Math.min(lowestRaiseLevel, raiseLevel);
+            highestClearLevel = Math.max(highestClearLevel, clearLevel);
+        }
+
+        /**
+         * Removes a subscription from the index.
+         *
+         * @param subscription subscription to remove
+         */
+        void remove(HazardSubscription subscription) {
+            // subscriptions cancelled before taking effect were never added
+            if (subscription.getRaisePosition() < 0) {
+                return;
+            }
+            List<HazardSubscription> raised =
+                    byRaiseLevel.get(subscription.getRaiseLevel());
+            HazardSubscription last = raised.remove(raised.size() - 1);
+            if (last != subscription) {
+                raised.set(subscription.getRaisePosition(), last);
+                last.setRaisePosition(subscription.getRaisePosition());
+            }
+            subscription.setRaisePosition(-1);
+            List<HazardSubscription> cleared =
+                    byClearLevel.get(subscription.getClearLevel());
+            last = cleared.remove(cleared.size() - 1);
+            if (last != subscription) {
+                cleared.set(subscription.getClearPosition(), last);
+                last.setClearPosition(subscription.getClearPosition());
+            }
+            subscription.setClearPosition(-1);
+        }
+
+        /**
+         * Raises or clears the given room for each subscription whose raise
+         * level it has risen to, or whose clear level it has fallen to.
+         *
+         * @param room room whose hazard level changed
+         * @param oldLevel previous hazard level of the room
+         * @param newLevel new hazard level of the room
+         */
+        void levelChanged(Room room, int oldLevel, int newLevel) {
+            if (newLevel > oldLevel) {
+                int from = Math.max(oldLevel + 1, lowestRaiseLevel);
+                for (int level = from; level <= newLevel; level++) {
+                    List<HazardSubscription> subscriptions =
+                            byRaiseLevel.get(level);
+                    // indexed so that checks do not allocate an iterator
+                    for (int i = 0; subscriptions != null
+                            && i < subscriptions.size(); i++) {
+                        subscriptions.get(i).raise(room, newLevel);
+                    }
+                }
+            } else {
+                int from = Math.max(newLevel, 0);
+                int to = Math.min(oldLevel - 1, highestClearLevel);
+                for (int level = from; level <= to; level++) {
+                    List<HazardSubscription> subscriptions =
+                            byClearLevel.get(level);
+                    for (int i = 0; subscriptions != null
+                            && i < subscriptions.size(); i++) {
+                        subscriptions.get(i).clear(room, newLevel);
+                    }
+                }
+            }
+        }
+    }
+}
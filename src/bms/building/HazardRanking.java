@@ -0,0 +1,253 @@
+package bms.building;
+
+import bms.room.Room;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Index of the rooms of a building ordered by hazard level, which can list
+ * the most hazardous rooms without evaluating and sorting every room.
+ * <p>
+ * Every room with a hazard evaluator is kept in an indexed binary heap,
+ * ordered from the highest hazard level to the lowest, with rooms of equal
+ * level in the order of their index in a HazardSweep of the building (by
+ * floor, then in the order the rooms were added). The heap also records
+ * where each room is in it, so when a room's hazard level changes the room
+ * is moved up or down from where it is in O(log n) time.
+ * <p>
+ * The index is brought up to date whenever it is asked for the most
+ * hazardous rooms, by sweeping the building's hazard levels, which reports
+ * the rooms whose level changed since the last sweep. Only those rooms are
+ * moved in the heap. The k most hazardous rooms are then found by walking
+ * down the heap from the top, which takes O(k log k) time however many
+ * rooms the building has. If the building's structure has changed, the heap
+ * is built again from every room.
+ */
+public class HazardRanking {
+    /**
+     * Building whose rooms are ranked.
+     */
+    private final Building building;
+
+    /**
+     * Hazard levels of the building's rooms.
+     */
+    private final HazardSweep sweep;
+
+    /**
+     * Structure version at which the heap was built, or -1 if it has never
+     * been built.
+     */
+    private long version;
+
+    /**
+     * Index of the room in each position of the heap, of which the first
+     * size are valid. The room at position i comes before the rooms at
+     * positions 2i + 1 and 2i + 2.
+     */
+    private int[] heap;
+
+    /**
+     * Position in the heap of each room, or -1 if the room has no hazard
+     * evaluator and is not in the heap.
+     */
+    private int[] positions;
+
+    /**
+     * Hazard level of each room by which it is ordered in the heap. The
+     * levels are copied from the sweep one room at a time, so that the heap
+     * is only ever out of order around the one room being moved.
+     */
+    private int[] levels;
+
+    /**
+     * Number of rooms in the heap.
+     */
+    private int size;
+
+    /**
+     * Creates a new ranking of the rooms of the given building by hazard
+     * level.
+     *
+     * @param building building whose rooms to rank
+     */
+    public HazardRanking(Building building) {
+        this.building = building;
+        this.sweep = new HazardSweep(building);
+        this.version = -1;
+    }
+
+    /**
+     * Returns up to the given number of the building's most hazardous rooms,
+     * from the highest current hazard level to the lowest. Rooms with equal
+     * hazard levels are listed in the order of their floors, and then in the
+     * order they were added to their floor. Rooms without a hazard evaluator
+     * are not listed.
+     *
+     * @param count largest number of rooms to return
+     * @return most hazardous rooms, most hazardous first
+     * @throws IllegalArgumentException if count &lt; 0
+     */
+    public List<Room> getMostHazardousRooms(int count)
+            throws IllegalArgumentException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative");
+        }
+        update();
+        List<Room> rooms = new ArrayList<>(Math.min(count, size));
+        if (size == 0 || count == 0) {
+            return rooms;
+        }
+        // every position below the listed rooms comes after them, so the
+        // next room is always one of the children of the listed rooms
+        PriorityQueue<Integer> candidates = new PriorityQueue<>(
+                (a, b) -> before(heap[a], heap[b]) ? -1 : 1);
+        candidates.add(0);
+        while (rooms.size() < count && !candidates.isEmpty()) {
+            int position = candidates.poll();
+            rooms.add(sweep.getRoom(heap[position]));
+            for (int child = 2 * position + 1;
+                    child <= 2 * position + 2 && child < size; child++) {
+                candidates.add(child);
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Returns the current hazard level of the given room.
+     *
+     * @param room room in the building
+     * @return hazard level of the room, or HazardSweep.NO_HAZARD_LEVEL if it
+     * has no hazard evaluator
+     * @throws IllegalArgumentException if the room is not in the building
+     */
+    public int getHazardLevel(Room room) throws IllegalArgumentException {
+        update();
+        int index = sweep.indexOf(room);
+        if (index < 0) {
+            throw new IllegalArgumentException("Room is not in the building");
+        }
+        return levels[index];
+    }
+
+    /**
+     * Sweeps the building's hazard levels and moves the rooms whose levels
+     * changed to their new positions in the heap, or builds the heap again
+     * if the building's structure has changed.
+     */
+    private void update() {
+        long current = building.getStructureVersion().current();
+        sweep.update();
+        if (version != current) {
+            build();
+            version = current;
+            return;
+        }
+        for (int n = 0; n < sweep.getChangedRoomCount(); n++) {
+            int room = sweep.getChangedRoom(n);
+            levels[room] = sweep.getHazardLevel(room);
+            if (positions[room] >= 0) {
+                siftDown(siftUp(positions[room]));
+            }
+        }
+    }
+
+    /**
+     * Builds the heap from every room with a hazard evaluator.
+     */
+    private void build() {
+        int roomCount = sweep.getRoomCount();
+        heap = new int[roomCount];
+        positions = new int[roomCount];
+        levels = new int[roomCount];
+        size = 0;
+        for (int room = 0; room < roomCount; room++) {
+            positions[room] = -1;
+            levels[room] = sweep.getHazardLevel(room);
+            if (levels[room] != HazardSweep.NO_HAZARD_LEVEL) {
+                heap[size] = room;
+                positions[room] = size;
+                size++;
+            }
+        }
+        for (int position = size / 2 - 1; position >= 0; position--) {
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Moves the room at the given position up the heap until it comes after
+     * its parent.
+     *
+     * @param position position of the room
+     * @return new position of the room
+     */
+    private int siftUp(int position) {
+        int room = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!before(room, heap[parent])) {
+                break;
+            }
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(room, position);
+        return position;
+    }
+
+    /**
+     * Moves the room at the given position down the heap until it comes
+     * before its children.
+     *
+     * @param position position of the room
+     */
+    private void siftDown(int position) {
+        int room = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!before(heap[child], room)) {
+                break;
+            }
+            place(heap[child], position);
+            position = child;
+        }
+        place(room, position);
+    }
+
+    /**
+     * Puts the given room at the given position in the heap.
+     *
+     * @param room index of the room
+     * @param position position in the heap
+     */
+    private void place(int room, int position) {
+        heap[position] = room;
+        positions[room] = position;
+    }
+
+    /**
+     * Returns whether the first room comes before the second in the ranking,
+     * that is whether it has a higher hazard level, or the same level and a
+     * lower index.
+     *
+     * @param first index of the first room
+     * @param second index of the second room
+     * @return true if the first room is ranked above the second
+     */
+    private boolean before(int first, int second) {
+        if (levels[first] != levels[second]) {
+            return levels[first] > levels[second];
+        }
+        return first < second;
+    }
+}
@@ -0,0 +1,222 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Subscription to alerts when the hazard level of a room, of any room on a
+ * floor, or of any room in a building, crosses a pair of thresholds (see
+ * HazardAlerts).
+ * <p>
+ * The thresholds form a hysteresis band: a room is raised once its hazard
+ * level reaches the raise level, and stays raised until its level falls to
+ * the clear level, which is lower. A level that moves up and down inside
+ * the band does not cause any alerts.
+ */
+public final class HazardSubscription {
+    /**
+     * Room watched by the subscription, or null if it watches a floor or a
+     * whole building.
+     */
+    private final Room room;
+
+    /**
+     * Floor whose rooms are watched by the subscription, or null if it
+     * watches a single room or a whole building.
+     */
+    private final Floor floor;
+
+    /**
+     * Hazard level at or above which a room is raised.
+     */
+    private final int raiseLevel;
+
+    /**
+     * Hazard level at or below which a raised room is cleared.
+     */
+    private final int clearLevel;
+
+    /**
+     * Listener told when a room is raised or cleared.
+     */
+    private final HazardAlertListener listener;
+
+    /**
+     * Rooms which are currently raised.
+     */
+    private final Set<Room> raisedRooms;
+
+    /**
+     * Whether the subscription is still in effect.
+     */
+    private boolean active;
+
+    /**
+     * Position of the subscription among those with its raise level in the
+     * index of HazardAlerts it was added to, or -1 if it is not in one.
+     */
+    private int raisePosition;
+
+    /**
+     * Position of the subscription among those with its clear level in the
+     * index of HazardAlerts it was added to, or -1 if it is not in one.
+     */
+    private int clearPosition;
+
+    /**
+     * Creates a new subscription.
+     *
+     * @param room room to watch, or null
+     * @param floor floor to watch, or null
+     * @param raiseLevel hazard level at or above which a room is raised
+     * @param clearLevel hazard level at or below which a room is cleared
+     * @param listener listener to tell of alerts
+     */
+    HazardSubscription(Room room, Floor floor, int raiseLevel,
+            int clearLevel, HazardAlertListener listener) {
+        this.room = room;
+        this.floor = floor;
+        this.raiseLevel = raiseLevel;
+        this.clearLevel = clearLevel;
+        this.listener = listener;
+        this.raisedRooms = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.active = true;
+        this.raisePosition = -1;
+        this.clearPosition = -1;
+    }
+
+    /**
+     * Returns the room watched by this subscription.
+     *
+     * @return watched room, or null if the subscription watches a floor or
+     * a whole building
+     */
+    public Room getRoom() {
+        return room;
+    }
+
+    /**
+     * Returns the floor whose rooms are watched by this subscription.
+     *
+     * @return watched floor, or null if the subscription watches a single
+     * room or a whole building
+     */
+    public Floor getFloor() {
+        return floor;
+    }
+
+    /**
+     * Returns the hazard level at or above which a room is raised.
+     *
+     * @return raise level
+     */
+    public int getRaiseLevel() {
+        return raiseLevel;
+    }
+
+    /**
+     * Returns the hazard level at or below which a raised room is cleared.
+     *
+     * @return clear level
+     */
+    public int getClearLevel() {
+        return clearLevel;
+    }
+
+    /**
+     * Returns whether the given room is currently raised by this
+     * subscription.
+     *
+     * @param room room to check
+     * @return true if the room has been raised and not since cleared
+     */
+    public boolean isRaised(Room room) {
+        return raisedRooms.contains(room);
+    }
+
+    /**
+     * Returns whether this subscription is still in effect.
+     *
+     * @return false once the subscription has been cancelled
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Marks this subscription as cancelled.
+     */
+    void cancel() {
+        active = false;
+    }
+
+    /**
+     * Returns the position of this subscription among those with its raise
+     * level in its index.
+     *
+     * @return position in the index, or -1 if it is not in an index
+     */
+    int getRaisePosition() {
+        return raisePosition;
+    }
+
+    /**
+     * Sets the position of this subscription among those with its raise
+     * level in its index.
+     *
+     * @param raisePosition position in the index, or -1 if removed
+     */
+    void setRaisePosition(int raisePosition) {
+        this.raisePosition = raisePosition;
+    }
+
+    /**
+     * Returns the position of this subscription among those with its clear
+     * level in its index.
+     *
+     * @return position in the index, or -1 if it is not in an index
+     */
+    int getClearPosition() {
+        return clearPosition;
+    }
+
+    /**
+     * Sets the position of this subscription among those with its clear
+     * level in its index.
+     *
+     * @param clearPosition position in the index, or -1 if removed
+     */
+    void setClearPosition(int clearPosition) {
+        this.clearPosition = clearPosition;
+    }
+
+    /**
+     * Raises the given room and tells the listener, unless the subscription
+     * has been cancelled or the room is already raised.
+     *
+     * @param room room whose level rose to the raise level
+     * @param hazardLevel new hazard level of the room
+     */
+    void raise(Room room, int hazardLevel) {
+        if (active && raisedRooms.add(room)) {
+            listener.hazardRaised(this, room, hazardLevel);
+        }
+    }
+
+    /**
+     * Clears the given room and tells the listener, unless the subscription
+     * has been cancelled or the room is not raised.
+     *
+     * @param room room whose level fell to the clear level
+     * @param hazardLevel new hazard level of the room
+     */
+    void clear(Room room, int hazardLevel) {
+        if (active && raisedRooms.remove(room)) {
+            listener.hazardCleared(this, room, hazardLevel);
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.sensors.HazardLevelCache;
+import bms.sensors.HazardSensor;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates the hazard level of every room in a building in one pass.
+ * <p>
+ * The rooms' sensors and hazard evaluators are compiled into flat arrays:
+ * the sensors of all rooms one after another in a HazardLevelCache, and
+ * each room's range of sensors along with the weighting of each of them. A
+ * sweep first updates the cached hazard levels of the sensors, which only
+ * looks up the levels of sensors whose readings have changed, and reads the
+ * readings of sensors in a sensor store straight from the store's packed
+ * arrays. It then combines the hazard levels of the sensors of each room
+ * that had a level change. Weighting based rooms are combined with a plain
+ * loop over the arrays, using exactly the same arithmetic as the room's
+ * WeightingBasedHazardEvaluator, and the levels of rule based rooms are
+ * handed to the rule compiled by the room's RuleBasedHazardEvaluator, so
+ * each result equals what the room's evaluator would return.
+ * <p>
+ * Rooms are numbered from 0 in order of their floors in the building, and
+ * then in the order the rooms were added to the floor. The arrays are
+ * compiled again before a sweep whenever the building's structure has
+ * changed, including when a room's hazard evaluator is replaced (see
+ * bms.util.StructureVersion). Rooms whose evaluator is of another type are
+ * evaluated by calling the evaluator on every sweep.
+ */
+public class HazardSweep {
+    /**
+     * Hazard level reported for a room that has no hazard evaluator.
+     */
+    public static final int NO_HAZARD_LEVEL = -1;
+
+    /**
+     * Kind of a room with no hazard evaluator.
+     */
+    private static final byte NONE = 0;
+
+    /**
+     * Kind of a room with a RuleBasedHazardEvaluator.
+     */
+    private static final byte RULE_BASED = 1;
+
+    /**
+     * Kind of a room with a WeightingBasedHazardEvaluator.
+     */
+    private static final byte WEIGHTING_BASED = 2;
+
+    /**
+     * Kind of a room with any other hazard evaluator.
+     */
+    private static final byte OTHER = 3;
+
+    /**
+     * Building whose rooms are evaluated.
+     */
+    private final Building building;
+
+    /**
+     * Structure version at which the arrays were compiled, or -1 if they
+     * have never been compiled.
+     */
+    private long version;
+
+    /**
+     * Every room in the building, in order of index.
+     */
+    private Room[] rooms;
+
+    /**
+     * Index of the floor of each room, in the building's list of floors.
+     */
+    private int[] floorIndices;
+
+    /**
+     * Index of each room.
+     */
+    private Map<Room, Integer> indices;
+
+    /**
+     * Hazard evaluator of each room.
+     */
+    private HazardEvaluator[] evaluators;
+
+    /**
+     * Kind of each room's hazard evaluator.
+     */
+    private byte[] kinds;
+
+    /**
+     * Indices of the rooms whose evaluator is of another type.
+     */
+    private int[] otherRooms;
+
+    /**
+     * Hazard level of each room as of the last sweep.
+     */
+    private int[] roomLevels;
+
+    /**
+     * Indices of the rooms whose hazard levels changed in the last sweep, of
+     * which the first changedRoomCount are valid.
+     */
+    private int[] changedRooms;
+
+    /**
+     * Number of rooms whose hazard levels changed in the last sweep.
+     */
+    private int changedRoomCount;
+
+    /**
+     * Whether the arrays have been compiled since the last sweep, so that
+     * the next sweep reports every room as changed.
+     */
+    private boolean recompiled;
+
+    /**
+     * Index of the first sensor of each room in the sensor arrays, followed
+     * by the total number of sensors, so that the sensors of room i are
+     * those from sensorStarts[i] up to but excluding sensorStarts[i + 1].
+     */
+    private int[] sensorStarts;
+
+    /**
+     * Index of the room of each sensor.
+     */
+    private int[] sensorRooms;
+
+    /**
+     * Hazard levels of the sensors of every rule or weighting based room.
+     */
+    private HazardLevelCache hazardLevels;
+
+    /**
+     * Hazard levels of the sensors of the rule based room being combined,
+     * as long as the most sensors of any such room.
+     */
+    private int[] ruleLevels;
+
+    /**
+     * Weighting of each sensor, for weighting based rooms.
+     */
+    private int[] weightings;
+
+    /**
+     * Creates a new hazard sweep over the rooms of the given building.
+     *
+     * @param building building whose rooms to evaluate
+     */
+    public HazardSweep(Building building) {
+        this.building = building;
+        this.version = -1;
+    }
+
+    /**
+     * Returns the number of rooms in the building.
+     *
+     * @return number of rooms
+     */
+    public int getRoomCount() {
+        compileIfChanged();
+        return rooms.length;
+    }
+
+    /**
+     * Returns the room with the given index.
+     *
+     * @param index index of the room, from 0 to getRoomCount() - 1
+     * @return room with the given index
+     * @throws IndexOutOfBoundsException if there is no room with the index
+     */
+    public Room getRoom(int index) throws IndexOutOfBoundsException {
+        compileIfChanged();
+        return rooms[index];
+    }
+
+    /**
+     * Returns the index in the building's list of floors of the floor that
+     * contains the room with the given index.
+     *
+     * @param index index of the room, from 0 to getRoomCount() - 1
+     * @return index of the room's floor
+     * @throws IndexOutOfBoundsException if there is no room with the index
+     */
+    public int getFloorIndex(int index) throws IndexOutOfBoundsException {
+        compileIfChanged();
+        return floorIndices[index];
+    }
+
+    /**
+     * Returns the index of the given room, or -1 if it is not in the
+     * building.
+     *
+     * @param room room to find the index of
+     * @return index of the room, or -1 if not found
+     */
+    public int indexOf(Room room) {
+        compileIfChanged();
+        Integer index = indices.get(room);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the current hazard level of every room, indexed by room.
+     *
+     * @return hazard level of each room, or NO_HAZARD_LEVEL for rooms
+     * without a hazard evaluator
+     * @see #evaluate(int[])
+     */
+    public int[] evaluate() {
+        compileIfChanged();
+        int[] levels = new int[rooms.length];
+        evaluate(levels);
+        return levels;
+    }
+
+    /**
+     * Stores the current hazard level of every room in the given array,
+     * indexed by room. Each level equals the value that
+     * HazardEvaluator.evaluateHazardLevel() of the room's hazard evaluator
+     * would return.
+     *
+     * @param levels array to fill with the hazard level of each room, or
+     * NO_HAZARD_LEVEL for rooms without a hazard evaluator
+     * @throws IllegalArgumentException if levels is shorter than the number
+     * of rooms
+     */
+    public void evaluate(int[] levels) throws IllegalArgumentException {
+        compileIfChanged();
+        if (levels.length < rooms.length) {
+            throw new IllegalArgumentException("Array must have room for "
+                    + rooms.length + " hazard levels");
+        }
+        update();
+        System.arraycopy(roomLevels, 0, levels, 0, rooms.length);
+    }
+
+    /**
+     * Brings the hazard level of every room up to date, and records which
+     * rooms' levels changed since the previous sweep. The levels can then be
+     * read with getHazardLevel(int) without copying them.
+     */
+    public void update() {
+        compileIfChanged();
+        int changed = 0;
+        if (hazardLevels.update()) {
+            int lastRoom = -1;
+            for (int n = 0; n < hazardLevels.getChangedCount(); n++) {
+                // changed sensors are in order, so each room comes up once
+                int room = sensorRooms[hazardLevels.getChangedIndex(n)];
+                if (room != lastRoom) {
+                    int level = combine(room);
+                    if (level != roomLevels[room]) {
+                        roomLevels[room] = level;
+                        changedRooms[changed++] = room;
+                    }
+                    lastRoom = room;
+                }
+            }
+        }
+        for (int room : otherRooms) {
+            int level = evaluators[room].evaluateHazardLevel();
+            if (level != roomLevels[room]) {
+                roomLevels[room] = level;
+                changedRooms[changed++] = room;
+            }
+        }
+        if (recompiled) {
+            for (int room = 0; room < rooms.length; room++) {
+                changedRooms[room] = room;
+            }
+            changed = rooms.length;
+            recompiled = false;
+        }
+        changedRoomCount = changed;
+    }
+
+    /**
+     * Returns the hazard level of the room with the given index as of the
+     * last sweep.
+     *
+     * @param index index of the room, from 0 to getRoomCount() - 1
+     * @return hazard level of the room, or NO_HAZARD_LEVEL if it has no
+     * hazard evaluator
+     * @throws IndexOutOfBoundsException if there is no room with the index
+     */
+    public int getHazardLevel(int index) throws IndexOutOfBoundsException {
+        return roomLevels[index];
+    }
+
+    /**
+     * Returns the number of rooms whose hazard levels changed in the last
+     * sweep. Every room counts as changed in the first sweep after the
+     * arrays are compiled, which includes the first sweep.
+     *
+     * @return number of changed rooms
+     */
+    public int getChangedRoomCount() {
+        return changedRoomCount;
+    }
+
+    /**
+     * Returns the index of the given one of the rooms whose hazard levels
+     * changed in the last sweep. The changed rooms are in no particular
+     * order.
+     *
+     * @param n which changed room, from 0 to getChangedRoomCount() - 1
+     * @return index of the changed room
+     * @throws IndexOutOfBoundsException if n is not less than
+     * getChangedRoomCount()
+     */
+    public int getChangedRoom(int n) throws IndexOutOfBoundsException {
+        if (n >= changedRoomCount) {
+            throw new IndexOutOfBoundsException("Only " + changedRoomCount
+                    + " rooms changed");
+        }
+        return changedRooms[n];
+    }
+
+    /**
+     * Combines the cached hazard levels of the given rule or weighting based
+     * room's sensors.
+     *
+     * @param room index of the room
+     * @return hazard level of the room
+     */
+    private int combine(int room) {
+        if (kinds[room] == RULE_BASED) {
+            return combineRuleBased(room);
+        }
+        return combineWeightingBased(sensorStarts[room],
+                sensorStarts[room + 1]);
+    }
+
+    /**
+     * Combines the hazard levels of the given rule based room's sensors by
+     * applying the rule of the room's evaluator to them.
+     *
+     * @param room index of the room
+     * @return combined hazard level
+     */
+    private int combineRuleBased(int room) {
+        int start = sensorStarts[room];
+        int end = sensorStarts[room + 1];
+        for (int i = start; i < end; i++) {
+            ruleLevels[i - start] = hazardLevels.getHazardLevel(i);
+        }
+        return ((RuleBasedHazardEvaluator) evaluators[room])
+                .combineHazardLevels(ruleLevels);
+    }
+
+    /**
+     * Combines the hazard levels of the given range of sensors as described
+     * in WeightingBasedHazardEvaluator.evaluateHazardLevel().
+     *
+     * @param start index of the first sensor
+     * @param end index after the last sensor
+     * @return combined hazard level
+     */
+    private int combineWeightingBased(int start, int end) {
+        int weightedSum = 0;
+        for (int i = start; i < end; i++) {
+            weightedSum += hazardLevels.getHazardLevel(i) * weightings[i];
+        }
+        return WeightingBasedHazardEvaluator.roundPercentage(weightedSum);
+    }
+
+    /**
+     * Compiles the arrays again if the building's structure has changed
+     * since they were last compiled.
+     */
+    private void compileIfChanged() {
+        long current = building.getStructureVersion().current();
+        if (version != current) {
+            compile();
+            version = current;
+        }
+    }
+
+    /**
+     * Compiles the rooms, sensors and hazard evaluators of the building into
+     * arrays.
+     */
+    private void compile() {
+        List<Room> roomList = new ArrayList<>();
+        List<Integer> floorList = new ArrayList<>();
+        List<Floor> floors = building.getFloors();
+        for (int f = 0; f < floors.size(); f++) {
+            for (Room room : floors.get(f).getRooms()) {
+                roomList.add(room);
+                floorList.add(f);
+            }
+        }
+        int roomCount = roomList.size();
+        rooms = roomList.toArray(new Room[0]);
+        floorIndices = new int[roomCount];
+        indices = new IdentityHashMap<>();
+        evaluators = new HazardEvaluator[roomCount];
+        kinds = new byte[roomCount];
+        roomLevels = new int[roomCount];
+        changedRooms = new int[roomCount];
+        changedRoomCount = 0;
+        recompiled = true;
+        sensorStarts = new int[roomCount + 1];
+        List<Integer> otherList = new ArrayList<>();
+        List<HazardSensor> sensorList = new ArrayList<>();
+        List<Integer> roomOfSensorList = new ArrayList<>();
+        List<Integer> weightingList = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            floorIndices[i] = floorList.get(i);
+            indices.put(rooms[i], i);
+            HazardEvaluator evaluator = rooms[i].getHazardEvaluator();
+            evaluators[i] = evaluator;
+            sensorStarts[i] = sensorList.size();
+            List<HazardSensor> roomSensors = new ArrayList<>();
+            // subclasses may calculate their hazard level differently
+            if (evaluator == null) {
+                kinds[i] = NONE;
+                roomLevels[i] = NO_HAZARD_LEVEL;
+            } else if (evaluator.getClass()
+                    == RuleBasedHazardEvaluator.class) {
+                kinds[i] = RULE_BASED;
+                roomSensors.addAll(((RuleBasedHazardEvaluator) evaluator)
+                        .getSensors());
+                for (int j = 0; j < roomSensors.size(); j++) {
+                    weightingList.add(0);
+                }
+            } else if (evaluator.getClass()
+                    == WeightingBasedHazardEvaluator.class) {
+                kinds[i] = WEIGHTING_BASED;
+                WeightingBasedHazardEvaluator weightingBased =
+                        (WeightingBasedHazardEvaluator) evaluator;
+                roomSensors.addAll(weightingBased.getSensors());
+                weightingList.addAll(weightingBased.getWeightings());
+            } else {
+                kinds[i] = OTHER;
+                otherList.add(i);
+            }
+            // a room without sensors never has a level change to trigger a
+            // combination, so its constant level is combined here
+            if (kinds[i] == RULE_BASED && roomSensors.isEmpty()) {
+                roomLevels[i] = ((RuleBasedHazardEvaluator) evaluator)
+                        .combineHazardLevels(new int[0]);
+            } else if (kinds[i] != NONE) {
+                roomLevels[i] = 0;
+            }
+            for (HazardSensor sensor : roomSensors) {
+                sensorList.add(sensor);
+                roomOfSensorList.add(i);
+            }
+        }
+        sensorStarts[roomCount] = sensorList.size();
+        otherRooms = new int[otherList.size()];
+        for (int i = 0; i < otherRooms.length; i++) {
+            otherRooms[i] = otherList.get(i);
+        }
+
+        int sensorCount = sensorList.size();
+        hazardLevels = new HazardLevelCache(sensorList);
+        sensorRooms = new int[sensorCount];
+        weightings = new int[sensorCount];
+        for (int i = 0; i < sensorCount; i++) {
+            sensorRooms[i] = roomOfSensorList.get(i);
+            weightings[i] = weightingList.get(i);
+        }
+        int mostRuleSensors = 0;
+        for (int i = 0; i < roomCount; i++) {
+            if (kinds[i] == RULE_BASED) {
+                mostRuleSensors = Math.max(mostRuleSensors,
+                        sensorStarts[i + 1] - sensorStarts[i]);
+            }
+        }
+        ruleLevels = new int[mostRuleSensors];
+    }
+}
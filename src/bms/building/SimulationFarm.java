@@ -0,0 +1,303 @@
+package bms.building;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Simulates many independent buildings concurrently.
+ * <p>
+ * Each building is advanced on its own clock (see
+ * {@link Building#getClock()}). The buildings are divided between a fixed
+ * number of worker threads, and every worker waits at a phaser once its
+ * buildings have elapsed a minute, so no building gets more than one minute
+ * ahead of any other. Since buildings do not share any state, the result is
+ * identical to advancing each building one minute at a time in turn.
+ * <p>
+ * The time taken by each building to elapse each minute is recorded, along
+ * with the overall throughput of the farm. Only minutes which every building
+ * completed are counted.
+ */
+public class SimulationFarm {
+    /**
+     * Buildings simulated by the farm.
+     */
+    private final List<Building> buildings;
+
+    /**
+     * Number of worker threads used to advance the buildings.
+     */
+    private final int threads;
+
+    /**
+     * Total time taken by each building to elapse its minutes, in
+     * nanoseconds.
+     */
+    private final long[] totalLatency;
+
+    /**
+     * Longest time taken by each building to elapse a single minute, in
+     * nanoseconds.
+     */
+    private final long[] maxLatency;
+
+    /**
+     * Number of minutes elapsed by the farm.
+     */
+    private long minutesElapsed;
+
+    /**
+     * Total wall-clock time spent elapsing minutes, in nanoseconds.
+     */
+    private long runTime;
+
+    /**
+     * Creates a new farm which uses one worker thread per available
+     * processor.
+     *
+     * @param buildings buildings to simulate
+     */
+    public SimulationFarm(List<Building> buildings) {
+        this(buildings, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new farm which uses the given number of worker threads.
+     *
+     * @param buildings buildings to simulate
+     * @param threads number of worker threads
+     * @throws IllegalArgumentException if threads &lt; 1
+     */
+    public SimulationFarm(List<Building> buildings, int threads)
+            throws IllegalArgumentException {
+        if (threads < 1) {
+            throw new IllegalArgumentException(
+                    "Number of threads must be at least 1");
+        }
+        this.buildings = new ArrayList<>(buildings);
+        this.threads = threads;
+        this.totalLatency = new long[this.buildings.size()];
+        this.maxLatency = new long[this.buildings.size()];
+        this.minutesElapsed = 0;
+        this.runTime = 0;
+    }
+
+    /**
+     * Returns the buildings simulated by the farm.
+     *
+     * @return buildings in the farm
+     */
+    public List<Building> getBuildings() {
+        return new ArrayList<>(buildings);
+    }
+
+    /**
+     * Elapses the given number of minutes on every building in the farm.
+     * <p>
+     * While the minutes elapse, each building's clock is made sequential
+     * (see bms.util.TimedItemManager.setPool()), since the farm already
+     * keeps every worker busy. Each clock's pool is restored before this
+     * method returns.
+     * <p>
+     * This method returns once all workers have finished. If advancing any
+     * building throws an exception or error, the failing worker drops out
+     * of the phaser, every other worker stops at the end of the current
+     * minute and the exception or error is rethrown. The minute in which
+     * the failure happened is left out of the farm's minutes elapsed and
+     * latencies, although some buildings will have elapsed it. If the
+     * calling thread
+     * is interrupted while waiting for the workers, it still waits for them
+     * to finish and its interrupt status is set again before returning.
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     */
+    public void run(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        int workers = Math.min(threads, buildings.size());
+        if (minutes == 0 || workers == 0) {
+            return;
+        }
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong completed = new AtomicLong();
+        Phaser phaser = new Phaser(workers) {
+            @Override
+            protected boolean onAdvance(int phase, int registeredParties) {
+                // terminate once the minute in which a worker failed ends
+                if (failure.get() != null || registeredParties == 0) {
+                    return true;
+                }
+                completed.incrementAndGet();
+                return false;
+            }
+        };
+        List<ForkJoinPool> pools = new ArrayList<>();
+        for (Building building : buildings) {
+            pools.add(building.getClock().getPool());
+            building.getClock().setPool(null);
+        }
+        List<Thread> workerThreads = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < workers; i++) {
+                int first = i;
+                Thread thread = new Thread(() -> work(first, workers, minutes,
+                        phaser, failure), "simulation-farm-" + i);
+                workerThreads.add(thread);
+                thread.start();
+            }
+            boolean interrupted = false;
+            for (Thread thread : workerThreads) {
+                boolean joined = false;
+                while (!joined) {
+                    try {
+                        thread.join();
+                        joined = true;
+                    } catch (InterruptedException e) {
+                        // workers cannot be abandoned mid-minute
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            for (int i = 0; i < buildings.size(); i++) {
+                buildings.get(i).getClock().setPool(pools.get(i));
+            }
+        }
+        runTime += System.nanoTime() - start;
+        minutesElapsed += completed.get();
+        Throwable cause = failure.get();
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause != null) {
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Advances every building assigned to a worker, waiting for all other
+     * workers at the end of each minute.
+     * <p>
+     * A worker which fails records why and deregisters from the phaser, so
+     * the workers still part way through the minute are not left waiting
+     * for it. The failure is recorded before the phaser can advance, so the
+     * phaser terminates at the end of that minute and every other worker
+     * stops there.
+     * <p>
+     * Latencies are only added to the farm's totals once every worker has
+     * finished the minute, so the minute in which a worker failed is not
+     * counted.
+     *
+     * @param first index of the first building assigned to the worker
+     * @param step number of workers; the worker advances every step-th
+     *             building
+     * @param minutes number of minutes to elapse
+     * @param phaser phaser shared by all workers
+     * @param failure first exception or error thrown by any worker
+     */
+    private void work(int first, int step, long minutes, Phaser phaser,
+                      AtomicReference<Throwable> failure) {
+        long[] latencies = new long[buildings.size()];
+        try {
+            for (long minute = 0; minute < minutes; minute++) {
+                for (int i = first; i < buildings.size(); i += step) {
+                    long start = System.nanoTime();
+                    buildings.get(i).getClock().elapseOneMinute();
+                    latencies[i] = System.nanoTime() - start;
+                }
+                phaser.arriveAndAwaitAdvance();
+                if (phaser.isTerminated()) {
+                    return;
+                }
+                for (int i = first; i < buildings.size(); i += step) {
+                    totalLatency[i] += latencies[i];
+                    if (latencies[i] > maxLatency[i]) {
+                        maxLatency[i] = latencies[i];
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            phaser.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * Returns the number of minutes elapsed on every building by the farm.
+     *
+     * @return minutes elapsed
+     */
+    public long getMinutesElapsed() {
+        return minutesElapsed;
+    }
+
+    /**
+     * Returns the aggregate throughput of the farm, as the number of minutes
+     * elapsed on a single building per second of wall-clock time.
+     *
+     * @return building-minutes per second, or 0 if no time has been measured
+     */
+    public double getThroughput() {
+        if (runTime == 0) {
+            return 0;
+        }
+        return (double) minutesElapsed * buildings.size() / (runTime / 1e9);
+    }
+
+    /**
+     * Returns the mean time taken by the building at the given index to
+     * elapse one minute.
+     *
+     * @param index index of the building in {@link #getBuildings()}
+     * @return mean latency in nanoseconds, or 0 if no minutes have elapsed
+     */
+    public double getMeanLatency(int index) {
+        if (minutesElapsed == 0) {
+            return 0;
+        }
+        return (double) totalLatency[index] / minutesElapsed;
+    }
+
+    /**
+     * Returns the longest time taken by the building at the given index to
+     * elapse a single minute.
+     *
+     * @param index index of the building in {@link #getBuildings()}
+     * @return maximum latency in nanoseconds
+     */
+    public long getMaxLatency(int index) {
+        return maxLatency[index];
+    }
+
+    /**
+     * Returns a human-readable summary of the farm's throughput and the
+     * latency of each building.
+     *
+     * @return string representation of the farm's performance
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder(String.format(
+                "SimulationFarm: buildings=%d, threads=%d, minutes=%d, "
+                        + "throughput=%.1f building-minutes/sec",
+                buildings.size(), threads, minutesElapsed, getThroughput()));
+        for (int i = 0; i < buildings.size(); i++) {
+            result.append(String.format("%n  %s: mean=%.1fus, max=%.1fus",
+                    buildings.get(i).getName(), getMeanLatency(i) / 1e3,
+                    getMaxLatency(i) / 1e3));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.room.Room;
+import bms.room.RoomSnapshot;
+import bms.room.RoomState;
+import bms.sensors.ComfortSensor;
+import bms.sensors.Sensor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Answers questions about the state of a building's rooms at any minute,
+ * without changing the building or advancing its clock.
+ * <p>
+ * Sensor readings repeat with a fixed period, so the readings, hazard level
+ * and comfort level of a room at a given minute are calculated directly from
+ * each sensor's readings. A room's state also depends on the floor's
+ * maintenance schedule, which is predicted forwards from its current
+ * progress assuming that any ongoing fire drills continue.
+ * <p>
+ * Minutes are given in terms of the building's clock (see
+ * bms.util.TimedItemManager.getMinutesElapsed()), so the current state of a
+ * room is the state at the clock's current minute.
+ */
+public class StateQuery {
+    /**
+     * Building being queried.
+     */
+    private final Building building;
+
+    /**
+     * Creates a new query engine for the given building.
+     * @param building building to query
+     */
+    public StateQuery(Building building) {
+        this.building = building;
+    }
+
+    /**
+     * Returns the state of the room with the given number on the floor with
+     * the given number, at the given minute.
+     *
+     * @param floorNumber floor number of the room's floor
+     * @param roomNumber room number of the room
+     * @param minute minute of the building's clock
+     * @return snapshot of the room at the given minute
+     * @throws IllegalArgumentException if the floor or room does not exist,
+     * minute &lt; 0, or the room cannot be queried at the given minute
+     * @see #query(Room, long)
+     */
+    public RoomSnapshot query(int floorNumber, int roomNumber, long minute)
+            throws IllegalArgumentException {
+        Floor floor = building.getFloorByNumber(floorNumber);
+        if (floor == null || floor.getRoomByNumber(roomNumber) == null) {
+            throw new IllegalArgumentException("No room #" + roomNumber
+                    + " on floor #" + floorNumber);
+        }
+        return query(floor, floor.getRoomByNumber(roomNumber), minute);
+    }
+
+    /**
+     * Returns the state of the given room at the given minute.
+     * <p>
+     * Readings, hazard and comfort levels can be found for any minute. The
+     * history of a maintenance schedule is not recorded, so the state of a
+     * room on a floor with a maintenance schedule is only known at the
+     * current minute or later, and is null for earlier minutes.
+     * <p>
+     * Rooms whose sensors, hazard evaluator or maintenance schedule cannot
+     * look ahead in time (see Sensor.canLookAhead()) can only be queried at
+     * the current minute.
+     *
+     * @param room room in the building to query
+     * @param minute minute of the building's clock
+     * @return snapshot of the room at the given minute
+     * @throws IllegalArgumentException if the room is not in the building,
+     * minute &lt; 0, or the room cannot be queried at the given minute
+     */
+    public RoomSnapshot query(Room room, long minute)
+            throws IllegalArgumentException {
+        for (Floor floor : building.getFloors()) {
+            for (Room r : floor.getRooms()) {
+                if (r == room) {
+                    return query(floor, room, minute);
+                }
+            }
+        }
+        throw new IllegalArgumentException("Room is not in the building");
+    }
+
+    /**
+     * Returns the state of the given room on the given floor at the given
+     * minute.
+     *
+     * @param floor floor containing the room
+     * @param room room to query
+     * @param minute minute of the building's clock
+     * @return snapshot of the room at the given minute
+     * @throws IllegalArgumentException if minute &lt; 0, or the room cannot
+     * be queried at the given minute
+     */
+    private RoomSnapshot query(Floor floor, Room room, long minute)
+            throws IllegalArgumentException {
+        if (minute < 0) {
+            throw new IllegalArgumentException("Minute must be non-negative");
+        }
+        // sensors lag behind an event-driven clock until synchronised
+        building.getClock().synchronise();
+        long offset = minute - building.getClock().getMinutesElapsed();
+        if (offset != 0 && !canLookAhead(floor, room, offset)) {
+            throw new IllegalArgumentException("Room #" + room.getRoomNumber()
+                    + " can only be queried at the current minute");
+        }
+
+        Map<String, Integer> readings = new LinkedHashMap<>();
+        double totalComfort = 0;
+        for (Sensor sensor : room.getSensors()) {
+            readings.put(sensor.getClass().getSimpleName(),
+                    sensor.getReadingAfter(offset));
+            totalComfort +=
+                    ((ComfortSensor) sensor).getComfortLevelAfter(offset);
+        }
+        double comfortLevel = readings.isEmpty()
+                ? 0 : totalComfort / readings.size();
+
+        Integer hazardLevel = null;
+        if (room.getHazardEvaluator() != null) {
+            hazardLevel =
+                    room.getHazardEvaluator().evaluateHazardLevelAfter(offset);
+        }
+
+        RoomState roomState = null;
+        MaintenanceSchedule schedule = floor.getMaintenanceSchedule();
+        if (schedule == null) {
+            roomState = room.evaluateRoomStateAfter(offset, false);
+        } else if (offset >= 0) {
+            roomState = room.evaluateRoomStateAfter(offset,
+                    schedule.getRoomInMaintenanceAfter(offset) == room);
+        }
+
+        return new RoomSnapshot(minute, room.getRoomNumber(), readings,
+                hazardLevel, comfortLevel, roomState);
+    }
+
+    /**
+     * Returns true if everything used to find the state of the given room
+     * after the given number of minutes can look ahead that far.
+     *
+     * @param floor floor containing the room
+     * @param room room to query
+     * @param offset number of minutes from now, may be negative
+     * @return true if the room can be queried, false otherwise
+     */
+    private boolean canLookAhead(Floor floor, Room room, long offset) {
+        for (Sensor sensor : room.getSensors()) {
+            if (!sensor.canLookAhead()) {
+                return false;
+            }
+        }
+        if (room.getHazardEvaluator() != null
+                && !room.getHazardEvaluator().canLookAhead()) {
+            return false;
+        }
+        MaintenanceSchedule schedule = floor.getMaintenanceSchedule();
+        return schedule == null || offset < 0 || schedule.canLookAhead();
+    }
+}
@@ -5,6 +5,7 @@ import bms.floor.Floor;
 import bms.room.Room;
 import bms.sensors.OccupancySensor;
 import bms.sensors.Sensor;
+import bms.sensors.SensorType;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -233,22 +234,22 @@ public class BuildingCanvas extends Canvas {
                 joiner.add("Room #" + room.getRoomNumber());
                 joiner.add(room.getType().toString());
                 joiner.add(room.evaluateRoomState().toString());
-                Sensor tempSensor = room.getSensor("TemperatureSensor");
+                Sensor tempSensor = room.getSensor(SensorType.TEMPERATURE);
                 if (tempSensor != null) {
                     joiner.add(String.format("%d°C",
                             tempSensor.getCurrentReading()));
                 }
-                Sensor noiseSensor = room.getSensor("NoiseSensor");
+                Sensor noiseSensor = room.getSensor(SensorType.NOISE);
                 if (noiseSensor != null) {
                     joiner.add(String.format("%ddB",
                             noiseSensor.getCurrentReading()));
                 }
-                Sensor co2Sensor = room.getSensor("CarbonDioxideSensor");
+                Sensor co2Sensor = room.getSensor(SensorType.CARBON_DIOXIDE);
                 if (co2Sensor != null) {
                     joiner.add(String.format("%dppm",
                             co2Sensor.getCurrentReading()));
                 }
-                OccupancySensor occupancySensor = (OccupancySensor) room.getSensor("OccupancySensor");
+                OccupancySensor occupancySensor = (OccupancySensor) room.getSensor(SensorType.OCCUPANCY);
                 if (occupancySensor != null) {
                     joiner.add(String.format("%d/%d",
                             occupancySensor.getCurrentReading(),
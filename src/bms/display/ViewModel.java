@@ -8,6 +8,7 @@ import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.ClockScope;
 import bms.util.TimedItemManager;
 import javafx.beans.property.*;
 import javafx.scene.control.Alert;
@@ -133,7 +134,11 @@ public class ViewModel {
      * <p>
      * If the simulation is paused, no action should be taken.
      * Otherwise, the {@link TimedItemManager#elapseOneMinute()} method should
-     * be called to  elapse one minute on all registered timed items.
+     * be called on each building's clock (see {@link Building#getClock()}) to
+     * elapse one minute on all registered timed items. The global manager
+     * ({@link TimedItemManager#getInstance()}) is ticked as well, since items
+     * created outside the scope of any building's clock are registered with
+     * it.
      * <p>
      * The value of the internal <code>ticks</code> IntegerProperty should be
      * incremented by one, and the value of the <code>timeElapsed</code>
@@ -146,6 +151,9 @@ public class ViewModel {
      */
     public void tick() {
         if (!paused.get()) {
+            for (Building building : buildings) {
+                building.getClock().elapseOneMinute();
+            }
             TimedItemManager.getInstance().elapseOneMinute();
             ticks.set(ticks.get() + 1);
             timeElapsed.setValue(this.ticks.getValue() + " minutes elapsed");
@@ -392,10 +400,12 @@ public class ViewModel {
                 renovateFloor(args.get(0).orElse(""), args.get(1).orElse(""));
                 break;
             case ADD_MAINTENANCE_SCHEDULE:
-                addMaintenanceSchedule(args);
+                ClockScope.run(getSelectedBuilding().getClock(),
+                        () -> addMaintenanceSchedule(args));
                 break;
             case ADD_SENSOR:
-                addSensor(args);
+                ClockScope.run(getSelectedBuilding().getClock(),
+                        () -> addSensor(args));
                 break;
             case ADD_HAZARD_EVALUATOR:
                 addHazardEvaluator(args);
@@ -0,0 +1,29 @@
+package bms.exceptions;
+
+/**
+ * Exception thrown when the state of a sensor cannot be saved, such as when
+ * checkpointing a sensor whose readings are streamed in rather than known in
+ * advance.
+ */
+public class UnsupportedSensorException extends Exception {
+    /**
+     * Constructs a normal UnsupportedSensorException with no error message
+     * or cause.
+     *
+     * @see Exception#Exception()
+     */
+    public UnsupportedSensorException() {
+        super();
+    }
+
+    /**
+     * Constructs an UnsupportedSensorException that contains a helpful
+     * message detailing why the exception occurred.
+     *
+     * @param message detail message
+     * @see Exception#Exception(String)
+     */
+    public UnsupportedSensorException(String message) {
+        super(message);
+    }
+}
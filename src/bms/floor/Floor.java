@@ -10,6 +10,10 @@ import bms.sensors.Sensor;
 import bms.sensors.TimedSensor;
 import bms.util.Encodable;
 import bms.util.FireDrill;
+import bms.util.IntMap;
+import bms.util.StructureHashCodes;
+import bms.util.StructureVersion;
+import bms.util.TimedItemManager;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +40,11 @@ public class Floor implements FireDrill, Encodable {
      */
     private List<Room> rooms;
 
+    /**
+     * Rooms on the floor, keyed by room number.
+     */
+    private final IntMap<Room> roomsByNumber;
+
     /**
      * Width of the floor in metres.
      */
@@ -58,8 +67,29 @@ public class Floor implements FireDrill, Encodable {
 
     private MaintenanceSchedule maintenanceSchedule;
 
+    /**
+     * Version recording structural changes to the floor's building, or to
+     * the floor and its rooms while the floor is not in a building.
+     */
+    private volatile StructureVersion structureVersion;
+
+    /**
+     * Clock scheduling the floor's rooms, which is that of its building once
+     * the floor is in a building.
+     */
+    private TimedItemManager clock;
+
+    /**
+     * Hash codes of the floor, or null if they have not been calculated
+     * (see bms.util.StructureHashCodes).
+     */
+    private volatile StructureHashCodes hashCodes;
+
     /**
      * Creates a new floor with the given floor number.
+     * <p>
+     * The floor is scheduled by the timed item manager currently in scope
+     * (see TimedItemManager.getCurrent()) until it is added to a building.
      *
      * @param floorNumber a unique floor number, corresponds to how many floors
      * above ground floor (inclusive)
@@ -72,7 +102,10 @@ public class Floor implements FireDrill, Encodable {
         this.width = width;
         this.length = length;
         this.rooms = new ArrayList<>();
+        this.roomsByNumber = new IntMap<>();
         maintenanceSchedule = null;
+        this.structureVersion = new StructureVersion();
+        this.clock = TimedItemManager.getCurrent();
     }
 
     /**
@@ -149,12 +182,7 @@ public class Floor implements FireDrill, Encodable {
      * @ass1
      */
     public Room getRoomByNumber(int roomNumber) {
-        for (Room room : this.rooms) {
-            if (room.getRoomNumber() == roomNumber) {
-                return room;
-            }
-        }
-        return null;
+        return roomsByNumber.get(roomNumber);
     }
 
     /**
@@ -193,6 +221,9 @@ public class Floor implements FireDrill, Encodable {
      * <p>
      * The dimensions of the room are managed automatically. The length and
      * width of the room do not need to be specified, only the required space.
+     * <p>
+     * The floor's clock is synchronised before the room is added and its
+     * items rescheduled after it (see TimedItemManager.synchronise()).
      *
      * @param newRoom object representing the new room
      * @throws IllegalArgumentException if area is less than Room.getMinArea()
@@ -224,7 +255,13 @@ public class Floor implements FireDrill, Encodable {
         }
 
         // No problems, so add room to the list of rooms
+        clock.synchronise();
         rooms.add(newRoom);
+        roomsByNumber.put(newRoom.getRoomNumber(), newRoom);
+        newRoom.setStructureVersion(structureVersion);
+        newRoom.setClock(clock);
+        structureVersion.advance();
+        clock.synchronise();
     }
 
     /**
@@ -325,6 +362,7 @@ public class Floor implements FireDrill, Encodable {
         }
         width = newWidth;
         length = newLength;
+        structureVersion.advance();
     }
 
     /**
@@ -342,9 +380,9 @@ public class Floor implements FireDrill, Encodable {
      * list are also considered consecutive.
      *
      * If this floor already has a maintenance schedule, it should be replaced
-     * with the newly created schedule. The room currently being maintained
-     * according to the old schedule should have its maintenance status set
-     * to false.
+     * with the newly created schedule. The old schedule is cancelled, so the
+     * room currently being maintained according to it should have its
+     * maintenance status set to false (see MaintenanceSchedule.cancel()).
      * @param roomOrder rooms on which to perform maintenance, in order
      * @throws IllegalArgumentException  if the given order is null or empty,
      * if a room in the order is not on this floor, or if a room appears twice
@@ -367,7 +405,7 @@ public class Floor implements FireDrill, Encodable {
             }
         }
         if (maintenanceSchedule != null) {
-            maintenanceSchedule.getCurrentRoom().setMaintenance(false);
+            maintenanceSchedule.cancel();
         }
         maintenanceSchedule = new MaintenanceSchedule(roomOrder);
     }
@@ -393,52 +431,137 @@ public class Floor implements FireDrill, Encodable {
             return false;
         }
         Floor floor =  (Floor) obj;
-        boolean widthEqual = false;
-        boolean lengthEqual = false;
-        boolean roomsEqual = false;
         //checking if double values are within 0.001 of each other
-        if (Math.abs(this.width - floor.getWidth()) <= 0.001) {
-            widthEqual = true;
-        }
-        if (Math.abs(this.length - floor.getLength()) <= 0.001) {
-            lengthEqual = true;
-        }
-        //checking if all rooms on floor are equal
-        if (this.getRooms().size() == 0 && floor.getRooms().size() == 0) {
-            roomsEqual = true;
+        if (this.floorNumber != floor.floorNumber
+                || Math.abs(this.width - floor.width) > 0.001
+                || Math.abs(this.length - floor.length) > 0.001
+                || this.rooms.size() != floor.rooms.size()
+                || this.structureHashCode() != floor.structureHashCode()) {
+            return false;
         }
-        for (Room r : this.getRooms()) {
-            roomsEqual = false;
-            for (Room m : floor.getRooms()) {
-                if (r.equals(m)) {
-                    roomsEqual = true;
-                    break;
-                }
-            }
-            if (!roomsEqual) {
-                break;
+        // a room can only equal the other floor's room with the same number
+        for (int i = 0; i < rooms.size(); i++) {
+            Room room = rooms.get(i);
+            Room match = floor.roomsByNumber.get(room.getRoomNumber());
+            if (match == null || !room.equals(match)) {
+                return false;
             }
         }
-        return this.floorNumber == floor.floorNumber &&
-                    widthEqual &&
-                    lengthEqual &&
-                    this.getRooms().size() == floor.getRooms().size() &&
-                    roomsEqual;
+        return true;
     }
 
     /**
      * Returns the hash code of this floor.
      * Two floors that are equal according to equals(Object) should
      * have the same hash code.
+     * The hash code is cached until the structure of the floor's building
+     * changes (see bms.util.StructureVersion).
      */
     @Override
     public int hashCode() {
-        int total = 0;
-        for(Room r : getRooms()) {
-            total += r.hashCode();
+        return updateHashCodes().getHashCode();
+    }
+
+    /**
+     * Returns a hash code of this floor that leaves out its width and length,
+     * and the areas of its rooms (see Room.structureHashCode()).
+     * <p>
+     * Since equals(Object) compares these within an error delta, two equal
+     * floors can have different hash codes, but always have the same
+     * structure hash code.
+     * @return hash code of this floor, leaving out its dimensions
+     */
+    public int structureHashCode() {
+        return updateHashCodes().getStructureHashCode();
+    }
+
+    /**
+     * Returns true if every room on the floor records its changes in the
+     * given structure version.
+     * @param structureVersion structure version of the floor
+     * @return true if the rooms share the given version
+     */
+    private boolean roomsShareVersion(StructureVersion structureVersion) {
+        for (int i = 0; i < rooms.size(); i++) {
+            if (rooms.get(i).getStructureVersion() != structureVersion) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the version recording structural changes to this floor and its
+     * rooms, which is that of its building once the floor is in a building.
+     * @return structure version of this floor
+     */
+    public StructureVersion getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Records structural changes to this floor and its rooms in the given
+     * version from now on. Called by Building.addFloor(Floor) with the
+     * building's version.
+     * @param structureVersion structure version of the floor's building
+     */
+    public void setStructureVersion(StructureVersion structureVersion) {
+        this.structureVersion = structureVersion;
+        for (Room room : rooms) {
+            room.setStructureVersion(structureVersion);
+        }
+    }
+
+    /**
+     * Returns the clock scheduling this floor's rooms, which is that of its
+     * building once the floor is in a building.
+     * @return clock of this floor
+     */
+    public TimedItemManager getClock() {
+        return clock;
+    }
+
+    /**
+     * Synchronises the given clock, rather than the clock in scope when the
+     * floor was created, when the scheduling of the floor or its rooms
+     * changes. Called by Building.addFloor(Floor) with the building's clock.
+     * @param clock clock of the floor's building
+     */
+    public void setClock(TimedItemManager clock) {
+        this.clock = clock;
+        for (Room room : rooms) {
+            room.setClock(clock);
+        }
+    }
+
+    /**
+     * Returns the floor's hash codes, calculating them again if the
+     * structure of its building has changed since they were calculated.
+     * <p>
+     * A room added to another floor afterwards records its changes in that
+     * floor's version instead, so the hash codes are calculated every time
+     * while any room does so.
+     * @return current hash codes of this floor
+     */
+    private StructureHashCodes updateHashCodes() {
+        StructureVersion structureVersion = this.structureVersion;
+        long version = structureVersion.current();
+        StructureHashCodes codes = hashCodes;
+        if (codes == null || !codes.isCurrent(structureVersion, version)
+                || !roomsShareVersion(structureVersion)) {
+            int total = 0;
+            int structureTotal = 0;
+            for (int i = 0; i < rooms.size(); i++) {
+                total += rooms.get(i).hashCode();
+                structureTotal += rooms.get(i).structureHashCode();
+            }
+            codes = new StructureHashCodes(structureVersion, version,
+                    (int) (total + 85 * floorNumber + Math.round(width)
+                            + Math.round(length)),
+                    structureTotal + 85 * floorNumber);
+            hashCodes = codes;
         }
-        return (int) (total + 85 * floorNumber + Math.round(width) +
-                Math.round(length));
+        return codes;
     }
 
     /**
@@ -3,6 +3,8 @@ package bms.floor;
 import bms.room.Room;
 import bms.room.RoomState;
 import bms.room.RoomType;
+import bms.sensors.SensorType;
+import bms.sensors.TemperatureSensor;
 import bms.util.TimedItem;
 import bms.util.Encodable;
 import bms.util.TimedItemManager;
@@ -47,10 +49,16 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
      */
     private int timeElapsedCurrentRoom;
 
+    /**
+     * Timed item manager which this schedule is registered with.
+     */
+    private final TimedItemManager clock;
+
     /**
      * Creates a new maintenance schedule for a floor's list of rooms.
      * In this constructor, the new maintenance schedule should be registered
-     * as a timed item with the timed item manager.
+     * as a timed item with the timed item manager currently in scope (see
+     * TimedItemManager.getCurrent()).
      *
      * The first room in the given order should be set to "in maintenance",
      * see Room.setMaintenance(boolean).
@@ -62,7 +70,8 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
         currentRoom = roomOrder.get(0);
         roomIndexCounter = 0;
         timeElapsedCurrentRoom = 0;
-        TimedItemManager.getInstance().registerTimedItem(this);
+        clock = TimedItemManager.getCurrent();
+        clock.registerTimedItem(this);
     }
 
     /**
@@ -82,6 +91,39 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
         return timeElapsedCurrentRoom;
     }
 
+    /**
+     * Returns the number of times maintenance has progressed to the next room
+     * since this schedule was created.
+     * @return number of rooms progressed through
+     */
+    public int getRoomIndexCounter() {
+        return roomIndexCounter;
+    }
+
+    /**
+     * Restores the progress of this schedule, e.g. from a checkpoint.
+     * <p>
+     * The room currently being maintained is taken out of maintenance, and
+     * the room at the restored position in the schedule is put into
+     * maintenance.
+     * @param roomIndexCounter number of rooms progressed through, as returned
+     *                         by getRoomIndexCounter()
+     * @param timeElapsedCurrentRoom time elapsed maintaining the current room
+     * @throws IllegalArgumentException if either argument is negative
+     */
+    public void restore(int roomIndexCounter, int timeElapsedCurrentRoom)
+            throws IllegalArgumentException {
+        if (roomIndexCounter < 0 || timeElapsedCurrentRoom < 0) {
+            throw new IllegalArgumentException(
+                    "Maintenance schedule progress must be non-negative");
+        }
+        currentRoom.setMaintenance(false);
+        this.roomIndexCounter = roomIndexCounter;
+        currentRoom = roomOrder.get(roomIndexCounter % roomOrder.size());
+        currentRoom.setMaintenance(true);
+        this.timeElapsedCurrentRoom = timeElapsedCurrentRoom;
+    }
+
     /**
      * Returns the time taken to perform maintenance on the given room, in
      * minutes.
@@ -174,6 +216,200 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
         }
     }
 
+    /**
+     * Progresses the maintenance schedule by the given number of minutes, with
+     * the same effect as calling elapseOneMinute() that many times while the
+     * sensors in the scheduled rooms advance alongside it.
+     *
+     * Rooms which cannot be evacuated during this time are skipped over
+     * directly rather than minute by minute, and whole cycles through the
+     * room order are skipped when none of the rooms can be evacuated. A room
+     * can only be evacuated if a fire drill is ongoing or its temperature
+     * sensor has a reading indicating a fire, in which case its state is
+     * predicted from the sensor's upcoming readings. The room's sensors must
+     * therefore not yet have been advanced over these minutes.
+     *
+     * If the schedule cannot look ahead (see canLookAhead()), it is instead
+     * progressed by calling elapseOneMinute() the given number of times.
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        if (!canLookAhead()) {
+            for (long i = 0; i < minutes; i++) {
+                elapseOneMinute();
+            }
+            return;
+        }
+        Progress progress = lookAhead(minutes);
+        if (progress.roomIndexCounter != roomIndexCounter) {
+            currentRoom.setMaintenance(false);
+            roomIndexCounter = progress.roomIndexCounter;
+            currentRoom = roomOrder.get(roomIndexCounter % roomOrder.size());
+            currentRoom.setMaintenance(true);
+        }
+        timeElapsedCurrentRoom = progress.timeElapsedCurrentRoom;
+    }
+
+    /**
+     * Returns true if the schedule can predict its progress from the upcoming
+     * readings of the scheduled rooms' sensors, which is the case unless a
+     * room's temperature sensor can detect a fire but cannot look ahead in
+     * time (see Sensor.canLookAhead()).
+     * @return true if the schedule can look ahead in time, false otherwise
+     */
+    public boolean canLookAhead() {
+        for (Room room : roomOrder) {
+            TemperatureSensor temperatureSensor = (TemperatureSensor)
+                    room.getSensor(SensorType.TEMPERATURE);
+            if (temperatureSensor != null && temperatureSensor.canDetectFire()
+                    && !temperatureSensor.canLookAhead()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if elapseMinutes(long) predicts the state of the scheduled
+     * rooms from their sensors' upcoming readings, that is, if the schedule
+     * can look ahead in time (see canLookAhead()).
+     * @return true if the schedule looks ahead, false otherwise
+     */
+    @Override
+    public boolean looksAhead() {
+        return canLookAhead();
+    }
+
+    /**
+     * Returns the room which will be in the process of being maintained once
+     * the given number of minutes have elapsed, without changing the state of
+     * the schedule.
+     *
+     * The schedule is predicted in the same way as elapseMinutes(long), from
+     * the upcoming readings of the scheduled rooms' sensors, assuming that any
+     * ongoing fire drills continue.
+     * @param minutes number of minutes from now
+     * @return room in maintenance after the given number of minutes
+     * @throws IllegalArgumentException if minutes &lt; 0
+     * @throws UnsupportedOperationException if minutes &gt; 0 and the
+     * schedule cannot look ahead (see canLookAhead())
+     */
+    public Room getRoomInMaintenanceAfter(long minutes)
+            throws IllegalArgumentException, UnsupportedOperationException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes must be non-negative");
+        }
+        if (minutes > 0 && !canLookAhead()) {
+            throw new UnsupportedOperationException(
+                    "Maintenance schedule cannot look ahead in time");
+        }
+        return roomOrder.get(lookAhead(minutes).roomIndexCounter
+                % roomOrder.size());
+    }
+
+    /**
+     * Calculates the progress of the schedule after the given number of
+     * minutes, as described in elapseMinutes(long), without changing its
+     * state.
+     * @param minutes non-negative number of minutes to look ahead
+     * @return progress of the schedule after the given number of minutes
+     */
+    private Progress lookAhead(long minutes) {
+        long cycleTime = getCycleTime();
+        int index = roomIndexCounter;
+        int timeElapsed = timeElapsedCurrentRoom;
+        long elapsed = 0;
+        while (elapsed < minutes) {
+            Room room = roomOrder.get(index % roomOrder.size());
+            if (room.fireDrillOngoing()) {
+                // no progress can be made until the fire drill is cancelled
+                break;
+            }
+            TemperatureSensor temperatureSensor = (TemperatureSensor)
+                    room.getSensor(SensorType.TEMPERATURE);
+            int maintenanceTime = getMaintenanceTime(room);
+            if (temperatureSensor != null
+                    && temperatureSensor.canDetectFire()) {
+                // step one minute at a time, skipping evacuated minutes
+                elapsed++;
+                if (temperatureSensor.getHazardLevelAfter(elapsed) != 100) {
+                    timeElapsed += 1;
+                    if (timeElapsed == maintenanceTime) {
+                        index += 1;
+                        timeElapsed = 0;
+                    }
+                }
+            } else if (cycleTime > 0 && timeElapsed == 0
+                    && minutes - elapsed >= cycleTime) {
+                // the order wraps back to this room after each whole cycle
+                elapsed += (minutes - elapsed) / cycleTime * cycleTime;
+            } else {
+                long remaining = maintenanceTime - timeElapsed;
+                if (remaining <= 0 || minutes - elapsed < remaining) {
+                    timeElapsed += (int) (minutes - elapsed);
+                    elapsed = minutes;
+                } else {
+                    elapsed += remaining;
+                    index += 1;
+                    timeElapsed = 0;
+                }
+            }
+        }
+        return new Progress(index, timeElapsed);
+    }
+
+    /**
+     * Returns the number of minutes until the maintenance schedule next moves
+     * on to another room.
+     *
+     * If the current room could be evacuated by its temperature sensor, or is
+     * being evacuated for a fire drill, the schedule may stop progressing on
+     * any minute, so 1 is returned.
+     * @return minutes until the schedule may next change
+     */
+    @Override
+    public long getMinutesUntilChange() {
+        TemperatureSensor temperatureSensor = (TemperatureSensor)
+                currentRoom.getSensor(SensorType.TEMPERATURE);
+        long remaining = getMaintenanceTime(currentRoom)
+                - timeElapsedCurrentRoom;
+        if (currentRoom.fireDrillOngoing() || remaining <= 0
+                || (temperatureSensor != null
+                        && temperatureSensor.canDetectFire())) {
+            return 1;
+        }
+        return remaining;
+    }
+
+    /**
+     * Returns the number of minutes taken to maintain every room in the
+     * order once, or -1 if any room in the order could be evacuated, since
+     * the time taken is then unknown.
+     * @return time taken for one cycle through the room order, or -1
+     */
+    private long getCycleTime() {
+        long cycleTime = 0;
+        for (Room room : roomOrder) {
+            TemperatureSensor temperatureSensor = (TemperatureSensor)
+                    room.getSensor(SensorType.TEMPERATURE);
+            int maintenanceTime = getMaintenanceTime(room);
+            if (room.fireDrillOngoing() || maintenanceTime <= 0 ||
+                    (temperatureSensor != null
+                            && temperatureSensor.canDetectFire())) {
+                return -1;
+            }
+            cycleTime += maintenanceTime;
+        }
+        return cycleTime;
+    }
+
     /**
      * Stops the in-progress maintenance of the current room and progresses
      * to the next room.
@@ -188,6 +424,17 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
         timeElapsedCurrentRoom = 0;
     }
 
+    /**
+     * Cancels this maintenance schedule.
+     * The room currently being maintained should have its maintenance status
+     * set to false, and the schedule is unregistered from its timed item
+     * manager so that it no longer progresses.
+     */
+    public void cancel() {
+        currentRoom.setMaintenance(false);
+        clock.unregisterTimedItem(this);
+    }
+
     /**
      * Returns the human-readable string representation of this maintenance
      * schedule.
@@ -208,4 +455,29 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
                 "currentElapsed=%s", currentRoom.getRoomNumber(),
                 getTimeElapsedCurrentRoom());
     }
+
+    /**
+     * Position of a maintenance schedule in its room order.
+     */
+    private static final class Progress {
+        /**
+         * Number of rooms progressed through.
+         */
+        private final int roomIndexCounter;
+
+        /**
+         * Time elapsed maintaining the current room.
+         */
+        private final int timeElapsedCurrentRoom;
+
+        /**
+         * Creates a new schedule position.
+         * @param roomIndexCounter number of rooms progressed through
+         * @param timeElapsedCurrentRoom time elapsed maintaining current room
+         */
+        private Progress(int roomIndexCounter, int timeElapsedCurrentRoom) {
+            this.roomIndexCounter = roomIndexCounter;
+            this.timeElapsedCurrentRoom = timeElapsedCurrentRoom;
+        }
+    }
 }
@@ -13,4 +13,40 @@ public interface HazardEvaluator {
      * @return the hazard level, between 0 and 100 (inclusive)
      */
     int evaluateHazardLevel();
+
+    /**
+     * Calculates the hazard level that will be evaluated once the given
+     * number of minutes have elapsed, using the hazard levels the sensors
+     * will report at that time (see HazardSensor.getHazardLevelAfter(long)).
+     * The state of the sensors is not changed.
+     * <p>
+     * Evaluators which cannot look ahead need not override this method, and
+     * then only support a number of minutes of 0.
+     *
+     * @param minutes number of minutes from now, may be negative
+     * @return the hazard level after the given number of minutes, between 0
+     * and 100 (inclusive)
+     * @throws UnsupportedOperationException if minutes is not 0 and the
+     * evaluator cannot look ahead
+     */
+    default int evaluateHazardLevelAfter(long minutes)
+            throws UnsupportedOperationException {
+        if (minutes != 0) {
+            throw new UnsupportedOperationException(
+                    "Hazard evaluator cannot look ahead in time");
+        }
+        return evaluateHazardLevel();
+    }
+
+    /**
+     * Returns true if this evaluator can calculate the hazard level after any
+     * number of minutes (see {@link #evaluateHazardLevelAfter(long)}).
+     * <p>
+     * Evaluators which cannot look ahead need not override this method.
+     *
+     * @return true if the evaluator can look ahead in time, false otherwise
+     */
+    default boolean canLookAhead() {
+        return false;
+    }
 }
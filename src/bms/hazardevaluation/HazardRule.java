@@ -0,0 +1,932 @@
+package bms.hazardevaluation;
+
+import bms.sensors.CarbonDioxideSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.OccupancySensor;
+import bms.sensors.TemperatureSensor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rule for combining the hazard levels of a location's sensors into the
+ * hazard level of the location, written in a small expression language.
+ * <p>
+ * A rule is a single expression whose value, rounded to the nearest integer
+ * and limited to between 0 and 100, is the hazard level. Values are floating
+ * point numbers, and conditions are 1 when true and 0 when false. The
+ * language has, from loosest to tightest binding:
+ * <ul>
+ *     <li> {@code a || b} and {@code a && b}, where any non-zero value is
+ *     true;
+ *     <li> the comparisons {@code ==, !=, <, <=, >} and {@code >=};
+ *     <li> {@code a + b, a - b, a * b} and {@code a / b};
+ *     <li> {@code -a} and {@code !a};
+ *     <li> numbers such as {@code 100} or {@code 0.5}, and parentheses.
+ * </ul>
+ * The names {@code co2, noise, occupancy} and {@code temperature} are the
+ * hazard level of the location's sensor of that type. The functions are:
+ * <ul>
+ *     <li> {@code if(condition, a, b)}, which is a if the condition is true
+ *     and b otherwise;
+ *     <li> {@code has(name)}, which is true if the location has a sensor of
+ *     the named type;
+ *     <li> {@code max, min, sum, avg} and {@code count}, which take one or
+ *     more values and are 0 when given none. Besides expressions, their
+ *     arguments may be {@code all}, which stands for the hazard levels of
+ *     all of the location's sensors, or {@code others}, which stands for the
+ *     hazard levels of all its sensors that are not occupancy sensors.
+ * </ul>
+ * The only whitespace allowed is spaces and tabs, and no rule contains a
+ * colon, so a rule can be saved on the same line as its evaluator's type.
+ * <p>
+ * A rule is parsed once when it is created, and is compiled for each
+ * evaluator that uses it into a tree of small functions bound to the
+ * positions of that evaluator's sensors, with the hazard levels of up to
+ * four sensors combined in straight-line code rather than loops. Evaluators
+ * whose sensors are of the same types in the same order share one compiled
+ * rule. Anything that depends only on which sensors the evaluator has, such
+ * as count(all) or has(occupancy), is calculated while compiling, and of an
+ * if() whose condition is known while compiling only the branch that is
+ * taken is compiled. A rule may therefore name a sensor type that an
+ * evaluator does not have, as long as it does so only in a branch that is
+ * not taken for that evaluator.
+ */
+public final class HazardRule {
+    /**
+     * Names of the sensor types a rule may refer to.
+     */
+    private static final String[] SENSOR_NAMES =
+            {"co2", "noise", "occupancy", "temperature"};
+
+    /**
+     * Class of the sensors of each type in SENSOR_NAMES.
+     */
+    private static final Class<?>[] SENSOR_CLASSES = {
+            CarbonDioxideSensor.class, NoiseSensor.class,
+            OccupancySensor.class, TemperatureSensor.class};
+
+    /**
+     * Names of the functions whose arguments may include sensor groups.
+     */
+    private static final String[] AGGREGATES =
+            {"max", "min", "sum", "avg", "count"};
+
+    /**
+     * Source of the rule applied by a RuleBasedHazardEvaluator unless it is
+     * given another rule.
+     */
+    private static final String DEFAULT_SOURCE = "if(count(all) <= 1, "
+            + "sum(all), if(max(others) == 100, 100, avg(others) * "
+            + "if(has(occupancy), occupancy / 100, 1)))";
+
+    /**
+     * Rule applied by a RuleBasedHazardEvaluator unless it is given another
+     * rule, as described in RuleBasedHazardEvaluator.evaluateHazardLevel().
+     * It is declared after the tables used to parse it.
+     */
+    public static final HazardRule DEFAULT = new HazardRule(DEFAULT_SOURCE);
+
+    /**
+     * Source of the rule, as given to the constructor.
+     */
+    private final String source;
+
+    /**
+     * Root of the rule's syntax tree.
+     */
+    private final Node root;
+
+    /**
+     * The rule compiled for each layout of sensors it has been compiled for.
+     * A layout lists which of the sensor classes each sensor is an instance
+     * of, which is all that compiling depends on, so evaluators whose
+     * sensors have the same types in the same order share one compiled
+     * rule, which stays in the processor's cache when many are evaluated.
+     */
+    private final Map<List<Integer>, Expression> compiled;
+
+    /**
+     * Creates a new rule from the given source.
+     *
+     * @param source text of the rule in the rule language
+     * @throws IllegalArgumentException if the source is not a valid rule
+     */
+    public HazardRule(String source) throws IllegalArgumentException {
+        if (source == null) {
+            throw new IllegalArgumentException("Rule must not be null");
+        }
+        this.source = source;
+        this.root = new Parser(source).parse();
+        this.compiled = new HashMap<>();
+    }
+
+    /**
+     * Returns the source of the rule.
+     *
+     * @return text of the rule in the rule language
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Compiles the rule for the given sensors.
+     *
+     * @param sensors sensors whose hazard levels the rule combines, in the
+     *                order their levels will be given to the compiled rule
+     * @return compiled rule
+     * @throws IllegalArgumentException if the rule refers to a type of sensor
+     * that is not among the sensors, in a part of the rule that is not left
+     * out when compiled for them
+     */
+    synchronized Expression compile(HazardSensor[] sensors)
+            throws IllegalArgumentException {
+        List<Integer> layout = new ArrayList<>(sensors.length);
+        for (HazardSensor sensor : sensors) {
+            int classes = 0;
+            for (int i = 0; i < SENSOR_CLASSES.length; i++) {
+                if (SENSOR_CLASSES[i].isInstance(sensor)) {
+                    classes |= 1 << i;
+                }
+            }
+            layout.add(classes);
+        }
+        Expression expression = compiled.get(layout);
+        if (expression == null) {
+            expression = compile(root, sensors);
+            compiled.put(layout, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * Returns the hazard level given by the value of a rule.
+     *
+     * @param value value of the rule
+     * @return value rounded to the nearest integer between 0 and 100
+     */
+    static int toHazardLevel(float value) {
+        return Math.max(0, Math.min(100, Math.round(value)));
+    }
+
+    /**
+     * Returns whether the given object is a rule with the same source as
+     * this rule.
+     *
+     * @param obj other object
+     * @return true if the object is an equal rule
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof HazardRule
+                && source.equals(((HazardRule) obj).source);
+    }
+
+    /**
+     * Returns the hash code of this rule.
+     *
+     * @return hash code of the rule's source
+     */
+    @Override
+    public int hashCode() {
+        return source.hashCode();
+    }
+
+    /**
+     * Returns the source of the rule.
+     *
+     * @return text of the rule in the rule language
+     */
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * A compiled rule, or part of one, calculating a value from the hazard
+     * levels of the sensors it was compiled for.
+     */
+    interface Expression {
+        /**
+         * Calculates the value of the expression.
+         *
+         * @param levels hazard levels of the sensors, in the order the rule
+         *               was compiled for
+         * @return value of the expression
+         */
+        float evaluate(int[] levels);
+    }
+
+    /**
+     * An expression whose value is known while compiling.
+     */
+    private static final class Constant implements Expression {
+        /**
+         * Value of the expression.
+         */
+        private final float value;
+
+        /**
+         * Creates a new constant expression.
+         *
+         * @param value value of the expression
+         */
+        private Constant(float value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the value of the expression.
+         *
+         * @param levels hazard levels of the sensors, not used
+         * @return value of the expression
+         */
+        @Override
+        public float evaluate(int[] levels) {
+            return value;
+        }
+    }
+
+    /**
+     * A node of a rule's syntax tree.
+     */
+    private static final class Node {
+        /**
+         * Operator or function of the node, "number" for a number, "sensor"
+         * for a sensor's hazard level, or "all" or "others" for a group of
+         * sensors.
+         */
+        private final String operator;
+
+        /**
+         * Value of a number node.
+         */
+        private final float value;
+
+        /**
+         * Index in SENSOR_NAMES of the type of a sensor node, or of the
+         * argument of a has() node.
+         */
+        private final int sensor;
+
+        /**
+         * Operands or arguments of the node.
+         */
+        private final Node[] children;
+
+        /**
+         * Creates a new node.
+         *
+         * @param operator operator or function of the node
+         * @param value value of a number node
+         * @param sensor index of the sensor type of the node
+         * @param children operands or arguments of the node
+         */
+        private Node(String operator, float value, int sensor,
+                Node... children) {
+            this.operator = operator;
+            this.value = value;
+            this.sensor = sensor;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Parser of the source of a rule into a syntax tree, by recursive
+     * descent with one method for each level of binding.
+     */
+    private static final class Parser {
+        /**
+         * Source being parsed.
+         */
+        private final String source;
+
+        /**
+         * Position in the source of the next character to read.
+         */
+        private int position;
+
+        /**
+         * Creates a new parser of the given source.
+         *
+         * @param source text of a rule
+         */
+        private Parser(String source) {
+            this.source = source;
+            this.position = 0;
+        }
+
+        /**
+         * Parses the whole source as a single expression.
+         *
+         * @return root of the syntax tree
+         * @throws IllegalArgumentException if the source is not a valid
+         * rule
+         */
+        private Node parse() throws IllegalArgumentException {
+            Node root = parseOr();
+            skipSpaces();
+            if (position < source.length()) {
+                throw error("Unexpected '" + source.charAt(position) + "'");
+            }
+            return root;
+        }
+
+        /**
+         * Parses an expression joined by ||.
+         *
+         * @return parsed expression
+         */
+        private Node parseOr() {
+            Node node = parseAnd();
+            while (accept("||")) {
+                node = new Node("||", 0, -1, node, parseAnd());
+            }
+            return node;
+        }
+
+        /**
+         * Parses an expression joined by &amp;&amp;.
+         *
+         * @return parsed expression
+         */
+        private Node parseAnd() {
+            Node node = parseComparison();
+            while (accept("&&")) {
+                node = new Node("&&", 0, -1, node, parseComparison());
+            }
+            return node;
+        }
+
+        /**
+         * Parses an expression that may be a comparison.
+         *
+         * @return parsed expression
+         */
+        private Node parseComparison() {
+            Node node = parseAdditive();
+            // two-character operators are tried before their prefixes
+            for (String operator : new String[]{"==", "!=", "<=", ">=", "<",
+                    ">"}) {
+                if (accept(operator)) {
+                    return new Node(operator, 0, -1, node, parseAdditive());
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Parses an expression joined by + or -.
+         *
+         * @return parsed expression
+         */
+        private Node parseAdditive() {
+            Node node = parseMultiplicative();
+            while (true) {
+                if (accept("+")) {
+                    node = new Node("+", 0, -1, node, parseMultiplicative());
+                } else if (accept("-")) {
+                    node = new Node("-", 0, -1, node, parseMultiplicative());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        /**
+         * Parses an expression joined by * or /.
+         *
+         * @return parsed expression
+         */
+        private Node parseMultiplicative() {
+            Node node = parseUnary();
+            while (true) {
+                if (accept("*")) {
+                    node = new Node("*", 0, -1, node, parseUnary());
+                } else if (accept("/")) {
+                    node = new Node("/", 0, -1, node, parseUnary());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        /**
+         * Parses an expression that may be negated.
+         *
+         * @return parsed expression
+         */
+        private Node parseUnary() {
+            if (accept("-")) {
+                return new Node("neg", 0, -1, parseUnary());
+            } else if (peek() == '!' && !source.startsWith("!=", position)) {
+                position++;
+                return new Node("!", 0, -1, parseUnary());
+            }
+            return parsePrimary();
+        }
+
+        /**
+         * Parses a number, sensor, function call or parenthesised expression.
+         *
+         * @return parsed expression
+         */
+        private Node parsePrimary() {
+            char next = peek();
+            if (accept("(")) {
+                Node node = parseOr();
+                expect(")");
+                return node;
+            } else if (Character.isDigit(next) || next == '.') {
+                int start = position;
+                while (position < source.length()
+                        && (Character.isDigit(source.charAt(position))
+                        || source.charAt(position) == '.')) {
+                    position++;
+                }
+                try {
+                    return new Node("number", Float.parseFloat(
+                            source.substring(start, position)), -1);
+                } catch (NumberFormatException e) {
+                    position = start;
+                    throw error("Invalid number");
+                }
+            } else if (Character.isLetter(next)) {
+                int start = position;
+                String name = parseName();
+                int sensor = indexOf(SENSOR_NAMES, name);
+                if (sensor >= 0) {
+                    return new Node("sensor", 0, sensor);
+                }
+                if (name.equals("all") || name.equals("others")) {
+                    position = start;
+                    throw error("'" + name + "' may only be an argument of "
+                            + "max, min, sum, avg or count");
+                }
+                return parseCall(name, start);
+            }
+            throw error(next == 0 ? "Unexpected end of rule"
+                    : "Unexpected '" + next + "'");
+        }
+
+        /**
+         * Parses the arguments of a call to the given function.
+         *
+         * @param name name of the function
+         * @param start position of the function's name
+         * @return parsed call
+         */
+        private Node parseCall(String name, int start) {
+            boolean aggregate = indexOf(AGGREGATES, name) >= 0;
+            if (!aggregate && !name.equals("if") && !name.equals("has")) {
+                position = start;
+                throw error("Unknown name '" + name + "'");
+            }
+            expect("(");
+            List<Node> arguments = new ArrayList<>();
+            if (name.equals("has")) {
+                skipSpaces();
+                int sensor = indexOf(SENSOR_NAMES, parseName());
+                if (sensor < 0) {
+                    throw error("Expected a sensor type");
+                }
+                expect(")");
+                return new Node("has", 0, sensor);
+            }
+            do {
+                skipSpaces();
+                int argumentStart = position;
+                String group = Character.isLetter(peek()) ? parseName() : "";
+                if (aggregate && (group.equals("all")
+                        || group.equals("others"))) {
+                    arguments.add(new Node(group, 0, -1));
+                } else {
+                    position = argumentStart;
+                    arguments.add(parseOr());
+                }
+            } while (accept(","));
+            expect(")");
+            if (name.equals("if") && arguments.size() != 3) {
+                position = start;
+                throw error("if takes a condition and two values");
+            }
+            return new Node(name, 0, -1, arguments.toArray(new Node[0]));
+        }
+
+        /**
+         * Reads the name at the current position.
+         *
+         * @return name, which may be empty
+         */
+        private String parseName() {
+            int start = position;
+            while (position < source.length()
+                    && Character.isLetterOrDigit(source.charAt(position))) {
+                position++;
+            }
+            return source.substring(start, position);
+        }
+
+        /**
+         * Skips spaces and tabs, and returns the character after them.
+         *
+         * @return next character, or 0 at the end of the source
+         */
+        private char peek() {
+            skipSpaces();
+            return position < source.length() ? source.charAt(position) : 0;
+        }
+
+        /**
+         * Skips spaces and tabs.
+         */
+        private void skipSpaces() {
+            while (position < source.length()
+                    && (source.charAt(position) == ' '
+                    || source.charAt(position) == '\t')) {
+                position++;
+            }
+        }
+
+        /**
+         * Skips the given token if it comes next.
+         *
+         * @param token token to skip
+         * @return true if the token was skipped
+         */
+        private boolean accept(String token) {
+            skipSpaces();
+            if (source.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Skips the given token, which must come next.
+         *
+         * @param token token to skip
+         * @throws IllegalArgumentException if the token does not come next
+         */
+        private void expect(String token) throws IllegalArgumentException {
+            if (!accept(token)) {
+                throw error("Expected '" + token + "'");
+            }
+        }
+
+        /**
+         * Returns an exception describing a syntax error at the current
+         * position.
+         *
+         * @param message description of the error
+         * @return exception to throw
+         */
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position "
+                    + position + " of rule: " + source);
+        }
+    }
+
+    /**
+     * Returns the index of the given string in the given array.
+     *
+     * @param array strings to search
+     * @param string string to find
+     * @return index of the string, or -1 if it is not in the array
+     */
+    private static int indexOf(String[] array, String string) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i].equals(string)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the first of the given sensors of the given type.
+     *
+     * @param sensors sensors to search
+     * @param sensor index of the sensor type in SENSOR_NAMES
+     * @return index of the sensor, or -1 if there is none of the type
+     */
+    private static int find(HazardSensor[] sensors, int sensor) {
+        for (int i = 0; i < sensors.length; i++) {
+            if (SENSOR_CLASSES[sensor].isInstance(sensors[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compiles the given node for the given sensors.
+     *
+     * @param node node to compile
+     * @param sensors sensors the rule is compiled for
+     * @return compiled node
+     * @throws IllegalArgumentException if the node refers to a type of sensor
+     * that is not among the sensors
+     */
+    private static Expression compile(Node node, HazardSensor[] sensors)
+            throws IllegalArgumentException {
+        switch (node.operator) {
+            case "number":
+                return new Constant(node.value);
+            case "sensor":
+                int index = find(sensors, node.sensor);
+                if (index < 0) {
+                    throw new IllegalArgumentException("Rule refers to a "
+                            + SENSOR_NAMES[node.sensor] + " sensor, but "
+                            + "there is none");
+                }
+                return levels -> levels[index];
+            case "has":
+                return new Constant(find(sensors, node.sensor) >= 0 ? 1 : 0);
+            case "if":
+                return compileIf(node, sensors);
+            case "max":
+            case "min":
+            case "sum":
+            case "avg":
+            case "count":
+                return compileAggregate(node, sensors);
+            default:
+                break;
+        }
+        Expression a = compile(node.children[0], sensors);
+        if (node.children.length == 1) {
+            Expression unary = node.operator.equals("neg")
+                    ? levels -> -a.evaluate(levels)
+                    : levels -> a.evaluate(levels) == 0 ? 1 : 0;
+            return fold(unary, a);
+        }
+        Expression b = compile(node.children[1], sensors);
+        if (b instanceof Constant && !(a instanceof Constant)
+                && !node.operator.equals("||")
+                && !node.operator.equals("&&")) {
+            return compileWithConstant(node.operator, a,
+                    ((Constant) b).value);
+        }
+        Expression binary;
+        switch (node.operator) {
+            case "||":
+                binary = levels -> a.evaluate(levels) != 0
+                        || b.evaluate(levels) != 0 ? 1 : 0;
+                break;
+            case "&&":
+                binary = levels -> a.evaluate(levels) != 0
+                        && b.evaluate(levels) != 0 ? 1 : 0;
+                break;
+            case "==":
+                binary = levels -> a.evaluate(levels) == b.evaluate(levels)
+                        ? 1 : 0;
+                break;
+            case "!=":
+                binary = levels -> a.evaluate(levels) != b.evaluate(levels)
+                        ? 1 : 0;
+                break;
+            case "<":
+                binary = levels -> a.evaluate(levels) < b.evaluate(levels)
+                        ? 1 : 0;
+                break;
+            case "<=":
+                binary = levels -> a.evaluate(levels) <= b.evaluate(levels)
+                        ? 1 : 0;
+                break;
+            case ">":
+                binary = levels -> a.evaluate(levels) > b.evaluate(levels)
+                        ? 1 : 0;
+                break;
+            case ">=":
+                binary = levels -> a.evaluate(levels) >= b.evaluate(levels)
+                        ? 1 : 0;
+                break;
+            case "+":
+                binary = levels -> a.evaluate(levels) + b.evaluate(levels);
+                break;
+            case "-":
+                binary = levels -> a.evaluate(levels) - b.evaluate(levels);
+                break;
+            case "*":
+                binary = levels -> a.evaluate(levels) * b.evaluate(levels);
+                break;
+            default:
+                binary = levels -> a.evaluate(levels) / b.evaluate(levels);
+                break;
+        }
+        return fold(binary, a, b);
+    }
+
+    /**
+     * Compiles an arithmetic operator or comparison whose second operand is
+     * a constant, which is held in the compiled operator rather than
+     * evaluated.
+     *
+     * @param operator operator to compile
+     * @param a compiled first operand
+     * @param k value of the second operand
+     * @return compiled operator
+     */
+    private static Expression compileWithConstant(String operator,
+            Expression a, float k) {
+        switch (operator) {
+            case "==":
+                return levels -> a.evaluate(levels) == k ? 1 : 0;
+            case "!=":
+                return levels -> a.evaluate(levels) != k ? 1 : 0;
+            case "<":
+                return levels -> a.evaluate(levels) < k ? 1 : 0;
+            case "<=":
+                return levels -> a.evaluate(levels) <= k ? 1 : 0;
+            case ">":
+                return levels -> a.evaluate(levels) > k ? 1 : 0;
+            case ">=":
+                return levels -> a.evaluate(levels) >= k ? 1 : 0;
+            case "+":
+                return levels -> a.evaluate(levels) + k;
+            case "-":
+                return levels -> a.evaluate(levels) - k;
+            case "*":
+                // multiplying or dividing by 1 gives the same float
+                return k == 1 ? a : levels -> a.evaluate(levels) * k;
+            default:
+                return k == 1 ? a : levels -> a.evaluate(levels) / k;
+        }
+    }
+
+    /**
+     * Compiles an if() node, leaving out the branch that is not taken if
+     * the condition is known while compiling.
+     *
+     * @param node node to compile
+     * @param sensors sensors the rule is compiled for
+     * @return compiled node
+     */
+    private static Expression compileIf(Node node, HazardSensor[] sensors) {
+        Expression condition = compile(node.children[0], sensors);
+        if (condition instanceof Constant) {
+            return compile(node.children[
+                    ((Constant) condition).value != 0 ? 1 : 2], sensors);
+        }
+        Expression a = compile(node.children[1], sensors);
+        Expression b = compile(node.children[2], sensors);
+        return levels -> condition.evaluate(levels) != 0
+                ? a.evaluate(levels) : b.evaluate(levels);
+    }
+
+    /**
+     * Compiles a max(), min(), sum(), avg() or count() node. The arguments
+     * that are sensors' hazard levels are combined with a loop over their
+     * positions, and any others are combined with those.
+     *
+     * @param node node to compile
+     * @param sensors sensors the rule is compiled for
+     * @return compiled node
+     */
+    private static Expression compileAggregate(Node node,
+            HazardSensor[] sensors) {
+        List<Integer> indexList = new ArrayList<>();
+        List<Expression> others = new ArrayList<>();
+        for (Node argument : node.children) {
+            if (argument.operator.equals("all")
+                    || argument.operator.equals("others")) {
+                boolean all = argument.operator.equals("all");
+                for (int i = 0; i < sensors.length; i++) {
+                    if (all || !(sensors[i] instanceof OccupancySensor)) {
+                        indexList.add(i);
+                    }
+                }
+            } else if (argument.operator.equals("sensor")) {
+                int index = find(sensors, argument.sensor);
+                if (index < 0) {
+                    // reports the missing sensor
+                    compile(argument, sensors);
+                }
+                indexList.add(index);
+            } else {
+                others.add(compile(argument, sensors));
+            }
+        }
+        int count = indexList.size() + others.size();
+        if (node.operator.equals("count") || count == 0) {
+            return new Constant(node.operator.equals("count") ? count : 0);
+        }
+        int[] indices = new int[indexList.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexList.get(i);
+        }
+        boolean average = node.operator.equals("avg");
+        String operator = average ? "sum" : node.operator;
+        Expression aggregate = indices.length > 0
+                ? combineLevels(operator, indices) : others.remove(0);
+        for (Expression other : others) {
+            Expression combined = aggregate;
+            switch (operator) {
+                case "max":
+                    aggregate = levels -> Math.max(combined.evaluate(levels),
+                            other.evaluate(levels));
+                    break;
+                case "min":
+                    aggregate = levels -> Math.min(combined.evaluate(levels),
+                            other.evaluate(levels));
+                    break;
+                default:
+                    aggregate = levels -> combined.evaluate(levels)
+                            + other.evaluate(levels);
+                    break;
+            }
+            aggregate = fold(aggregate, combined, other);
+        }
+        if (average) {
+            Expression sum = aggregate;
+            aggregate = fold(levels -> sum.evaluate(levels) / count, sum);
+        }
+        return aggregate;
+    }
+
+    /**
+     * Compiles the maximum, minimum or sum of the hazard levels at the given
+     * positions. Up to four levels are combined without a loop, which covers
+     * a room with one sensor of each type.
+     *
+     * @param operator "max", "min" or "sum"
+     * @param indices positions of the hazard levels, at least one
+     * @return compiled combination of the levels
+     */
+    private static Expression combineLevels(String operator, int[] indices) {
+        int a = indices[0];
+        int b = indices.length > 1 ? indices[1] : 0;
+        int c = indices.length > 2 ? indices[2] : 0;
+        int d = indices.length > 3 ? indices[3] : 0;
+        // the levels are small integers, so their sum is exact
+        switch (operator + indices.length) {
+            case "max1":
+            case "min1":
+            case "sum1":
+                return levels -> levels[a];
+            case "max2":
+                return levels -> Math.max(levels[a], levels[b]);
+            case "max3":
+                return levels -> Math.max(Math.max(levels[a], levels[b]),
+                        levels[c]);
+            case "max4":
+                return levels -> Math.max(Math.max(levels[a], levels[b]),
+                        Math.max(levels[c], levels[d]));
+            case "min2":
+                return levels -> Math.min(levels[a], levels[b]);
+            case "min3":
+                return levels -> Math.min(Math.min(levels[a], levels[b]),
+                        levels[c]);
+            case "min4":
+                return levels -> Math.min(Math.min(levels[a], levels[b]),
+                        Math.min(levels[c], levels[d]));
+            case "sum2":
+                return levels -> levels[a] + levels[b];
+            case "sum3":
+                return levels -> levels[a] + levels[b] + levels[c];
+            case "sum4":
+                return levels -> levels[a] + levels[b] + levels[c]
+                        + levels[d];
+            default:
+                break;
+        }
+        boolean sum = operator.equals("sum");
+        boolean max = operator.equals("max");
+        return levels -> {
+            int result = levels[a];
+            for (int i = 1; i < indices.length; i++) {
+                int level = levels[indices[i]];
+                if (sum) {
+                    result += level;
+                } else if (max ? level > result : level < result) {
+                    result = level;
+                }
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Returns the given expression, or its value as a constant if all of its
+     * operands are constants.
+     *
+     * @param expression compiled expression
+     * @param operands compiled operands of the expression
+     * @return expression or constant
+     */
+    private static Expression fold(Expression expression,
+            Expression... operands) {
+        for (Expression operand : operands) {
+            if (!(operand instanceof Constant)) {
+                return expression;
+            }
+        }
+        return new Constant(expression.evaluate(null));
+    }
+}
@@ -0,0 +1,82 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+import bms.sensors.SensorType;
+import bms.sensors.TimedSensor;
+
+/**
+ * The current readings of a hazard evaluator's sensors as of the last time
+ * its hazard level was calculated, so that the evaluator can tell whether
+ * any reading has changed since, and only calculate its hazard level again
+ * if one has.
+ * <p>
+ * The hazard level of each of the sensor types (see bms.sensors.SensorType)
+ * depends only on its current reading, so comparing readings is exact, and
+ * costs nothing while the sensors are advanced. If any of the sensors is not
+ * exactly one of the sensor types, such as a subclass which overrides how
+ * its hazard level is calculated, its hazard level may depend on more than
+ * its reading, and the readings are always treated as changed, as
+ * bms.sensors.HazardLevelCache does.
+ */
+final class ReadingSnapshot {
+    /**
+     * Sensors whose readings are recorded, or null if not all of the
+     * evaluator's sensors are exactly one of the sensor types.
+     */
+    private final TimedSensor[] sensors;
+
+    /**
+     * Reading of each sensor when the snapshot was last updated.
+     */
+    private final int[] readings;
+
+    /**
+     * Whether the snapshot has been updated at least once.
+     */
+    private boolean taken;
+
+    /**
+     * Creates a new snapshot of the given sensors' readings, which is
+     * treated as changed until it is first updated.
+     *
+     * @param sensors sensors whose readings to record
+     */
+    ReadingSnapshot(HazardSensor[] sensors) {
+        TimedSensor[] timedSensors = new TimedSensor[sensors.length];
+        for (int i = 0; i < sensors.length; i++) {
+            if (!(sensors[i] instanceof TimedSensor)
+                    || SensorType.of(sensors[i]) == null) {
+                timedSensors = null;
+                break;
+            }
+            timedSensors[i] = (TimedSensor) sensors[i];
+        }
+        this.sensors = timedSensors;
+        this.readings = new int[sensors.length];
+        this.taken = false;
+    }
+
+    /**
+     * Records the sensors' current readings, and returns whether any of them
+     * differs from the readings recorded by the previous update.
+     *
+     * @return true if any reading has changed, or if the snapshot cannot tell
+     */
+    boolean update() {
+        if (sensors == null) {
+            return true;
+        }
+        boolean changed = !taken;
+        // calls through TimedSensor rather than the HazardSensor interface
+        // can be inlined
+        for (int i = 0; i < sensors.length; i++) {
+            int reading = sensors[i].getCurrentReading();
+            if (reading != readings[i]) {
+                readings[i] = reading;
+                changed = true;
+            }
+        }
+        taken = true;
+        return changed;
+    }
+}
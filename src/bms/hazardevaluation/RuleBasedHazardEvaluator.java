@@ -1,31 +1,83 @@
 package bms.hazardevaluation;
 
 import bms.sensors.HazardSensor;
-import bms.sensors.OccupancySensor;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Evaluates the hazard level of a location using a rule based system.
+ * <p>
+ * The rule is written in the language described in HazardRule, and is
+ * compiled once for the evaluator's sensors when the evaluator is created.
+ * Unless another rule is given, the evaluator applies HazardRule.DEFAULT.
  */
 public class RuleBasedHazardEvaluator implements HazardEvaluator {
     /**
-     * List of sensors to be included in hazard evaluator
+     * Sensors to be included in hazard evaluator
      */
-    private final List<HazardSensor> sensors;
+    private final HazardSensor[] sensors;
+
+    /**
+     * Rule applied to the sensors' hazard levels.
+     */
+    private final HazardRule rule;
+
+    /**
+     * Rule compiled for the sensors.
+     */
+    private final HazardRule.Expression compiledRule;
+
+    /**
+     * Hazard levels of the sensors, filled in before the compiled rule is
+     * applied to them.
+     */
+    private final int[] levels;
+
+    /**
+     * Hazard level last calculated by evaluateHazardLevel().
+     */
+    private int cachedHazardLevel;
+
+    /**
+     * Sensors' readings when the cached hazard level was calculated.
+     */
+    private final ReadingSnapshot snapshot;
 
     /**
      * Creates a new rule-based hazard evaluator with the given list of sensors.
+     * The list is copied, so later changes to it do not affect the evaluator.
      * @param sensors sensors to be used in the hazard level calculation
      */
     public RuleBasedHazardEvaluator(List<HazardSensor> sensors) {
-        this.sensors = sensors;
+        this(sensors, HazardRule.DEFAULT);
+    }
+
+    /**
+     * Creates a new rule-based hazard evaluator which applies the given rule
+     * to the given list of sensors.
+     * The list is copied, so later changes to it do not affect the evaluator.
+     * @param sensors sensors to be used in the hazard level calculation
+     * @param rule rule combining the sensors' hazard levels
+     * @throws IllegalArgumentException if the rule refers to a type of sensor
+     * that is not in the list, other than in a branch of an if() that is not
+     * taken for these sensors
+     */
+    public RuleBasedHazardEvaluator(List<HazardSensor> sensors,
+            HazardRule rule) throws IllegalArgumentException {
+        this.sensors = sensors.toArray(new HazardSensor[0]);
+        this.rule = rule;
+        this.compiledRule = rule.compile(this.sensors);
+        this.levels = new int[this.sensors.length];
+        this.snapshot = new ReadingSnapshot(this.sensors);
     }
 
     /**
-     * Returns a calculated hazard level based on applying a set of rules to
-     * the list of sensors passed to the constructor.
-     * The rules to be applied are as follows. Note that square brackets [] have
-     * been used to indicate mathematical grouping.
+     * Returns a calculated hazard level based on applying the evaluator's
+     * rule to the list of sensors passed to the constructor.
+     * The rules of the default rule, HazardRule.DEFAULT, are as follows.
+     * Note that square brackets [] have been used to indicate mathematical
+     * grouping.
      *      - If there are no sensors, return 0.
      *      - If there is only one sensor, return that sensor's current hazard
      *      level as per HazardSensor.getHazardLevel().
@@ -42,54 +94,112 @@ public class RuleBasedHazardEvaluator implements HazardEvaluator {
      *      and 100.
      * You can assume that there is no more than one OccupancySensor in the list
      * passed to the constructor.
+     * Other rules are applied as described in HazardRule.
+     * The hazard level is cached, and only calculated again once one of the
+     * sensors' current readings has changed.
      * @return calculated hazard level according to a set of rules
      */
     public int evaluateHazardLevel() {
-        if (sensors.size() == 0) {
-            return 0;
-        } else if (sensors.size() == 1) {
-            return sensors.get(0).getHazardLevel();
-        } else {
-            boolean occupancySensor = false;
-            boolean maxHazardLevel = false;
-            int occupancySensorValue = 0;
-            float total = 0;
-            float average;
-
-            // adding up the comfort level of all non-occupancy sensors
-            for (HazardSensor s : sensors) {
-                if (s instanceof OccupancySensor) {
-                    occupancySensor = true;
-                    occupancySensorValue = s.getHazardLevel();
-                } else if (s.getHazardLevel() == 100) {
-                    maxHazardLevel = true;
-                    total += s.getHazardLevel();
-                } else {
-                    total += s.getHazardLevel();
-                }
-            }
-            // returning result
-            if (maxHazardLevel) {
-                return 100;
-            } else if (!occupancySensor) {
-                average = total / sensors.size();
-                return Math.round(average);
-            } else {
-                average = total / (sensors.size() - 1);
-                return Math.round(average * ((float) occupancySensorValue
-                        / 100));
+        if (snapshot.update()) {
+            cachedHazardLevel = calculateHazardLevel(0);
+        }
+        return cachedHazardLevel;
+    }
+
+    /**
+     * Returns the hazard level calculated by applying the rules described in
+     * evaluateHazardLevel() to the hazard levels the sensors will report once
+     * the given number of minutes have elapsed.
+     * @param minutes number of minutes from now, may be negative
+     * @return calculated hazard level after the given number of minutes
+     */
+    @Override
+    public int evaluateHazardLevelAfter(long minutes) {
+        if (minutes == 0) {
+            return evaluateHazardLevel();
+        }
+        return calculateHazardLevel(minutes);
+    }
+
+    /**
+     * Returns true if every sensor used by this evaluator can look ahead in
+     * time (see HazardSensor.canLookAhead()).
+     * @return true if the evaluator can look ahead in time, false otherwise
+     */
+    @Override
+    public boolean canLookAhead() {
+        for (HazardSensor sensor : sensors) {
+            if (!sensor.canLookAhead()) {
+                return false;
             }
         }
+        return true;
+    }
+
+    /**
+     * Calculates the hazard level after the given number of minutes from the
+     * sensors' hazard levels, as described in evaluateHazardLevelAfter(long).
+     * @param minutes number of minutes from now, may be negative
+     * @return calculated hazard level after the given number of minutes
+     */
+    private int calculateHazardLevel(long minutes) {
+        for (int i = 0; i < sensors.length; i++) {
+            levels[i] = sensors[i].getHazardLevelAfter(minutes);
+        }
+        return combineHazardLevels(levels);
+    }
+
+    /**
+     * Applies the evaluator's rule to the given hazard levels of its
+     * sensors, so that callers holding the sensors' hazard levels already
+     * can combine them without the evaluator reading the sensors again.
+     * @param hazardLevels hazard level of each sensor, in the order of
+     *                     getSensors(); only the first getSensors().size()
+     *                     elements are read
+     * @return hazard level calculated by the rule
+     * @throws IndexOutOfBoundsException if fewer hazard levels than sensors
+     * are given
+     */
+    public int combineHazardLevels(int[] hazardLevels)
+            throws IndexOutOfBoundsException {
+        if (hazardLevels.length < sensors.length) {
+            throw new IndexOutOfBoundsException("Expected "
+                    + sensors.length + " hazard levels");
+        }
+        return HazardRule.toHazardLevel(compiledRule.evaluate(hazardLevels));
+    }
+
+    /**
+     * Returns the rule applied by this hazard evaluator.
+     * @return rule combining the sensors' hazard levels
+     */
+    public HazardRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the sensors used by this hazard evaluator, in the order they
+     * were given to the constructor.
+     * @return unmodifiable list of sensors
+     */
+    public List<HazardSensor> getSensors() {
+        return Collections.unmodifiableList(Arrays.asList(sensors));
     }
 
     /**
      * Returns the string representation of this hazard evaluator.
      * The format of the string to return is simply "RuleBased" without
      * double quotes.
+     * If the evaluator applies a rule other than the default rule, the
+     * string is "RuleBased:" followed by the source of the rule, so that the
+     * rule is saved along with the evaluator's type.
      * @return tring representation of this room
      */
     @Override
     public String toString() {
-        return "RuleBased";
+        if (rule.equals(HazardRule.DEFAULT)) {
+            return "RuleBased";
+        }
+        return "RuleBased:" + rule.getSource();
     }
 }
@@ -2,6 +2,8 @@ package bms.hazardevaluation;
 
 import bms.sensors.HazardSensor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -9,18 +11,45 @@ import java.util.Map;
  * Evaluates the hazard level of a location using weightings for the sensor
  * values.
  * The sum of the weightings of all sensors must equal 100.
+ * <p>
+ * The sensors and their weightings are held in parallel arrays, in the
+ * iteration order of the map given to the constructor, and the weighted
+ * average is calculated in integer arithmetic. Since the weightings are
+ * percentages, the weighted sum of the hazard levels is exactly 100 times
+ * the average, which is then rounded to the nearest integer with halves
+ * rounded up. The result does not depend on the order of the sensors.
  */
 public class WeightingBasedHazardEvaluator implements HazardEvaluator {
     /**
-     * Map which holds sensors in the hazard evaluator and their weightings
+     * Sensors in the hazard evaluator, in the iteration order of the map
+     * given to the constructor.
      */
-    private final Map<HazardSensor, Integer> sensors;
+    private final HazardSensor[] sensorArray;
+
+    /**
+     * Weighting of each sensor in sensorArray.
+     */
+    private final int[] weightingArray;
+
+    /**
+     * Hazard level last calculated by evaluateHazardLevel().
+     */
+    private int cachedHazardLevel;
+
+    /**
+     * Sensors' readings when the cached hazard level was calculated.
+     */
+    private final ReadingSnapshot snapshot;
 
     /**
      * Creates a new weighting-based hazard evaluator with the given sensors
      * and weightings.
      * Each weighting must be between 0 and 100 inclusive, and the total sum
      * of all weightings must equal 100.
+     * The map is copied, so later changes to it do not affect the evaluator.
+     * The order in which the map iterates over its sensors becomes the order
+     * of getSensors() and getWeightings(), so a map with a defined order,
+     * such as a LinkedHashMap, should be given if that order matters.
      * @param sensors mapping of sensors to their respective weighting
      * @throws IllegalArgumentException  if any weighting is below 0 or above
      * 100; or if the sum of all weightings is not equal to 100
@@ -39,7 +68,15 @@ public class WeightingBasedHazardEvaluator implements HazardEvaluator {
         if (illegalArgument || total != 100) {
             throw new IllegalArgumentException();
         }
-        this.sensors = sensors;
+        this.sensorArray = new HazardSensor[sensors.size()];
+        this.weightingArray = new int[sensors.size()];
+        int i = 0;
+        for (Map.Entry<HazardSensor, Integer> entry: sensors.entrySet()) {
+            sensorArray[i] = entry.getKey();
+            weightingArray[i] = entry.getValue();
+            i++;
+        }
+        this.snapshot = new ReadingSnapshot(this.sensorArray);
     }
 
     /**
@@ -48,31 +85,114 @@ public class WeightingBasedHazardEvaluator implements HazardEvaluator {
      * The weightings given in the constructor should be used. The final
      * evaluated hazard level should be rounded to the nearest integer between
      * 0 and 100.
+     * The hazard level is cached, and only calculated again once one of the
+     * sensors' current readings has changed.
      * @return weighted average of current sensor hazard levels
      */
     public int evaluateHazardLevel() {
-        float weightedAverage = 0;
-        for (Map.Entry<HazardSensor, Integer> entry: sensors.entrySet()) {
-            float hazardLevel = (float) entry.getKey().getHazardLevel();
-            float weighing = (float) entry.getValue();
-            weightedAverage +=  hazardLevel * (weighing / 100);
+        if (snapshot.update()) {
+            cachedHazardLevel = calculateHazardLevel(0);
+        }
+        return cachedHazardLevel;
+    }
+
+    /**
+     * Returns the weighted average of the hazard levels the sensors will
+     * report once the given number of minutes have elapsed, calculated in the
+     * same way as evaluateHazardLevel().
+     * @param minutes number of minutes from now, may be negative
+     * @return weighted average of sensor hazard levels after the given
+     * number of minutes
+     */
+    @Override
+    public int evaluateHazardLevelAfter(long minutes) {
+        if (minutes == 0) {
+            return evaluateHazardLevel();
         }
-        return Math.round(weightedAverage);
+        return calculateHazardLevel(minutes);
+    }
+
+    /**
+     * Returns true if every sensor used by this evaluator can look ahead in
+     * time (see HazardSensor.canLookAhead()).
+     * @return true if the evaluator can look ahead in time, false otherwise
+     */
+    @Override
+    public boolean canLookAhead() {
+        for (HazardSensor sensor : sensorArray) {
+            if (!sensor.canLookAhead()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the weighted average of the sensors' hazard levels after
+     * the given number of minutes.
+     * @param minutes number of minutes from now, may be negative
+     * @return weighted average of sensor hazard levels after the given
+     * number of minutes
+     */
+    private int calculateHazardLevel(long minutes) {
+        int weightedSum = 0;
+        for (int i = 0; i < sensorArray.length; i++) {
+            weightedSum += sensorArray[i].getHazardLevelAfter(minutes)
+                    * weightingArray[i];
+        }
+        return roundPercentage(weightedSum);
+    }
+
+    /**
+     * Returns the given sum of hazard levels weighted by percentages divided
+     * by 100, rounded to the nearest integer with halves rounded up, as
+     * Math.round() would.
+     * @param weightedSum sum of each hazard level multiplied by its
+     * weighting, at least 0
+     * @return weighted average hazard level
+     */
+    public static int roundPercentage(int weightedSum) {
+        return (weightedSum + 50) / 100;
+    }
+
+    /**
+     * Returns the weighting associated with the given sensor.
+     * @param sensor sensor monitored by this hazard evaluator
+     * @return weighting of the sensor, or null if the sensor is not monitored
+     * by this hazard evaluator
+     */
+    public Integer getWeighting(HazardSensor sensor) {
+        for (int i = 0; i < sensorArray.length; i++) {
+            if (sensorArray[i] == sensor || sensorArray[i].equals(sensor)) {
+                return weightingArray[i];
+            }
+        }
+        return null;
     }
 
     /**
      * Returns a list containing the weightings associated with all of the
-     * sensors monitored by this hazard evaluator.
+     * sensors monitored by this hazard evaluator, in the same order as the
+     * sensors returned by getSensors().
      * @return weightings
      */
     public List<Integer> getWeightings() {
         ArrayList<Integer> weightings = new ArrayList<>();
-        for (Map.Entry<HazardSensor, Integer> entry: sensors.entrySet()) {
-            weightings.add(entry.getValue());
+        for (int weighting : weightingArray) {
+            weightings.add(weighting);
         }
         return weightings;
     }
 
+    /**
+     * Returns the sensors monitored by this hazard evaluator, in the same
+     * order as their weightings are returned by getWeightings().
+     * @return unmodifiable list of sensors
+     */
+    public List<HazardSensor> getSensors() {
+        return Collections.unmodifiableList(Arrays.asList(sensorArray));
+    }
+
     /**
      * Returns the string representation of this hazard evaluator.
      * The format of the string to return is simply "WeightingBased"
@@ -1,14 +1,18 @@
 package bms.room;
 
 import bms.exceptions.DuplicateSensorException;
+import bms.sensors.HazardSensor;
 import bms.sensors.Sensor;
+import bms.sensors.SensorType;
 import bms.sensors.TemperatureSensor;
 import bms.sensors.TimedSensor;
 import bms.hazardevaluation.HazardEvaluator;
 import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.util.Encodable;
+import bms.util.StructureHashCodes;
+import bms.util.StructureVersion;
+import bms.util.TimedItemManager;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.TreeMap;
 
@@ -45,6 +49,23 @@ public class Room implements Encodable {
      */
     private final List<Sensor> sensors;
 
+    /**
+     * Slot for each type of sensor, indexed by the ordinal of its
+     * SensorType, holding the room's sensor of that type or null.
+     */
+    private final Sensor[] sensorSlots;
+
+    /**
+     * Number of sensors in the room whose class is not one of the
+     * SensorTypes, which have no slot.
+     */
+    private int untypedSensorCount;
+
+    /**
+     * Number of types of sensor, and so of sensor slots in each room.
+     */
+    private static final int SENSOR_TYPE_COUNT = SensorType.values().length;
+
     /**
      * Area of the room in square metres.
      */
@@ -72,6 +93,24 @@ public class Room implements Encodable {
      */
     private HazardEvaluator hazardEvaluator;
 
+    /**
+     * Version recording structural changes to the room's building, or to
+     * the room itself while it is not on a floor.
+     */
+    private volatile StructureVersion structureVersion;
+
+    /**
+     * Clock scheduling the room's sensors and maintenance, which is that of
+     * its building once the room is on a floor in a building.
+     */
+    private TimedItemManager clock;
+
+    /**
+     * Hash codes of the room, or null if they have not been calculated
+     * (see bms.util.StructureHashCodes).
+     */
+    private volatile StructureHashCodes hashCodes;
+
     /**
      * Hash code constants for each room type
      */
@@ -85,6 +124,9 @@ public class Room implements Encodable {
 
     /**
      * Creates a new room with the given room number.
+     * <p>
+     * The room is scheduled by the timed item manager currently in scope
+     * (see TimedItemManager.getCurrent()) until it is added to a floor.
      *
      * @param roomNumber the unique room number of the room on this floor
      * @param type the type of room
@@ -96,9 +138,13 @@ public class Room implements Encodable {
         this.type = type;
         this.area = area;
         this.sensors = new ArrayList<>();
+        this.sensorSlots = new Sensor[SENSOR_TYPE_COUNT];
+        this.untypedSensorCount = 0;
         this.fireDrill = false;
         this.maintenance = false;
         hazardEvaluator = null;
+        this.structureVersion = new StructureVersion();
+        this.clock = TimedItemManager.getCurrent();
     }
 
     /**
@@ -171,12 +217,21 @@ public class Room implements Encodable {
 
     /**
      * Change the status of the fire drill to the given value.
+     * <p>
+     * Since a fire drill changes how maintenance progresses, the room's
+     * clock is synchronised before the change and its items rescheduled
+     * after it (see TimedItemManager.synchronise()).
      *
      * @param fireDrill whether there is a fire drill ongoing
      * @ass1
      */
     public void setFireDrill(boolean fireDrill) {
+        if (this.fireDrill == fireDrill) {
+            return;
+        }
+        clock.synchronise();
         this.fireDrill = fireDrill;
+        clock.synchronise();
     }
 
     /**
@@ -190,20 +245,43 @@ public class Room implements Encodable {
      * @ass1
      */
     public Sensor getSensor(String sensorType) {
-        for (Sensor s : this.getSensors()) {
-            if (s.getClass().getSimpleName().equals(sensorType)) {
-                return s;
+        SensorType type = SensorType.fromSimpleName(sensorType);
+        if (type != null && sensorSlots[type.ordinal()] != null) {
+            return sensorSlots[type.ordinal()];
+        }
+        if (untypedSensorCount > 0) {
+            for (int i = 0; i < sensors.size(); i++) {
+                Sensor s = sensors.get(i);
+                if (s.getClass().getSimpleName().equals(sensorType)) {
+                    return s;
+                }
             }
         }
         return null;
     }
 
+    /**
+     * Returns the room's sensor of the given type, or null if the room has
+     * no sensor of that type. Unlike getSensor(String), this does not
+     * compare class names.
+     *
+     * @param sensorType type of sensor to return
+     * @return the sensor in this room of the given type; null if none found
+     */
+    public Sensor getSensor(SensorType sensorType) {
+        return sensorSlots[sensorType.ordinal()];
+    }
+
     /**
      * Adds a sensor to the room if a sensor of the same type is not
      * already in the room.
      * <p>
      * The list of sensors should be sorted after adding the new sensor, in
      * alphabetical order by simple class name ({@link Class#getSimpleName()}).
+     * <p>
+     * Since a temperature sensor changes how maintenance progresses, the
+     * room's clock is synchronised before the sensor is added and its items
+     * rescheduled after it (see TimedItemManager.synchronise()).
      *
      * @param sensor the sensor to add to the room
      * @throws DuplicateSensorException if the sensor to add is of the
@@ -212,16 +290,67 @@ public class Room implements Encodable {
      */
     public void addSensor(Sensor sensor)
             throws DuplicateSensorException {
-        for (Sensor s : sensors) {
-            if (s.getClass().equals(sensor.getClass())) {
-                throw new DuplicateSensorException(
-                        "Duplicate sensor of type: "
-                                + s.getClass().getSimpleName());
-            }
+        SensorType type = SensorType.of(sensor);
+        if (type != null ? sensorSlots[type.ordinal()] != null
+                : hasSensorOfClass(sensor.getClass())) {
+            throw new DuplicateSensorException(
+                    "Duplicate sensor of type: "
+                            + sensor.getClass().getSimpleName());
+        }
+        clock.synchronise();
+        sensors.add(sortedPosition(sensor, type), sensor);
+        if (type != null) {
+            sensorSlots[type.ordinal()] = sensor;
+        } else {
+            untypedSensorCount++;
         }
-        sensors.add(sensor);
-        sensors.sort(Comparator.comparing(s -> s.getClass().getSimpleName()));
         hazardEvaluator = null;
+        structureVersion.advance();
+        clock.synchronise();
+    }
+
+    /**
+     * Returns whether the room has a sensor of exactly the given class.
+     *
+     * @param sensorClass class of sensor to look for
+     * @return true if the room has a sensor of the class
+     */
+    private boolean hasSensorOfClass(Class<?> sensorClass) {
+        for (int i = 0; i < sensors.size(); i++) {
+            if (sensors.get(i).getClass() == sensorClass) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the position in the list of sensors at which the given sensor
+     * belongs, in alphabetical order of simple class name.
+     * <p>
+     * SensorTypes are in the same order, so while every sensor has a type
+     * the position is the number of filled slots before the sensor's slot.
+     *
+     * @param sensor sensor to be added
+     * @param type type of the sensor, or null if it has none
+     * @return index at which to insert the sensor
+     */
+    private int sortedPosition(Sensor sensor, SensorType type) {
+        int position = 0;
+        if (type != null && untypedSensorCount == 0) {
+            for (int i = 0; i < type.ordinal(); i++) {
+                if (sensorSlots[i] != null) {
+                    position++;
+                }
+            }
+            return position;
+        }
+        String name = sensor.getClass().getSimpleName();
+        while (position < sensors.size() && sensors.get(position).getClass()
+                .getSimpleName().compareTo(name) <= 0) {
+            position++;
+        }
+        return position;
     }
 
     /**
@@ -273,6 +402,7 @@ public class Room implements Encodable {
      */
     public void setHazardEvaluator(HazardEvaluator hazardEvaluator) {
         this.hazardEvaluator = hazardEvaluator;
+        structureVersion.advance();
     }
 
     /**
@@ -299,7 +429,7 @@ public class Room implements Encodable {
      */
     public RoomState evaluateRoomState() {
         TemperatureSensor temperatureSensor = (TemperatureSensor)
-                getSensor("TemperatureSensor");
+                getSensor(SensorType.TEMPERATURE);
         if ((temperatureSensor != null && temperatureSensor.getHazardLevel() ==
                 100) || fireDrillOngoing()) {
             return RoomState.EVACUATE;
@@ -310,6 +440,34 @@ public class Room implements Encodable {
         }
     }
 
+    /**
+     * Evaluates the room status once the given number of minutes have
+     * elapsed, using the same priority list as evaluateRoomState() and the
+     * hazard level the room's TemperatureSensor will report at that time.
+     * Any fire drill in progress is assumed to continue. The state of the
+     * room and its sensors is not changed.
+     * @param minutes number of minutes from now, may be negative
+     * @param maintenance whether maintenance will be in progress at that time
+     * @return room status after the given number of minutes
+     * @throws UnsupportedOperationException if minutes is not 0 and the
+     * room's TemperatureSensor cannot look ahead (see
+     * Sensor.canLookAhead())
+     */
+    public RoomState evaluateRoomStateAfter(long minutes,
+                                            boolean maintenance) {
+        TemperatureSensor temperatureSensor = (TemperatureSensor)
+                getSensor(SensorType.TEMPERATURE);
+        if ((temperatureSensor != null
+                && temperatureSensor.getHazardLevelAfter(minutes) == 100)
+                || fireDrillOngoing()) {
+            return RoomState.EVACUATE;
+        } else if (maintenance) {
+            return RoomState.MAINTENANCE;
+        } else {
+            return RoomState.OPEN;
+        }
+    }
+
     /**
      * Returns true if and only if this room is equal to the other given room.
      * For two rooms to be equal, they must have the same:
@@ -331,48 +489,129 @@ public class Room implements Encodable {
             return false;
         }
         Room room = (Room) obj;
-        boolean areaEqual = false;
-        boolean sensorsEqual = false;
-        if (Math.abs(this.area - room.area) <= 0.001) {
-            areaEqual = true;
-        }
-        // checking all sensors in the provided rooms are equal
-        if (this.getSensors().size() == 0 && room.getSensors().size() == 0) {
-            sensorsEqual = true;
+        if (this.roomNumber != room.roomNumber
+                || this.type != room.type
+                || Math.abs(this.area - room.area) > 0.001
+                || this.sensors.size() != room.sensors.size()
+                || this.structureHashCode() != room.structureHashCode()) {
+            return false;
         }
-        for (Sensor s : this.getSensors()) {
-            sensorsEqual = false;
-            for (Sensor m : room.getSensors()) {
-                if (s.equals(m)) {
-                    sensorsEqual = true;
-                    break;
-                }
+        // a sensor can only equal the other room's sensor of the same class
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor s = sensors.get(i);
+            SensorType sensorType = SensorType.of(s);
+            Sensor match = sensorType != null
+                    ? room.sensorSlots[sensorType.ordinal()]
+                    : room.findEqualSensor(s);
+            if (match == null || !s.equals(match)) {
+                return false;
             }
-            if (!sensorsEqual) {
-                break;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a sensor in this room equal to the given sensor, or null if
+     * there is none.
+     *
+     * @param sensor sensor to look for
+     * @return equal sensor in this room, or null if none found
+     */
+    private Sensor findEqualSensor(Sensor sensor) {
+        for (int i = 0; i < sensors.size(); i++) {
+            if (sensor.equals(sensors.get(i))) {
+                return sensors.get(i);
             }
         }
-        return this.roomNumber == room.roomNumber &&
-                this.type.equals(room.type) &&
-                areaEqual &&
-                this.getSensors().size() == room.getSensors().size() &&
-                sensorsEqual;
+        return null;
     }
 
     /**
      * Returns the hash code of this room.
      * Two rooms that are equal according to equals(Object) should have the
      * same hash code.
+     * The hash code is cached until the structure of the room's building
+     * changes (see bms.util.StructureVersion).
      * @return hash code of this room
      */
     @Override
     public int hashCode() {
-        int total = 0;
-        for(Sensor s : getSensors()) {
-            total += s.hashCode();
+        return updateHashCodes().getHashCode();
+    }
+
+    /**
+     * Returns a hash code of this room that leaves out its area.
+     * <p>
+     * Since equals(Object) compares areas within an error delta, two equal
+     * rooms can have different hash codes if their areas round differently.
+     * Equal rooms always have the same structure hash code, so it can be used
+     * to tell rooms apart without comparing their sensors.
+     * @return hash code of this room, leaving out its area
+     */
+    public int structureHashCode() {
+        return updateHashCodes().getStructureHashCode();
+    }
+
+    /**
+     * Returns the version recording structural changes to this room, which
+     * is that of its building once the room is on a floor in a building.
+     * @return structure version of this room
+     */
+    public StructureVersion getStructureVersion() {
+        return structureVersion;
+    }
+
+    /**
+     * Records structural changes to this room in the given version from now
+     * on. Called by Floor.addRoom(Room) with the floor's version.
+     * @param structureVersion structure version of the room's floor
+     */
+    public void setStructureVersion(StructureVersion structureVersion) {
+        this.structureVersion = structureVersion;
+    }
+
+    /**
+     * Returns the clock scheduling this room's sensors and maintenance,
+     * which is that of its building once the room is on a floor in a
+     * building.
+     * @return clock of this room
+     */
+    public TimedItemManager getClock() {
+        return clock;
+    }
+
+    /**
+     * Synchronises the given clock, rather than the clock in scope when the
+     * room was created, when the room's scheduling changes. Called by
+     * Floor.addRoom(Room) with the floor's clock.
+     * @param clock clock of the room's floor
+     */
+    public void setClock(TimedItemManager clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the room's hash codes, calculating them again if the
+     * structure of its building has changed since they were calculated.
+     * @return current hash codes of this room
+     */
+    private StructureHashCodes updateHashCodes() {
+        StructureVersion structureVersion = this.structureVersion;
+        long version = structureVersion.current();
+        StructureHashCodes codes = hashCodes;
+        if (codes == null || !codes.isCurrent(structureVersion, version)) {
+            int total = 0;
+            for (int i = 0; i < sensors.size(); i++) {
+                total += sensors.get(i).hashCode();
+            }
+            int structureHashCode = total + roomNumber * 100
+                    + ROOM_TYPE_CONSTANTS.get(type);
+            codes = new StructureHashCodes(structureVersion, version,
+                    (int) (structureHashCode + Math.round(area)),
+                    structureHashCode);
+            hashCodes = codes;
         }
-        return (int) (total + roomNumber * 100 + Math.round(area) +
-                ROOM_TYPE_CONSTANTS.get(type));
+        return codes;
     }
 
     /**
@@ -411,9 +650,10 @@ public class Room implements Encodable {
      * where 'weightingX' is the weighting (0-100) associated with the Xth
      * sensor in the alphabetically sorted list of this room's sensors, from
      * 1 to N.
-     * You can assume that the order of the weightings returned by
-     * WeightingBasedHazardEvaluator.getWeightings() is the same as the order
-     * of sensors returned by getSensors().
+     * Each sensor's weighting is looked up with
+     * WeightingBasedHazardEvaluator.getWeighting(HazardSensor), so it does not
+     * depend on the order in which the hazard evaluator holds its sensors. A
+     * sensor that the hazard evaluator does not monitor has a weighting of 0.
      *
      * System.lineSeparator() should be used to separate lines. There should be
      * no newline at the end of the string.
@@ -434,12 +674,15 @@ public class Room implements Encodable {
         // adding appropriate weightings to sensors if weighing based hazard
         // evaluator exists
         if (hazardEvaluator instanceof WeightingBasedHazardEvaluator) {
-            for (int i = 0; i < getSensors().size(); i++) {
-                TimedSensor timedSensor = (TimedSensor) getSensors().get(i);
-                int weighting = ((WeightingBasedHazardEvaluator)
-                        hazardEvaluator).getWeightings().get(i);
-                encodedRoom.append(System.lineSeparator() +
-                        timedSensor.encode() + "@" + weighting);
+            WeightingBasedHazardEvaluator weightingBased =
+                    (WeightingBasedHazardEvaluator) hazardEvaluator;
+            for (Sensor s : this.getSensors()) {
+                TimedSensor timedSensor = (TimedSensor) s;
+                Integer weighting = s instanceof HazardSensor
+                        ? weightingBased.getWeighting((HazardSensor) s) : null;
+                encodedRoom.append(System.lineSeparator())
+                        .append(timedSensor.encode()).append("@")
+                        .append(weighting == null ? 0 : weighting);
             }
         } else {
             for (Sensor s : this.getSensors()) {
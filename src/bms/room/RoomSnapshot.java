@@ -0,0 +1,130 @@
+package bms.room;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable record of the state of a room at a particular minute.
+ */
+public class RoomSnapshot {
+    /**
+     * Minute of the building's clock the snapshot describes.
+     */
+    private final long minute;
+
+    /**
+     * Room number of the room.
+     */
+    private final int roomNumber;
+
+    /**
+     * Reading of each of the room's sensors, keyed by the sensor's simple
+     * class name, in the order of Room.getSensors().
+     */
+    private final Map<String, Integer> readings;
+
+    /**
+     * Hazard level evaluated by the room's hazard evaluator, or null if the
+     * room has no hazard evaluator.
+     */
+    private final Integer hazardLevel;
+
+    /**
+     * Average comfort level of the room's sensors.
+     */
+    private final double comfortLevel;
+
+    /**
+     * State of the room, or null if it is not known.
+     */
+    private final RoomState roomState;
+
+    /**
+     * Creates a new snapshot of a room.
+     * @param minute minute of the building's clock the snapshot describes
+     * @param roomNumber room number of the room
+     * @param readings reading of each sensor, keyed by simple class name
+     * @param hazardLevel hazard level, or null if the room has no hazard
+     *                    evaluator
+     * @param comfortLevel average comfort level of the room's sensors
+     * @param roomState state of the room, or null if it is not known
+     */
+    public RoomSnapshot(long minute, int roomNumber,
+                        Map<String, Integer> readings, Integer hazardLevel,
+                        double comfortLevel, RoomState roomState) {
+        this.minute = minute;
+        this.roomNumber = roomNumber;
+        this.readings = Collections.unmodifiableMap(
+                new LinkedHashMap<>(readings));
+        this.hazardLevel = hazardLevel;
+        this.comfortLevel = comfortLevel;
+        this.roomState = roomState;
+    }
+
+    /**
+     * Returns the minute of the building's clock the snapshot describes.
+     * @return minute of the snapshot
+     */
+    public long getMinute() {
+        return minute;
+    }
+
+    /**
+     * Returns the room number of the room.
+     * @return room number
+     */
+    public int getRoomNumber() {
+        return roomNumber;
+    }
+
+    /**
+     * Returns the reading of each of the room's sensors, keyed by the
+     * sensor's simple class name, e.g. "NoiseSensor".
+     * @return unmodifiable map of sensor readings
+     */
+    public Map<String, Integer> getReadings() {
+        return readings;
+    }
+
+    /**
+     * Returns the hazard level evaluated by the room's hazard evaluator.
+     * @return hazard level between 0 and 100, or null if the room has no
+     * hazard evaluator
+     */
+    public Integer getHazardLevel() {
+        return hazardLevel;
+    }
+
+    /**
+     * Returns the average of the comfort levels of the room's sensors, or 0
+     * if the room has no sensors.
+     * @return average comfort level
+     */
+    public double getComfortLevel() {
+        return comfortLevel;
+    }
+
+    /**
+     * Returns the state of the room.
+     * @return room state, or null if it could not be determined
+     */
+    public RoomState getRoomState() {
+        return roomState;
+    }
+
+    /**
+     * Returns the human-readable string representation of this snapshot.
+     * The format of the string to return is
+     *
+     * RoomSnapshot: minute=minute, room=#roomNumber, state=roomState,
+     * hazard=hazardLevel, comfort=comfortLevel, readings={...}
+     * @return string representation of this snapshot
+     */
+    @Override
+    public String toString() {
+        return String.format("RoomSnapshot: minute=%d, room=#%d, state=%s, "
+                + "hazard=%s, comfort=%.2f, readings=%s", minute, roomNumber,
+                roomState, hazardLevel, comfortLevel, readings);
+    }
+}
@@ -46,8 +46,65 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor,
     public CarbonDioxideSensor(int[] sensorReadings, int updateFrequency,
                                int idealValue, int variationLimit)
             throws IllegalArgumentException {
+        this(Readings.of(sensorReadings), updateFrequency, idealValue,
+                variationLimit);
+    }
+
+    /**
+     * Creates a new carbon dioxide sensor which observes the given readings,
+     * as in CarbonDioxideSensor(int[], int, int, int).
+     *
+     * @see TimedSensor#TimedSensor(Readings, int)
+     * @param sensorReadings CO2 sensor readings <b>in ppm</b>
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue ideal CO2 value in ppm
+     * @param variationLimit acceptable range above and below ideal value in ppm
+     * @throws IllegalArgumentException if idealValue &lt;= 0;
+     * or if variationLimit &lt;= 0; or if (idealValue - variationLimit) &lt; 0
+     */
+    public CarbonDioxideSensor(Readings sensorReadings, int updateFrequency,
+                               int idealValue, int variationLimit)
+            throws IllegalArgumentException {
         super(sensorReadings, updateFrequency);
+        checkLimits(idealValue, variationLimit);
+        this.idealValue = idealValue;
+        this.variationLimit = variationLimit;
+        precomputeLevels();
+    }
 
+    /**
+     * Creates a new streaming carbon dioxide sensor whose readings are pushed
+     * to the given buffer.
+     *
+     * @see TimedSensor#TimedSensor(ReadingBuffer, int)
+     * @param stream buffer of pushed CO2 readings <b>in ppm</b>
+     * @param updateFrequency expected minutes between readings
+     * @param idealValue ideal CO2 value in ppm
+     * @param variationLimit acceptable range above and below ideal value in ppm
+     * @throws IllegalArgumentException if idealValue &lt;= 0;
+     * or if variationLimit &lt;= 0; or if (idealValue - variationLimit) &lt; 0
+     */
+    public CarbonDioxideSensor(ReadingBuffer stream, int updateFrequency,
+                               int idealValue, int variationLimit)
+            throws IllegalArgumentException {
+        super(stream, updateFrequency);
+        checkLimits(idealValue, variationLimit);
+        this.idealValue = idealValue;
+        this.variationLimit = variationLimit;
+    }
+
+    /**
+     * Checks that the given ideal value and variation limit are valid
+     * according to CarbonDioxideSensor(int[], int, int, int).
+     *
+     * @param idealValue ideal CO2 value in ppm
+     * @param variationLimit acceptable range above and below ideal value in ppm
+     * @throws IllegalArgumentException if idealValue &lt;= 0;
+     * or if variationLimit &lt;= 0; or if (idealValue - variationLimit) &lt; 0
+     */
+    private static void checkLimits(int idealValue, int variationLimit)
+            throws IllegalArgumentException {
         if (idealValue <= 0) {
             throw new IllegalArgumentException("Ideal CO2 value must be > 0");
         }
@@ -60,9 +117,6 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor,
             throw new IllegalArgumentException("Ideal CO2 value - variation "
                     + "limit must be >= 0");
         }
-
-        this.idealValue = idealValue;
-        this.variationLimit = variationLimit;
     }
 
     /**
@@ -109,14 +163,25 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor,
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
-        if (currentReading < 1000) {
+        return lookupHazardLevel();
+    }
+
+    /**
+     * Returns the hazard level for the given CO2 reading, calculated in the
+     * same way as {@link #getHazardLevel()}.
+     *
+     * @param reading CO2 reading in parts per million
+     * @return hazard level for the reading, 0 to 100
+     */
+    @Override
+    public int getHazardLevel(int reading) {
+        if (reading < 1000) {
             return 0;
         }
-        if (currentReading < 2000) {
+        if (reading < 2000) {
             return 25;
         }
-        if (currentReading < 5000) {
+        if (reading < 5000) {
             return 50;
         }
         return 100;
@@ -161,7 +226,18 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor,
      * @return the current comfort level as an integer between 0 and 100
      */
     public int getComfortLevel() {
-        int difference = Math.abs((getIdealValue() - getCurrentReading()));
+        return lookupComfortLevel();
+    }
+
+    /**
+     * Returns the comfort level for the given CO2 reading, calculated in the
+     * same way as getComfortLevel().
+     * @param reading CO2 reading in parts per million
+     * @return level of comfort for the reading, 0 to 100
+     */
+    @Override
+    public int getComfortLevel(int reading) {
+        int difference = Math.abs((getIdealValue() - reading));
         if (difference >= getVariationLimit()) {
             return 0;
         } else {
@@ -13,4 +13,39 @@ public interface ComfortSensor extends Sensor {
      * @return level of comfort at sensor location, 0 to 100
      */
     int getComfortLevel();
+
+    /**
+     * Returns the comfort level this sensor would detect if it observed the
+     * given reading.
+     * Sensors which cannot look ahead need not override this method, and
+     * then only support their current reading.
+     * @param reading sensor reading
+     * @return level of comfort for the reading, 0 to 100
+     * @throws UnsupportedOperationException if the reading is not the
+     * current reading and the sensor cannot find its level
+     */
+    default int getComfortLevel(int reading)
+            throws UnsupportedOperationException {
+        if (reading != getCurrentReading()) {
+            throw new UnsupportedOperationException(
+                    "Sensor cannot find the comfort level of other readings");
+        }
+        return getComfortLevel();
+    }
+
+    /**
+     * Returns the comfort level this sensor will detect once the given number
+     * of minutes have elapsed (see {@link #getReadingAfter(long)}).
+     * @param minutes number of minutes from now, may be negative
+     * @return level of comfort after the given number of minutes, 0 to 100
+     * @throws UnsupportedOperationException if minutes is not 0 and the
+     * sensor cannot look ahead
+     */
+    default int getComfortLevelAfter(long minutes)
+            throws UnsupportedOperationException {
+        if (minutes == 0) {
+            return getComfortLevel();
+        }
+        return getComfortLevel(getReadingAfter(minutes));
+    }
 }
@@ -0,0 +1,256 @@
+package bms.sensors;
+
+import java.util.List;
+
+/**
+ * Current hazard levels of a fixed list of hazard sensors, held in an array
+ * and brought up to date in a single pass over the sensors.
+ * <p>
+ * The hazard level of a timed sensor of one of the sensor types (see
+ * SensorType) depends only on its current reading, so each update gathers
+ * the sensors' current readings, compares them with those of the previous
+ * update (using the Vector API where available, see ReadingScan), and only
+ * looks up the hazard level of the sensors whose readings have changed. The
+ * readings of sensors held in a sensor store are read straight from the
+ * store's packed array of current readings, and their hazard levels from
+ * the sensors' precomputed level tables, which are shared between sensors
+ * with the same levels, so the update does not visit the sensor objects at
+ * all. Other sensors, including subclasses of the sensor types, may have
+ * levels which depend on more than their reading, so their hazard level is
+ * looked up on every update.
+ * <p>
+ * Each update also records which of the sensors' hazard levels changed, so
+ * that values calculated from the levels only need to be calculated again
+ * for those sensors.
+ */
+public final class HazardLevelCache {
+    /**
+     * Sensors whose hazard levels are cached.
+     */
+    private final HazardSensor[] sensors;
+
+    /**
+     * Each sensor as a timed sensor, or null if it is not one.
+     */
+    private final TimedSensor[] timedSensors;
+
+    /**
+     * Whether each sensor's hazard level is known to be looked up by
+     * TimedSensor.lookupHazardLevel(), which can then be called directly
+     * rather than through the HazardSensor interface.
+     */
+    private final boolean[] lookedUp;
+
+    /**
+     * Precomputed level tables of each sensor read from the store whose
+     * hazard level is looked up in them, or null for other sensors.
+     */
+    private final LevelTables[] levelTables;
+
+    /**
+     * Store holding the state of the sensors read through storeIds, or null
+     * if none of the sensors are held in a store.
+     */
+    private final SensorStore store;
+
+    /**
+     * Id in the store of each sensor whose reading is read from the store,
+     * or -1 for sensors whose reading is read from the sensor itself.
+     */
+    private final int[] storeIds;
+
+    /**
+     * Reading of each sensor whose level is looked up as of the last
+     * update, or -1 for other sensors. Readings are never negative, so
+     * other sensors always compare as changed.
+     */
+    private final int[] readings;
+
+    /**
+     * Current reading of each sensor whose level is looked up, gathered at
+     * the start of an update, or 0 for other sensors.
+     */
+    private final int[] current;
+
+    /**
+     * Hazard level of each sensor as of the last update.
+     */
+    private final int[] hazardLevels;
+
+    /**
+     * Indices of the sensors whose hazard levels changed in the last update,
+     * of which the first changedCount are valid. During an update, it first
+     * holds the indices of the sensors whose readings changed.
+     */
+    private final int[] changedIndices;
+
+    /**
+     * Number of sensors whose hazard levels changed in the last update.
+     */
+    private int changedCount;
+
+    /**
+     * Whether the cache has been updated at least once.
+     */
+    private boolean primed;
+
+    /**
+     * Creates a new cache of the hazard levels of the given sensors, indexed
+     * in the order of the list. The cache is empty until it is first
+     * updated.
+     *
+     * @param sensors sensors whose hazard levels to cache
+     */
+    public HazardLevelCache(List<HazardSensor> sensors) {
+        int count = sensors.size();
+        this.sensors = sensors.toArray(new HazardSensor[0]);
+        this.timedSensors = new TimedSensor[count];
+        this.lookedUp = new boolean[count];
+        this.storeIds = new int[count];
+        this.levelTables = new LevelTables[count];
+        this.readings = new int[count];
+        this.current = new int[count];
+        this.hazardLevels = new int[count];
+        this.changedIndices = new int[count];
+        SensorStore commonStore = null;
+        for (int i = 0; i < count; i++) {
+            HazardSensor sensor = this.sensors[i];
+            storeIds[i] = -1;
+            readings[i] = -1;
+            if (!(sensor instanceof TimedSensor)) {
+                continue;
+            }
+            TimedSensor timedSensor = (TimedSensor) sensor;
+            timedSensors[i] = timedSensor;
+            // subclasses of the sensor types may calculate levels otherwise
+            lookedUp[i] = SensorType.of(sensor) != null;
+            if (timedSensor.getStore() == null) {
+                continue;
+            }
+            if (commonStore == null) {
+                commonStore = timedSensor.getStore();
+            }
+            if (timedSensor.getStore() == commonStore) {
+                storeIds[i] = timedSensor.getStoreId();
+                if (lookedUp[i]) {
+                    levelTables[i] = timedSensor.getLevelTables();
+                }
+            }
+        }
+        this.store = commonStore;
+    }
+
+    /**
+     * Returns the number of sensors in the cache.
+     *
+     * @return number of sensors
+     */
+    public int size() {
+        return sensors.length;
+    }
+
+    /**
+     * Returns the sensor with the given index.
+     *
+     * @param index index of the sensor
+     * @return sensor with the index
+     * @throws IndexOutOfBoundsException if there is no sensor with the index
+     */
+    public HazardSensor getSensor(int index) throws IndexOutOfBoundsException {
+        return sensors[index];
+    }
+
+    /**
+     * Returns the hazard level of the sensor with the given index as of the
+     * last update.
+     *
+     * @param index index of the sensor
+     * @return hazard level of the sensor, 0 to 100
+     * @throws IndexOutOfBoundsException if there is no sensor with the index
+     */
+    public int getHazardLevel(int index) throws IndexOutOfBoundsException {
+        return hazardLevels[index];
+    }
+
+    /**
+     * Returns the number of sensors whose hazard levels changed in the last
+     * update. Every sensor counts as changed in the first update.
+     *
+     * @return number of changed sensors
+     */
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    /**
+     * Returns the index of the given one of the sensors whose hazard levels
+     * changed in the last update, in increasing order of index.
+     *
+     * @param n which changed sensor, from 0 to getChangedCount() - 1
+     * @return index of the changed sensor
+     * @throws IndexOutOfBoundsException if n is not less than
+     * getChangedCount()
+     */
+    public int getChangedIndex(int n) throws IndexOutOfBoundsException {
+        if (n >= changedCount) {
+            throw new IndexOutOfBoundsException("Only " + changedCount
+                    + " sensors changed");
+        }
+        return changedIndices[n];
+    }
+
+    /**
+     * Brings the cached hazard levels up to date with the sensors' current
+     * readings, and records which of them changed.
+     *
+     * @return true if any sensor's hazard level changed
+     */
+    public boolean update() {
+        int count = sensors.length;
+        for (int i = 0; i < count; i++) {
+            if (lookedUp[i]) {
+                int id = storeIds[i];
+                current[i] = id >= 0 ? store.getCurrentReading(id)
+                        : timedSensors[i].getCurrentReading();
+            }
+        }
+        int candidates;
+        if (primed) {
+            candidates = ReadingScan.findChanged(current, readings, count,
+                    changedIndices);
+        } else {
+            for (int i = 0; i < count; i++) {
+                changedIndices[i] = i;
+            }
+            candidates = count;
+        }
+        // indices of changed levels are written back over the candidates,
+        // never ahead of the candidate being read
+        int changed = 0;
+        for (int n = 0; n < candidates; n++) {
+            int i = changedIndices[n];
+            int hazardLevel;
+            if (lookedUp[i]) {
+                int reading = current[i];
+                readings[i] = reading;
+                LevelTables tables = levelTables[i];
+                if (tables != null) {
+                    // as TimedSensor.lookupHazardLevel() does
+                    hazardLevel = tables.getHazardLevel(tables.isByReading()
+                            ? reading : store.getCurrentIndex(storeIds[i]));
+                } else {
+                    hazardLevel = timedSensors[i].lookupHazardLevel();
+                }
+            } else {
+                hazardLevel = sensors[i].getHazardLevel();
+            }
+            if (!primed || hazardLevel != hazardLevels[i]) {
+                hazardLevels[i] = hazardLevel;
+                changedIndices[changed++] = i;
+            }
+        }
+        changedCount = changed;
+        primed = true;
+        return changed > 0;
+    }
+}
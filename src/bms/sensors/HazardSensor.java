@@ -17,4 +17,42 @@ public interface HazardSensor extends Sensor {
      * @ass1
      */
     int getHazardLevel();
+
+    /**
+     * Returns the level of hazard this sensor would detect if it observed the
+     * given reading.
+     * <p>
+     * Sensors which cannot look ahead need not override this method, and
+     * then only support their current reading.
+     *
+     * @param reading sensor reading
+     * @return level of hazard for the reading, 0 to 100
+     * @throws UnsupportedOperationException if the reading is not the
+     * current reading and the sensor cannot find its level
+     */
+    default int getHazardLevel(int reading)
+            throws UnsupportedOperationException {
+        if (reading != getCurrentReading()) {
+            throw new UnsupportedOperationException(
+                    "Sensor cannot find the hazard level of other readings");
+        }
+        return getHazardLevel();
+    }
+
+    /**
+     * Returns the level of hazard this sensor will detect once the given
+     * number of minutes have elapsed (see {@link #getReadingAfter(long)}).
+     *
+     * @param minutes number of minutes from now, may be negative
+     * @return level of hazard after the given number of minutes, 0 to 100
+     * @throws UnsupportedOperationException if minutes is not 0 and the
+     * sensor cannot look ahead
+     */
+    default int getHazardLevelAfter(long minutes)
+            throws UnsupportedOperationException {
+        if (minutes == 0) {
+            return getHazardLevel();
+        }
+        return getHazardLevel(getReadingAfter(minutes));
+    }
 }
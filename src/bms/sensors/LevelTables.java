@@ -0,0 +1,125 @@
+package bms.sensors;
+
+import bms.util.InternPool;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed hazard and comfort levels of a sensor's readings (see
+ * TimedSensor.precomputeLevels()).
+ * <p>
+ * Tables are immutable, and sensors with the same levels share one
+ * instance from a pool, since many sensors are configured identically.
+ */
+final class LevelTables {
+    /**
+     * Pool of the tables in use.
+     */
+    private static final InternPool<LevelTables> POOL = new InternPool<>();
+
+    /**
+     * Hazard level for each entry, or null if the sensor is not a hazard
+     * sensor.
+     */
+    private final byte[] hazardLevels;
+
+    /**
+     * Comfort level for each entry, or null if the sensor is not a comfort
+     * sensor.
+     */
+    private final byte[] comfortLevels;
+
+    /**
+     * Whether the tables are indexed by reading rather than by the index of
+     * the reading in the sensor's readings.
+     */
+    private final boolean byReading;
+
+    /**
+     * Creates new level tables.
+     *
+     * @param hazardLevels hazard level for each entry, or null
+     * @param comfortLevels comfort level for each entry, or null
+     * @param byReading whether the tables are indexed by reading
+     */
+    private LevelTables(byte[] hazardLevels, byte[] comfortLevels,
+                        boolean byReading) {
+        this.hazardLevels = hazardLevels;
+        this.comfortLevels = comfortLevels;
+        this.byReading = byReading;
+    }
+
+    /**
+     * Returns the shared tables with the given levels. The given arrays must
+     * not be changed afterwards.
+     *
+     * @param hazardLevels hazard level for each entry, or null
+     * @param comfortLevels comfort level for each entry, or null
+     * @param byReading whether the tables are indexed by reading
+     * @return canonical tables with the given levels
+     */
+    static LevelTables of(byte[] hazardLevels, byte[] comfortLevels,
+                          boolean byReading) {
+        return POOL.intern(
+                new LevelTables(hazardLevels, comfortLevels, byReading));
+    }
+
+    /**
+     * Returns whether the tables are indexed by reading rather than by the
+     * index of the reading in the sensor's readings.
+     *
+     * @return true if the tables are indexed by reading
+     */
+    boolean isByReading() {
+        return byReading;
+    }
+
+    /**
+     * Returns the hazard level at the given entry.
+     *
+     * @param index index of the entry
+     * @return hazard level, or -1 if there are no hazard levels
+     */
+    int getHazardLevel(int index) {
+        return hazardLevels == null ? -1 : hazardLevels[index];
+    }
+
+    /**
+     * Returns the comfort level at the given entry.
+     *
+     * @param index index of the entry
+     * @return comfort level, or -1 if there are no comfort levels
+     */
+    int getComfortLevel(int index) {
+        return comfortLevels == null ? -1 : comfortLevels[index];
+    }
+
+    /**
+     * Returns true if and only if the other object is a set of tables with
+     * the same levels, indexed in the same way.
+     *
+     * @param obj other object to compare equality
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof LevelTables)) {
+            return false;
+        }
+        LevelTables other = (LevelTables) obj;
+        return this.byReading == other.byReading
+                && Arrays.equals(this.hazardLevels, other.hazardLevels)
+                && Arrays.equals(this.comfortLevels, other.comfortLevels);
+    }
+
+    /**
+     * Returns the hash code of these tables.
+     *
+     * @return hash code of the tables
+     */
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(hazardLevels)
+                + Arrays.hashCode(comfortLevels)) + (byReading ? 1 : 0);
+    }
+}
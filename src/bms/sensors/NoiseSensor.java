@@ -24,7 +24,32 @@ public class NoiseSensor extends TimedSensor implements
      * @ass1
      */
     public NoiseSensor(int[] sensorReadings, int updateFrequency) {
+        this(Readings.of(sensorReadings), updateFrequency);
+    }
+
+    /**
+     * Creates a new noise sensor which observes the given readings.
+     *
+     * @see TimedSensor#TimedSensor(Readings, int)
+     * @param sensorReadings noise sensor readings <b>in decibels</b>
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     */
+    public NoiseSensor(Readings sensorReadings, int updateFrequency) {
         super(sensorReadings, updateFrequency);
+        precomputeLevels();
+    }
+
+    /**
+     * Creates a new streaming noise sensor whose readings are pushed to the
+     * given buffer.
+     *
+     * @see TimedSensor#TimedSensor(ReadingBuffer, int)
+     * @param stream buffer of pushed noise readings <b>in decibels</b>
+     * @param updateFrequency expected minutes between readings
+     */
+    public NoiseSensor(ReadingBuffer stream, int updateFrequency) {
+        super(stream, updateFrequency);
     }
 
     /**
@@ -49,7 +74,18 @@ public class NoiseSensor extends TimedSensor implements
      * @ass1
      */
     public double calculateRelativeLoudness() {
-        return Math.pow(2, (this.getCurrentReading() - referenceDB) / 10.0);
+        return calculateRelativeLoudness(this.getCurrentReading());
+    }
+
+    /**
+     * Calculates the relative loudness level of the given reading compared to
+     * a reference of 70 decibels, as in {@link #calculateRelativeLoudness()}.
+     *
+     * @param reading sound reading in decibels
+     * @return relative loudness of the reading to 70dB
+     */
+    private static double calculateRelativeLoudness(int reading) {
+        return Math.pow(2, (reading - referenceDB) / 10.0);
     }
 
     /**
@@ -72,7 +108,20 @@ public class NoiseSensor extends TimedSensor implements
      */
     @Override
     public int getHazardLevel() {
-        double relativeLoudnessMult100 = this.calculateRelativeLoudness() * 100;
+        return lookupHazardLevel();
+    }
+
+    /**
+     * Returns the hazard level for the given loudness reading, calculated in
+     * the same way as {@link #getHazardLevel()}.
+     *
+     * @param reading sound reading in decibels
+     * @return hazard level for the reading, 0 to 100
+     */
+    @Override
+    public int getHazardLevel(int reading) {
+        double relativeLoudnessMult100 =
+                calculateRelativeLoudness(reading) * 100;
         return (int) Math.min(Math.floor(relativeLoudnessMult100), 100);
     }
 
@@ -114,7 +163,19 @@ public class NoiseSensor extends TimedSensor implements
      * @return level of comfort at sensor location, 0 to 100
      */
     public int getComfortLevel() {
-        float comfortLevel = (float) (1 - calculateRelativeLoudness()) * 100;
+        return lookupComfortLevel();
+    }
+
+    /**
+     * Returns the comfort level for the given loudness reading, calculated in
+     * the same way as getComfortLevel().
+     * @param reading sound reading in decibels
+     * @return level of comfort for the reading, 0 to 100
+     */
+    @Override
+    public int getComfortLevel(int reading) {
+        float comfortLevel =
+                (float) (1 - calculateRelativeLoudness(reading)) * 100;
         if (comfortLevel < 0) {
             return 0;
         } else {
@@ -26,12 +26,50 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      */
     public OccupancySensor(int[] sensorReadings, int updateFrequency,
                            int capacity) {
+        this(Readings.of(sensorReadings), updateFrequency, capacity);
+    }
+
+    /**
+     * Creates a new occupancy sensor which observes the given readings, as
+     * in OccupancySensor(int[], int, int).
+     *
+     * @see TimedSensor#TimedSensor(Readings, int)
+     * @param sensorReadings non-empty sensor readings
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity maximum allowable number of people in the room
+     * @throws IllegalArgumentException if capacity is less than zero
+     */
+    public OccupancySensor(Readings sensorReadings, int updateFrequency,
+                           int capacity) {
         super(sensorReadings, updateFrequency);
 
         if (capacity < 0) {
             throw new IllegalArgumentException("Capacity must be >= 0");
         }
 
+        this.capacity = capacity;
+        precomputeLevels();
+    }
+
+    /**
+     * Creates a new streaming occupancy sensor whose readings are pushed to
+     * the given buffer.
+     *
+     * @see TimedSensor#TimedSensor(ReadingBuffer, int)
+     * @param stream buffer of pushed occupancy readings
+     * @param updateFrequency expected minutes between readings
+     * @param capacity maximum allowable number of people in the room
+     * @throws IllegalArgumentException if capacity is less than zero
+     */
+    public OccupancySensor(ReadingBuffer stream, int updateFrequency,
+                           int capacity) {
+        super(stream, updateFrequency);
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be >= 0");
+        }
+
         this.capacity = capacity;
     }
 
@@ -66,12 +104,22 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
+        return lookupHazardLevel();
+    }
 
-        if (currentReading >= this.capacity) {
+    /**
+     * Returns the hazard level for the given occupancy reading, calculated in
+     * the same way as {@link #getHazardLevel()}.
+     *
+     * @param reading number of people in the room
+     * @return hazard level for the reading, 0 to 100
+     */
+    @Override
+    public int getHazardLevel(int reading) {
+        if (reading >= this.capacity) {
             return 100;
         }
-        double occupancyRatio = ((double) currentReading) / this.capacity;
+        double occupancyRatio = ((double) reading) / this.capacity;
         double occupancyPercentage = 100 * occupancyRatio;
         return (int) Math.round(occupancyPercentage);
     }
@@ -119,11 +167,22 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      * @return the current comfort level as an integer between 0 and 100
      */
     public int getComfortLevel() {
-        if (getCurrentReading() > getCapacity()) {
+        return lookupComfortLevel();
+    }
+
+    /**
+     * Returns the comfort level for the given occupancy reading, calculated
+     * in the same way as getComfortLevel().
+     * @param reading number of people in the room
+     * @return level of comfort for the reading, 0 to 100
+     */
+    @Override
+    public int getComfortLevel(int reading) {
+        if (reading > getCapacity()) {
             return 0;
         } else {
             float comfortLevel = (float) (((getCapacity() -
-                    getCurrentReading()) * 100) / getCapacity());
+                    reading) * 100) / getCapacity());
             return Math.round(comfortLevel);
         }
     }
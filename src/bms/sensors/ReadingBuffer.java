@@ -0,0 +1,132 @@
+package bms.sensors;
+
+/**
+ * Bounded buffer of the latest readings pushed from a live source, such as
+ * a device, for a streaming sensor (see
+ * {@link TimedSensor#TimedSensor(ReadingBuffer, int)}).
+ * <p>
+ * The buffer holds at most a fixed number of readings in a ring, and each
+ * pushed reading replaces the oldest once the buffer is full, so its memory
+ * use is fixed however long the feed runs.
+ * <p>
+ * Readings may be pushed from a different thread than the one reading them.
+ * The latest reading can be read without locking.
+ */
+public class ReadingBuffer {
+    /**
+     * Buffered readings, in a ring starting at the oldest reading.
+     */
+    private final int[] readings;
+
+    /**
+     * Index of the oldest buffered reading in the ring.
+     */
+    private int start;
+
+    /**
+     * Number of buffered readings.
+     */
+    private int size;
+
+    /**
+     * Most recently pushed reading, or -1 if no reading has been pushed.
+     */
+    private volatile int latest;
+
+    /**
+     * Creates a new empty buffer which holds up to the given number of
+     * readings.
+     *
+     * @param capacity maximum number of readings to buffer
+     * @throws IllegalArgumentException if capacity &lt; 1
+     */
+    public ReadingBuffer(int capacity) throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "Buffer capacity must be at least 1");
+        }
+        this.readings = new int[capacity];
+        this.start = 0;
+        this.size = 0;
+        this.latest = -1;
+    }
+
+    /**
+     * Adds the given reading as the latest reading, discarding the oldest
+     * reading if the buffer is full.
+     *
+     * @param reading new reading
+     * @throws IllegalArgumentException if reading &lt; 0
+     */
+    public synchronized void push(int reading)
+            throws IllegalArgumentException {
+        if (reading < 0) {
+            throw new IllegalArgumentException(
+                    "All sensor readings must be non-negative");
+        }
+        if (size < readings.length) {
+            readings[(start + size) % readings.length] = reading;
+            size++;
+        } else {
+            readings[start] = reading;
+            start = (start + 1) % readings.length;
+        }
+        latest = reading;
+    }
+
+    /**
+     * Returns the most recently pushed reading.
+     *
+     * @return latest reading, or -1 if the buffer is empty
+     */
+    public int latest() {
+        return latest;
+    }
+
+    /**
+     * Returns the maximum number of readings held by the buffer.
+     *
+     * @return capacity of the buffer
+     */
+    public int capacity() {
+        return readings.length;
+    }
+
+    /**
+     * Returns the number of readings currently held by the buffer.
+     *
+     * @return number of buffered readings
+     */
+    public synchronized int length() {
+        return size;
+    }
+
+    /**
+     * Returns the buffered reading at the given index, where 0 is the oldest
+     * and length() - 1 the latest.
+     *
+     * @param index index of the reading
+     * @return reading at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public synchronized int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index
+                    + " out of bounds for length " + size);
+        }
+        return readings[(start + index) % readings.length];
+    }
+
+    /**
+     * Returns the buffered readings as a new array, from oldest to latest.
+     *
+     * @return array of buffered readings
+     */
+    public synchronized int[] toArray() {
+        int[] copy = new int[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = readings[(start + i) % readings.length];
+        }
+        return copy;
+    }
+}
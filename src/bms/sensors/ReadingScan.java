@@ -0,0 +1,80 @@
+package bms.sensors;
+
+/**
+ * Finds the entries of an array of readings which differ from an earlier
+ * copy of it, as HazardLevelCache does on every update.
+ * <p>
+ * The comparison uses the JDK Vector API when the jdk.incubator.vector
+ * module is present in the boot layer, that is, when the program is run
+ * with {@code --add-modules jdk.incubator.vector}, comparing as many
+ * readings at once as the hardware supports (see VectorReadingScan).
+ * Otherwise, a scalar loop is used. VectorReadingScan is only loaded when
+ * the module is present, so the scalar loop does not need the module at
+ * run time, although the sources must still be compiled with the same
+ * option.
+ */
+final class ReadingScan {
+    /**
+     * Whether the Vector API is available.
+     */
+    private static final boolean VECTORISED = ModuleLayer.boot()
+            .findModule("jdk.incubator.vector").isPresent();
+
+    /**
+     * Prevents instantiation.
+     */
+    private ReadingScan() {
+    }
+
+    /**
+     * Returns true if comparisons use the Vector API.
+     *
+     * @return true if the Vector API is available, false otherwise
+     */
+    static boolean isVectorised() {
+        return VECTORISED;
+    }
+
+    /**
+     * Stores the indices of the readings which differ between the given
+     * arrays in the given array of indices, in increasing order.
+     *
+     * @param current current readings
+     * @param previous earlier readings
+     * @param length number of readings to compare, at most the length of
+     * each array
+     * @param changed array to fill with the indices of changed readings
+     * @return number of changed readings
+     */
+    static int findChanged(int[] current, int[] previous, int length,
+                           int[] changed) {
+        if (VECTORISED) {
+            return VectorReadingScan.findChanged(current, previous, length,
+                    changed);
+        }
+        return findChanged(current, previous, 0, length, changed, 0);
+    }
+
+    /**
+     * Stores the indices of the readings in the given range which differ
+     * between the given arrays, one at a time, after the given number of
+     * indices already found.
+     *
+     * @param current current readings
+     * @param previous earlier readings
+     * @param start index of the first reading to compare
+     * @param end index after the last reading to compare
+     * @param changed array to fill with the indices of changed readings
+     * @param count number of indices already in the array
+     * @return number of indices in the array
+     */
+    static int findChanged(int[] current, int[] previous, int start,
+                           int end, int[] changed, int count) {
+        for (int i = start; i < end; i++) {
+            if (current[i] != previous[i]) {
+                changed[count++] = i;
+            }
+        }
+        return count;
+    }
+}
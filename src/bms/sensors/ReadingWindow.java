@@ -0,0 +1,428 @@
+package bms.sensors;
+
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.util.Arrays;
+
+/**
+ * Rolling aggregates of a timed sensor's readings over the most recent
+ * minutes, such as the last 15, 60 or 1440 minutes.
+ * <p>
+ * The window samples the sensor's reading every minute and keeps its
+ * aggregates up to date as each sample arrives, so the minimum, maximum,
+ * mean and percentiles of the window can be read at any time without
+ * looking back over its samples:
+ * <ul>
+ *     <li>the sum of the samples is kept, giving the mean;
+ *     <li>the minimum and maximum are kept at the front of two monotonic
+ *     queues of samples, from which each sample is removed once a later
+ *     sample is at least as small (or large), or once it leaves the window;
+ *     <li>the number of samples with each reading is kept in a Fenwick tree,
+ *     in which the reading with a given rank is found by a binary search
+ *     down the tree.
+ * </ul>
+ * All state is held in arrays allocated when the window is created, apart
+ * from the Fenwick tree, which is enlarged when a reading larger than any
+ * before arrives, so advancing the window does not allocate.
+ * <p>
+ * A window is a timed item registered with the timed item manager in scope
+ * when it is created, which must be the manager advancing the sensor. Its
+ * first sample is the sensor's reading when the window is created.
+ */
+public class ReadingWindow implements TimedItem {
+    /**
+     * Number of minutes in a quarter-hour window.
+     */
+    public static final int QUARTER_HOUR = 15;
+
+    /**
+     * Number of minutes in an hour window.
+     */
+    public static final int HOUR = 60;
+
+    /**
+     * Number of minutes in a day window.
+     */
+    public static final int DAY = 1440;
+
+    /**
+     * Largest reading distinguished by percentiles. Larger readings are
+     * counted as this reading when finding percentiles, which bounds the
+     * size of the Fenwick tree.
+     */
+    public static final int MAX_PERCENTILE_READING = (1 << 16) - 1;
+
+    /**
+     * Sensor whose readings are sampled.
+     */
+    private final TimedSensor sensor;
+
+    /**
+     * Manager the window is registered with.
+     */
+    private final TimedItemManager clock;
+
+    /**
+     * Samples in the window, in a ring indexed by sample number modulo the
+     * window length.
+     */
+    private final int[] samples;
+
+    /**
+     * Number of the next sample to be taken, which increases by one with
+     * each sample taken.
+     */
+    private long nextSample;
+
+    /**
+     * Number of samples in the window.
+     */
+    private int size;
+
+    /**
+     * Sensor's time elapsed when the latest sample was taken.
+     */
+    private long sampleTime;
+
+    /**
+     * Sum of the samples in the window.
+     */
+    private long sum;
+
+    /**
+     * Sample numbers of the candidates for the minimum, in a ring, with
+     * increasing samples from front to back.
+     */
+    private final long[] minQueue;
+
+    /**
+     * Position of the front of the minimum queue.
+     */
+    private int minFront;
+
+    /**
+     * Number of sample numbers in the minimum queue.
+     */
+    private int minSize;
+
+    /**
+     * Sample numbers of the candidates for the maximum, in a ring, with
+     * decreasing samples from front to back.
+     */
+    private final long[] maxQueue;
+
+    /**
+     * Position of the front of the maximum queue.
+     */
+    private int maxFront;
+
+    /**
+     * Number of sample numbers in the maximum queue.
+     */
+    private int maxSize;
+
+    /**
+     * Fenwick tree of the number of samples with each reading, where the
+     * count of reading r is at index r + 1. Its length is a power of two
+     * plus one.
+     */
+    private int[] counts;
+
+    /**
+     * Creates a new window over the given number of most recent minutes of
+     * the given sensor's readings, and registers it with the timed item
+     * manager currently in scope (see TimedItemManager.getCurrent()).
+     *
+     * @param sensor sensor to sample
+     * @param minutes number of minutes in the window
+     * @throws IllegalArgumentException if sensor is null or minutes &lt; 1
+     */
+    public ReadingWindow(TimedSensor sensor, int minutes)
+            throws IllegalArgumentException {
+        if (sensor == null) {
+            throw new IllegalArgumentException("Sensor must not be null");
+        }
+        if (minutes < 1) {
+            throw new IllegalArgumentException(
+                    "Window must be at least one minute long");
+        }
+        this.sensor = sensor;
+        this.samples = new int[minutes];
+        this.minQueue = new long[minutes];
+        this.maxQueue = new long[minutes];
+        this.counts = new int[2];
+        this.clock = TimedItemManager.getCurrent();
+        // an event-driven manager may not have advanced the sensor yet
+        this.clock.synchronise();
+        this.sampleTime = sensor.getTimeElapsed();
+        sample(sensor.getCurrentReading());
+        this.clock.registerTimedItem(this);
+    }
+
+    /**
+     * Stops sampling the sensor, unregistering the window from its timed
+     * item manager. The window's aggregates no longer change.
+     */
+    public void close() {
+        clock.unregisterTimedItem(this);
+    }
+
+    /**
+     * Returns the sensor whose readings are sampled.
+     *
+     * @return sampled sensor
+     */
+    public TimedSensor getSensor() {
+        return sensor;
+    }
+
+    /**
+     * Returns the number of minutes in the window.
+     *
+     * @return window length in minutes
+     */
+    public int getMinutes() {
+        return samples.length;
+    }
+
+    /**
+     * Returns the number of samples in the window, which is less than the
+     * window length until the window has been running for that long.
+     *
+     * @return number of samples in the window
+     */
+    public int getSampleCount() {
+        return size;
+    }
+
+    /**
+     * Returns the smallest reading in the window.
+     *
+     * @return minimum reading
+     */
+    public int getMin() {
+        return samples[slot(minQueue[minFront])];
+    }
+
+    /**
+     * Returns the largest reading in the window.
+     *
+     * @return maximum reading
+     */
+    public int getMax() {
+        return samples[slot(maxQueue[maxFront])];
+    }
+
+    /**
+     * Returns the mean of the readings in the window.
+     *
+     * @return mean reading
+     */
+    public double getMean() {
+        return (double) sum / size;
+    }
+
+    /**
+     * Returns the given percentile of the readings in the window, using the
+     * nearest-rank method: the smallest reading such that at least the given
+     * percentage of the readings in the window are less than or equal to it.
+     * The 0th percentile is the minimum and the 100th the maximum.
+     * <p>
+     * Readings above MAX_PERCENTILE_READING are counted as
+     * MAX_PERCENTILE_READING.
+     *
+     * @param percentile percentile to find, from 0 to 100
+     * @return reading at the percentile
+     * @throws IllegalArgumentException if percentile is not between 0 and 100
+     */
+    public int getPercentile(double percentile)
+            throws IllegalArgumentException {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 100");
+        }
+        long rank = Math.max(1,
+                (long) Math.ceil(percentile / 100 * size));
+        // descend the tree, skipping over each subtree with too few samples
+        int index = 0;
+        for (int step = counts.length - 1; step > 0; step >>= 1) {
+            if (counts[index + step] < rank) {
+                index += step;
+                rank -= counts[index];
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Takes a sample of the sensor's reading for the next minute.
+     */
+    @Override
+    public void elapseOneMinute() {
+        advance(1);
+    }
+
+    /**
+     * Takes a sample of the sensor's reading for each of the given number of
+     * minutes. Only the samples that end up in the window are taken.
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        advance(minutes);
+    }
+
+    /**
+     * Returns 1, since the window takes a sample every minute.
+     *
+     * @return 1
+     */
+    @Override
+    public long getMinutesUntilChange() {
+        return 1;
+    }
+
+    /**
+     * Samples the sensor's readings over the given number of minutes after
+     * the latest sample.
+     * <p>
+     * The sensor may already have been advanced over these minutes, or not
+     * yet (see TimedItemManager.elapseMinutes(long)), so each reading is
+     * found relative to the sensor's current time elapsed. The readings of
+     * a sensor which cannot look ahead, such as a streaming sensor, are
+     * only known when they are current, so its current reading is sampled
+     * instead. Its manager advances the window each minute, since the
+     * window does not look ahead (see TimedItem.looksAhead()), so the
+     * current reading is then the reading for that minute.
+     *
+     * @param minutes non-negative number of minutes to sample
+     */
+    private void advance(long minutes) {
+        long end = sampleTime + minutes;
+        long time = sampleTime;
+        if (minutes > samples.length) {
+            // every current sample, and all but the last window's worth of
+            // the elapsed minutes, would leave the window
+            clear();
+            time = end - samples.length;
+        }
+        while (time < end) {
+            time++;
+            long offset = time - sensor.getTimeElapsed();
+            sample(offset == 0 || !sensor.canLookAhead()
+                    ? sensor.getCurrentReading()
+                    : sensor.getReadingAfter(offset));
+        }
+        sampleTime = end;
+    }
+
+    /**
+     * Adds the given reading as the next sample, removing the oldest sample
+     * if the window is full.
+     *
+     * @param reading reading to add
+     */
+    private void sample(int reading) {
+        long number = nextSample++;
+        if (size == samples.length) {
+            long evicted = number - samples.length;
+            int oldest = samples[slot(evicted)];
+            sum -= oldest;
+            count(oldest, -1);
+            if (minQueue[minFront] == evicted) {
+                minFront = (minFront + 1) % minQueue.length;
+                minSize--;
+            }
+            if (maxQueue[maxFront] == evicted) {
+                maxFront = (maxFront + 1) % maxQueue.length;
+                maxSize--;
+            }
+        } else {
+            size++;
+        }
+        samples[slot(number)] = reading;
+        sum += reading;
+        count(reading, 1);
+        // samples no smaller (larger) than the new one can never again be
+        // the minimum (maximum)
+        while (minSize > 0 && samples[slot(minQueue[
+                (minFront + minSize - 1) % minQueue.length])] >= reading) {
+            minSize--;
+        }
+        minQueue[(minFront + minSize++) % minQueue.length] = number;
+        while (maxSize > 0 && samples[slot(maxQueue[
+                (maxFront + maxSize - 1) % maxQueue.length])] <= reading) {
+            maxSize--;
+        }
+        maxQueue[(maxFront + maxSize++) % maxQueue.length] = number;
+    }
+
+    /**
+     * Removes every sample from the window.
+     */
+    private void clear() {
+        size = 0;
+        sum = 0;
+        minSize = 0;
+        maxSize = 0;
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Returns the position of the sample with the given number in the ring.
+     *
+     * @param number sample number
+     * @return position in the samples array
+     */
+    private int slot(long number) {
+        return (int) (number % samples.length);
+    }
+
+    /**
+     * Adds the given change to the number of samples with the given reading.
+     *
+     * @param reading reading whose count changes
+     * @param change change in the count
+     */
+    private void count(int reading, int change) {
+        int value = Math.min(reading, MAX_PERCENTILE_READING);
+        if (value + 1 >= counts.length) {
+            growCounts(value);
+        }
+        for (int i = value + 1; i < counts.length; i += i & -i) {
+            counts[i] += change;
+        }
+    }
+
+    /**
+     * Enlarges the Fenwick tree to hold counts up to the given reading.
+     *
+     * @param reading largest reading to hold
+     */
+    private void growCounts(int reading) {
+        int[] old = counts;
+        counts = new int[(Integer.highestOneBit(reading) << 1) + 1];
+        // the counts of each reading are recovered from the old tree's
+        // prefix sums
+        int previous = 0;
+        for (int value = 0; value + 1 < old.length; value++) {
+            int prefix = 0;
+            for (int i = value + 1; i > 0; i -= i & -i) {
+                prefix += old[i];
+            }
+            int count = prefix - previous;
+            previous = prefix;
+            for (int i = value + 1; i < counts.length && count != 0;
+                    i += i & -i) {
+                counts[i] += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package bms.sensors;
+
+import bms.util.InternPool;
+
+/**
+ * Immutable sequence of sensor readings, stored in as little memory as
+ * possible.
+ * <p>
+ * Readings are non-negative, so most sensors' readings fit in one or two
+ * bytes each. {@link #of(int[])} stores readings in the narrowest fixed
+ * width that fits every reading, or, for long sequences of readings that
+ * change gradually, as variable-length differences between consecutive
+ * readings. Every reading can be found by its index in constant time,
+ * whichever way the readings are stored.
+ */
+public abstract class Readings {
+    /**
+     * Minimum number of readings for which the readings may be stored as
+     * differences. Shorter sequences are always stored with a fixed width.
+     */
+    private static final int MIN_DELTA_LENGTH = 256;
+
+    /**
+     * Pool of the readings returned by of(int[]).
+     */
+    private static final InternPool<Readings> POOL = new InternPool<>();
+
+    /**
+     * Cached hash code of the readings, or 0 if it has not been calculated.
+     */
+    private int hash;
+
+    /**
+     * Creates a new sequence of readings.
+     */
+    Readings() {
+    }
+
+    /**
+     * Returns the readings in the given array, stored in whichever of the
+     * available forms uses the least memory.
+     * <p>
+     * The given array is copied, so it may be changed afterwards. Readings
+     * are pooled, so equal readings returned by this method share a single
+     * instance, and sensors with the same readings do not each hold a copy.
+     *
+     * @param readings non-negative readings to store
+     * @return stored readings
+     * @throws IllegalArgumentException if readings is null or any reading is
+     * negative
+     */
+    public static Readings of(int[] readings)
+            throws IllegalArgumentException {
+        if (readings == null) {
+            throw new IllegalArgumentException("Readings must not be null");
+        }
+        int max = 0;
+        for (int reading : readings) {
+            if (reading < 0) {
+                throw new IllegalArgumentException(
+                        "All sensor readings must be non-negative");
+            }
+            max = Math.max(max, reading);
+        }
+
+        return POOL.intern(store(readings, max));
+    }
+
+    /**
+     * Returns the given readings stored in whichever of the available forms
+     * uses the least memory.
+     *
+     * @param readings non-negative readings to store
+     * @param max largest of the readings
+     * @return stored readings
+     */
+    private static Readings store(int[] readings, int max) {
+        Readings fixed;
+        if (max <= ByteReadings.MAX_READING) {
+            fixed = new ByteReadings(readings, max);
+        } else if (max <= ShortReadings.MAX_READING) {
+            fixed = new ShortReadings(readings, max);
+        } else {
+            fixed = new IntReadings(readings, max);
+        }
+        if (readings.length >= MIN_DELTA_LENGTH
+                && DeltaReadings.sizeInBytes(readings)
+                < fixed.sizeInBytes()) {
+            return new DeltaReadings(readings, max);
+        }
+        return fixed;
+    }
+
+    /**
+     * Returns the number of readings.
+     *
+     * @return number of readings
+     */
+    public abstract int length();
+
+    /**
+     * Returns the reading at the given index.
+     *
+     * @param index index of the reading, from 0 to length() - 1
+     * @return reading at the index
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public abstract int get(int index);
+
+    /**
+     * Returns the largest of the readings, or 0 if there are none.
+     *
+     * @return largest reading
+     */
+    public abstract int max();
+
+    /**
+     * Returns the approximate number of bytes used to store the readings,
+     * not including the fixed size of the object itself.
+     *
+     * @return bytes used to store the readings
+     */
+    public abstract long sizeInBytes();
+
+    /**
+     * Returns the readings as a new array.
+     *
+     * @return array of readings
+     */
+    public int[] toArray() {
+        int[] readings = new int[length()];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = get(i);
+        }
+        return readings;
+    }
+
+    /**
+     * Returns true if and only if the other object is a sequence of readings
+     * with the same readings in the same order, however they are stored.
+     *
+     * @param obj other object to compare equality
+     * @return true if equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof Readings)) {
+            return false;
+        }
+        Readings other = (Readings) obj;
+        if (this.length() != other.length()
+                || (this.hash != 0 && other.hash != 0
+                        && this.hash != other.hash)) {
+            return false;
+        }
+        for (int i = 0; i < length(); i++) {
+            if (this.get(i) != other.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hash code of these readings, which is the same as
+     * java.util.Arrays.hashCode(toArray()). The hash code is calculated
+     * once and then cached, since the readings never change.
+     *
+     * @return hash code of the readings
+     */
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = 1;
+            for (int i = 0; i < length(); i++) {
+                result = 31 * result + get(i);
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Readings stored one unsigned byte each.
+     */
+    private static class ByteReadings extends Readings {
+        /**
+         * Largest reading that fits in an unsigned byte.
+         */
+        private static final int MAX_READING = 0xFF;
+
+        /**
+         * Readings, as unsigned bytes.
+         */
+        private final byte[] readings;
+
+        /**
+         * Largest of the readings.
+         */
+        private final int max;
+
+        /**
+         * Creates new readings from readings that are all at most
+         * MAX_READING.
+         *
+         * @param readings readings to store
+         * @param max largest of the readings
+         */
+        private ByteReadings(int[] readings, int max) {
+            this.max = max;
+            this.readings = new byte[readings.length];
+            for (int i = 0; i < readings.length; i++) {
+                this.readings[i] = (byte) readings[i];
+            }
+        }
+
+        @Override
+        public int length() {
+            return readings.length;
+        }
+
+        @Override
+        public int get(int index) {
+            return readings[index] & MAX_READING;
+        }
+
+        @Override
+        public int max() {
+            return max;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return readings.length;
+        }
+    }
+
+    /**
+     * Readings stored two bytes each, as unsigned chars.
+     */
+    private static class ShortReadings extends Readings {
+        /**
+         * Largest reading that fits in two unsigned bytes.
+         */
+        private static final int MAX_READING = Character.MAX_VALUE;
+
+        /**
+         * Readings, as unsigned chars.
+         */
+        private final char[] readings;
+
+        /**
+         * Largest of the readings.
+         */
+        private final int max;
+
+        /**
+         * Creates new readings from readings that are all at most
+         * MAX_READING.
+         *
+         * @param readings readings to store
+         * @param max largest of the readings
+         */
+        private ShortReadings(int[] readings, int max) {
+            this.max = max;
+            this.readings = new char[readings.length];
+            for (int i = 0; i < readings.length; i++) {
+                this.readings[i] = (char) readings[i];
+            }
+        }
+
+        @Override
+        public int length() {
+            return readings.length;
+        }
+
+        @Override
+        public int get(int index) {
+            return readings[index];
+        }
+
+        @Override
+        public int max() {
+            return max;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 2L * readings.length;
+        }
+    }
+
+    /**
+     * Readings stored four bytes each.
+     */
+    private static class IntReadings extends Readings {
+        /**
+         * Readings.
+         */
+        private final int[] readings;
+
+        /**
+         * Largest of the readings.
+         */
+        private final int max;
+
+        /**
+         * Creates new readings.
+         *
+         * @param readings readings to store
+         * @param max largest of the readings
+         */
+        private IntReadings(int[] readings, int max) {
+            this.max = max;
+            this.readings = readings.clone();
+        }
+
+        @Override
+        public int length() {
+            return readings.length;
+        }
+
+        @Override
+        public int get(int index) {
+            return readings[index];
+        }
+
+        @Override
+        public int max() {
+            return max;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 4L * readings.length;
+        }
+    }
+
+    /**
+     * Readings stored as the differences between consecutive readings, each
+     * encoded in as few bytes as possible.
+     * <p>
+     * The readings are divided into blocks of BLOCK_SIZE readings. The first
+     * reading of each block is stored in full along with the position of the
+     * block's differences, so any reading is found by adding at most
+     * BLOCK_SIZE - 1 differences to the first reading of its block.
+     * <p>
+     * Each difference is zigzag encoded, so that small negative differences
+     * are small positive numbers, then written seven bits per byte from the
+     * least significant bits, with the high bit of each byte set if more
+     * bytes follow.
+     */
+    private static class DeltaReadings extends Readings {
+        /**
+         * Number of readings in each block, which must be a power of two.
+         */
+        private static final int BLOCK_SIZE = 16;
+
+        /**
+         * Number of readings.
+         */
+        private final int length;
+
+        /**
+         * First reading of each block.
+         */
+        private final int[] blockReadings;
+
+        /**
+         * Position of the first difference of each block in the differences
+         * array.
+         */
+        private final int[] blockOffsets;
+
+        /**
+         * Encoded differences between consecutive readings within each block.
+         */
+        private final byte[] deltas;
+
+        /**
+         * Largest of the readings.
+         */
+        private final int max;
+
+        /**
+         * Creates new readings stored as differences.
+         *
+         * @param readings readings to store
+         * @param max largest of the readings
+         */
+        private DeltaReadings(int[] readings, int max) {
+            this.max = max;
+            int blocks = (readings.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            this.length = readings.length;
+            this.blockReadings = new int[blocks];
+            this.blockOffsets = new int[blocks];
+            this.deltas = new byte[deltaBytes(readings)];
+
+            int position = 0;
+            for (int i = 0; i < readings.length; i++) {
+                if (i % BLOCK_SIZE == 0) {
+                    blockReadings[i / BLOCK_SIZE] = readings[i];
+                    blockOffsets[i / BLOCK_SIZE] = position;
+                    continue;
+                }
+                int value = zigzag(readings[i] - readings[i - 1]);
+                while ((value & ~0x7F) != 0) {
+                    deltas[position++] = (byte) ((value & 0x7F) | 0x80);
+                    value >>>= 7;
+                }
+                deltas[position++] = (byte) value;
+            }
+        }
+
+        /**
+         * Returns the number of bytes needed to store the given readings as
+         * differences.
+         *
+         * @param readings readings to store
+         * @return bytes used to store the readings
+         */
+        private static long sizeInBytes(int[] readings) {
+            int blocks = (readings.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            return 8L * blocks + deltaBytes(readings);
+        }
+
+        /**
+         * Returns the number of bytes needed to store the encoded differences
+         * between the given readings.
+         *
+         * @param readings readings to store
+         * @return length of the differences array
+         */
+        private static int deltaBytes(int[] readings) {
+            int bytes = 0;
+            for (int i = 0; i < readings.length; i++) {
+                if (i % BLOCK_SIZE != 0) {
+                    int value = zigzag(readings[i] - readings[i - 1]);
+                    // one byte for every seven significant bits
+                    bytes += (38 - Integer.numberOfLeadingZeros(value | 1))
+                            / 7;
+                }
+            }
+            return bytes;
+        }
+
+        /**
+         * Maps a signed difference to an unsigned value so that differences
+         * close to zero are small: 0, -1, 1, -2, 2, ... map to 0, 1, 2, 3, 4.
+         *
+         * @param delta difference to map
+         * @return zigzag encoded difference
+         */
+        private static int zigzag(int delta) {
+            return (delta << 1) ^ (delta >> 31);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public int get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index
+                        + " out of bounds for length " + length);
+            }
+            int block = index / BLOCK_SIZE;
+            int reading = blockReadings[block];
+            int position = blockOffsets[block];
+            for (int i = index % BLOCK_SIZE; i > 0; i--) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = deltas[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                reading += (value >>> 1) ^ -(value & 1);
+            }
+            return reading;
+        }
+
+        @Override
+        public int max() {
+            return max;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return 8L * blockReadings.length + deltas.length;
+        }
+    }
+}
@@ -16,4 +16,42 @@ public interface Sensor {
      * @ass1
      */
     int getCurrentReading();
+
+    /**
+     * Returns the sensor reading that will be observed once the given number
+     * of minutes have elapsed, without changing the state of the sensor.
+     * <p>
+     * A negative number of minutes returns the reading that was observed
+     * that many minutes ago. Readings repeat with a fixed period, so readings
+     * from before the sensor was created are those it would have observed if
+     * it had always been running.
+     * <p>
+     * Sensors which cannot look ahead need not override this method, and
+     * then only support a number of minutes of 0.
+     *
+     * @param minutes number of minutes from now
+     * @return sensor reading after the given number of minutes
+     * @throws UnsupportedOperationException if minutes is not 0 and the
+     * sensor cannot look ahead
+     */
+    default int getReadingAfter(long minutes)
+            throws UnsupportedOperationException {
+        if (minutes != 0) {
+            throw new UnsupportedOperationException(
+                    "Sensor cannot look ahead in time");
+        }
+        return getCurrentReading();
+    }
+
+    /**
+     * Returns true if this sensor can find the reading it will observe after
+     * any number of minutes (see {@link #getReadingAfter(long)}).
+     * <p>
+     * Sensors which cannot look ahead need not override this method.
+     *
+     * @return true if the sensor can look ahead in time, false otherwise
+     */
+    default boolean canLookAhead() {
+        return false;
+    }
 }
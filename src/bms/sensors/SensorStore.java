@@ -0,0 +1,504 @@
+package bms.sensors;
+
+import bms.util.TimedItem;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar backing store for the state of many timed sensors.
+ * <p>
+ * Rather than each sensor holding its own readings array and counters, the
+ * readings of every sensor in the store are packed into a single buffer, and
+ * each sensor's state is kept in parallel arrays indexed by the sensor's id.
+ * Sensors created with a store act as views over their entry in it (see
+ * bms.util.TimedItemManager.setSensorStore(SensorStore)).
+ * <p>
+ * As in Readings.of(int[]), the buffer stores each reading in as few bytes
+ * as fit every reading added so far: one byte, two bytes, or a whole int.
+ * The buffer is widened when a sensor with a larger reading is added.
+ * <p>
+ * A sensor removed from the store (see remove(Sensor)) keeps its id, which
+ * is marked as removed so that the sensor is no longer advanced.
+ * <p>
+ * The store is advanced as a single timed item, which advances every sensor
+ * in it by sweeping through the arrays in order, so large models do not have
+ * to visit a separate object for every sensor each minute.
+ */
+public class SensorStore implements TimedItem {
+    /**
+     * Initial capacity of the per-sensor arrays.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Readings of every sensor, packed one after another as unsigned bytes,
+     * or null if the readings are stored more widely.
+     */
+    private byte[] byteReadings;
+
+    /**
+     * Readings of every sensor, packed one after another as unsigned chars,
+     * or null if the readings are stored in another width.
+     */
+    private char[] charReadings;
+
+    /**
+     * Readings of every sensor, packed one after another as ints, or null
+     * while every reading fits in a narrower width.
+     */
+    private int[] intReadings;
+
+    /**
+     * Number of elements of the readings buffer in use.
+     */
+    private int readingCount;
+
+    /**
+     * Position in the readings buffer of each distinct sequence of readings
+     * added to the store.
+     */
+    private final Map<Readings, Integer> offsetsByReadings;
+
+    /**
+     * Position of each sensor's first reading in the readings buffer.
+     */
+    private int[] offsets;
+
+    /**
+     * Number of readings of each sensor.
+     */
+    private int[] lengths;
+
+    /**
+     * Update frequency of each sensor, in minutes.
+     */
+    private int[] frequencies;
+
+    /**
+     * Current reading of each sensor.
+     */
+    private int[] currentReadings;
+
+    /**
+     * Index of each sensor's current reading in its own readings.
+     */
+    private int[] currentIndices;
+
+    /**
+     * Number of minutes until each sensor's current reading next updates.
+     */
+    private int[] minutesUntilUpdate;
+
+    /**
+     * Number of minutes each sensor has been running.
+     */
+    private int[] timesElapsed;
+
+    /**
+     * Whether each sensor has been removed from the store.
+     */
+    private boolean[] removed;
+
+    /**
+     * Number of ids given to sensors, including removed sensors.
+     */
+    private int size;
+
+    /**
+     * Number of sensors which have been removed.
+     */
+    private int removedCount;
+
+    /**
+     * Creates a new empty sensor store.
+     */
+    public SensorStore() {
+        this.byteReadings = new byte[INITIAL_CAPACITY];
+        this.readingCount = 0;
+        this.offsetsByReadings = new HashMap<>();
+        this.offsets = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.frequencies = new int[INITIAL_CAPACITY];
+        this.currentReadings = new int[INITIAL_CAPACITY];
+        this.currentIndices = new int[INITIAL_CAPACITY];
+        this.minutesUntilUpdate = new int[INITIAL_CAPACITY];
+        this.timesElapsed = new int[INITIAL_CAPACITY];
+        this.removed = new boolean[INITIAL_CAPACITY];
+        this.size = 0;
+        this.removedCount = 0;
+    }
+
+    /**
+     * Adds a sensor with the given readings and update frequency to the
+     * store. The readings are copied into the store.
+     *
+     * Sensors with equal readings share one copy of them in the buffer.
+     *
+     * @param sensorReadings readings of the sensor, already validated by
+     *                       TimedSensor
+     * @param updateFrequency update frequency of the sensor, in minutes
+     * @return id of the new sensor in the store
+     */
+    int add(Readings sensorReadings, int updateFrequency) {
+        if (size == offsets.length) {
+            int capacity = size * 2;
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+            currentReadings = Arrays.copyOf(currentReadings, capacity);
+            currentIndices = Arrays.copyOf(currentIndices, capacity);
+            minutesUntilUpdate = Arrays.copyOf(minutesUntilUpdate, capacity);
+            timesElapsed = Arrays.copyOf(timesElapsed, capacity);
+            removed = Arrays.copyOf(removed, capacity);
+        }
+        int length = sensorReadings.length();
+        Integer offset = offsetsByReadings.get(sensorReadings);
+        if (offset == null) {
+            widen(sensorReadings.max(), readingCount + length);
+            for (int i = 0; i < length; i++) {
+                setReading(readingCount + i, sensorReadings.get(i));
+            }
+            offset = readingCount;
+            offsetsByReadings.put(sensorReadings, offset);
+            readingCount += length;
+        }
+
+        int id = size++;
+        offsets[id] = offset;
+        lengths[id] = length;
+        frequencies[id] = updateFrequency;
+        currentReadings[id] = reading(offset);
+        currentIndices[id] = 0;
+        minutesUntilUpdate[id] = updateFrequency;
+        timesElapsed[id] = 0;
+        return id;
+    }
+
+    /**
+     * Makes room in the buffer for the given number of readings, stored in
+     * a width which fits the given reading.
+     *
+     * @param max largest reading to be stored
+     * @param needed number of readings the buffer must have room for
+     */
+    private void widen(int max, int needed) {
+        int capacity = byteReadings != null ? byteReadings.length
+                : charReadings != null ? charReadings.length
+                : intReadings.length;
+        if (needed > capacity) {
+            capacity = Math.max(capacity * 2, needed);
+        }
+        if (byteReadings != null && max <= 0xFF) {
+            byteReadings = Arrays.copyOf(byteReadings, capacity);
+        } else if (intReadings == null && max <= 0xFFFF) {
+            char[] wider = new char[capacity];
+            for (int i = 0; i < readingCount; i++) {
+                wider[i] = (char) reading(i);
+            }
+            byteReadings = null;
+            charReadings = wider;
+        } else {
+            int[] wider = new int[capacity];
+            for (int i = 0; i < readingCount; i++) {
+                wider[i] = reading(i);
+            }
+            byteReadings = null;
+            charReadings = null;
+            intReadings = wider;
+        }
+    }
+
+    /**
+     * Returns the reading at the given position in the buffer.
+     *
+     * @param position position in the buffer
+     * @return reading at the position
+     */
+    private int reading(int position) {
+        if (byteReadings != null) {
+            return byteReadings[position] & 0xFF;
+        }
+        if (charReadings != null) {
+            return charReadings[position];
+        }
+        return intReadings[position];
+    }
+
+    /**
+     * Stores a reading at the given position in the buffer, which must be
+     * wide enough for it.
+     *
+     * @param position position in the buffer
+     * @param reading reading to store
+     */
+    private void setReading(int position, int reading) {
+        if (byteReadings != null) {
+            byteReadings[position] = (byte) reading;
+        } else if (charReadings != null) {
+            charReadings[position] = (char) reading;
+        } else {
+            intReadings[position] = reading;
+        }
+    }
+
+    /**
+     * Returns the number of bytes each reading takes in the buffer.
+     *
+     * @return 1, 2 or 4
+     */
+    int getReadingWidth() {
+        return byteReadings != null ? 1 : charReadings != null ? 2 : 4;
+    }
+
+    /**
+     * Removes the given sensor from the store, so that it is no longer
+     * advanced. The sensor keeps the state it had when it was removed.
+     * Removing a sensor which has already been removed has no effect.
+     * <p>
+     * Its readings stay in the buffer, since they may be shared with other
+     * sensors.
+     *
+     * @param sensor sensor to remove
+     * @return true if the sensor's state is held in this store, false
+     * otherwise
+     */
+    public boolean remove(Sensor sensor) {
+        if (!(sensor instanceof TimedSensor)
+                || ((TimedSensor) sensor).getStore() != this) {
+            return false;
+        }
+        int id = ((TimedSensor) sensor).getStoreId();
+        if (!removed[id]) {
+            removed[id] = true;
+            removedCount++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of sensors in the store, not counting sensors that
+     * have been removed.
+     *
+     * @return number of sensors
+     */
+    public int size() {
+        return size - removedCount;
+    }
+
+    /**
+     * Returns the number of readings held in the store's buffer, counting
+     * readings shared by several sensors once.
+     *
+     * @return number of stored readings
+     */
+    int getReadingCount() {
+        return readingCount;
+    }
+
+    /**
+     * Returns the current reading of the sensor with the given id.
+     *
+     * @param id id of the sensor
+     * @return current reading
+     */
+    int getCurrentReading(int id) {
+        return currentReadings[id];
+    }
+
+    /**
+     * Returns the index of the current reading of the sensor with the given
+     * id in its readings.
+     *
+     * @param id id of the sensor
+     * @return index of the current reading
+     */
+    int getCurrentIndex(int id) {
+        return currentIndices[id];
+    }
+
+    /**
+     * Returns the number of minutes the sensor with the given id has been
+     * running.
+     *
+     * @param id id of the sensor
+     * @return time elapsed in minutes
+     */
+    int getTimeElapsed(int id) {
+        return timesElapsed[id];
+    }
+
+    /**
+     * Returns the number of minutes until the current reading of the sensor
+     * with the given id next updates.
+     *
+     * @param id id of the sensor
+     * @return minutes until the next update
+     */
+    int getMinutesUntilUpdate(int id) {
+        return minutesUntilUpdate[id];
+    }
+
+    /**
+     * Returns the number of readings of the sensor with the given id.
+     *
+     * @param id id of the sensor
+     * @return number of readings
+     */
+    int getReadingCount(int id) {
+        return lengths[id];
+    }
+
+    /**
+     * Returns the reading at the given index of the readings of the sensor
+     * with the given id.
+     *
+     * @param id id of the sensor
+     * @param index index into the sensor's readings
+     * @return reading at the index
+     */
+    int getReading(int id, int index) {
+        return reading(offsets[id] + index);
+    }
+
+    /**
+     * Returns a view of the readings of the sensor with the given id, which
+     * reads directly from the store.
+     *
+     * @param id id of the sensor
+     * @return sensor readings
+     */
+    Readings getReadings(int id) {
+        return new Readings() {
+            @Override
+            public int length() {
+                return lengths[id];
+            }
+
+            @Override
+            public int get(int index) {
+                if (index < 0 || index >= lengths[id]) {
+                    throw new IndexOutOfBoundsException("Index " + index
+                            + " out of bounds for length " + lengths[id]);
+                }
+                return reading(offsets[id] + index);
+            }
+
+            @Override
+            public int max() {
+                int max = 0;
+                for (int i = 0; i < lengths[id]; i++) {
+                    max = Math.max(max, reading(offsets[id] + i));
+                }
+                return max;
+            }
+
+            @Override
+            public long sizeInBytes() {
+                return (long) getReadingWidth() * lengths[id];
+            }
+        };
+    }
+
+    /**
+     * Advances every sensor in the store by one minute, in the same way as
+     * TimedSensor.elapseOneMinute(). Removed sensors are skipped.
+     */
+    @Override
+    public void elapseOneMinute() {
+        for (int id = 0; id < size; id++) {
+            if (removed[id]) {
+                continue;
+            }
+            timesElapsed[id]++;
+            if (--minutesUntilUpdate[id] == 0) {
+                minutesUntilUpdate[id] = frequencies[id];
+                int index = currentIndices[id] + 1;
+                if (index == lengths[id]) {
+                    index = 0;
+                }
+                currentIndices[id] = index;
+                currentReadings[id] = reading(offsets[id] + index);
+            }
+        }
+    }
+
+    /**
+     * Advances every sensor in the store by the given number of minutes.
+     * Removed sensors are skipped.
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     * @throws ArithmeticException if the time elapsed of a sensor would no
+     * longer fit in an int
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        for (int id = 0; id < size; id++) {
+            if (!removed[id]) {
+                elapseMinutes(id, minutes);
+            }
+        }
+    }
+
+    /**
+     * Advances the sensor with the given id by the given number of minutes,
+     * in the same way as TimedSensor.elapseMinutes(long).
+     *
+     * @param id id of the sensor
+     * @param minutes non-negative number of minutes to elapse
+     * @throws ArithmeticException if the sensor's time elapsed would no
+     * longer fit in an int
+     */
+    void elapseMinutes(int id, long minutes) {
+        int timeElapsed = Math.toIntExact(timesElapsed[id] + minutes);
+        timesElapsed[id] = timeElapsed;
+        if (minutes < minutesUntilUpdate[id]) {
+            minutesUntilUpdate[id] -= (int) minutes;
+            return;
+        }
+        int frequency = frequencies[id];
+        int index;
+        if (minutes == minutesUntilUpdate[id]) {
+            index = currentIndices[id] + 1;
+            if (index == lengths[id]) {
+                index = 0;
+            }
+            minutesUntilUpdate[id] = frequency;
+        } else {
+            index = readingIndex(id, timeElapsed);
+            minutesUntilUpdate[id] = frequency - timeElapsed % frequency;
+        }
+        currentIndices[id] = index;
+        currentReadings[id] = reading(offsets[id] + index);
+    }
+
+    /**
+     * Returns the index of the reading observed by the sensor with the given
+     * id when it has been running for the given number of minutes.
+     *
+     * @param id id of the sensor
+     * @param time minutes the sensor has been running, may be negative
+     * @return index into the sensor's readings
+     */
+    int readingIndex(int id, long time) {
+        long rotationDuration = (long) lengths[id] * frequencies[id];
+        return (int) (Math.floorMod(time, rotationDuration) / frequencies[id]);
+    }
+
+    /**
+     * Returns the number of minutes until any sensor in the store may next
+     * change. The store is advanced every minute, since some sensor usually
+     * changes on every minute.
+     *
+     * @return 1
+     */
+    @Override
+    public long getMinutesUntilChange() {
+        return 1;
+    }
+}
@@ -0,0 +1,88 @@
+package bms.sensors;
+
+/**
+ * Enum to represent each type of sensor, in alphabetical order of the
+ * sensor's simple class name.
+ * <p>
+ * A room holds at most one sensor of each type, so the ordinal of a type can
+ * be used as the index of the sensor's slot in the room.
+ */
+public enum SensorType {
+    /** Carbon dioxide sensor. */
+    CARBON_DIOXIDE(CarbonDioxideSensor.class),
+    /** Noise sensor. */
+    NOISE(NoiseSensor.class),
+    /** Occupancy sensor. */
+    OCCUPANCY(OccupancySensor.class),
+    /** Temperature sensor. */
+    TEMPERATURE(TemperatureSensor.class);
+
+    /**
+     * Every type of sensor, in order of ordinal. Kept so that lookups do not
+     * copy the array returned by values().
+     */
+    private static final SensorType[] TYPES = values();
+
+    /**
+     * Class of the sensors of this type.
+     */
+    private final Class<? extends Sensor> sensorClass;
+
+    /**
+     * Simple class name of the sensors of this type.
+     */
+    private final String simpleName;
+
+    /**
+     * Creates a sensor type for sensors of the given class.
+     *
+     * @param sensorClass class of the sensors of this type
+     */
+    SensorType(Class<? extends Sensor> sensorClass) {
+        this.sensorClass = sensorClass;
+        this.simpleName = sensorClass.getSimpleName();
+    }
+
+    /**
+     * Returns the class of the sensors of this type.
+     *
+     * @return sensor class
+     */
+    public Class<? extends Sensor> getSensorClass() {
+        return sensorClass;
+    }
+
+    /**
+     * Returns the type of the given sensor, or null if the sensor's class is
+     * not exactly the class of one of the types (for instance, a subclass of
+     * one of the sensor classes).
+     *
+     * @param sensor sensor to find the type of
+     * @return type of the sensor, or null if it has none
+     */
+    public static SensorType of(Sensor sensor) {
+        Class<?> sensorClass = sensor.getClass();
+        for (SensorType type : TYPES) {
+            if (type.sensorClass == sensorClass) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the type whose sensor class has the given simple class name
+     * (see {@link Class#getSimpleName()}), or null if there is none.
+     *
+     * @param simpleName simple class name, e.g. "NoiseSensor" (no quotes)
+     * @return type with the given class name, or null if none found
+     */
+    public static SensorType fromSimpleName(String simpleName) {
+        for (SensorType type : TYPES) {
+            if (type.simpleName.equals(simpleName)) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
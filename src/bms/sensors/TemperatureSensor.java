@@ -7,6 +7,17 @@ package bms.sensors;
 public class TemperatureSensor extends TimedSensor implements
         HazardSensor, ComfortSensor {
 
+    /**
+     * Temperature at or above which a fire is detected, in degrees.
+     */
+    private static final int FIRE_TEMPERATURE = 68;
+
+    /**
+     * Whether any of the sensor's readings indicates a fire, or may do so
+     * for a streaming sensor.
+     */
+    private final boolean fireReading;
+
     /**
      * Creates a new temperature sensor with the given sensor readings and
      * update frequency.
@@ -19,7 +30,35 @@ public class TemperatureSensor extends TimedSensor implements
      * @ass1
      */
     public TemperatureSensor(int[] sensorReadings) {
+        this(Readings.of(sensorReadings));
+    }
+
+    /**
+     * Creates a new temperature sensor which observes the given readings,
+     * with an update frequency of 1 minute.
+     *
+     * @see TimedSensor#TimedSensor(Readings, int)
+     * @param sensorReadings non-empty sensor readings
+     */
+    public TemperatureSensor(Readings sensorReadings) {
         super(sensorReadings, 1);
+        this.fireReading = sensorReadings.max() >= FIRE_TEMPERATURE;
+        precomputeLevels();
+    }
+
+    /**
+     * Creates a new streaming temperature sensor whose readings are pushed
+     * to the given buffer, expected once a minute.
+     * <p>
+     * Any pushed reading may indicate a fire, so the sensor can always
+     * detect a fire (see {@link #canDetectFire()}).
+     *
+     * @see TimedSensor#TimedSensor(ReadingBuffer, int)
+     * @param stream buffer of pushed temperature readings
+     */
+    public TemperatureSensor(ReadingBuffer stream) {
+        super(stream, 1);
+        this.fireReading = true;
     }
 
     /**
@@ -36,12 +75,35 @@ public class TemperatureSensor extends TimedSensor implements
      */
     @Override
     public int getHazardLevel() {
-        if (this.getCurrentReading() >= 68) {
+        return lookupHazardLevel();
+    }
+
+    /**
+     * Returns the hazard level for the given temperature reading, calculated
+     * in the same way as {@link #getHazardLevel()}.
+     *
+     * @param reading temperature reading in degrees Celsius
+     * @return hazard level for the reading, 0 or 100
+     */
+    @Override
+    public int getHazardLevel(int reading) {
+        if (reading >= FIRE_TEMPERATURE) {
             return 100;
         }
         return 0;
     }
 
+    /**
+     * Returns whether this sensor can ever report a hazard level of 100,
+     * i.e. whether any of its readings indicates a fire. This is always true
+     * for a streaming sensor.
+     *
+     * @return true if a fire appears in the sensor's readings
+     */
+    public boolean canDetectFire() {
+        return fireReading;
+    }
+
     /**
      * Returns the human-readable string representation of this temperature
      * sensor.
@@ -79,12 +141,23 @@ public class TemperatureSensor extends TimedSensor implements
      * @return sensor's current comfort level, 0 to 100
      */
     public int getComfortLevel() {
-        if (getCurrentReading() >= 20 && getCurrentReading() <= 26) {
+        return lookupComfortLevel();
+    }
+
+    /**
+     * Returns the comfort level for the given temperature reading, calculated
+     * in the same way as getComfortLevel().
+     * @param reading temperature reading in degrees Celsius
+     * @return level of comfort for the reading, 0 to 100
+     */
+    @Override
+    public int getComfortLevel(int reading) {
+        if (reading >= 20 && reading <= 26) {
             return 100;
-        } else if (getCurrentReading() > 15 && getCurrentReading() < 20) {
-            return 100 - (20 * (20 - getCurrentReading()));
-        } else if (getCurrentReading() > 26 && getCurrentReading() < 31) {
-            return 100 - (20 * (getCurrentReading() - 26));
+        } else if (reading > 15 && reading < 20) {
+            return 100 - (20 * (20 - reading));
+        } else if (reading > 26 && reading < 31) {
+            return 100 - (20 * (reading - 26));
         } else {
             return 0;
         }
@@ -13,28 +13,34 @@ import java.util.TreeMap;
 public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
 
     /**
-     * Data array representing the readings observed by the sensor.
-     * <p>
-     * Readings taken one minute apart.
+     * Where the sensor's readings come from and how they advance: its own
+     * fields, a sensor store, or a buffer of pushed readings.
      */
-    private final int[] sensorReadings;
+    private final State state;
 
     /**
-     * The current sensor reading observed by the sensor.
+     * The number of minutes that must pass before the current sensor
+     * reading is updated.
      */
-    private int currentReading;
+    private final int updateFrequency;
 
     /**
-     * The amount of time in minutes that the sensor has been running
-     * (according to the system, not real life).
+     * Largest number of entries in a sensor's tables of precomputed hazard
+     * and comfort levels.
      */
-    private int timeElapsed;
+    private static final int MAX_LEVEL_TABLE_SIZE = 1 << 16;
 
     /**
-     * The number of minutes that must pass before the current sensor
-     * reading is updated.
+     * Precomputed hazard and comfort levels of the sensor's readings, shared
+     * with identically configured sensors, or null if the levels are not
+     * precomputed.
      */
-    private final int updateFrequency;
+    private LevelTables levels;
+
+    /**
+     * Hash code of the sensor, or 0 if it has not been calculated yet.
+     */
+    private int cachedHashCode;
 
     /**
      * Map which represents that Hash Number associated with each timed sensor
@@ -63,8 +69,12 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * to {@link TimedSensor#getCurrentReading()} after calling the
      * constructor must return the first element of the given array.
      * <p>
-     * The sensor should be registered as a timed item, see
-     * {@link TimedItemManager#registerTimedItem(TimedItem)}.
+     * The sensor should be registered as a timed item with the timed item
+     * manager currently in scope, see {@link TimedItemManager#getCurrent()}
+     * and {@link TimedItemManager#registerTimedItem(TimedItem)}. If that
+     * manager has a sensor store (see
+     * {@link TimedItemManager#getSensorStore()}), the sensor's readings and
+     * state are instead added to the store, which advances them.
      *
      * @param sensorReadings a non-empty array of sensor readings
      * @param updateFrequency indicates how often the sensor readings updates,
@@ -76,25 +86,99 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      */
     public TimedSensor(int[] sensorReadings, int updateFrequency) throws
             IllegalArgumentException {
+        this(checkReadings(sensorReadings), updateFrequency);
+    }
+
+    /**
+     * Creates a new timed sensor which observes the given readings, as in
+     * {@link #TimedSensor(int[], int)}.
+     * <p>
+     * The readings are used as they are, so readings kept outside the heap,
+     * such as those of a {@link TraceFile}, stay there. If the sensor is
+     * added to a sensor store, the readings are copied into the store,
+     * unless the store already holds equal readings.
+     *
+     * @param sensorReadings non-empty readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @throws IllegalArgumentException if updateFrequency is &lt; 1 or &gt; 5;
+     * or if sensorReadings is null or empty
+     */
+    public TimedSensor(Readings sensorReadings, int updateFrequency) throws
+            IllegalArgumentException {
+        if ((updateFrequency < 1) || (updateFrequency > 5)) {
+            throw new IllegalArgumentException("Update frequency must be "
+                    + "between 1 and 5 minutes (inclusive)");
+        }
+        if (sensorReadings == null || sensorReadings.length() == 0) {
+            throw new IllegalArgumentException("Sensor readings must not be "
+                    + "null and must have at least one element");
+        }
+        this.updateFrequency = updateFrequency;
+        TimedItemManager clock = TimedItemManager.getCurrent();
+        SensorStore store = clock.getSensorStore();
+        if (store != null) {
+            this.state = new StoredState(store,
+                    store.add(sensorReadings, updateFrequency));
+            return;
+        }
+        this.state = new LocalState(sensorReadings, updateFrequency);
+        clock.registerTimedItem(this);
+    }
+
+    /**
+     * Creates a new streaming sensor, whose readings are pushed to the given
+     * buffer from a live source rather than replayed from a fixed sequence.
+     * <p>
+     * The current reading of a streaming sensor is always the latest reading
+     * in its buffer. Its readings at other times are not known in advance,
+     * so it cannot look ahead (see {@link #canLookAhead()}). The update
+     * frequency is
+     * the expected number of minutes between pushed readings, and must be
+     * between 1 and 5 as in {@link #TimedSensor(int[], int)}. The buffer
+     * must hold at least one reading.
+     * <p>
+     * The sensor is registered with the timed item manager currently in
+     * scope, which only advances its time elapsed, and is never added to a
+     * sensor store. A streaming sensor is encoded with the readings
+     * currently in its buffer.
+     *
+     * @param stream buffer of pushed readings
+     * @param updateFrequency expected minutes between readings
+     * @throws IllegalArgumentException if updateFrequency is &lt; 1 or &gt; 5;
+     * or if stream is null or empty
+     */
+    public TimedSensor(ReadingBuffer stream, int updateFrequency) throws
+            IllegalArgumentException {
         if ((updateFrequency < 1) || (updateFrequency > 5)) {
             throw new IllegalArgumentException("Update frequency must be "
                     + "between 1 and 5 minutes (inclusive)");
         }
+        if (stream == null || stream.length() == 0) {
+            throw new IllegalArgumentException("Reading buffer must not be "
+                    + "null and must have at least one reading");
+        }
+        this.updateFrequency = updateFrequency;
+        this.state = new StreamedState(stream);
+        TimedItemManager.getCurrent().registerTimedItem(this);
+    }
+
+    /**
+     * Checks that the given array of sensor readings is valid according to
+     * {@link #TimedSensor(int[], int)}, and stores the readings.
+     *
+     * @param sensorReadings array of sensor readings
+     * @return stored readings
+     * @throws IllegalArgumentException if sensorReadings is null or empty, or
+     * if any value in sensorReadings is less than zero
+     */
+    private static Readings checkReadings(int[] sensorReadings)
+            throws IllegalArgumentException {
         if (sensorReadings == null || sensorReadings.length == 0) {
             throw new IllegalArgumentException("Sensor readings array must "
                     + "not be null and must have at least one element");
         }
-        for (int reading : sensorReadings) {
-            if (reading < 0) {
-                throw new IllegalArgumentException(
-                        "All sensor readings must be non-negative");
-            }
-        }
-        this.sensorReadings = sensorReadings;
-        this.currentReading = sensorReadings[0];
-        this.updateFrequency = updateFrequency;
-        this.timeElapsed = 0;
-        TimedItemManager.getInstance().registerTimedItem(this);
+        return Readings.of(sensorReadings);
     }
 
     /**
@@ -104,7 +188,125 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * @ass1
      */
     public int getCurrentReading() {
-        return this.currentReading;
+        return this.state.getCurrentReading();
+    }
+
+    /**
+     * Precomputes the hazard and comfort levels of the sensor's readings, so
+     * that {@link #lookupHazardLevel()} and {@link #lookupComfortLevel()}
+     * look levels up rather than calculating them. Concrete sensors call
+     * this at the end of their constructors, once the state their levels
+     * depend on is set.
+     * <p>
+     * The tables have an entry for each of the sensor's readings, or an
+     * entry for each reading value from 0 to the largest reading if that is
+     * fewer, so their size does not depend on the length of long traces of
+     * readings that lie in a small range. No tables are made if both would
+     * be larger than MAX_LEVEL_TABLE_SIZE. Sensors with the same levels
+     * share one set of tables.
+     */
+    protected final void precomputeLevels() {
+        if (!this.state.canLookAhead()) {
+            // readings are not known in advance
+            return;
+        }
+        Readings readings = this.state.getReadings();
+        boolean byReading = readings.max() < readings.length();
+        int size = byReading ? readings.max() + 1 : readings.length();
+        if (size > MAX_LEVEL_TABLE_SIZE) {
+            return;
+        }
+        byte[] hazard = this instanceof HazardSensor ? new byte[size] : null;
+        byte[] comfort = this instanceof ComfortSensor ? new byte[size] : null;
+        try {
+            for (int i = 0; i < size; i++) {
+                int reading = byReading ? i : readings.get(i);
+                // levels are between 0 and 100, so fit in a byte
+                if (hazard != null) {
+                    hazard[i] = (byte)
+                            ((HazardSensor) this).getHazardLevel(reading);
+                }
+                if (comfort != null) {
+                    comfort[i] = (byte)
+                            ((ComfortSensor) this).getComfortLevel(reading);
+                }
+            }
+        } catch (ArithmeticException e) {
+            // e.g. the comfort level of an occupancy sensor with no capacity;
+            // leave such levels to be calculated (and fail) when asked for
+            return;
+        }
+        this.levels = LevelTables.of(hazard, comfort, byReading);
+    }
+
+    /**
+     * Returns the hazard level of the current reading, looked up in the
+     * precomputed table if there is one, or otherwise calculated by
+     * HazardSensor.getHazardLevel(int).
+     *
+     * @return hazard level of the current reading
+     * @see #precomputeLevels()
+     */
+    protected final int lookupHazardLevel() {
+        if (this.levels == null) {
+            return ((HazardSensor) this).getHazardLevel(getCurrentReading());
+        }
+        return this.levels.getHazardLevel(levelIndex());
+    }
+
+    /**
+     * Returns the comfort level of the current reading, looked up in the
+     * precomputed table if there is one, or otherwise calculated by
+     * ComfortSensor.getComfortLevel(int).
+     *
+     * @return comfort level of the current reading
+     * @see #precomputeLevels()
+     */
+    protected final int lookupComfortLevel() {
+        if (this.levels == null) {
+            return ((ComfortSensor) this).getComfortLevel(getCurrentReading());
+        }
+        return this.levels.getComfortLevel(levelIndex());
+    }
+
+    /**
+     * Returns the sensor's precomputed level tables.
+     *
+     * @return level tables, or null if the levels are calculated instead
+     * @see #precomputeLevels()
+     */
+    LevelTables getLevelTables() {
+        return this.levels;
+    }
+
+    /**
+     * Returns the store holding the sensor's readings and state.
+     *
+     * @return sensor store, or null if the sensor has none
+     */
+    SensorStore getStore() {
+        return this.state.getStore();
+    }
+
+    /**
+     * Returns the id of the sensor in its store.
+     *
+     * @return id in the sensor store, or -1 if the sensor has none
+     */
+    int getStoreId() {
+        return this.state.getStoreId();
+    }
+
+    /**
+     * Returns the index of the current reading's entry in the level tables.
+     *
+     * @return index into the level tables
+     */
+    private int levelIndex() {
+        if (this.levels.isByReading()) {
+            return getCurrentReading();
+        }
+        return this.state.getCurrentIndex();
     }
 
     /**
@@ -116,7 +318,7 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * @ass1
      */
     public int getTimeElapsed() {
-        return timeElapsed;
+        return this.state.getTimeElapsed();
     }
 
     /**
@@ -143,21 +345,79 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * @ass1
      * */
     public void elapseOneMinute() {
-        this.timeElapsed++;
+        this.state.elapseMinutes(1);
+    }
 
-        // calculate the time taken before wrapping around to the starting value
-        // again
-        int rotationDuration = this.sensorReadings.length
-                * this.updateFrequency;
+    /**
+     * Increments the time elapsed (in minutes) by the given number of
+     * minutes.
+     * <p>
+     * The current sensor reading is updated directly to the reading that
+     * would be observed after calling {@link #elapseOneMinute()} the given
+     * number of times.
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     * @throws ArithmeticException if the total time elapsed would no longer
+     * fit in an int
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        this.state.elapseMinutes(minutes);
+    }
 
-        // calculate the time remaining in the current rotation
-        int timeRemainingInRotation =  this.timeElapsed % rotationDuration;
+    /**
+     * Returns the number of minutes until the current sensor reading next
+     * moves to another element of the readings array.
+     * <p>
+     * This is the time until {@link #getTimeElapsed()} is next a multiple of
+     * {@link #getUpdateFrequency()}, or {@link Long#MAX_VALUE} if the sensor
+     * only has one reading or is a streaming sensor, whose readings are
+     * pushed rather than changed as time passes.
+     *
+     * @return minutes until the sensor reading may next change
+     */
+    @Override
+    public long getMinutesUntilChange() {
+        return this.state.getMinutesUntilChange();
+    }
 
-        // index is time remaining in the current rotation divided by the update
-        // frequency
-        int index = timeRemainingInRotation / this.updateFrequency;
+    /**
+     * Returns the sensor reading that will be observed once the given number
+     * of minutes have elapsed, without changing the state of the sensor.
+     * <p>
+     * The index of the reading is calculated in the same way as the current
+     * reading's, from the time elapsed plus the given number of minutes,
+     * which may be negative. A streaming sensor only knows its current
+     * reading.
+     *
+     * @param minutes number of minutes from now
+     * @return sensor reading after the given number of minutes
+     * @throws UnsupportedOperationException if minutes is not 0 and the
+     * sensor is a streaming sensor
+     */
+    @Override
+    public int getReadingAfter(long minutes)
+            throws UnsupportedOperationException {
+        if (minutes == 0) {
+            return getCurrentReading();
+        }
+        return this.state.getReadingAfter(minutes);
+    }
 
-        this.currentReading = this.sensorReadings[index];
+    /**
+     * Returns true unless this is a streaming sensor, since the readings of
+     * other timed sensors are known in advance.
+     *
+     * @return true if the sensor can look ahead in time, false otherwise
+     */
+    @Override
+    public boolean canLookAhead() {
+        return this.state.canLookAhead();
     }
 
     /**
@@ -178,7 +438,8 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
     public String toString() {
         return String.format("TimedSensor: freq=%d, readings=%s",
                 this.updateFrequency,
-                String.join(",", Arrays.stream(this.sensorReadings)
+                String.join(",", Arrays.stream(
+                        this.state.getReadings().toArray())
                         .mapToObj(String::valueOf)
                         .toArray(String[]::new)));
     }
@@ -190,6 +451,9 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      *      - be the same type (i.e. the same subclass of TimedSensor)
      *      - have the same update frequency
      *      - have the same sensor readings array (in the same order)
+     * Since the readings of a streaming sensor keep changing, a streaming
+     * sensor is instead only equal to sensors of the same type and update
+     * frequency reading from the same buffer.
      * @param obj other object to compare equality
      * @return true if equal, false otherwise
      */
@@ -204,25 +468,33 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
         TimedSensor timedSensor = (TimedSensor) obj;
         return this.getClass().equals(timedSensor.getClass()) &&
                 this.getUpdateFrequency() == timedSensor.getUpdateFrequency() &&
-                Arrays.equals(this.sensorReadings, timedSensor.sensorReadings);
+                this.state.sameReadings(timedSensor.state);
     }
 
     /**
      * Returns the hash code of this timed sensor.
      * Two timed sensors that are equal according to equals(Object) should have
      * the same hash code.
+     * <p>
+     * A sensor's readings never change, so the hash code is only calculated
+     * the first time it is needed. As in String.hashCode(), it is cached in
+     * a single field read once into a local, so a thread either sees the
+     * finished value or calculates it again. A streaming sensor's hash code
+     * depends on its buffer rather than its readings.
      * @return hash code of this sensor
      */
     @Override
     public int hashCode() {
-        int readingsSum = 0;
-        for (int sensorReading : sensorReadings) {
-            readingsSum += sensorReading;
+        int hash = cachedHashCode;
+        if (hash == 0) {
+            int readingsSum = this.state.readingsHashCode();
+            Class sensorClass = this.getClass();
+            String className = sensorClass.getSimpleName();
+            hash = HASH_CODE_CONSTANTS.get(className) + readingsSum
+                    + 100 * getUpdateFrequency();
+            cachedHashCode = hash;
         }
-        Class sensorClass = this.getClass();
-        String className = sensorClass.getSimpleName();
-        return HASH_CODE_CONSTANTS.get(className) + readingsSum + 100 *
-                getUpdateFrequency();
+        return hash;
     }
 
     /**
@@ -238,15 +510,447 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * @return encoded string representation of this timed sensor
      */
     public String encode() {
+        Readings sensorReadings = this.state.getReadings();
         String commaSeparatedList = "";
         // converts array of integers to a string of comma separated values
-        for (int i = 0; i < sensorReadings.length; i++) {
-            if (i == sensorReadings.length - 1) {
-                commaSeparatedList += sensorReadings[i];
+        for (int i = 0; i < sensorReadings.length(); i++) {
+            if (i == sensorReadings.length() - 1) {
+                commaSeparatedList += sensorReadings.get(i);
             } else {
-                commaSeparatedList += sensorReadings[i] + ",";
+                commaSeparatedList += sensorReadings.get(i) + ",";
             }
         }
         return commaSeparatedList;
     }
+
+    /**
+     * Readings and progress of a timed sensor, which determine its current
+     * reading as time elapses.
+     */
+    private abstract static class State {
+        /**
+         * Returns the current reading.
+         *
+         * @return current reading
+         */
+        abstract int getCurrentReading();
+
+        /**
+         * Returns the index of the current reading in the readings.
+         *
+         * @return index of the current reading
+         */
+        abstract int getCurrentIndex();
+
+        /**
+         * Returns the number of minutes the sensor has been running.
+         *
+         * @return time elapsed in minutes
+         */
+        abstract int getTimeElapsed();
+
+        /**
+         * Advances the time elapsed by the given number of minutes.
+         *
+         * @param minutes non-negative number of minutes to elapse
+         * @throws ArithmeticException if the total time elapsed would no
+         * longer fit in an int
+         */
+        abstract void elapseMinutes(long minutes);
+
+        /**
+         * Returns the number of minutes until the current reading may next
+         * change as time elapses.
+         *
+         * @return minutes until the reading may next change
+         */
+        abstract long getMinutesUntilChange();
+
+        /**
+         * Returns the reading after the given non-zero number of minutes.
+         *
+         * @param minutes number of minutes from now, may be negative
+         * @return reading after the given number of minutes
+         * @throws UnsupportedOperationException if the readings are not
+         * known in advance
+         */
+        abstract int getReadingAfter(long minutes);
+
+        /**
+         * Returns the readings observed by the sensor.
+         *
+         * @return the sensor's readings
+         */
+        abstract Readings getReadings();
+
+        /**
+         * Returns true if the readings are known in advance.
+         *
+         * @return true if the sensor can look ahead in time
+         */
+        boolean canLookAhead() {
+            return true;
+        }
+
+        /**
+         * Returns true if the given state has the same readings as this
+         * one.
+         *
+         * @param other state of another sensor
+         * @return true if the readings are the same, false otherwise
+         */
+        boolean sameReadings(State other) {
+            return !(other instanceof StreamedState)
+                    && getReadings().equals(other.getReadings());
+        }
+
+        /**
+         * Returns a hash code of the readings, consistent with
+         * sameReadings(State).
+         *
+         * @return hash code of the readings
+         */
+        int readingsHashCode() {
+            Readings readings = getReadings();
+            int readingsSum = 0;
+            for (int i = 0; i < readings.length(); i++) {
+                readingsSum += readings.get(i);
+            }
+            return readingsSum;
+        }
+
+        /**
+         * Returns the store holding the readings and progress.
+         *
+         * @return sensor store, or null if there is none
+         */
+        SensorStore getStore() {
+            return null;
+        }
+
+        /**
+         * Returns the id of the sensor in its store.
+         *
+         * @return id in the sensor store, or -1 if there is none
+         */
+        int getStoreId() {
+            return -1;
+        }
+    }
+
+    /**
+     * State held in the sensor's own fields.
+     */
+    private static final class LocalState extends State {
+        /**
+         * Readings observed by the sensor, taken one minute apart.
+         */
+        private final Readings readings;
+
+        /**
+         * Number of minutes between updates to the current reading.
+         */
+        private final int updateFrequency;
+
+        /**
+         * The current sensor reading observed by the sensor.
+         */
+        private int currentReading;
+
+        /**
+         * Index of the current sensor reading in the readings.
+         */
+        private int currentIndex;
+
+        /**
+         * The number of minutes until the current reading is next updated.
+         */
+        private int minutesUntilUpdate;
+
+        /**
+         * The amount of time in minutes that the sensor has been running.
+         */
+        private int timeElapsed;
+
+        /**
+         * Creates the state of a sensor which has just started observing
+         * the given readings.
+         *
+         * @param readings non-empty readings
+         * @param updateFrequency minutes between updates to the reading
+         */
+        LocalState(Readings readings, int updateFrequency) {
+            this.readings = readings;
+            this.updateFrequency = updateFrequency;
+            this.currentReading = readings.get(0);
+            this.currentIndex = 0;
+            this.minutesUntilUpdate = updateFrequency;
+            this.timeElapsed = 0;
+        }
+
+        @Override
+        int getCurrentReading() {
+            return this.currentReading;
+        }
+
+        @Override
+        int getCurrentIndex() {
+            return this.currentIndex;
+        }
+
+        @Override
+        int getTimeElapsed() {
+            return this.timeElapsed;
+        }
+
+        /**
+         * Advances the time elapsed, moving on to the next reading every
+         * updateFrequency minutes, or directly to the reading observed at
+         * the new time elapsed if that passes more than one update.
+         *
+         * @param minutes non-negative number of minutes to elapse
+         */
+        @Override
+        void elapseMinutes(long minutes) {
+            this.timeElapsed = Math.toIntExact(this.timeElapsed + minutes);
+            if (minutes < this.minutesUntilUpdate) {
+                this.minutesUntilUpdate -= (int) minutes;
+                return;
+            }
+            if (minutes == this.minutesUntilUpdate) {
+                this.minutesUntilUpdate = this.updateFrequency;
+                this.currentIndex++;
+                if (this.currentIndex == this.readings.length()) {
+                    this.currentIndex = 0;
+                }
+            } else {
+                this.currentIndex = readingIndex(this.timeElapsed);
+                this.minutesUntilUpdate = this.updateFrequency
+                        - this.timeElapsed % this.updateFrequency;
+            }
+            this.currentReading = this.readings.get(this.currentIndex);
+        }
+
+        @Override
+        long getMinutesUntilChange() {
+            if (this.readings.length() == 1) {
+                return Long.MAX_VALUE;
+            }
+            return this.minutesUntilUpdate;
+        }
+
+        @Override
+        int getReadingAfter(long minutes) {
+            return this.readings.get(readingIndex(this.timeElapsed + minutes));
+        }
+
+        @Override
+        Readings getReadings() {
+            return this.readings;
+        }
+
+        /**
+         * Returns the index of the reading observed when the sensor has
+         * been running for the given number of minutes.
+         *
+         * @param time minutes the sensor has been running
+         * @return index into the readings
+         */
+        private int readingIndex(long time) {
+            long rotationDuration = (long) this.readings.length()
+                    * this.updateFrequency;
+            return (int) (Math.floorMod(time, rotationDuration)
+                    / this.updateFrequency);
+        }
+    }
+
+    /**
+     * State held in a sensor store, which advances it.
+     */
+    private static final class StoredState extends State {
+        /**
+         * Store holding the sensor's readings and progress.
+         */
+        private final SensorStore store;
+
+        /**
+         * Id of the sensor in its store.
+         */
+        private final int id;
+
+        /**
+         * Creates the state of the sensor with the given id in the given
+         * store.
+         *
+         * @param store store holding the sensor
+         * @param id id of the sensor in the store
+         */
+        StoredState(SensorStore store, int id) {
+            this.store = store;
+            this.id = id;
+        }
+
+        @Override
+        int getCurrentReading() {
+            return this.store.getCurrentReading(this.id);
+        }
+
+        @Override
+        int getCurrentIndex() {
+            return this.store.getCurrentIndex(this.id);
+        }
+
+        @Override
+        int getTimeElapsed() {
+            return this.store.getTimeElapsed(this.id);
+        }
+
+        @Override
+        void elapseMinutes(long minutes) {
+            this.store.elapseMinutes(this.id, minutes);
+        }
+
+        @Override
+        long getMinutesUntilChange() {
+            if (this.store.getReadingCount(this.id) == 1) {
+                return Long.MAX_VALUE;
+            }
+            return this.store.getMinutesUntilUpdate(this.id);
+        }
+
+        @Override
+        int getReadingAfter(long minutes) {
+            return this.store.getReading(this.id, this.store.readingIndex(
+                    this.id, this.store.getTimeElapsed(this.id) + minutes));
+        }
+
+        /**
+         * Returns a view of the sensor's part of its store.
+         *
+         * @return the sensor's readings
+         */
+        @Override
+        Readings getReadings() {
+            return this.store.getReadings(this.id);
+        }
+
+        @Override
+        SensorStore getStore() {
+            return this.store;
+        }
+
+        @Override
+        int getStoreId() {
+            return this.id;
+        }
+    }
+
+    /**
+     * State of a streaming sensor, whose readings are pushed to a buffer
+     * rather than changed as time elapses.
+     */
+    private static final class StreamedState extends State {
+        /**
+         * Buffer of readings pushed from a live source.
+         */
+        private final ReadingBuffer stream;
+
+        /**
+         * The amount of time in minutes that the sensor has been running.
+         */
+        private int timeElapsed;
+
+        /**
+         * Creates the state of a sensor reading from the given buffer.
+         *
+         * @param stream buffer of pushed readings
+         */
+        StreamedState(ReadingBuffer stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        int getCurrentReading() {
+            return this.stream.latest();
+        }
+
+        /**
+         * Returns 0, since the readings of a streaming sensor are not
+         * indexed (levels are never precomputed for it).
+         *
+         * @return 0
+         */
+        @Override
+        int getCurrentIndex() {
+            return 0;
+        }
+
+        @Override
+        int getTimeElapsed() {
+            return this.timeElapsed;
+        }
+
+        @Override
+        void elapseMinutes(long minutes) {
+            this.timeElapsed = Math.toIntExact(this.timeElapsed + minutes);
+        }
+
+        /**
+         * Returns {@link Long#MAX_VALUE}, since pushed readings do not
+         * change as time elapses.
+         *
+         * @return {@link Long#MAX_VALUE}
+         */
+        @Override
+        long getMinutesUntilChange() {
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Throws an exception, since pushed readings are not known in
+         * advance.
+         *
+         * @param minutes number of minutes from now
+         * @return never returns normally
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        int getReadingAfter(long minutes) {
+            throw new UnsupportedOperationException(
+                    "Streaming sensor cannot look ahead in time");
+        }
+
+        /**
+         * Returns a copy of the buffered readings.
+         *
+         * @return the buffered readings
+         */
+        @Override
+        Readings getReadings() {
+            return Readings.of(this.stream.toArray());
+        }
+
+        @Override
+        boolean canLookAhead() {
+            return false;
+        }
+
+        /**
+         * Returns true if the given state reads from the same buffer, since
+         * the buffered readings keep changing.
+         *
+         * @param other state of another sensor
+         * @return true if both read from the same buffer, false otherwise
+         */
+        @Override
+        boolean sameReadings(State other) {
+            return other instanceof StreamedState
+                    && this.stream == ((StreamedState) other).stream;
+        }
+
+        @Override
+        int readingsHashCode() {
+            return System.identityHashCode(this.stream);
+        }
+    }
 }
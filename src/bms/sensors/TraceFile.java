@@ -0,0 +1,365 @@
+package bms.sensors;
+
+import bms.exceptions.FileFormatException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Binary file of sensor reading traces, whose readings are read directly
+ * from the file through a memory mapping.
+ * <p>
+ * Opening a trace file only reads its index, so it takes the same time
+ * however long the traces are, and the readings of each trace are paged in
+ * by the operating system as they are used. Processes mapping the same file
+ * share its pages. Sensors size their level tables from a trace's largest
+ * reading, so each reading is checked against the largest reading recorded
+ * in the index as it is first read.
+ * <p>
+ * A trace file consists of the magic number 0x424D5354 ("BMST"), a version
+ * byte and the number of traces, followed by an index entry for each trace
+ * (its offset in the file as a long, number of readings as an int, largest
+ * reading as an int and the width of each reading in bytes as a byte), then
+ * the readings of each trace. Readings are big-endian and unsigned, and
+ * each trace starts at a multiple of its width. All values in the file are
+ * written by {@link #write(String, List)}.
+ */
+public class TraceFile {
+    /**
+     * Magic number at the start of every trace file.
+     */
+    private static final int MAGIC = 0x424D5354;
+
+    /**
+     * Version of the trace file format.
+     */
+    private static final byte VERSION = 1;
+
+    /**
+     * Number of bytes before the first index entry.
+     */
+    private static final int HEADER_SIZE = 9;
+
+    /**
+     * Number of bytes in each index entry.
+     */
+    private static final int ENTRY_SIZE = 17;
+
+    /**
+     * Largest number of bytes of a trace held in one mapped buffer. Traces
+     * start at a multiple of their width, which divides this size, so no
+     * reading is split between two buffers.
+     */
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    /**
+     * Readings of each trace in the file.
+     */
+    private final MappedReadings[] traces;
+
+    /**
+     * Creates a trace file with the given traces.
+     *
+     * @param traces readings of each trace
+     */
+    private TraceFile(MappedReadings[] traces) {
+        this.traces = traces;
+    }
+
+    /**
+     * Opens the trace file with the given filename and maps it into memory.
+     *
+     * @param filename path of the trace file
+     * @return the opened trace file
+     * @throws IOException if an IOException is encountered while opening or
+     * mapping the file
+     * @throws FileFormatException if the file is not a valid trace file
+     */
+    public static TraceFile open(String filename) throws IOException,
+            FileFormatException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new FileFormatException();
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, HEADER_SIZE);
+            int count = header.getInt(5);
+            if (header.getInt(0) != MAGIC || header.get(4) != VERSION
+                    || count < 0
+                    || HEADER_SIZE + (long) count * ENTRY_SIZE > fileSize) {
+                throw new FileFormatException();
+            }
+            ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_SIZE, (long) count * ENTRY_SIZE);
+
+            // files up to 2GB are mapped once, and the traces of larger ones
+            // are mapped separately in chunks, since a buffer is indexed by
+            // an int
+            MappedByteBuffer whole = fileSize <= Integer.MAX_VALUE
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize)
+                    : null;
+            MappedReadings[] traces = new MappedReadings[count];
+            for (int i = 0; i < count; i++) {
+                int entry = i * ENTRY_SIZE;
+                long offset = index.getLong(entry);
+                int length = index.getInt(entry + 8);
+                int max = index.getInt(entry + 12);
+                int width = index.get(entry + 16);
+                if ((width != 1 && width != 2 && width != 4) || length < 0
+                        || max < 0 || offset < 0
+                        || offset + (long) length * width > fileSize) {
+                    throw new FileFormatException();
+                }
+                long size = (long) length * width;
+                int chunkCount =
+                        (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+                ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+                for (int chunk = 0; chunk < chunks.length; chunk++) {
+                    long start = offset + chunk * CHUNK_SIZE;
+                    long chunkSize = Math.min(CHUNK_SIZE,
+                            size - chunk * CHUNK_SIZE);
+                    chunks[chunk] = whole != null
+                            ? whole.slice((int) start, (int) chunkSize)
+                            : channel.map(FileChannel.MapMode.READ_ONLY,
+                                    start, chunkSize);
+                }
+                traces[i] = new MappedReadings(chunks, length, max, width);
+            }
+            return new TraceFile(traces);
+        }
+    }
+
+    /**
+     * Writes the given traces to a new trace file with the given filename,
+     * replacing any existing file. Each trace is stored in the narrowest
+     * width that fits all of its readings.
+     *
+     * @param filename path of the trace file to write
+     * @param traces readings of each trace, in order
+     * @throws IOException if an IOException is encountered while writing
+     * @throws IllegalArgumentException if any reading is negative
+     */
+    public static void write(String filename, List<int[]> traces)
+            throws IOException, IllegalArgumentException {
+        int count = traces.size();
+        int[] maxima = new int[count];
+        int[] widths = new int[count];
+        long[] offsets = new long[count];
+        long offset = HEADER_SIZE + (long) count * ENTRY_SIZE;
+        for (int i = 0; i < count; i++) {
+            for (int reading : traces.get(i)) {
+                if (reading < 0) {
+                    throw new IllegalArgumentException(
+                            "All sensor readings must be non-negative");
+                }
+                maxima[i] = Math.max(maxima[i], reading);
+            }
+            widths[i] = maxima[i] <= 0xFF ? 1
+                    : maxima[i] <= Character.MAX_VALUE ? 2 : 4;
+            offset = (offset + widths[i] - 1) / widths[i] * widths[i];
+            offsets[i] = offset;
+            offset += (long) traces.get(i).length * widths[i];
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                out.writeLong(offsets[i]);
+                out.writeInt(traces.get(i).length);
+                out.writeInt(maxima[i]);
+                out.writeByte(widths[i]);
+            }
+            // DataOutputStream.size() stops counting at 2GB
+            long position = HEADER_SIZE + (long) count * ENTRY_SIZE;
+            for (int i = 0; i < count; i++) {
+                for (; position < offsets[i]; position++) {
+                    out.writeByte(0);
+                }
+                position += (long) traces.get(i).length * widths[i];
+                for (int reading : traces.get(i)) {
+                    switch (widths[i]) {
+                        case 1 -> out.writeByte(reading);
+                        case 2 -> out.writeChar(reading);
+                        default -> out.writeInt(reading);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of traces in the file.
+     *
+     * @return number of traces
+     */
+    public int size() {
+        return traces.length;
+    }
+
+    /**
+     * Returns the readings of the trace at the given position in the file.
+     * The readings are read from the mapped file whenever they are used.
+     *
+     * @param index position of the trace, from 0 to size() - 1
+     * @return readings of the trace
+     * @throws IllegalArgumentException if there is no trace at the index
+     */
+    public Readings get(int index) throws IllegalArgumentException {
+        if (index < 0 || index >= traces.length) {
+            throw new IllegalArgumentException("No trace #" + index);
+        }
+        return traces[index];
+    }
+
+    /**
+     * Readings read from a region of a mapped trace file.
+     * <p>
+     * Sensors size their level tables from max() (see
+     * TimedSensor.precomputeLevels()), so every reading is checked against
+     * it before it is first returned. Readings are checked in order, a
+     * block of CHECK_BLOCK readings at a time, up to the block of the one
+     * asked for, so replaying a trace checks each reading once and little
+     * beyond the readings used is read from the file.
+     */
+    private static class MappedReadings extends Readings {
+        /**
+         * Number of readings checked against max at a time.
+         */
+        private static final int CHECK_BLOCK = 4096;
+
+        /**
+         * Mapped chunks of the region holding the readings, each
+         * CHUNK_SIZE bytes long except the last.
+         */
+        private final ByteBuffer[] chunks;
+
+        /**
+         * First chunk of the region, which is the whole region unless it is
+         * longer than CHUNK_SIZE bytes.
+         */
+        private final ByteBuffer first;
+
+        /**
+         * Number of readings.
+         */
+        private final int length;
+
+        /**
+         * Largest of the readings, as recorded in the file's index.
+         */
+        private final int max;
+
+        /**
+         * Width of each reading in bytes.
+         */
+        private final int width;
+
+        /**
+         * Number of readings from the start of the trace which have been
+         * checked against max.
+         */
+        private volatile int checkedLength;
+
+        /**
+         * Creates new readings read from the given chunks of a region.
+         *
+         * @param chunks mapped chunks of the region holding the readings
+         * @param length number of readings
+         * @param max largest of the readings
+         * @param width width of each reading in bytes: 1, 2 or 4
+         */
+        private MappedReadings(ByteBuffer[] chunks, int length, int max,
+                               int width) {
+            this.chunks = chunks;
+            this.first = chunks[0];
+            this.length = length;
+            this.max = max;
+            this.width = width;
+            this.checkedLength = 0;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public int get(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("Index " + index
+                        + " out of bounds for length " + length);
+            }
+            if (index >= checkedLength) {
+                check(index);
+            }
+            return read(index);
+        }
+
+        /**
+         * Checks the readings from the end of the checked prefix up to the
+         * end of the block holding the given index against max.
+         *
+         * @param index index of a reading to check
+         * @throws IllegalStateException if a reading is larger than max,
+         * which means the trace file is corrupt
+         */
+        private synchronized void check(int index) {
+            int end = (int) Math.min(length,
+                    ((long) index / CHECK_BLOCK + 1) * CHECK_BLOCK);
+            for (int i = checkedLength; i < end; i++) {
+                int reading = read(i);
+                // 4-byte readings above Integer.MAX_VALUE read as negative
+                if (reading < 0 || reading > max) {
+                    throw new IllegalStateException("Reading #" + i
+                            + " of a trace is larger than the largest "
+                            + "reading recorded for it");
+                }
+            }
+            checkedLength = Math.max(checkedLength, end);
+        }
+
+        /**
+         * Reads the reading at the given index from the mapped region.
+         *
+         * @param index index of the reading, from 0 to length - 1
+         * @return reading at the index
+         */
+        private int read(int index) {
+            // absolute reads do not change the buffer, so are thread-safe
+            ByteBuffer buffer = first;
+            long position = (long) index * width;
+            if (position >= CHUNK_SIZE) {
+                buffer = chunks[(int) (position / CHUNK_SIZE)];
+                position %= CHUNK_SIZE;
+            }
+            return switch (width) {
+                case 1 -> buffer.get((int) position) & 0xFF;
+                case 2 -> buffer.getChar((int) position);
+                default -> buffer.getInt((int) position);
+            };
+        }
+
+        @Override
+        public int max() {
+            return max;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return (long) length * width;
+        }
+    }
+}
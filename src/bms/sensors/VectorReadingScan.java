@@ -0,0 +1,62 @@
+package bms.sensors;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Comparison of readings using the JDK Vector API, which is only loaded by
+ * ReadingScan when the jdk.incubator.vector module is present.
+ * <p>
+ * Readings are compared a whole vector at a time, and since few readings
+ * change from one minute to the next, most vectors have no differing lanes
+ * and are passed over with a single test of the comparison's mask.
+ */
+final class VectorReadingScan {
+    /**
+     * Preferred vector shape of ints on this hardware.
+     */
+    private static final VectorSpecies<Integer> SPECIES =
+            IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Prevents instantiation.
+     */
+    private VectorReadingScan() {
+    }
+
+    /**
+     * Stores the indices of the readings which differ between the given
+     * arrays in the given array of indices, in increasing order, as
+     * described in ReadingScan.findChanged(int[], int[], int, int[]).
+     *
+     * @param current current readings
+     * @param previous earlier readings
+     * @param length number of readings to compare
+     * @param changed array to fill with the indices of changed readings
+     * @return number of changed readings
+     */
+    static int findChanged(int[] current, int[] previous, int length,
+                           int[] changed) {
+        int count = 0;
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Integer> differs = IntVector
+                    .fromArray(SPECIES, current, i)
+                    .compare(VectorOperators.NE,
+                            IntVector.fromArray(SPECIES, previous, i));
+            if (differs.anyTrue()) {
+                // at most 16 lanes of ints, so each lane has a bit
+                long lanes = differs.toLong();
+                while (lanes != 0) {
+                    changed[count++] = i + Long.numberOfTrailingZeros(lanes);
+                    lanes &= lanes - 1;
+                }
+            }
+        }
+        return ReadingScan.findChanged(current, previous, i, length, changed,
+                count);
+    }
+}
@@ -0,0 +1,94 @@
+package bms.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Makes a timed item manager the one which newly created timed items register
+ * with on the current thread, until the scope is closed.
+ * <p>
+ * Scopes may be nested. Closing a scope restores the manager that was in
+ * scope when it was opened.
+ * <p>
+ * For example, to create a room's sensors on a building's own clock:
+ * <pre>
+ * ClockScope.run(building.getClock(),
+ *         () -&gt; room.addSensor(new NoiseSensor(readings, 2)));
+ * </pre>
+ * Code which throws checked exceptions can instead open a scope and close it
+ * in a try-with-resources statement:
+ * <pre>
+ * ClockScope scope = new ClockScope(building.getClock());
+ * try (scope) {
+ *     room.addSensor(loadSensor(reader));
+ * }
+ * </pre>
+ */
+public class ClockScope implements AutoCloseable {
+    /**
+     * Timed item manager in scope on each thread, or null if there is none.
+     */
+    private static final ThreadLocal<TimedItemManager> CURRENT =
+            new ThreadLocal<>();
+
+    /**
+     * Timed item manager that was in scope when this scope was opened.
+     */
+    private final TimedItemManager previous;
+
+    /**
+     * Opens a new scope in which timed items register with the given manager.
+     * @param clock timed item manager to register new timed items with
+     */
+    public ClockScope(TimedItemManager clock) {
+        this.previous = CURRENT.get();
+        CURRENT.set(clock);
+    }
+
+    /**
+     * Runs the given action with the given manager in scope on the current
+     * thread.
+     * @param clock timed item manager to register new timed items with
+     * @param action action to run
+     */
+    public static void run(TimedItemManager clock, Runnable action) {
+        ClockScope scope = new ClockScope(clock);
+        try (scope) {
+            action.run();
+        }
+    }
+
+    /**
+     * Returns the result of the given supplier, called with the given
+     * manager in scope on the current thread.
+     * @param clock timed item manager to register new timed items with
+     * @param supplier supplier to call, such as a timed item's constructor
+     * @param <T> type of the result
+     * @return result of the supplier
+     */
+    public static <T> T call(TimedItemManager clock, Supplier<T> supplier) {
+        ClockScope scope = new ClockScope(clock);
+        try (scope) {
+            return supplier.get();
+        }
+    }
+
+    /**
+     * Returns the timed item manager in scope on the current thread.
+     * @return manager in scope, or null if no scope is open
+     */
+    static TimedItemManager current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Closes this scope, restoring the manager that was previously in scope.
+     */
+    @Override
+    public void close() {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
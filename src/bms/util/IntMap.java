@@ -0,0 +1,131 @@
+package bms.util;
+
+/**
+ * Map from int keys to values, which unlike a HashMap&lt;Integer, V&gt; does
+ * not box keys, so looking up a key never allocates.
+ * <p>
+ * Entries are held in open-addressed arrays with linear probing, which are
+ * doubled in size whenever they become more than half full. Entries cannot
+ * be removed, since the maps this is used for only ever grow.
+ *
+ * @param <V> type of the values in the map
+ */
+public class IntMap<V> {
+    /**
+     * Smallest number of slots in the map.
+     */
+    private static final int MIN_CAPACITY = 8;
+
+    /**
+     * Key in each slot, valid only where the slot has a value.
+     */
+    private int[] keys;
+
+    /**
+     * Value in each slot, or null if the slot is empty.
+     */
+    private Object[] values;
+
+    /**
+     * Number of entries in the map.
+     */
+    private int size;
+
+    /**
+     * Creates a new empty map.
+     */
+    public IntMap() {
+        this.keys = new int[MIN_CAPACITY];
+        this.values = new Object[MIN_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the value for the given key, or null if the key is not in the
+     * map.
+     *
+     * @param key key to look up
+     * @return value for the key, or null if none found
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int mask = keys.length - 1;
+        for (int slot = spread(key) & mask; values[slot] != null;
+                slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value for the given key, replacing any value it had before.
+     *
+     * @param key key to set the value of
+     * @param value new value for the key
+     * @throws IllegalArgumentException if value is null
+     */
+    public void put(int key, V value) throws IllegalArgumentException {
+        if (value == null) {
+            throw new IllegalArgumentException("Value must not be null");
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = spread(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == null) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    /**
+     * Returns the number of entries in the map.
+     *
+     * @return number of keys with a value
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves every entry into arrays with the given number of slots.
+     *
+     * @param capacity new number of slots, a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = spread(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of the given key, so that keys that differ only in
+     * their high bits, or that are consecutive, do not collide.
+     *
+     * @param key key to mix
+     * @return mixed key
+     */
+    private static int spread(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,51 @@
+package bms.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of canonical instances of an immutable type, so that equal values
+ * can share one instance instead of each holding its own copy.
+ * <p>
+ * Values are only weakly held by the pool, so a canonical instance is
+ * discarded once nothing else refers to it. The pool may be used from
+ * several threads.
+ *
+ * @param <T> immutable type whose instances are pooled, which must define
+ *           equals(Object) and hashCode() by value
+ */
+public class InternPool<T> {
+    /**
+     * Canonical instance of each value in the pool, keyed by itself.
+     */
+    private final Map<T, WeakReference<T>> pool = new WeakHashMap<>();
+
+    /**
+     * Returns the canonical instance equal to the given value. If the pool
+     * has no value equal to it, the given value becomes the canonical
+     * instance and is returned.
+     *
+     * @param value value to intern
+     * @return canonical instance equal to the value
+     */
+    public synchronized T intern(T value) {
+        WeakReference<T> reference = pool.get(value);
+        T canonical = reference == null ? null : reference.get();
+        if (canonical == null) {
+            pool.put(value, new WeakReference<>(value));
+            canonical = value;
+        }
+        return canonical;
+    }
+
+    /**
+     * Returns the number of canonical instances in the pool, including any
+     * that are no longer used but have not yet been discarded.
+     *
+     * @return number of pooled values
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,81 @@
+package bms.util;
+
+/**
+ * Hash codes of a room, floor or building, along with the structure
+ * version at which they were calculated (see StructureVersion).
+ * <p>
+ * The hash codes are immutable and published together through a single
+ * volatile reference, so a thread reading the reference sees either no
+ * hash codes or a consistent set of them with their version, and never a
+ * hash code from one calculation paired with the version of another.
+ */
+public final class StructureHashCodes {
+    /**
+     * Structure version the hash codes were calculated against.
+     */
+    private final StructureVersion structureVersion;
+
+    /**
+     * Value of the structure version when the hash codes were calculated.
+     */
+    private final long version;
+
+    /**
+     * Hash code of the object.
+     */
+    private final int hashCode;
+
+    /**
+     * Hash code of the object leaving out its dimensions.
+     */
+    private final int structureHashCode;
+
+    /**
+     * Creates a new set of hash codes calculated at the given version.
+     *
+     * @param structureVersion structure version of the object's building
+     * @param version value of the structure version before the hash codes
+     * were calculated
+     * @param hashCode hash code of the object
+     * @param structureHashCode hash code leaving out the object's dimensions
+     */
+    public StructureHashCodes(StructureVersion structureVersion, long version,
+                              int hashCode, int structureHashCode) {
+        this.structureVersion = structureVersion;
+        this.version = version;
+        this.hashCode = hashCode;
+        this.structureHashCode = structureHashCode;
+    }
+
+    /**
+     * Returns true if the hash codes were calculated at the given value of
+     * the given structure version, and so are still valid.
+     *
+     * @param structureVersion structure version of the object's building
+     * @param version current value of the structure version
+     * @return true if the hash codes are current, false otherwise
+     */
+    public boolean isCurrent(StructureVersion structureVersion,
+                             long version) {
+        return this.structureVersion == structureVersion
+                && this.version == version;
+    }
+
+    /**
+     * Returns the hash code of the object.
+     *
+     * @return hash code
+     */
+    public int getHashCode() {
+        return hashCode;
+    }
+
+    /**
+     * Returns the hash code of the object leaving out its dimensions.
+     *
+     * @return structure hash code
+     */
+    public int getStructureHashCode() {
+        return structureHashCode;
+    }
+}
@@ -0,0 +1,47 @@
+package bms.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counter of structural changes to a building, such as adding a sensor to a
+ * room, a room to a floor or a floor to the building, changing the
+ * dimensions of a floor, or replacing the hazard evaluator of a room.
+ * <p>
+ * Each building has its own version, which its floors and rooms share once
+ * they are added to it (see Building.addFloor(Floor) and
+ * Floor.addRoom(Room)). Until then, a floor or room has a version of its
+ * own. A floor or room added to more than one building records its changes
+ * in the version of the one it was added to last, and the hash codes of
+ * the others are then calculated on every call instead of being cached.
+ * Values calculated from the structure of a building, such as hash
+ * codes, can be cached along with the version at which they were
+ * calculated, and are still valid while the version is unchanged (see
+ * StructureHashCodes). A change to one room invalidates the cached values
+ * of every part of its building, but not those of other buildings.
+ * Structural changes are rare once buildings are loaded, so this is
+ * cheaper than telling each enclosing floor and building about a change.
+ */
+public final class StructureVersion {
+    /**
+     * Current version, which increases with each structural change.
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Returns the current version. It is never negative, so -1 can be used
+     * to mark a cached value as never calculated.
+     *
+     * @return current structure version
+     */
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Records a structural change, invalidating any values cached at an
+     * earlier version.
+     */
+    public void advance() {
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,17 @@
+package bms.util;
+
+/**
+ * Denotes a class that is told whenever a timed item manager has finished
+ * elapsing a minute, once its registered timed items have been advanced.
+ */
+public interface TickListener {
+    /**
+     * Called by the timed item manager at the end of each minute it
+     * elapses, after all of its registered timed items have been advanced
+     * over that minute. A call to the manager's elapseMinutes(long) method
+     * calls this once for each minute.
+     *
+     * @param minutesElapsed minutes elapsed by the manager so far
+     */
+    void tickCompleted(long minutesElapsed);
+}
@@ -0,0 +1,82 @@
+package bms.util;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task which elapses a number of minutes on a contiguous range of
+ * independent timed items.
+ * <p>
+ * The range is split in half until it is no larger than the shard size, at
+ * which point the items in the shard are advanced in order on the current
+ * thread.
+ */
+class TickTask extends RecursiveAction {
+    /**
+     * Serialisation version, as RecursiveAction is serialisable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Timed items to advance. Must not be modified while the task runs.
+     */
+    private final List<TimedItem> items;
+
+    /**
+     * Index of the first item in the range (inclusive).
+     */
+    private final int from;
+
+    /**
+     * Index of the last item in the range (exclusive).
+     */
+    private final int to;
+
+    /**
+     * Largest number of items advanced without splitting the range further.
+     */
+    private final int shardSize;
+
+    /**
+     * Number of minutes to elapse on each item.
+     */
+    private final long minutes;
+
+    /**
+     * Creates a new task which advances items [from, to) of the given list.
+     * @param items timed items which do not depend on one another
+     * @param from index of the first item to advance (inclusive)
+     * @param to index of the last item to advance (exclusive)
+     * @param shardSize largest range advanced on a single thread
+     * @param minutes number of minutes to elapse on each item
+     */
+    TickTask(List<TimedItem> items, int from, int to, int shardSize,
+             long minutes) {
+        this.items = items;
+        this.from = from;
+        this.to = to;
+        this.shardSize = shardSize;
+        this.minutes = minutes;
+    }
+
+    /**
+     * Advances the range, splitting it into two subtasks if it is larger than
+     * the shard size.
+     */
+    @Override
+    protected void compute() {
+        if (to - from <= shardSize) {
+            for (int i = from; i < to; i++) {
+                if (minutes == 1) {
+                    items.get(i).elapseOneMinute();
+                } else {
+                    items.get(i).elapseMinutes(minutes);
+                }
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            invokeAll(new TickTask(items, from, middle, shardSize, minutes),
+                    new TickTask(items, middle, to, shardSize, minutes));
+        }
+    }
+}
@@ -12,4 +12,58 @@ public interface TimedItem {
      * @ass1
      */
     void elapseOneMinute();
+
+    /**
+     * Elapses the given number of minutes, with the same effect as calling
+     * {@link #elapseOneMinute()} that many times.
+     * <p>
+     * Implementations should override this method when their state after a
+     * number of minutes can be calculated directly.
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     */
+    default void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        for (long i = 0; i < minutes; i++) {
+            elapseOneMinute();
+        }
+    }
+
+    /**
+     * Returns whether {@link #elapseMinutes(long)} predicts how the sensors
+     * this item depends on change over the elapsed minutes, from their
+     * current state, rather than reading their state as it changes.
+     * <p>
+     * A timed item manager advances items which look ahead over many minutes
+     * at once, before the sensors. Otherwise, the manager advances its items
+     * a minute at a time along with the sensors, since the item would see
+     * the sensors' state from the start of the span on every minute. By
+     * default, items are assumed not to look ahead.
+     *
+     * @return true if the item can be advanced over many minutes before the
+     * sensors it depends on
+     */
+    default boolean looksAhead() {
+        return false;
+    }
+
+    /**
+     * Returns the number of minutes until the state of this item may next
+     * change, counting from the last minute it was advanced to.
+     * <p>
+     * This allows the item to be advanced in bulk (see
+     * {@link #elapseMinutes(long)}) only on the minutes when its state
+     * changes, rather than every minute. Items which can never change again
+     * should return {@link Long#MAX_VALUE}. By default, items are assumed to
+     * change every minute.
+     *
+     * @return minutes until the next possible change, at least 1
+     */
+    default long getMinutesUntilChange() {
+        return 1;
+    }
 }
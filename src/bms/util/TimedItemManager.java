@@ -1,10 +1,15 @@
 package bms.util;
 
+import bms.sensors.Sensor;
+import bms.sensors.SensorStore;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Singleton class which manages all the timed items.
+ * Class which manages timed items, acting as a simulation clock.
  * <p>
  * All classes that implement TimedItem must be registered with this manager,
  * which will allow their {@link TimedItemManager#elapseOneMinute()} method to
@@ -14,58 +19,494 @@ import java.util.List;
  * {@link TimedItemManager#registerTimedItem(TimedItem)} ()} and passing itself,
  * the manager will ensure that its {@code elapseOneMinute()} method is called
  * at regular intervals.
+ * <p>
+ * A global instance is available through {@link #getInstance()}. Separate
+ * managers can be created to give a building or session its own clock; timed
+ * items register with the manager returned by {@link #getCurrent()}, which
+ * is the global instance unless another manager has been put in scope on the
+ * current thread with a {@link ClockScope}. Items can be unregistered once
+ * they are no longer needed, and all items registered with a manager can be
+ * garbage collected along with it.
+ * <p>
+ * Each minute is elapsed in two phases. Every registered sensor is advanced
+ * first, followed by all other timed items (e.g. maintenance schedules) in
+ * the order they were registered, since those items may read the state of
+ * sensors. Sensors only depend on their own state, so once there are enough of
+ * them the first phase is split into shards that are advanced concurrently on
+ * a fork/join pool. The result is identical to advancing them one at a time.
+ * <p>
+ * Alternatively, the manager can be made event-driven (see
+ * {@link #setEventDriven(boolean)}), in which case each item is only advanced
+ * on the minutes when its state may change.
+ * <p>
+ * A manager can also be given a {@link SensorStore}, in which case sensors
+ * created while it is in scope keep their state in the store, and the store
+ * is advanced in place of those sensors.
+ * <p>
+ * Tick listeners (see {@link #addTickListener(TickListener)}) are told each
+ * time the manager has finished elapsing time, after every timed item, so
+ * they can observe the state of the model at the new minute.
  * @ass1
  */
 public class TimedItemManager implements TimedItem {
     /**
-     * Singleton instance.
+     * Global instance.
      */
     private static TimedItemManager instance = new TimedItemManager();
 
     /**
-     * List of timed items currently registered with the manager.
+     * Number of sensors below which a shard is advanced on a single thread.
+     */
+    private static final int SHARD_SIZE = 2048;
+
+    /**
+     * List of sensors currently registered with the manager.
+     */
+    private final List<TimedItem> sensors;
+
+    /**
+     * Position of each registered sensor in the list of sensors.
+     */
+    private final Map<TimedItem, Integer> sensorIndices;
+
+    /**
+     * List of all other timed items currently registered with the manager,
+     * in registration order.
+     */
+    private final List<TimedItem> timedItems;
+
+    /**
+     * Listeners told when each call to elapse time has finished, in the
+     * order they were added.
+     */
+    private final List<TickListener> tickListeners;
+
+    /**
+     * Pool used to advance sensors concurrently, or null if sensors should
+     * always be advanced on the calling thread.
      */
-    private List<TimedItem> timedItems;
+    private ForkJoinPool pool;
+
+    /**
+     * Scheduler used to advance items only when their state may change, or
+     * null if every item is advanced every minute.
+     */
+    private TimingWheel wheel;
+
+    /**
+     * Number of minutes that have been elapsed by this manager.
+     */
+    private long minutesElapsed;
+
+    /**
+     * Store that newly created sensors keep their state in, or null if
+     * sensors keep their own state.
+     */
+    private SensorStore sensorStore;
 
     /**
      * Creates a new timed item manager with an empty list of registered items.
+     * <p>
+     * The new manager is independent of the global instance, and only
+     * advances the timed items registered with it.
      * @ass1
      */
-    private TimedItemManager() {
+    public TimedItemManager() {
+        this.sensors = new ArrayList<>();
+        this.sensorIndices = new IdentityHashMap<>();
         this.timedItems = new ArrayList<>();
+        this.tickListeners = new ArrayList<>();
+        this.pool = ForkJoinPool.commonPool();
+        this.wheel = null;
+        this.minutesElapsed = 0;
+        this.sensorStore = null;
     }
 
     /**
-     * Returns the singleton instance of the timed item manager.
+     * Returns the global instance of the timed item manager.
      *
-     * @return singleton instance
+     * @return global instance
      * @ass1
      */
     public static TimedItemManager getInstance() {
         return instance;
     }
 
+    /**
+     * Returns the timed item manager which newly created timed items should
+     * register with on the current thread.
+     * <p>
+     * This is the manager of the innermost open {@link ClockScope}, or the
+     * global instance if no scope is open.
+     *
+     * @return timed item manager currently in scope
+     */
+    public static TimedItemManager getCurrent() {
+        TimedItemManager scoped = ClockScope.current();
+        return scoped == null ? instance : scoped;
+    }
+
     /**
      * Registers a timed item with the manager.
      * <p>
      * After calling this method, the manager will call the given timed item's
-     * {@code elapseOneMinute()} method at regular intervals.
+     * {@code elapseOneMinute()} method at regular intervals. Registering an
+     * item which is already registered has no effect.
      *
      * @param timedItem a timed item to register with the manager
      * @ass1
      */
     public void registerTimedItem(TimedItem timedItem) {
-        this.timedItems.add(timedItem);
+        if (timedItem instanceof Sensor) {
+            registerSensor(timedItem);
+        } else if (indexOf(timedItem) == -1) {
+            this.timedItems.add(timedItem);
+            if (wheel != null) {
+                wheel.add(timedItem);
+            }
+        }
+    }
+
+    /**
+     * Registers a timed item which is advanced along with the sensors, before
+     * any other timed items.
+     *
+     * @param sensor sensor or sensor store to register
+     */
+    private void registerSensor(TimedItem sensor) {
+        if (!this.sensorIndices.containsKey(sensor)) {
+            this.sensorIndices.put(sensor, this.sensors.size());
+            this.sensors.add(sensor);
+            if (wheel != null) {
+                wheel.add(sensor);
+            }
+        }
+    }
+
+    /**
+     * Returns the store that sensors created while this manager is in scope
+     * keep their state in.
+     *
+     * @return sensor store, or null if sensors keep their own state
+     */
+    public SensorStore getSensorStore() {
+        return sensorStore;
+    }
+
+    /**
+     * Sets the store that sensors created from now on while this manager is
+     * in scope keep their state in (see bms.sensors.TimedSensor), and
+     * registers the store so that it is advanced along with the other
+     * sensors.
+     * <p>
+     * Sensors created before the store is set keep their own state.
+     *
+     * @param sensorStore store to keep sensor state in
+     * @throws IllegalStateException if the manager already has a store
+     */
+    public void setSensorStore(SensorStore sensorStore)
+            throws IllegalStateException {
+        if (this.sensorStore != null) {
+            throw new IllegalStateException(
+                    "Timed item manager already has a sensor store");
+        }
+        this.sensorStore = sensorStore;
+        registerSensor(sensorStore);
+    }
+
+    /**
+     * Unregisters a timed item from the manager.
+     * <p>
+     * After calling this method, the manager will no longer call the given
+     * timed item's {@code elapseOneMinute()} method or hold a reference to it.
+     * A sensor whose state is held in this manager's sensor store is removed
+     * from the store instead.
+     * Unregistering an item which is not registered has no effect.
+     *
+     * @param timedItem a timed item to unregister from the manager
+     */
+    public void unregisterTimedItem(TimedItem timedItem) {
+        if (wheel != null) {
+            wheel.remove(timedItem);
+        }
+        if (timedItem instanceof Sensor && sensorStore != null
+                && sensorStore.remove((Sensor) timedItem)) {
+            return;
+        }
+        if (timedItem instanceof Sensor || timedItem == sensorStore) {
+            Integer index = this.sensorIndices.remove(timedItem);
+            if (index == null) {
+                return;
+            }
+            // sensors are independent, so the last one can take its place
+            TimedItem last = this.sensors.remove(this.sensors.size() - 1);
+            if (last != timedItem) {
+                this.sensors.set(index, last);
+                this.sensorIndices.put(last, index);
+            }
+        } else {
+            int index = indexOf(timedItem);
+            if (index != -1) {
+                this.timedItems.remove(index);
+            }
+        }
+    }
+
+    /**
+     * Adds a listener which is told each time this manager has finished
+     * elapsing a minute, after every registered timed item has been advanced.
+     * While any listener is added, elapseMinutes(long) elapses one minute at
+     * a time. Adding a listener which has already been added has no
+     * effect.
+     *
+     * @param listener listener to add
+     */
+    public void addTickListener(TickListener listener) {
+        if (!tickListeners.contains(listener)) {
+            tickListeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a listener added by {@link #addTickListener(TickListener)}.
+     * Removing a listener which has not been added has no effect.
+     *
+     * @param listener listener to remove
+     */
+    public void removeTickListener(TickListener listener) {
+        tickListeners.remove(listener);
+    }
+
+    /**
+     * Tells every tick listener that the manager has finished elapsing a
+     * minute.
+     */
+    private void notifyTickListeners() {
+        // indexed so that ticks with listeners do not allocate an iterator
+        for (int i = 0; i < tickListeners.size(); i++) {
+            tickListeners.get(i).tickCompleted(minutesElapsed);
+        }
+    }
+
+    /**
+     * Returns the number of timed items currently registered with the
+     * manager.
+     *
+     * @return number of registered timed items
+     */
+    public int getRegisteredCount() {
+        return this.sensors.size() + this.timedItems.size();
+    }
+
+    /**
+     * Returns the number of minutes that have been elapsed by this manager.
+     *
+     * @return minutes elapsed since the manager was created
+     */
+    public long getMinutesElapsed() {
+        return minutesElapsed;
+    }
+
+    /**
+     * Sets the number of minutes that have been elapsed by this manager, once
+     * its registered items have been restored directly to their state at that
+     * minute (e.g. from a checkpoint).
+     * <p>
+     * Every registered item is treated as being up to date.
+     *
+     * @param minutes minutes elapsed by the restored items
+     * @throws IllegalArgumentException if minutes &lt; 0
+     */
+    public void restoreMinutesElapsed(long minutes)
+            throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes elapsed must be non-negative");
+        }
+        minutesElapsed = minutes;
+        if (wheel != null) {
+            wheel.reschedule(minutes);
+        }
+    }
+
+    /**
+     * Sets whether this manager is event-driven.
+     * <p>
+     * When event-driven, each item is only advanced on the minutes when its
+     * state may change (see {@link TimedItem#getMinutesUntilChange()}), by the
+     * number of minutes it has fallen behind. For example, a sensor with an
+     * update frequency of 5 is only advanced every fifth minute. Between
+     * these minutes, values which depend directly on time, such as a sensor's
+     * time elapsed, lag behind the manager; {@link #synchronise()} brings
+     * every item up to date.
+     * <p>
+     * Since items are scheduled according to the state of the model, the
+     * manager must be synchronised before making changes that affect how
+     * items progress, and again after them so that items are rescheduled.
+     * Rooms and floors do so themselves when a fire drill is started or
+     * cancelled, a sensor is added to a room, or a room is added to a floor
+     * (see bms.room.Room.getClock()).
+     *
+     * @param eventDriven true to only advance items when they may change,
+     *                    false to advance every item every minute
+     */
+    public void setEventDriven(boolean eventDriven) {
+        if (eventDriven && wheel == null) {
+            wheel = new TimingWheel(minutesElapsed);
+            for (TimedItem timedItem : this.timedItems) {
+                wheel.add(timedItem);
+            }
+            for (TimedItem sensor : this.sensors) {
+                wheel.add(sensor);
+            }
+        } else if (!eventDriven && wheel != null) {
+            wheel.synchronise();
+            wheel = null;
+        }
+    }
+
+    /**
+     * Brings every registered item up to date with this manager's time, if
+     * the manager is event-driven (see {@link #setEventDriven(boolean)}).
+     * <p>
+     * Has no effect otherwise, since items are then always up to date.
+     */
+    public void synchronise() {
+        if (wheel != null) {
+            wheel.synchronise();
+        }
+    }
+
+    /**
+     * Returns the position of the given item in the list of timed items
+     * other than sensors, comparing by identity.
+     *
+     * @param timedItem timed item to search for
+     * @return index of the item, or -1 if it is not registered
+     */
+    private int indexOf(TimedItem timedItem) {
+        for (int i = 0; i < this.timedItems.size(); i++) {
+            if (this.timedItems.get(i) == timedItem) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether every registered timed item other than the sensors
+     * looks ahead (see TimedItem.looksAhead()), so that the items can be
+     * advanced over many minutes before the sensors are.
+     *
+     * @return true if the items can be advanced before the sensors
+     */
+    private boolean itemsLookAhead() {
+        for (TimedItem timedItem : this.timedItems) {
+            if (!timedItem.looksAhead()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the pool used to advance sensors concurrently.
+     * <p>
+     * By default the common fork/join pool is used. Passing null causes all
+     * timed items to be advanced sequentially on the calling thread.
+     *
+     * @param pool pool to advance sensors on, or null to disable parallelism
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the pool used to advance sensors concurrently.
+     *
+     * @return pool to advance sensors on, or null if parallelism is disabled
+     */
+    public ForkJoinPool getPool() {
+        return pool;
     }
 
     /**
      * Calls {@code elapseOneMinute()} on each registered timed item.
+     * <p>
+     * All sensors are advanced before any other timed item. If the manager is
+     * event-driven, only the items whose state may change are advanced.
      * @ass1
      */
     @Override
     public void elapseOneMinute() {
+        minutesElapsed++;
+        if (wheel != null) {
+            wheel.advance();
+            notifyTickListeners();
+            return;
+        }
+        if (pool == null || sensors.size() < 2 * SHARD_SIZE) {
+            for (TimedItem sensor : this.sensors) {
+                sensor.elapseOneMinute();
+            }
+        } else {
+            pool.invoke(new TickTask(sensors, 0, sensors.size(), SHARD_SIZE,
+                    1));
+        }
         for (TimedItem timedItem : this.timedItems) {
             timedItem.elapseOneMinute();
         }
+        notifyTickListeners();
+    }
+
+    /**
+     * Calls {@code elapseMinutes(minutes)} on each registered timed item.
+     * <p>
+     * Unlike {@link #elapseOneMinute()}, items other than sensors are advanced
+     * before sensors. Those items account for how sensors change over the
+     * elapsed minutes by looking ahead from the sensors' current readings
+     * (see TimedItem.looksAhead() and MaintenanceSchedule.elapseMinutes(long)),
+     * so the end result is the same as calling {@link #elapseOneMinute()} the
+     * given number of times. If any of those items does not look ahead, the
+     * manager instead calls {@link #elapseOneMinute()} the given number of
+     * times, so the item sees the sensors' state on each minute. The same is
+     * done while any tick listeners are added, so that each listener is told
+     * about every minute (see TickListener).
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     */
+    @Override
+    public void elapseMinutes(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Number of minutes to elapse must be non-negative");
+        }
+        if (minutes == 0) {
+            return;
+        }
+        if (!tickListeners.isEmpty() || !itemsLookAhead()) {
+            for (long i = 0; i < minutes; i++) {
+                elapseOneMinute();
+            }
+            return;
+        }
+        synchronise();
+        minutesElapsed += minutes;
+        for (TimedItem timedItem : this.timedItems) {
+            timedItem.elapseMinutes(minutes);
+        }
+        if (pool == null || sensors.size() < 2 * SHARD_SIZE) {
+            for (TimedItem sensor : this.sensors) {
+                sensor.elapseMinutes(minutes);
+            }
+        } else {
+            pool.invoke(new TickTask(sensors, 0, sensors.size(), SHARD_SIZE,
+                    minutes));
+        }
+        if (wheel != null) {
+            wheel.reschedule(minutesElapsed);
+        }
+        notifyTickListeners();
     }
 }
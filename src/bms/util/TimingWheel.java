@@ -0,0 +1,258 @@
+package bms.util;
+
+import bms.sensors.Sensor;
+import bms.sensors.SensorStore;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Event-driven scheduler which only advances a timed item on the minutes when
+ * its state can change.
+ * <p>
+ * Each item is placed in the slot of a hashed timing wheel for the minute
+ * returned by {@link TimedItem#getMinutesUntilChange()}. Advancing the wheel
+ * by one minute visits a single slot, and only the items due on that minute
+ * are advanced, by however many minutes they have fallen behind. Items due
+ * more than one revolution ahead stay in their slot until the wheel comes
+ * around on the right minute.
+ * <p>
+ * Items which are due on the same minute are advanced in the same order as
+ * {@link TimedItemManager#elapseMinutes(long)}: items other than sensors
+ * first, since they look ahead from the sensors' readings at the start of the
+ * minutes being elapsed, followed by sensors.
+ */
+class TimingWheel {
+    /**
+     * Number of slots in the wheel. Must be a power of two.
+     */
+    private static final int SLOTS = 64;
+
+    /**
+     * Items other than sensors in each slot of the wheel.
+     */
+    private final List<List<Entry>> itemSlots;
+
+    /**
+     * Sensors in each slot of the wheel.
+     */
+    private final List<List<Entry>> sensorSlots;
+
+    /**
+     * Scheduling entry for each timed item in the wheel.
+     */
+    private final Map<TimedItem, Entry> entries;
+
+    /**
+     * Number of minutes the wheel has been advanced.
+     */
+    private long now;
+
+    /**
+     * Creates an empty timing wheel.
+     * @param now the current minute
+     */
+    TimingWheel(long now) {
+        this.itemSlots = new ArrayList<>();
+        this.sensorSlots = new ArrayList<>();
+        for (int i = 0; i < SLOTS; i++) {
+            this.itemSlots.add(new ArrayList<>());
+            this.sensorSlots.add(new ArrayList<>());
+        }
+        this.entries = new IdentityHashMap<>();
+        this.now = now;
+    }
+
+    /**
+     * Adds a timed item to the wheel. The item is considered to be up to date
+     * as of the current minute.
+     * @param item timed item to schedule
+     */
+    void add(TimedItem item) {
+        Entry entry = new Entry(item);
+        entry.lastAdvanced = now;
+        entries.put(item, entry);
+        schedule(entry);
+    }
+
+    /**
+     * Removes a timed item from the wheel. It will be dropped from its slot
+     * when the wheel next visits it.
+     * @param item timed item to remove
+     */
+    void remove(TimedItem item) {
+        Entry entry = entries.remove(item);
+        if (entry != null) {
+            entry.removed = true;
+        }
+    }
+
+    /**
+     * Advances the wheel by one minute, advancing every item which is due.
+     */
+    void advance() {
+        now++;
+        int slot = (int) (now & (SLOTS - 1));
+        advanceSlot(itemSlots.get(slot));
+        advanceSlot(sensorSlots.get(slot));
+    }
+
+    /**
+     * Brings every item up to date with the current minute and schedules
+     * it again, in case its next change has been affected by changes made
+     * outside of the wheel.
+     */
+    void synchronise() {
+        for (Entry entry : entries.values()) {
+            if (!entry.sensor) {
+                catchUp(entry);
+            }
+        }
+        for (Entry entry : entries.values()) {
+            if (entry.sensor) {
+                catchUp(entry);
+            }
+        }
+        reschedule(now);
+    }
+
+    /**
+     * Moves the wheel to the given minute, treating every item as up to
+     * date as of that minute. Used once items have been advanced directly.
+     * @param minute new current minute
+     */
+    void reschedule(long minute) {
+        now = minute;
+        for (int i = 0; i < SLOTS; i++) {
+            itemSlots.get(i).clear();
+            sensorSlots.get(i).clear();
+        }
+        for (Entry entry : entries.values()) {
+            entry.lastAdvanced = now;
+            schedule(entry);
+        }
+    }
+
+    /**
+     * Advances the items in the given slot which are due on the current
+     * minute, and moves them to the slot for their next change.
+     * @param slot items in the slot for the current minute
+     */
+    private void advanceSlot(List<Entry> slot) {
+        int kept = 0;
+        for (int i = 0; i < slot.size(); i++) {
+            Entry entry = slot.get(i);
+            if (entry.removed) {
+                continue;
+            }
+            if (entry.due == now) {
+                catchUp(entry);
+                entry.due = nextDue(entry);
+                if (entry.due == Long.MAX_VALUE) {
+                    continue;
+                }
+                List<Entry> next = slotFor(entry);
+                if (next != slot) {
+                    next.add(entry);
+                    continue;
+                }
+            }
+            slot.set(kept++, entry);
+        }
+        slot.subList(kept, slot.size()).clear();
+    }
+
+    /**
+     * Advances an item by the number of minutes it has fallen behind.
+     * @param entry entry of the item to advance
+     */
+    private void catchUp(Entry entry) {
+        long behind = now - entry.lastAdvanced;
+        if (behind == 1 && entry.sensor) {
+            entry.item.elapseOneMinute();
+        } else if (behind > 0) {
+            entry.item.elapseMinutes(behind);
+        }
+        entry.lastAdvanced = now;
+    }
+
+    /**
+     * Places an up to date item in the slot for the next minute on which its
+     * state may change. Items which will never change are not placed in a
+     * slot, but are still brought up to date by {@link #synchronise()}.
+     * @param entry entry of the item to schedule
+     */
+    private void schedule(Entry entry) {
+        entry.due = nextDue(entry);
+        if (entry.due != Long.MAX_VALUE) {
+            slotFor(entry).add(entry);
+        }
+    }
+
+    /**
+     * Returns the next minute on which an up to date item may change.
+     * @param entry entry of the item
+     * @return minute the item is next due, or Long.MAX_VALUE if never
+     */
+    private long nextDue(Entry entry) {
+        long minutes = entry.item.getMinutesUntilChange();
+        if (minutes < 1) {
+            minutes = 1;
+        }
+        if (minutes >= Long.MAX_VALUE - now) {
+            return Long.MAX_VALUE;
+        }
+        return now + minutes;
+    }
+
+    /**
+     * Returns the slot an item belongs in for the minute it is next due.
+     * @param entry entry of the item
+     * @return list of entries in the item's slot
+     */
+    private List<Entry> slotFor(Entry entry) {
+        int slot = (int) (entry.due & (SLOTS - 1));
+        return entry.sensor ? sensorSlots.get(slot) : itemSlots.get(slot);
+    }
+
+    /**
+     * Scheduling state of a timed item in the wheel.
+     */
+    private static final class Entry {
+        /**
+         * The scheduled timed item.
+         */
+        private final TimedItem item;
+
+        /**
+         * Whether the item is a sensor or sensor store.
+         */
+        private final boolean sensor;
+
+        /**
+         * Minute up to which the item has been advanced.
+         */
+        private long lastAdvanced;
+
+        /**
+         * Minute on which the item is next due.
+         */
+        private long due;
+
+        /**
+         * Whether the item has been removed from the wheel.
+         */
+        private boolean removed;
+
+        /**
+         * Creates a new entry for the given item.
+         * @param item timed item to schedule
+         */
+        private Entry(TimedItem item) {
+            this.item = item;
+            this.sensor = item instanceof Sensor
+                    || item instanceof SensorStore;
+        }
+    }
+}
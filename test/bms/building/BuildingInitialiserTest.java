@@ -7,7 +7,9 @@ import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
 import org.junit.Test;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -157,10 +159,13 @@ public class BuildingInitialiserTest {
         assertEquals("RuleBased", fsb.getFloorByNumber(1).getRoomByNumber(107).getHazardEvaluator().toString());
         assertEquals("WeightingBased", gps.getFloorByNumber(5).getRoomByNumber(501).getHazardEvaluator().toString());
         ArrayList<Integer> weightings = new ArrayList<>();
-        weightings.add(75);
         weightings.add(25);
+        weightings.add(75);
         WeightingBasedHazardEvaluator weightingBasedHazardEvaluator = (WeightingBasedHazardEvaluator) gps.getFloorByNumber(5).getRoomByNumber(501).getHazardEvaluator();
+        // weightings are kept in the order of the sensors in the file
         assertEquals(weightings, weightingBasedHazardEvaluator.getWeightings());
+        assertEquals(25, (int) weightingBasedHazardEvaluator.getWeighting((HazardSensor)
+                gps.getFloorByNumber(5).getRoomByNumber(501).getSensor("OccupancySensor")));
     }
 
     @Test(expected = FileFormatException.class)
@@ -248,6 +253,26 @@ public class BuildingInitialiserTest {
         BuildingInitialiser.loadBuildings("saves/invalidHazardWeightings");
     }
 
+    @Test
+    public void hazardRule() throws IOException, FileFormatException {
+        Room room = BuildingInitialiser.loadBuildings("saves/hazardRule")
+                .get(0).getFloorByNumber(1).getRoomByNumber(101);
+        assertEquals("RuleBased:max(co2, noise)",
+                room.getHazardEvaluator().toString());
+        assertEquals(Math.max(((HazardSensor) room.getSensor(
+                "CarbonDioxideSensor")).getHazardLevel(),
+                ((HazardSensor) room.getSensor("NoiseSensor"))
+                        .getHazardLevel()),
+                room.getHazardEvaluator().evaluateHazardLevel());
+        assertTrue(room.encode().startsWith(
+                "101:LABORATORY:30.00:2:RuleBased:max(co2, noise)"));
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void invalidHazardRule() throws IOException, FileFormatException {
+        BuildingInitialiser.loadBuildings("saves/invalidHazardRule");
+    }
+
     @Test(expected = FileFormatException.class)
     public void invalidRoomType() throws IOException, FileFormatException {
         BuildingInitialiser.loadBuildings("saves/invalidRoomType");
@@ -338,6 +363,39 @@ public class BuildingInitialiserTest {
         BuildingInitialiser.loadBuildings("saves/updateFreqError");
     }
 
+    private static String traceSave(boolean withTraces) throws IOException {
+        File save = File.createTempFile("traced", ".txt");
+        save.deleteOnExit();
+        Files.writeString(save.toPath(), String.join("\n",
+                "Traced Building", "1", "1:10:10:1",
+                "101:STUDY:20:2:RuleBased", "NoiseSensor:#0:3",
+                "TemperatureSensor:#1"));
+        if (withTraces) {
+            String traces = save.getPath()
+                    + BuildingInitialiser.TRACE_FILE_SUFFIX;
+            new File(traces).deleteOnExit();
+            TraceFile.write(traces, List.of(new int[]{55, 62, 69, 63},
+                    new int[]{28, 29, 26}));
+        }
+        return save.getPath();
+    }
+
+    @Test
+    public void loadTraceFile() throws IOException, FileFormatException {
+        Building building = BuildingInitialiser.loadBuildings(
+                traceSave(true)).get(0);
+        Room room = building.getFloorByNumber(1).getRoomByNumber(101);
+        assertEquals(new NoiseSensor(new int[]{55, 62, 69, 63}, 3),
+                room.getSensor("NoiseSensor"));
+        assertEquals("TemperatureSensor:28,29,26", ((TimedSensor)
+                room.getSensor("TemperatureSensor")).encode());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void missingTraceFile() throws IOException, FileFormatException {
+        BuildingInitialiser.loadBuildings(traceSave(false));
+    }
+
 
 
 }
@@ -4,6 +4,7 @@ import bms.exceptions.*;
 import bms.floor.Floor;
 import bms.room.Room;
 import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -67,6 +68,70 @@ public class BuildingTest {
         assertNotEquals(building1.hashCode(),building2.hashCode());
     }
 
+    @Test
+    public void cachedHashCodes() throws Exception {
+        Building building = new Building("Cached");
+        Floor floor = new Floor(1, 10, 10);
+        Room room = new Room(1, RoomType.STUDY, 20);
+        building.addFloor(floor);
+        floor.addRoom(room);
+        int buildingHash = building.hashCode();
+        int floorHash = floor.hashCode();
+        int roomHash = room.hashCode();
+        assertEquals(buildingHash, building.hashCode());
+
+        // a change deep in the building is reflected in every hash code
+        NoiseSensor sensor = new NoiseSensor(new int[]{55, 62}, 3);
+        room.addSensor(sensor);
+        assertEquals(roomHash + sensor.hashCode(), room.hashCode());
+        assertEquals(floorHash + sensor.hashCode(), floor.hashCode());
+        assertEquals(buildingHash + sensor.hashCode(), building.hashCode());
+
+        Building other = new Building("Cached");
+        Floor otherFloor = new Floor(1, 10, 10);
+        Room otherRoom = new Room(1, RoomType.STUDY, 20);
+        other.addFloor(otherFloor);
+        otherFloor.addRoom(otherRoom);
+        otherRoom.addSensor(new NoiseSensor(new int[]{55, 62}, 3));
+        assertEquals(building, other);
+        assertEquals(building.hashCode(), other.hashCode());
+
+        building.renovateFloor(1, 20, 10);
+        assertEquals(floorHash + sensor.hashCode() + 10, floor.hashCode());
+        assertNotEquals(other.hashCode(), building.hashCode());
+    }
+
+    @Test
+    public void structureVersionPerBuilding() throws Exception {
+        Building building = new Building("First");
+        Building other = new Building("Second");
+        Floor floor = new Floor(1, 10, 10);
+        building.addFloor(floor);
+        other.addFloor(new Floor(1, 10, 10));
+        long version = building.getStructureVersion().current();
+        long otherVersion = other.getStructureVersion().current();
+
+        Room room = new Room(1, RoomType.STUDY, 20);
+        floor.addRoom(room);
+        room.addSensor(new NoiseSensor(new int[]{55, 62}, 3));
+        assertSame(building.getStructureVersion(), room.getStructureVersion());
+        assertTrue(building.getStructureVersion().current() > version);
+        assertEquals(otherVersion, other.getStructureVersion().current());
+    }
+
+    @Test
+    public void sharedFloorHashCodes() throws Exception {
+        Floor floor = new Floor(1, 10, 10);
+        Building building = new Building("Shared");
+        building.addFloor(floor);
+        int buildingHash = building.hashCode();
+        // the floor now records its changes in the other building's version
+        new Building("Other").addFloor(floor);
+        Room room = new Room(1, RoomType.STUDY, 20);
+        floor.addRoom(room);
+        assertEquals(buildingHash + room.hashCode(), building.hashCode());
+    }
+
     @Test
     public void encodeTest() throws IOException, FileFormatException {
         List<Building> loadedBuildings = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
@@ -100,8 +165,8 @@ public class BuildingTest {
                 "403:OFFICE:10.00:0" + System.lineSeparator() +
                 "5:8.00:5.00:1" + System.lineSeparator() +
                 "501:LABORATORY:30.00:2:WeightingBased" + System.lineSeparator() +
-                "OccupancySensor:15,12,2,0:1:20@75" + System.lineSeparator() +
-                "TemperatureSensor:25,34,61,85@25"
+                "OccupancySensor:15,12,2,0:1:20@25" + System.lineSeparator() +
+                "TemperatureSensor:25,34,61,85@75"
                 , gps.encode());
     }
 
@@ -0,0 +1,127 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.exceptions.FireDrillException;
+import bms.exceptions.UnsupportedSensorException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.NoiseSensor;
+import bms.sensors.ReadingBuffer;
+import bms.sensors.Sensor;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CheckpointerTest {
+
+    private static String state(List<Building> buildings) {
+        StringBuilder state = new StringBuilder();
+        for (Building building : buildings) {
+            state.append(building.getClock().getMinutesElapsed())
+                    .append(building.encode());
+            for (Floor floor : building.getFloors()) {
+                state.append(floor.getMaintenanceSchedule());
+                for (Room room : floor.getRooms()) {
+                    state.append(room.evaluateRoomState())
+                            .append(room.fireDrillOngoing())
+                            .append(room.maintenanceOngoing());
+                    for (Sensor sensor : room.getSensors()) {
+                        state.append(sensor.getCurrentReading()).append(",");
+                    }
+                }
+            }
+        }
+        return state.toString();
+    }
+
+    private static void elapse(List<Building> buildings, int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            for (Building building : buildings) {
+                building.getClock().elapseOneMinute();
+            }
+        }
+    }
+
+    @Test
+    public void saveAndRestore() throws IOException, FileFormatException,
+            FireDrillException, UnsupportedSensorException {
+        List<Building> original =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        elapse(original, 1234);
+        original.get(0).fireDrill(null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Checkpointer.save(original, out);
+        List<Building> restored = Checkpointer.restore(
+                new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(state(original), state(restored));
+
+        original.get(0).cancelFireDrill();
+        restored.get(0).cancelFireDrill();
+        elapse(original, 321);
+        elapse(restored, 321);
+        assertEquals(state(original), state(restored));
+    }
+
+    @Test
+    public void automaticCheckpoints() throws IOException,
+            FileFormatException, UnsupportedSensorException {
+        File file = File.createTempFile("checkpoint", ".bin");
+        file.deleteOnExit();
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        Checkpointer checkpointer =
+                new Checkpointer(buildings, file.getPath(), 100);
+        checkpointer.run(250);
+
+        assertTrue(Checkpointer.isCheckpoint(file.getPath()));
+        assertFalse(Checkpointer.isCheckpoint("saves/uqstlucia.txt"));
+        List<Building> restored = Checkpointer.restore(file.getPath());
+        assertEquals(200, restored.get(0).getClock().getMinutesElapsed());
+    }
+
+    @Test
+    public void streamingSensorRefused() throws Exception {
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        Room room = null;
+        for (Floor floor : buildings.get(0).getFloors()) {
+            for (Room candidate : floor.getRooms()) {
+                if (candidate.getSensor("NoiseSensor") == null) {
+                    room = candidate;
+                }
+            }
+        }
+        ReadingBuffer stream = new ReadingBuffer(10);
+        stream.push(55);
+        room.addSensor(new NoiseSensor(stream, 1));
+        room.setHazardEvaluator(null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            Checkpointer.save(buildings, out);
+            fail("Streaming sensor was checkpointed");
+        } catch (UnsupportedSensorException expected) {
+            assertEquals(0, out.size());
+        }
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void notACheckpoint() throws IOException, FileFormatException {
+        Checkpointer.restore(
+                new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidInterval() throws IOException, FileFormatException {
+        new Checkpointer(
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt"),
+                "checkpoint.bin", 0);
+    }
+}
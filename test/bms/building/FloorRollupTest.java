@@ -0,0 +1,178 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.room.Room;
+import bms.sensors.ComfortSensor;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.ReadingBuffer;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FloorRollupTest {
+
+    private Building building;
+    private FloorRollup rollup;
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        building = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt")
+                .get(0);
+        rollup = new FloorRollup(building);
+    }
+
+    private List<Room> roomsOn(int fromFloor, int toFloor) {
+        List<Room> rooms = new ArrayList<>();
+        for (Floor floor : building.getFloors()) {
+            if (floor.getFloorNumber() >= fromFloor
+                    && floor.getFloorNumber() <= toFloor) {
+                rooms.addAll(floor.getRooms());
+            }
+        }
+        return rooms;
+    }
+
+    private int maxHazardLevel(List<Room> rooms) {
+        int max = HazardSweep.NO_HAZARD_LEVEL;
+        for (Room room : rooms) {
+            if (room.getHazardEvaluator() != null) {
+                max = Math.max(max,
+                        room.getHazardEvaluator().evaluateHazardLevel());
+            }
+        }
+        return max;
+    }
+
+    private double meanComfortLevel(List<Room> rooms) {
+        double sum = 0;
+        int count = 0;
+        for (Room room : rooms) {
+            if (!room.getSensors().isEmpty()) {
+                double total = 0;
+                for (Sensor sensor : room.getSensors()) {
+                    total += ((ComfortSensor) sensor).getComfortLevel();
+                }
+                sum += total / room.getSensors().size();
+                count++;
+            }
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    private void assertMatchesRooms() {
+        int floorCount = building.getFloors().size();
+        assertEquals(maxHazardLevel(roomsOn(1, floorCount)),
+                rollup.getMaxHazardLevel());
+        assertEquals(meanComfortLevel(roomsOn(1, floorCount)),
+                rollup.getMeanComfortLevel(), 1e-9);
+        for (int from = 1; from <= floorCount; from++) {
+            assertEquals(maxHazardLevel(roomsOn(from, from)),
+                    rollup.getMaxHazardLevel(from));
+            assertEquals(meanComfortLevel(roomsOn(from, from)),
+                    rollup.getMeanComfortLevel(from), 1e-9);
+            for (int to = from; to <= floorCount + 1; to++) {
+                assertEquals(maxHazardLevel(roomsOn(from, to)),
+                        rollup.getMaxHazardLevel(from, to));
+                assertEquals(meanComfortLevel(roomsOn(from, to)),
+                        rollup.getMeanComfortLevel(from, to), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void matchesRooms() {
+        for (int minute = 0; minute < 100; minute++) {
+            assertMatchesRooms();
+            building.getClock().elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void sensorStore() throws IOException, FileFormatException {
+        building = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt",
+                true).get(0);
+        rollup = new FloorRollup(building);
+        for (int minute = 0; minute < 100; minute++) {
+            assertMatchesRooms();
+            building.getClock().elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void structureChanged() {
+        assertMatchesRooms();
+        Room room = building.getFloorByNumber(3).getRoomByNumber(303);
+        List<HazardSensor> sensors = new ArrayList<>();
+        for (Sensor sensor : room.getSensors()) {
+            sensors.add((HazardSensor) sensor);
+        }
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+        assertMatchesRooms();
+        building.getFloorByNumber(2).getRoomByNumber(201)
+                .setHazardEvaluator(null);
+        assertMatchesRooms();
+    }
+
+    @Test
+    public void streamingSensor() throws Exception {
+        Room room = null;
+        for (Room candidate : roomsOn(1, building.getFloors().size())) {
+            if (candidate.getSensor("NoiseSensor") == null) {
+                room = candidate;
+            }
+        }
+        ReadingBuffer stream = new ReadingBuffer(10);
+        stream.push(30);
+        room.addSensor(new NoiseSensor(stream, 1));
+        assertMatchesRooms();
+        // pushed readings are picked up without the clock ticking
+        stream.push(90);
+        assertMatchesRooms();
+    }
+
+    @Test
+    public void closed() {
+        rollup.close();
+        for (int minute = 0; minute < 20; minute++) {
+            assertMatchesRooms();
+            // sensors advanced other than by the clock are picked up too
+            for (Floor floor : building.getFloors()) {
+                for (Room room : floor.getRooms()) {
+                    for (Sensor sensor : room.getSensors()) {
+                        ((TimedSensor) sensor).elapseOneMinute();
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyRanges() {
+        assertEquals(HazardSweep.NO_HAZARD_LEVEL,
+                rollup.getMaxHazardLevel(90, 99));
+        assertEquals(0, rollup.getMeanComfortLevel(-5, 0), 0);
+        assertEquals(rollup.getMaxHazardLevel(),
+                rollup.getMaxHazardLevel(Integer.MIN_VALUE,
+                        Integer.MAX_VALUE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingFloor() {
+        rollup.getMaxHazardLevel(99);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reversedRange() {
+        rollup.getMeanComfortLevel(3, 2);
+    }
+}
@@ -0,0 +1,202 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HazardAlertsTest {
+
+    private Building building;
+    private HazardAlerts alerts;
+    private Recorder recorder;
+
+    private static class Recorder implements HazardAlertListener {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void hazardRaised(HazardSubscription subscription, Room room,
+                int hazardLevel) {
+            events.add("raised " + room.getRoomNumber() + " " + hazardLevel);
+        }
+
+        @Override
+        public void hazardCleared(HazardSubscription subscription, Room room,
+                int hazardLevel) {
+            events.add("cleared " + room.getRoomNumber() + " " + hazardLevel);
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        building = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt")
+                .get(0);
+        alerts = new HazardAlerts(building);
+        recorder = new Recorder();
+    }
+
+    private int level(Room room) {
+        return room.getHazardEvaluator().evaluateHazardLevel();
+    }
+
+    @Test
+    public void hysteresis() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        HazardSubscription subscription =
+                alerts.subscribe(room, 20, 10, recorder);
+        boolean raised = false;
+        List<String> expected = new ArrayList<>();
+        for (int minute = 0; minute < 200; minute++) {
+            building.getClock().elapseOneMinute();
+            int level = level(room);
+            if (!raised && level >= 20) {
+                raised = true;
+                expected.add("raised 201 " + level);
+            } else if (raised && level <= 10) {
+                raised = false;
+                expected.add("cleared 201 " + level);
+            }
+            assertEquals(raised, subscription.isRaised(room));
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, recorder.events);
+    }
+
+    @Test
+    public void floorAndBuildingSubscriptions() {
+        Floor floor = building.getFloorByNumber(2);
+        HazardSubscription floorSubscription =
+                alerts.subscribe(floor, 15, 5, recorder);
+        HazardSubscription buildingSubscription =
+                alerts.subscribe(15, 5, recorder);
+        Map<Room, Boolean> raised = new IdentityHashMap<>();
+        int[] events = {0};
+        // alerts are checked after each minute, including each minute of a
+        // bulk elapse, before this listener added after them
+        building.getClock().addTickListener(minutesElapsed -> {
+            for (Floor each : building.getFloors()) {
+                for (Room room : each.getRooms()) {
+                    if (room.getHazardEvaluator() == null) {
+                        continue;
+                    }
+                    int level = level(room);
+                    boolean was = raised.getOrDefault(room, false);
+                    boolean now = level >= 15 || (was && level > 5);
+                    if (now != was) {
+                        events[0] += each == floor ? 2 : 1;
+                    }
+                    raised.put(room, now);
+                    assertEquals(now, buildingSubscription.isRaised(room));
+                    assertEquals(now && each == floor,
+                            floorSubscription.isRaised(room));
+                }
+            }
+        });
+        for (int minute = 0; minute < 100; minute++) {
+            building.getClock().elapseMinutes(minute % 3 + 1);
+        }
+        assertEquals(events[0], recorder.events.size());
+    }
+
+    @Test
+    public void alreadyRaised() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        HazardSubscription subscription =
+                alerts.subscribe(room, 1, 0, recorder);
+        alerts.check();
+        assertEquals(level(room) >= 1, subscription.isRaised(room));
+        assertEquals(subscription.isRaised(room) ? 1 : 0,
+                recorder.events.size());
+    }
+
+    @Test
+    public void unsubscribe() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        HazardSubscription subscription =
+                alerts.subscribe(room, 20, 10, recorder);
+        alerts.unsubscribe(subscription);
+        assertFalse(subscription.isActive());
+        building.getClock().elapseMinutes(200);
+        for (int minute = 0; minute < 50; minute++) {
+            building.getClock().elapseOneMinute();
+        }
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    public void unsubscribeSameLevels() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        List<Recorder> recorders = new ArrayList<>();
+        List<HazardSubscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            recorders.add(new Recorder());
+            subscriptions.add(alerts.subscribe(room, 20, 10,
+                    recorders.get(i)));
+        }
+        // put the subscriptions in effect before cancelling two of them
+        alerts.check();
+        alerts.unsubscribe(subscriptions.get(0));
+        alerts.unsubscribe(subscriptions.get(2));
+        for (Recorder each : recorders) {
+            each.events.clear();
+        }
+        for (int minute = 0; minute < 200; minute++) {
+            building.getClock().elapseOneMinute();
+        }
+        assertTrue(recorders.get(0).events.isEmpty());
+        assertFalse(recorders.get(1).events.isEmpty());
+        assertTrue(recorders.get(2).events.isEmpty());
+    }
+
+    @Test
+    public void unsubscribeDuringAlert() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        List<HazardSubscription> subscriptions = new ArrayList<>();
+        HazardAlertListener cancelling = new Recorder() {
+            @Override
+            public void hazardRaised(HazardSubscription subscription,
+                    Room raisedRoom, int hazardLevel) {
+                super.hazardRaised(subscription, raisedRoom, hazardLevel);
+                for (HazardSubscription each : subscriptions) {
+                    alerts.unsubscribe(each);
+                }
+            }
+        };
+        subscriptions.add(alerts.subscribe(room, 1, 0, cancelling));
+        subscriptions.add(alerts.subscribe(room, 1, 0, cancelling));
+        for (int minute = 0; minute < 50; minute++) {
+            building.getClock().elapseOneMinute();
+        }
+        assertEquals(1, ((Recorder) cancelling).events.size());
+    }
+
+    @Test
+    public void close() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        alerts.subscribe(room, 1, 0, recorder);
+        alerts.close();
+        building.getClock().elapseMinutes(20);
+        assertTrue(recorder.events.isEmpty());
+        alerts.check();
+        assertEquals(1, recorder.events.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLevels() {
+        alerts.subscribe(50, 50, recorder);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFloor() {
+        alerts.subscribe(new Floor(9, 10, 10), 50, 40, recorder);
+    }
+}
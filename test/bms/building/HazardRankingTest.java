@@ -0,0 +1,83 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HazardRankingTest {
+
+    private Building building;
+    private HazardRanking ranking;
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        building = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt")
+                .get(0);
+        ranking = new HazardRanking(building);
+    }
+
+    private List<Room> sortedRooms(int count) {
+        List<Room> rooms = new ArrayList<>();
+        for (Floor floor : building.getFloors()) {
+            for (Room room : floor.getRooms()) {
+                if (room.getHazardEvaluator() != null) {
+                    rooms.add(room);
+                }
+            }
+        }
+        // a stable sort keeps rooms of equal level in building order
+        rooms.sort((a, b) -> b.getHazardEvaluator().evaluateHazardLevel()
+                - a.getHazardEvaluator().evaluateHazardLevel());
+        return rooms.subList(0, Math.min(count, rooms.size()));
+    }
+
+    @Test
+    public void matchesSortedRooms() {
+        for (int minute = 0; minute < 100; minute++) {
+            for (int count = 0; count < 5; count++) {
+                assertEquals(sortedRooms(count),
+                        ranking.getMostHazardousRooms(count));
+            }
+            building.getClock().elapseOneMinute();
+        }
+        assertEquals(sortedRooms(100), ranking.getMostHazardousRooms(100));
+    }
+
+    @Test
+    public void hazardLevel() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        building.getClock().elapseMinutes(7);
+        assertEquals(room.getHazardEvaluator().evaluateHazardLevel(),
+                ranking.getHazardLevel(room));
+        assertEquals(HazardSweep.NO_HAZARD_LEVEL, ranking.getHazardLevel(
+                building.getFloorByNumber(1).getRoomByNumber(101)));
+    }
+
+    @Test
+    public void structureChanged() {
+        ranking.getMostHazardousRooms(3);
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        room.setHazardEvaluator(null);
+        assertFalse(ranking.getMostHazardousRooms(100).contains(room));
+        assertEquals(sortedRooms(100), ranking.getMostHazardousRooms(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownRoom() {
+        ranking.getHazardLevel(new Room(999, RoomType.OFFICE, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCount() {
+        ranking.getMostHazardousRooms(-1);
+    }
+}
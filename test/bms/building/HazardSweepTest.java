@@ -0,0 +1,117 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.hazardevaluation.HazardRule;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.HazardSensor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HazardSweepTest {
+
+    private Building building;
+    private HazardSweep sweep;
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        building = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt")
+                .get(0);
+        sweep = new HazardSweep(building);
+    }
+
+    private void assertMatchesEvaluators(int[] levels) {
+        for (int i = 0; i < sweep.getRoomCount(); i++) {
+            Room room = sweep.getRoom(i);
+            int expected = room.getHazardEvaluator() == null
+                    ? HazardSweep.NO_HAZARD_LEVEL
+                    : room.getHazardEvaluator().evaluateHazardLevel();
+            assertEquals("room " + room.getRoomNumber(), expected, levels[i]);
+        }
+    }
+
+    @Test
+    public void roomOrder() {
+        int roomCount = 0;
+        for (Floor floor : building.getFloors()) {
+            roomCount += floor.getRooms().size();
+        }
+        assertEquals(roomCount, sweep.getRoomCount());
+        assertSame(building.getFloorByNumber(1).getRoomByNumber(101),
+                sweep.getRoom(0));
+        assertEquals(building.getFloors().size() - 1,
+                sweep.getFloorIndex(roomCount - 1));
+        assertEquals(4, sweep.indexOf(
+                building.getFloorByNumber(2).getRoomByNumber(201)));
+        assertEquals(-1, sweep.indexOf(new Room(999, RoomType.OFFICE, 10)));
+    }
+
+    @Test
+    public void matchesEvaluators() {
+        int[] levels = new int[sweep.getRoomCount()];
+        for (int minute = 0; minute < 200; minute++) {
+            sweep.evaluate(levels);
+            assertMatchesEvaluators(levels);
+            building.getClock().elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void sensorStore() throws IOException, FileFormatException {
+        building = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt",
+                true).get(0);
+        sweep = new HazardSweep(building);
+        int[] levels = new int[sweep.getRoomCount()];
+        for (int minute = 0; minute < 200; minute++) {
+            sweep.evaluate(levels);
+            assertMatchesEvaluators(levels);
+            building.getClock().elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void replacedEvaluator() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        sweep.evaluate();
+        room.setHazardEvaluator(null);
+        assertEquals(HazardSweep.NO_HAZARD_LEVEL,
+                sweep.evaluate()[sweep.indexOf(room)]);
+
+        ArrayList<HazardSensor> sensors = new ArrayList<>();
+        sensors.add((HazardSensor) room.getSensor("NoiseSensor"));
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+        assertMatchesEvaluators(sweep.evaluate());
+    }
+
+    @Test
+    public void customRules() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add((HazardSensor) room.getSensor("NoiseSensor"));
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("noise / 2 + 10")));
+        Room empty = building.getFloorByNumber(2).getRoomByNumber(202);
+        empty.setHazardEvaluator(new RuleBasedHazardEvaluator(
+                new ArrayList<>(), new HazardRule("50")));
+        int[] levels = new int[sweep.getRoomCount()];
+        for (int minute = 0; minute < 20; minute++) {
+            sweep.evaluate(levels);
+            assertMatchesEvaluators(levels);
+            building.getClock().elapseOneMinute();
+        }
+        assertEquals(50, levels[sweep.indexOf(empty)]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shortArray() {
+        sweep.evaluate(new int[sweep.getRoomCount() - 1]);
+    }
+}
@@ -0,0 +1,139 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class SimulationFarmTest {
+
+    private static List<Integer> readings(List<Building> buildings) {
+        List<Integer> readings = new ArrayList<>();
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloors()) {
+                for (Room room : floor.getRooms()) {
+                    for (Sensor sensor : room.getSensors()) {
+                        readings.add(sensor.getCurrentReading());
+                    }
+                }
+            }
+        }
+        return readings;
+    }
+
+    @Test
+    public void matchesSequential() throws IOException, FileFormatException {
+        List<Building> sequential = new ArrayList<>();
+        List<Building> farmed = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sequential.addAll(
+                    BuildingInitialiser.loadBuildings("saves/uqstlucia.txt"));
+            farmed.addAll(
+                    BuildingInitialiser.loadBuildings("saves/uqstlucia.txt"));
+        }
+        for (int i = 0; i < 137; i++) {
+            for (Building building : sequential) {
+                building.getClock().elapseOneMinute();
+            }
+        }
+
+        SimulationFarm farm = new SimulationFarm(farmed, 3);
+        farm.run(100);
+        farm.run(37);
+
+        assertEquals(readings(sequential), readings(farmed));
+        assertEquals(137, farm.getMinutesElapsed());
+        assertTrue(farm.getThroughput() > 0);
+        assertTrue(farm.getMaxLatency(0) > 0);
+    }
+
+    @Test(timeout = 10000)
+    public void failureWhileOthersMidMinute()
+            throws IOException, FileFormatException {
+        List<Building> buildings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            buildings.add(BuildingInitialiser
+                    .loadBuildings("saves/uqstlucia.txt").get(0));
+        }
+        RuntimeException thrown = new IllegalStateException("failed");
+        buildings.get(0).getClock().addTickListener(minutesElapsed -> {
+            if (minutesElapsed == 2) {
+                throw thrown;
+            }
+        });
+        buildings.get(2).getClock().addTickListener(minutesElapsed -> {
+            if (minutesElapsed == 2) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        SimulationFarm farm = new SimulationFarm(buildings, 3);
+        try {
+            farm.run(10);
+            fail("Failure was not rethrown");
+        } catch (IllegalStateException e) {
+            assertSame(thrown, e);
+        }
+        for (Building building : buildings) {
+            assertEquals(2, building.getClock().getMinutesElapsed());
+        }
+        // only the first minute was completed by every building
+        assertEquals(1, farm.getMinutesElapsed());
+        for (int i = 0; i < buildings.size(); i++) {
+            assertEquals(farm.getMaxLatency(i), farm.getMeanLatency(i), 0);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void errorRethrown() throws IOException, FileFormatException {
+        List<Building> buildings = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            buildings.addAll(
+                    BuildingInitialiser.loadBuildings("saves/uqstlucia.txt"));
+        }
+        Error thrown = new AssertionError("failed");
+        buildings.get(1).getClock().addTickListener(minutesElapsed -> {
+            throw thrown;
+        });
+        try {
+            new SimulationFarm(buildings, 2).run(5);
+            fail("Error was not rethrown");
+        } catch (AssertionError e) {
+            assertSame(thrown, e);
+        }
+    }
+
+    @Test
+    public void poolsRestored() throws IOException, FileFormatException {
+        List<Building> buildings =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt");
+        ForkJoinPool pool = buildings.get(0).getClock().getPool();
+        assertNotNull(pool);
+        SimulationFarm farm = new SimulationFarm(buildings, 1);
+        assertSame(pool, buildings.get(0).getClock().getPool());
+        farm.run(3);
+        assertSame(pool, buildings.get(0).getClock().getPool());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noThreads() {
+        new SimulationFarm(new ArrayList<>(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMinutes() {
+        new SimulationFarm(new ArrayList<>(), 1).run(-1);
+    }
+}
@@ -0,0 +1,97 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.room.Room;
+import bms.room.RoomSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class StateQueryTest {
+
+    private Building building;
+    private StateQuery query;
+
+    @Before
+    public void setUp() throws IOException, FileFormatException {
+        building = BuildingInitialiser.loadBuildings("saves/uqstlucia.txt")
+                .get(0);
+        query = new StateQuery(building);
+    }
+
+    private void elapse(int minutes) {
+        for (int i = 0; i < minutes; i++) {
+            building.getClock().elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void futureReadings() {
+        RoomSnapshot snapshot = query.query(2, 201, 7);
+        assertEquals(7, snapshot.getMinute());
+        assertEquals(69, (int) snapshot.getReadings().get("NoiseSensor"));
+        assertEquals(4, (int) snapshot.getReadings().get("OccupancySensor"));
+
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        assertEquals(55, room.getSensor("NoiseSensor").getCurrentReading());
+        elapse(7);
+        assertEquals(room.getHazardEvaluator().evaluateHazardLevel(),
+                (int) snapshot.getHazardLevel());
+        assertEquals(room.evaluateRoomState(), snapshot.getRoomState());
+    }
+
+    @Test
+    public void futureMaintenance() {
+        Room room = building.getFloorByNumber(1).getRoomByNumber(102);
+        for (int minute = 0; minute < 200; minute += 13) {
+            RoomSnapshot snapshot = query.query(room, minute);
+            elapse((int) (minute - building.getClock().getMinutesElapsed()));
+            assertEquals(room.evaluateRoomState(), snapshot.getRoomState());
+            assertEquals(room.getSensor("OccupancySensor").getCurrentReading(),
+                    (int) snapshot.getReadings().get("OccupancySensor"));
+        }
+    }
+
+    @Test
+    public void pastReadings() {
+        elapse(100);
+        RoomSnapshot snapshot = query.query(2, 201, 7);
+        assertEquals(69, (int) snapshot.getReadings().get("NoiseSensor"));
+        assertNotNull(snapshot.getRoomState());
+
+        // floor 1 has a maintenance schedule, whose history is not known
+        assertNull(query.query(1, 102, 7).getRoomState());
+        assertEquals(100, building.getClock().getMinutesElapsed());
+    }
+
+    @Test
+    public void noHazardEvaluator() {
+        assertNull(query.query(1, 102, 0).getHazardLevel());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownRoom() {
+        query.query(2, 101, 0);
+    }
+
+    @Test
+    public void evaluatorWithoutLookahead() {
+        Room room = building.getFloorByNumber(2).getRoomByNumber(201);
+        room.setHazardEvaluator(() -> 42);
+        assertEquals(42, (int) query.query(room, 0).getHazardLevel());
+        try {
+            query.query(room, 5);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // the evaluator only knows the current hazard level
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMinute() {
+        query.query(2, 201, -1);
+    }
+}
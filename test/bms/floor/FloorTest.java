@@ -87,6 +87,43 @@ public class FloorTest {
 
     }
 
+    @Test
+    public void floorEqualAnyRoomOrder() throws InsufficientSpaceException, DuplicateRoomException, DuplicateSensorException {
+        Floor floor1 = new Floor(1, 10, 20);
+        Floor floor2 = new Floor(1, 10, 20);
+        for (int number = 1; number <= 30; number++) {
+            Room room1 = new Room(number, RoomType.OFFICE, 6);
+            Room room2 = new Room(31 - number, RoomType.OFFICE, 6);
+            room1.addSensor(new NoiseSensor(new int[]{number}, 1));
+            room2.addSensor(new NoiseSensor(new int[]{31 - number}, 1));
+            floor1.addRoom(room1);
+            floor2.addRoom(room2);
+        }
+        assertEquals(floor1, floor2);
+        assertEquals(floor1.hashCode(), floor2.hashCode());
+        assertSame(floor2.getRooms().get(0), floor2.getRoomByNumber(30));
+        assertNull(floor2.getRoomByNumber(31));
+
+        Room extra1 = new Room(40, RoomType.OFFICE, 6);
+        Room extra2 = new Room(40, RoomType.OFFICE, 6);
+        extra1.addSensor(new NoiseSensor(new int[]{1}, 1));
+        extra2.addSensor(new NoiseSensor(new int[]{2}, 1));
+        floor1.addRoom(extra1);
+        floor2.addRoom(extra2);
+        assertNotEquals(floor1, floor2);
+    }
+
+    @Test
+    public void floorEqualAcrossRounding() throws InsufficientSpaceException, DuplicateRoomException {
+        // equal within the error delta, although the areas round differently
+        Floor floor1 = new Floor(1, 10.4996, 20);
+        Floor floor2 = new Floor(1, 10.5004, 20);
+        floor1.addRoom(new Room(1, RoomType.STUDY, 12.4996));
+        floor2.addRoom(new Room(1, RoomType.STUDY, 12.5004));
+        assertEquals(floor1, floor2);
+        assertEquals(floor1.structureHashCode(), floor2.structureHashCode());
+    }
+
     @Test
     public void createMaintenanceScheduleTest() throws InsufficientSpaceException, DuplicateRoomException, DuplicateFloorException, NoFloorBelowException, FloorTooSmallException {
         Floor floor = new Floor(1,20,20);
@@ -1,7 +1,12 @@
 package bms.floor;
 
+import bms.exceptions.DuplicateSensorException;
 import bms.room.Room;
 import bms.room.RoomType;
+import bms.sensors.ReadingBuffer;
+import bms.sensors.TemperatureSensor;
+import bms.util.ClockScope;
+import bms.util.TimedItemManager;
 import org.junit.Before;
 import org.junit.Test;
 import java.util.ArrayList;
@@ -205,6 +210,62 @@ public class MaintenanceScheduleTest {
 
 
 
+    @Test
+    public void elapseMinutes() {
+        maintenanceSchedule.elapseMinutes(51);
+
+        assertEquals(9,maintenanceSchedule.getTimeElapsedCurrentRoom());
+        assertEquals(room6, maintenanceSchedule.getCurrentRoom());
+        assertTrue(room6.maintenanceOngoing());
+        assertFalse(room1.maintenanceOngoing());
+    }
+
+    @Test
+    public void elapseMinutesWholeCycles() {
+        // one cycle through all six rooms takes 52 minutes
+        maintenanceSchedule.elapseMinutes(52 * 1000 + 7);
+
+        assertEquals(2,maintenanceSchedule.getTimeElapsedCurrentRoom());
+        assertEquals(room2, maintenanceSchedule.getCurrentRoom());
+        assertTrue(room2.maintenanceOngoing());
+        assertFalse(room1.maintenanceOngoing());
+    }
+
+    @Test
+    public void elapseMinutesEvacuate() throws DuplicateSensorException {
+        room1.addSensor(new TemperatureSensor(new int[]{25,70,70,25}));
+
+        maintenanceSchedule.elapseMinutes(5);
+
+        assertEquals(2,maintenanceSchedule.getTimeElapsedCurrentRoom());
+        assertEquals(room1, maintenanceSchedule.getCurrentRoom());
+    }
+
+    @Test
+    public void elapseMinutesStreaming() throws DuplicateSensorException {
+        ReadingBuffer temperature = new ReadingBuffer(10);
+        temperature.push(70);
+        room1.addSensor(new TemperatureSensor(temperature));
+        assertFalse(maintenanceSchedule.canLookAhead());
+        assertFalse(maintenanceSchedule.looksAhead());
+
+        // the room is evacuated while the latest reading indicates a fire
+        maintenanceSchedule.elapseMinutes(10);
+        assertEquals(0, maintenanceSchedule.getTimeElapsedCurrentRoom());
+
+        temperature.push(25);
+        maintenanceSchedule.elapseMinutes(5);
+        assertEquals(room2, maintenanceSchedule.getCurrentRoom());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void lookAheadStreaming() throws DuplicateSensorException {
+        ReadingBuffer temperature = new ReadingBuffer(10);
+        temperature.push(25);
+        room1.addSensor(new TemperatureSensor(temperature));
+        maintenanceSchedule.getRoomInMaintenanceAfter(1);
+    }
+
     @Test
     public void skipCurrentMaintenance() {
         for (int i = 0; i < 2; i++) {
@@ -227,6 +288,25 @@ public class MaintenanceScheduleTest {
 
 
 
+    @Test
+    public void getRoomInMaintenanceAfter() {
+        // rooms take 5, 10, 8, 6, 13 and 10 minutes to maintain
+        assertSame(room1, maintenanceSchedule.getRoomInMaintenanceAfter(4));
+        assertSame(room2, maintenanceSchedule.getRoomInMaintenanceAfter(5));
+        assertSame(room4, maintenanceSchedule.getRoomInMaintenanceAfter(23));
+        assertSame(room1, maintenanceSchedule.getRoomInMaintenanceAfter(52));
+        assertSame(room2, maintenanceSchedule.getRoomInMaintenanceAfter(60));
+        assertSame(room1, maintenanceSchedule.getCurrentRoom());
+        assertEquals(0, maintenanceSchedule.getTimeElapsedCurrentRoom());
+        assertFalse(room2.maintenanceOngoing());
+    }
+
+    @Test
+    public void cancel() {
+        maintenanceSchedule.cancel();
+        assertFalse(room1.maintenanceOngoing());
+    }
+
     @Test
     public void ToString() {
         for (int i = 0; i < 51; i++) {
@@ -241,4 +321,35 @@ public class MaintenanceScheduleTest {
     public void encode() {
         assertEquals("100,101,102,103,104,105", maintenanceSchedule.encode());
     }
+
+    @Test
+    public void fireDrillReschedules() {
+        TimedItemManager clock = new TimedItemManager();
+        Room drilled = ClockScope.call(clock,
+                () -> new Room(200, RoomType.STUDY, 5));
+        Room next = ClockScope.call(clock,
+                () -> new Room(201, RoomType.STUDY, 5));
+        List<Room> roomOrder = new ArrayList<>();
+        roomOrder.add(drilled);
+        roomOrder.add(next);
+        MaintenanceSchedule schedule = ClockScope.call(clock,
+                () -> new MaintenanceSchedule(roomOrder));
+        clock.setEventDriven(true);
+        for (int i = 0; i < 2; i++) {
+            clock.elapseOneMinute();
+        }
+        // the room synchronises the clock itself
+        drilled.setFireDrill(true);
+        for (int i = 0; i < 10; i++) {
+            clock.elapseOneMinute();
+        }
+        assertEquals(2, schedule.getTimeElapsedCurrentRoom());
+        drilled.setFireDrill(false);
+        for (int i = 0; i < 3; i++) {
+            clock.elapseOneMinute();
+        }
+        clock.synchronise();
+        assertEquals(next, schedule.getCurrentRoom());
+        assertEquals(0, schedule.getTimeElapsedCurrentRoom());
+    }
 }
\ No newline at end of file
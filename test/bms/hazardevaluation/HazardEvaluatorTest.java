@@ -0,0 +1,26 @@
+package bms.hazardevaluation;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HazardEvaluatorTest {
+
+    @Test
+    public void currentLevelWithoutLookahead() {
+        HazardEvaluator evaluator = () -> 42;
+        assertEquals(42, evaluator.evaluateHazardLevelAfter(0));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void noLookahead() {
+        HazardEvaluator evaluator = () -> 42;
+        evaluator.evaluateHazardLevelAfter(1);
+    }
+
+    @Test
+    public void cannotLookAheadByDefault() {
+        HazardEvaluator evaluator = () -> 42;
+        assertFalse(evaluator.canLookAhead());
+    }
+}
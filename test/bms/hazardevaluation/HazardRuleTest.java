@@ -0,0 +1,162 @@
+package bms.hazardevaluation;
+
+import bms.sensors.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HazardRuleTest {
+
+    /**
+     * The default rule as it was written by hand before it was expressed
+     * in the rule language.
+     */
+    private static int handWritten(List<HazardSensor> sensors, int[] levels) {
+        if (sensors.size() == 0) {
+            return 0;
+        } else if (sensors.size() == 1) {
+            return levels[0];
+        }
+        boolean occupancySensor = false;
+        boolean maxHazardLevel = false;
+        int occupancySensorValue = 0;
+        float total = 0;
+        for (int i = 0; i < sensors.size(); i++) {
+            if (sensors.get(i) instanceof OccupancySensor) {
+                occupancySensor = true;
+                occupancySensorValue = levels[i];
+            } else {
+                maxHazardLevel |= levels[i] == 100;
+                total += levels[i];
+            }
+        }
+        if (maxHazardLevel) {
+            return 100;
+        } else if (!occupancySensor) {
+            return Math.round(total / sensors.size());
+        }
+        float average = total / (sensors.size() - 1);
+        return Math.round(average * ((float) occupancySensorValue / 100));
+    }
+
+    @Test
+    public void defaultMatchesHandWritten() {
+        Random random = new Random(24);
+        for (int test = 0; test < 2000; test++) {
+            List<HazardSensor> sensors = new ArrayList<>();
+            if (random.nextBoolean()) {
+                sensors.add(new CarbonDioxideSensor(new int[]{500}, 1, 600,
+                        300));
+            }
+            if (random.nextBoolean()) {
+                sensors.add(new NoiseSensor(new int[]{50}, 1));
+            }
+            if (random.nextBoolean()) {
+                sensors.add(new TemperatureSensor(new int[]{20}));
+            }
+            if (random.nextBoolean()) {
+                sensors.add(new OccupancySensor(new int[]{5}, 1, 10));
+            }
+            Collections.shuffle(sensors, random);
+            RuleBasedHazardEvaluator evaluator =
+                    new RuleBasedHazardEvaluator(sensors);
+            int[] levels = new int[sensors.size()];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = random.nextInt(4) == 0 ? 100 : random.nextInt(101);
+            }
+            assertEquals(handWritten(sensors, levels),
+                    evaluator.combineHazardLevels(levels));
+        }
+    }
+
+    @Test
+    public void customRule() {
+        List<HazardSensor> sensors = List.of(
+                new NoiseSensor(new int[]{50}, 1),
+                new OccupancySensor(new int[]{5}, 1, 10),
+                new TemperatureSensor(new int[]{20}));
+        int[] levels = {30, 50, 80};
+        assertEquals(80, new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("max(others)")).combineHazardLevels(levels));
+        assertEquals(53, new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("avg(all)")).combineHazardLevels(levels));
+        assertEquals(40, new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("if(noise > 25 && !(temperature < 50), "
+                        + "occupancy - 10, 0)")).combineHazardLevels(levels));
+        assertEquals(3, new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("count(all)")).combineHazardLevels(levels));
+        assertEquals(65, new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("sum(noise, 2 * occupancy) / 2"))
+                .combineHazardLevels(levels));
+        // limited to between 0 and 100
+        assertEquals(100, new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("noise * 4")).combineHazardLevels(levels));
+        assertEquals(0, new RuleBasedHazardEvaluator(sensors,
+                new HazardRule("-noise")).combineHazardLevels(levels));
+    }
+
+    @Test
+    public void branchesForOtherSensors() {
+        List<HazardSensor> sensors =
+                List.of(new TemperatureSensor(new int[]{20}));
+        HazardRule rule = new HazardRule("if(has(noise), noise, 50)");
+        assertEquals(50, new RuleBasedHazardEvaluator(sensors, rule)
+                .combineHazardLevels(new int[]{10}));
+        assertEquals(10, new RuleBasedHazardEvaluator(
+                List.of(new NoiseSensor(new int[]{50}, 1)), rule)
+                .combineHazardLevels(new int[]{10}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingSensor() {
+        new RuleBasedHazardEvaluator(
+                List.of(new TemperatureSensor(new int[]{20})),
+                new HazardRule("max(temperature, noise)"));
+    }
+
+    @Test
+    public void syntaxErrors() {
+        String[] sources = {"", "max(", "noise +", "all", "if(1, 2)",
+                "has(5)", "lux", "noise:1", "1.2.3", "(noise))",
+                "noise\n"};
+        for (String source : sources) {
+            try {
+                new HazardRule(source);
+                fail("Parsed: " + source);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void toStringHasRule() {
+        List<HazardSensor> sensors =
+                List.of(new NoiseSensor(new int[]{50}, 1));
+        assertEquals("RuleBased", new RuleBasedHazardEvaluator(sensors)
+                .toString());
+        assertEquals("RuleBased:max(all) - 5", new RuleBasedHazardEvaluator(
+                sensors, new HazardRule("max(all) - 5")).toString());
+    }
+
+    @Test
+    public void evaluatesSensors() {
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{55, 80}, 1);
+        TemperatureSensor temperatureSensor =
+                new TemperatureSensor(new int[]{20, 70});
+        RuleBasedHazardEvaluator evaluator = new RuleBasedHazardEvaluator(
+                List.of(noiseSensor, temperatureSensor),
+                new HazardRule("min(noise, temperature)"));
+        assertEquals(Math.min(noiseSensor.getHazardLevel(),
+                temperatureSensor.getHazardLevel()),
+                evaluator.evaluateHazardLevel());
+        assertEquals(Math.min(noiseSensor.getHazardLevelAfter(1),
+                temperatureSensor.getHazardLevelAfter(1)),
+                evaluator.evaluateHazardLevelAfter(1));
+    }
+}
@@ -61,4 +61,58 @@ public class RuleBasedHazardEvaluatorTest {
         assertEquals("RuleBased", ruleBasedHazardEvaluator.toString());
     }
 
+    /** Noise sensor which counts how often its hazard level is read. */
+    private static class CountingNoiseSensor extends NoiseSensor {
+        private int hazardLevelReads = 0;
+
+        CountingNoiseSensor(int[] sensorReadings) {
+            super(sensorReadings, 1);
+        }
+
+        @Override
+        public int getHazardLevel() {
+            hazardLevelReads++;
+            return super.getHazardLevel();
+        }
+    }
+
+    @Test
+    public void cachedHazardLevel() {
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{66, 66, 90}, 1);
+        TemperatureSensor temperatureSensor =
+                new TemperatureSensor(new int[]{20, 20, 20});
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(noiseSensor);
+        sensors.add(temperatureSensor);
+        RuleBasedHazardEvaluator evaluator =
+                new RuleBasedHazardEvaluator(sensors);
+        // the evaluator keeps its own copy of the list
+        sensors.clear();
+        int level = evaluator.evaluateHazardLevel();
+        assertEquals(level, evaluator.evaluateHazardLevel());
+
+        // the readings are unchanged, so the cached level still holds
+        noiseSensor.elapseOneMinute();
+        temperatureSensor.elapseOneMinute();
+        assertEquals(level, evaluator.evaluateHazardLevel());
+
+        noiseSensor.elapseOneMinute();
+        assertEquals(new RuleBasedHazardEvaluator(
+                List.of(noiseSensor, temperatureSensor)).evaluateHazardLevel(),
+                evaluator.evaluateHazardLevel());
+        assertNotEquals(level, evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void subclassLevelsNotCached() {
+        CountingNoiseSensor noiseSensor =
+                new CountingNoiseSensor(new int[]{66, 66, 90});
+        RuleBasedHazardEvaluator evaluator =
+                new RuleBasedHazardEvaluator(List.of(noiseSensor));
+        evaluator.evaluateHazardLevel();
+        evaluator.evaluateHazardLevel();
+        // a subclass may calculate its level from more than its reading
+        assertEquals(2, noiseSensor.hazardLevelReads);
+    }
+
 }
\ No newline at end of file
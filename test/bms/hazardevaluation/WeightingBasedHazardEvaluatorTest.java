@@ -3,11 +3,15 @@ package bms.hazardevaluation;
 import bms.exceptions.DuplicateSensorException;
 import bms.exceptions.FileFormatException;
 import bms.sensors.*;
+import bms.util.ClockScope;
+import bms.util.TimedItemManager;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -97,4 +101,47 @@ public class WeightingBasedHazardEvaluatorTest {
         WeightingBasedHazardEvaluator hazard = new WeightingBasedHazardEvaluator(weightings);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void cachedHazardLevelInStore() {
+        TimedItemManager clock = new TimedItemManager();
+        clock.setSensorStore(new SensorStore());
+        NoiseSensor noiseSensor = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{40, 40, 90}, 1));
+        CarbonDioxideSensor co2Sensor = ClockScope.call(clock,
+                () -> new CarbonDioxideSensor(new int[]{500}, 1, 700, 150));
+        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        weightings.put(noiseSensor, 50);
+        weightings.put(co2Sensor, 50);
+        WeightingBasedHazardEvaluator evaluator =
+                new WeightingBasedHazardEvaluator(weightings);
+        int level = evaluator.evaluateHazardLevel();
+
+        clock.elapseOneMinute();
+        assertEquals(level, evaluator.evaluateHazardLevel());
+
+        clock.elapseOneMinute();
+        assertEquals(Math.round(noiseSensor.getHazardLevel() * 0.5f
+                + co2Sensor.getHazardLevel() * 0.5f),
+                evaluator.evaluateHazardLevel());
+        assertEquals(50, (int) evaluator.getWeighting(noiseSensor));
+    }
+
+
+    @Test
+    public void exactRounding() {
+        HazardSensor low = new OccupancySensor(new int[]{3}, 1, 100);
+        HazardSensor high = new OccupancySensor(new int[]{13}, 1, 100);
+        Map<HazardSensor, Integer> weightings = new LinkedHashMap<>();
+        weightings.put(low, 5);
+        weightings.put(high, 95);
+        WeightingBasedHazardEvaluator evaluator =
+                new WeightingBasedHazardEvaluator(weightings);
+        assertEquals(3, low.getHazardLevel());
+        assertEquals(13, high.getHazardLevel());
+        // 3 * 0.05 + 13 * 0.95 is exactly 12.5, which is rounded up, while
+        // the same sum in floats falls just below 12.5
+        assertEquals(13, evaluator.evaluateHazardLevel());
+        assertEquals(Arrays.asList(5, 95), evaluator.getWeightings());
+        assertEquals(Arrays.asList(low, high), evaluator.getSensors());
+    }
+}
@@ -112,6 +112,56 @@ public class RoomTest {
         assertNull(room.getHazardEvaluator());
     }
 
+    @Test
+    public void sensorSlots() throws DuplicateSensorException {
+        Room room = new Room(1,RoomType.STUDY,20.01);
+        Sensor temperature = new TemperatureSensor(new int[]{20, 21});
+        Sensor co2 = new CarbonDioxideSensor(new int[]{690, 740}, 5, 700, 150);
+        Sensor noise = new NoiseSensor(new int[]{55, 62, 69, 63}, 3);
+        room.addSensor(temperature);
+        room.addSensor(co2);
+        room.addSensor(noise);
+        assertEquals(List.of(co2, noise, temperature), room.getSensors());
+        assertSame(noise, room.getSensor(SensorType.NOISE));
+        assertSame(noise, room.getSensor("NoiseSensor"));
+        assertNull(room.getSensor(SensorType.OCCUPANCY));
+        assertNull(room.getSensor("OccupancySensor"));
+    }
+
+    /** Sensor whose class is not one of the sensor types. */
+    private static class LoudNoiseSensor extends NoiseSensor {
+        LoudNoiseSensor(int[] sensorReadings) {
+            super(sensorReadings, 1);
+        }
+    }
+
+    @Test
+    public void untypedSensors() throws DuplicateSensorException {
+        Room room = new Room(1,RoomType.STUDY,20.01);
+        Sensor noise = new NoiseSensor(new int[]{55, 62}, 3);
+        Sensor loud = new LoudNoiseSensor(new int[]{90, 95});
+        Sensor temperature = new TemperatureSensor(new int[]{20, 21});
+        room.addSensor(noise);
+        room.addSensor(temperature);
+        room.addSensor(loud);
+        assertEquals(List.of(loud, noise, temperature), room.getSensors());
+        assertSame(loud, room.getSensor("LoudNoiseSensor"));
+        assertSame(noise, room.getSensor(SensorType.NOISE));
+        try {
+            room.addSensor(new LoudNoiseSensor(new int[]{80}));
+            fail("Expected DuplicateSensorException");
+        } catch (DuplicateSensorException expected) {
+            // only one sensor of each class is allowed
+        }
+    }
+
+    @Test(expected = DuplicateSensorException.class)
+    public void duplicateSensor() throws DuplicateSensorException {
+        Room room = new Room(1,RoomType.STUDY,20.01);
+        room.addSensor(new NoiseSensor(new int[]{55, 62}, 3));
+        room.addSensor(new NoiseSensor(new int[]{40}, 1));
+    }
+
     @Test
     public void evaluateRoomState() throws DuplicateSensorException {
         Room room = new Room(1,RoomType.STUDY,20.01);
@@ -0,0 +1,147 @@
+package bms.sensors;
+
+import bms.util.ClockScope;
+import bms.util.TimedItemManager;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HazardLevelCacheTest {
+
+    private List<HazardSensor> makeSensors() {
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(new NoiseSensor(new int[]{55, 62, 69, 63}, 1));
+        sensors.add(new OccupancySensor(new int[]{3, 14, 30}, 2, 30));
+        sensors.add(new CarbonDioxideSensor(new int[]{690, 740}, 3, 700,
+                150));
+        sensors.add(new TemperatureSensor(new int[]{28, 29, 70}));
+        return sensors;
+    }
+
+    private void checkLevels(TimedItemManager clock,
+            List<HazardSensor> sensors) {
+        HazardLevelCache cache = new HazardLevelCache(sensors);
+        assertEquals(4, cache.size());
+        assertTrue(cache.update());
+        assertEquals(4, cache.getChangedCount());
+        for (int minute = 0; minute < 30; minute++) {
+            for (int i = 0; i < sensors.size(); i++) {
+                assertEquals(sensors.get(i).getHazardLevel(),
+                        cache.getHazardLevel(i));
+            }
+            clock.elapseOneMinute();
+            int[] before = new int[sensors.size()];
+            for (int i = 0; i < before.length; i++) {
+                before[i] = cache.getHazardLevel(i);
+            }
+            boolean anyChanged = cache.update();
+            assertEquals(anyChanged, cache.getChangedCount() > 0);
+            int n = 0;
+            for (int i = 0; i < before.length; i++) {
+                if (before[i] != cache.getHazardLevel(i)) {
+                    assertEquals(i, cache.getChangedIndex(n++));
+                }
+            }
+            assertEquals(n, cache.getChangedCount());
+        }
+        assertFalse(cache.update());
+        assertEquals(0, cache.getChangedCount());
+    }
+
+    @Test
+    public void sensorObjects() {
+        TimedItemManager clock = new TimedItemManager();
+        List<HazardSensor> sensors =
+                ClockScope.call(clock, this::makeSensors);
+        checkLevels(clock, sensors);
+    }
+
+    @Test
+    public void sensorStore() {
+        TimedItemManager clock = new TimedItemManager();
+        clock.setSensorStore(new SensorStore());
+        List<HazardSensor> sensors =
+                ClockScope.call(clock, this::makeSensors);
+        checkLevels(clock, sensors);
+    }
+
+    @Test
+    public void changedIndices() {
+        TimedItemManager clock = new TimedItemManager();
+        List<HazardSensor> sensors = new ArrayList<>();
+        ClockScope.run(clock, () -> {
+            sensors.add(new NoiseSensor(new int[]{40, 40, 90}, 1));
+            sensors.add(new NoiseSensor(new int[]{50, 90}, 1));
+        });
+        HazardLevelCache cache = new HazardLevelCache(sensors);
+        cache.update();
+        clock.elapseOneMinute();
+        assertTrue(cache.update());
+        assertEquals(1, cache.getChangedCount());
+        assertEquals(1, cache.getChangedIndex(0));
+        clock.elapseOneMinute();
+        assertTrue(cache.update());
+        assertEquals(2, cache.getChangedCount());
+        assertEquals(0, cache.getChangedIndex(0));
+        assertEquals(1, cache.getChangedIndex(1));
+    }
+
+    @Test
+    public void manySensors() {
+        TimedItemManager clock = new TimedItemManager();
+        List<HazardSensor> sensors = new ArrayList<>();
+        ClockScope.run(clock, () -> {
+            for (int i = 0; i < 75; i++) {
+                sensors.add(new NoiseSensor(new int[]{40, 40 + i % 7, 90},
+                        1 + i % 5));
+            }
+        });
+        HazardLevelCache cache = new HazardLevelCache(sensors);
+        cache.update();
+        for (int minute = 0; minute < 20; minute++) {
+            clock.elapseOneMinute();
+            int[] before = new int[sensors.size()];
+            for (int i = 0; i < before.length; i++) {
+                before[i] = cache.getHazardLevel(i);
+            }
+            cache.update();
+            int n = 0;
+            for (int i = 0; i < before.length; i++) {
+                assertEquals(sensors.get(i).getHazardLevel(),
+                        cache.getHazardLevel(i));
+                if (before[i] != cache.getHazardLevel(i)) {
+                    assertEquals(i, cache.getChangedIndex(n++));
+                }
+            }
+            assertEquals(n, cache.getChangedCount());
+        }
+    }
+
+    @Test
+    public void subclassLevelsNotCached() {
+        int[] extra = {0};
+        NoiseSensor sensor = new NoiseSensor(new int[]{55}, 1) {
+            @Override
+            public int getHazardLevel() {
+                return super.getHazardLevel() + extra[0];
+            }
+        };
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(sensor);
+        HazardLevelCache cache = new HazardLevelCache(sensors);
+        cache.update();
+        extra[0] = 10;
+        assertTrue(cache.update());
+        assertEquals(sensor.getHazardLevel(), cache.getHazardLevel(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void changedIndexOutOfRange() {
+        HazardLevelCache cache = new HazardLevelCache(new ArrayList<>());
+        cache.update();
+        cache.getChangedIndex(0);
+    }
+}
@@ -18,4 +18,25 @@ public class NoiseSensorTest {
         assertEquals("NoiseSensor:55,62,69,63:3",noise2.encode());
     }
 
+    @Test
+    public void precomputedLevels() {
+        // long trace of readings in a small range, and a short trace
+        int[] readings = new int[1000];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = 40 + (i * 7) % 50;
+        }
+        NoiseSensor[] sensors = {new NoiseSensor(readings, 1),
+                new NoiseSensor(new int[]{55, 62, 69, 63, 75}, 2)};
+        for (NoiseSensor noise : sensors) {
+            for (int minute = 0; minute < 1200; minute++) {
+                int reading = noise.getCurrentReading();
+                assertEquals(noise.getHazardLevel(reading),
+                        noise.getHazardLevel());
+                assertEquals(noise.getComfortLevel(reading),
+                        noise.getComfortLevel());
+                noise.elapseOneMinute();
+            }
+        }
+    }
+
 }
\ No newline at end of file
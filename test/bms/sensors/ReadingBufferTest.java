@@ -0,0 +1,107 @@
+package bms.sensors;
+
+import bms.util.ClockScope;
+import bms.util.TimedItemManager;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReadingBufferTest {
+
+    @Test
+    public void boundedRing() {
+        ReadingBuffer buffer = new ReadingBuffer(3);
+        assertEquals(-1, buffer.latest());
+        for (int reading = 1; reading <= 10; reading++) {
+            buffer.push(reading);
+            assertEquals(reading, buffer.latest());
+            assertEquals(Math.min(reading, 3), buffer.length());
+        }
+        assertEquals(3, buffer.capacity());
+        assertArrayEquals(new int[]{8, 9, 10}, buffer.toArray());
+        assertEquals(8, buffer.get(0));
+        assertEquals(10, buffer.get(2));
+    }
+
+    @Test
+    public void streamingSensors() {
+        TimedItemManager clock = new TimedItemManager();
+        ReadingBuffer co2 = new ReadingBuffer(60);
+        ReadingBuffer temperature = new ReadingBuffer(60);
+        co2.push(700);
+        temperature.push(22);
+        CarbonDioxideSensor co2Sensor = ClockScope.call(clock,
+                () -> new CarbonDioxideSensor(co2, 1, 700, 300));
+        TemperatureSensor temperatureSensor = ClockScope.call(clock,
+                () -> new TemperatureSensor(temperature));
+        assertEquals(0, co2Sensor.getHazardLevel());
+        assertEquals(100, co2Sensor.getComfortLevel());
+        assertTrue(temperatureSensor.canDetectFire());
+        assertEquals(0, temperatureSensor.getHazardLevel());
+
+        clock.elapseMinutes(5);
+        co2.push(2500);
+        temperature.push(70);
+        assertEquals(2500, co2Sensor.getCurrentReading());
+        assertEquals(50, co2Sensor.getHazardLevel());
+        assertEquals(0, co2Sensor.getComfortLevel());
+        assertEquals(100, temperatureSensor.getHazardLevel());
+        assertEquals(100, temperatureSensor.getHazardLevelAfter(0));
+        assertFalse(temperatureSensor.canLookAhead());
+        assertEquals(5, co2Sensor.getTimeElapsed());
+        assertEquals(Long.MAX_VALUE, co2Sensor.getMinutesUntilChange());
+        assertEquals("CarbonDioxideSensor:700,2500:1:700:300",
+                co2Sensor.encode());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void streamingLookahead() {
+        ReadingBuffer buffer = new ReadingBuffer(10);
+        buffer.push(55);
+        new NoiseSensor(buffer, 1).getReadingAfter(1);
+    }
+
+    @Test
+    public void streamingWindow() {
+        TimedItemManager clock = new TimedItemManager();
+        ReadingBuffer buffer = new ReadingBuffer(10);
+        buffer.push(55);
+        ReadingWindow window = ClockScope.call(clock,
+                () -> new ReadingWindow(new NoiseSensor(buffer, 1), 3));
+        clock.elapseMinutes(2);
+        buffer.push(70);
+        clock.elapseOneMinute();
+        assertEquals(55, window.getMin());
+        assertEquals(70, window.getMax());
+    }
+
+    @Test
+    public void streamingEquality() {
+        ReadingBuffer buffer = new ReadingBuffer(10);
+        buffer.push(55);
+        NoiseSensor streaming = new NoiseSensor(buffer, 1);
+        NoiseSensor sameBuffer = new NoiseSensor(buffer, 1);
+        int hashCode = streaming.hashCode();
+        assertEquals(streaming, sameBuffer);
+        assertEquals(hashCode, sameBuffer.hashCode());
+        assertNotEquals(streaming, new NoiseSensor(new int[]{55}, 1));
+
+        buffer.push(70);
+        assertEquals(hashCode, streaming.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyBuffer() {
+        new NoiseSensor(new ReadingBuffer(10), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReading() {
+        new ReadingBuffer(10).push(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacity() {
+        new ReadingBuffer(0);
+    }
+}
@@ -0,0 +1,83 @@
+package bms.sensors;
+
+import bms.util.ClockScope;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReadingWindowTest {
+
+    private TimedItemManager clock;
+    private NoiseSensor sensor;
+    private ReadingWindow window;
+
+    @Before
+    public void setUp() {
+        clock = new TimedItemManager();
+        ClockScope.run(clock, () -> {
+            sensor = new NoiseSensor(new int[]{55, 62, 69, 63, 40}, 1);
+            window = new ReadingWindow(sensor, 3);
+        });
+    }
+
+    @Test
+    public void fillingWindow() {
+        assertEquals(1, window.getSampleCount());
+        assertEquals(55, window.getMin());
+        assertEquals(55, window.getMax());
+
+        clock.elapseOneMinute();
+        assertEquals(2, window.getSampleCount());
+        assertEquals(55, window.getMin());
+        assertEquals(62, window.getMax());
+        assertEquals(58.5, window.getMean(), 1e-9);
+    }
+
+    @Test
+    public void slidingWindow() {
+        // readings 55, 62, 69, 63, 40, so the window holds 69, 63, 40
+        for (int i = 0; i < 4; i++) {
+            clock.elapseOneMinute();
+        }
+        assertEquals(3, window.getSampleCount());
+        assertEquals(40, window.getMin());
+        assertEquals(69, window.getMax());
+        assertEquals(172 / 3.0, window.getMean(), 1e-9);
+        assertEquals(40, window.getPercentile(0));
+        assertEquals(63, window.getPercentile(50));
+        assertEquals(69, window.getPercentile(100));
+    }
+
+    @Test
+    public void bulkElapse() {
+        clock.elapseMinutes(1002);
+        // minutes 1000 to 1002 read indices 0, 1 and 2
+        assertEquals(55, window.getMin());
+        assertEquals(69, window.getMax());
+        assertEquals(62, window.getPercentile(50));
+
+        clock.elapseMinutes(2);
+        assertEquals(40, window.getMin());
+        assertEquals(69, window.getMax());
+    }
+
+    @Test
+    public void closedWindow() {
+        window.close();
+        clock.elapseMinutes(10);
+        assertEquals(1, window.getSampleCount());
+        assertEquals(55, window.getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile() {
+        window.getPercentile(101);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLength() {
+        new ReadingWindow(sensor, 0);
+    }
+}
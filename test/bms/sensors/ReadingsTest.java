@@ -0,0 +1,97 @@
+package bms.sensors;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReadingsTest {
+
+    private static int[] trace(int length, int start, int maxStep, long seed) {
+        Random random = new Random(seed);
+        int[] readings = new int[length];
+        int reading = start;
+        for (int i = 0; i < length; i++) {
+            reading = Math.max(0,
+                    reading + random.nextInt(2 * maxStep + 1) - maxStep);
+            readings[i] = reading;
+        }
+        return readings;
+    }
+
+    private static void assertSameReadings(int[] expected, Readings actual) {
+        assertEquals(expected.length, actual.length());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual.get(i));
+        }
+        assertArrayEquals(expected, actual.toArray());
+        assertEquals(Arrays.hashCode(expected), actual.hashCode());
+    }
+
+    @Test
+    public void narrowestWidth() {
+        int[] bytes = {0, 17, 255, 3};
+        int[] shorts = {0, 256, 65535, 420};
+        int[] ints = {0, 65536, Integer.MAX_VALUE, 5};
+
+        assertSameReadings(bytes, Readings.of(bytes));
+        assertSameReadings(shorts, Readings.of(shorts));
+        assertSameReadings(ints, Readings.of(ints));
+        assertEquals(4, Readings.of(bytes).sizeInBytes());
+        assertEquals(8, Readings.of(shorts).sizeInBytes());
+        assertEquals(16, Readings.of(ints).sizeInBytes());
+    }
+
+    @Test
+    public void copiesReadings() {
+        int[] readings = {1, 2, 3};
+        Readings stored = Readings.of(readings);
+        readings[0] = 100;
+        assertEquals(1, stored.get(0));
+    }
+
+    @Test
+    public void longTracesStoredAsDifferences() {
+        // a slowly changing CO2 trace needs two bytes per reading if stored
+        // with a fixed width
+        int[] readings = trace(10000, 800, 20, 1);
+        Readings stored = Readings.of(readings);
+        assertSameReadings(readings, stored);
+        assertTrue(stored.sizeInBytes() < readings.length * 2);
+
+        int[] jumps = trace(5000, 1 << 20, 1 << 28, 2);
+        assertSameReadings(jumps, Readings.of(jumps));
+    }
+
+    @Test
+    public void equalityIgnoresStorage() {
+        int[] readings = trace(1000, 800, 20, 3);
+        Readings deltas = Readings.of(readings);
+        Readings fixed = Readings.of(Arrays.copyOf(readings, 10));
+        assertEquals(deltas, Readings.of(readings.clone()));
+        assertNotEquals(deltas, fixed);
+        assertEquals(fixed, Readings.of(Arrays.copyOf(readings, 10)));
+    }
+
+    @Test
+    public void equalReadingsShared() {
+        int[] readings = trace(1000, 800, 20, 5);
+        assertSame(Readings.of(readings), Readings.of(readings.clone()));
+        assertSame(Readings.of(new int[]{1, 2, 3}),
+                Readings.of(new int[]{1, 2, 3}));
+        assertNotSame(Readings.of(new int[]{1, 2, 3}),
+                Readings.of(new int[]{1, 2, 4}));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void indexOutOfBounds() {
+        Readings.of(trace(1000, 800, 20, 4)).get(1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReading() {
+        Readings.of(new int[]{1, -1});
+    }
+}
@@ -0,0 +1,121 @@
+package bms.sensors;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.util.ClockScope;
+import bms.util.TimedItemManager;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SensorStoreTest {
+
+    private TimedItemManager clock;
+    private SensorStore store;
+
+    @Before
+    public void setUp() {
+        clock = new TimedItemManager();
+        store = new SensorStore();
+        clock.setSensorStore(store);
+    }
+
+    @Test
+    public void sensorsBackedByStore() {
+        NoiseSensor stored = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 3));
+        NoiseSensor plain = new NoiseSensor(new int[]{55, 62, 69, 63}, 3);
+        assertEquals(1, store.size());
+        assertEquals(1, clock.getRegisteredCount());
+        assertEquals(plain, stored);
+        assertEquals(plain.hashCode(), stored.hashCode());
+        assertEquals(plain.encode(), stored.encode());
+
+        for (int i = 0; i < 20; i++) {
+            clock.elapseOneMinute();
+            plain.elapseOneMinute();
+            assertEquals(plain.getCurrentReading(),
+                    stored.getCurrentReading());
+            assertEquals(plain.getTimeElapsed(), stored.getTimeElapsed());
+        }
+        clock.elapseMinutes(47);
+        plain.elapseMinutes(47);
+        assertEquals(plain.getCurrentReading(), stored.getCurrentReading());
+        assertEquals(plain.getReadingAfter(5), stored.getReadingAfter(5));
+        assertEquals(plain.toString(), stored.toString());
+    }
+
+    @Test
+    public void sharedReadings() {
+        NoiseSensor first = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 1));
+        NoiseSensor second = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 2));
+        ClockScope.run(clock, () -> new NoiseSensor(new int[]{40, 41}, 1));
+        assertEquals(3, store.size());
+        assertEquals(6, store.getReadingCount());
+        clock.elapseMinutes(2);
+        assertEquals(69, first.getCurrentReading());
+        assertEquals(62, second.getCurrentReading());
+    }
+
+    @Test
+    public void unregisteredSensorsStopAdvancing() {
+        NoiseSensor removed = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 1));
+        NoiseSensor kept = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 1));
+        clock.elapseOneMinute();
+        clock.unregisterTimedItem(removed);
+        assertEquals(1, store.size());
+        clock.elapseMinutes(2);
+        assertEquals(62, removed.getCurrentReading());
+        assertEquals(1, removed.getTimeElapsed());
+        assertEquals(63, kept.getCurrentReading());
+        assertFalse(store.remove(new NoiseSensor(new int[]{55}, 1)));
+    }
+
+    @Test
+    public void narrowReadings() {
+        NoiseSensor noise = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 1));
+        assertEquals(1, store.getReadingWidth());
+        CarbonDioxideSensor co2 = ClockScope.call(clock,
+                () -> new CarbonDioxideSensor(
+                        new int[]{690, 740, 810}, 1, 700, 300));
+        assertEquals(2, store.getReadingWidth());
+        assertEquals(6L, store.getReadings(1).sizeInBytes());
+        clock.elapseOneMinute();
+        assertEquals(62, noise.getCurrentReading());
+        assertEquals(740, co2.getCurrentReading());
+    }
+
+    @Test
+    public void loadedBuildings() throws Exception {
+        Building plain = BuildingInitialiser
+                .loadBuildings("saves/uqstlucia.txt").get(0);
+        Building stored = BuildingInitialiser
+                .loadBuildings("saves/uqstlucia.txt", true).get(0);
+        assertNotNull(stored.getClock().getSensorStore());
+        assertEquals(plain.encode(), stored.encode());
+        for (int i = 0; i < 100; i++) {
+            plain.getClock().elapseOneMinute();
+            stored.getClock().elapseOneMinute();
+        }
+        plain.getClock().elapseMinutes(1000);
+        stored.getClock().elapseMinutes(1000);
+        assertEquals(plain.toString(), stored.toString());
+        assertEquals(plain.encode(), stored.encode());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void storeAlreadySet() {
+        clock.setSensorStore(new SensorStore());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeMinutes() {
+        store.elapseMinutes(-1);
+    }
+}
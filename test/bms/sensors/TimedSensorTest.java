@@ -33,4 +33,23 @@ public class TimedSensorTest {
 
         assertNotEquals(timedSensor1,timedSensor2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void elapseMinutesTest() {
+        TimedSensor stepped = new NoiseSensor(new int[]{55,62,69,63},3);
+        TimedSensor skipped = new NoiseSensor(new int[]{55,62,69,63},3);
+
+        for (int i = 0; i < 1000; i++) {
+            stepped.elapseOneMinute();
+        }
+        skipped.elapseMinutes(1000);
+
+        assertEquals(stepped.getCurrentReading(), skipped.getCurrentReading());
+        assertEquals(1000, skipped.getTimeElapsed());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void elapseMinutesNegativeTest() {
+        new NoiseSensor(new int[]{55,62,69,63},3).elapseMinutes(-1);
+    }
+}
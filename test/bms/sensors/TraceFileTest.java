@@ -0,0 +1,95 @@
+package bms.sensors;
+
+import bms.exceptions.FileFormatException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceFileTest {
+
+    private static String tempFile() throws IOException {
+        File file = File.createTempFile("readings", ".traces");
+        file.deleteOnExit();
+        return file.getPath();
+    }
+
+    @Test
+    public void writeAndOpen() throws IOException, FileFormatException {
+        int[] noise = {55, 62, 69, 63};
+        int[] co2 = new int[10000];
+        for (int i = 0; i < co2.length; i++) {
+            co2[i] = 400 + (i * 37) % 900;
+        }
+        int[] large = {70000, 0, Integer.MAX_VALUE};
+        String filename = tempFile();
+        TraceFile.write(filename, List.of(noise, co2, large));
+
+        TraceFile traces = TraceFile.open(filename);
+        assertEquals(3, traces.size());
+        assertArrayEquals(noise, traces.get(0).toArray());
+        assertArrayEquals(co2, traces.get(1).toArray());
+        assertArrayEquals(large, traces.get(2).toArray());
+        assertEquals(69, traces.get(0).max());
+        assertEquals(Integer.MAX_VALUE, traces.get(2).max());
+        assertEquals(Readings.of(co2), traces.get(1));
+        assertEquals(2 * co2.length, traces.get(1).sizeInBytes());
+    }
+
+    @Test
+    public void sensorsUseMappedReadings() throws IOException,
+            FileFormatException {
+        String filename = tempFile();
+        TraceFile.write(filename, List.of(new int[]{20, 30, 70}));
+        TraceFile traces = TraceFile.open(filename);
+
+        TemperatureSensor mapped = new TemperatureSensor(traces.get(0));
+        TemperatureSensor plain = new TemperatureSensor(new int[]{20, 30, 70});
+        assertEquals(plain, mapped);
+        assertEquals(plain.getHazardLevel(), mapped.getHazardLevel());
+        mapped.elapseMinutes(2);
+        assertEquals(70, mapped.getCurrentReading());
+        assertEquals("TemperatureSensor:20,30,70", mapped.encode());
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void notATraceFile() throws IOException, FileFormatException {
+        String filename = tempFile();
+        try (FileOutputStream out = new FileOutputStream(filename)) {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        }
+        TraceFile.open(filename);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noSuchTrace() throws IOException, FileFormatException {
+        String filename = tempFile();
+        TraceFile.write(filename, List.of(new int[]{1}));
+        TraceFile.open(filename).get(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readingAboveMax() throws IOException, FileFormatException {
+        String filename = tempFile();
+        TraceFile.write(filename, List.of(new int[]{20, 30, 70}));
+        // the first index entry's largest reading follows the 9-byte header,
+        // the trace's offset and its number of readings
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw")) {
+            file.seek(9 + 8 + 4);
+            file.writeInt(69);
+        }
+        Readings readings = TraceFile.open(filename).get(0);
+        assertEquals(69, readings.max());
+        readings.get(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReading() throws IOException {
+        TraceFile.write(tempFile(), List.of(new int[]{1, -1}));
+    }
+}
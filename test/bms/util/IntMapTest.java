@@ -0,0 +1,31 @@
+package bms.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IntMapTest {
+
+    @Test
+    public void putAndGet() {
+        IntMap<String> map = new IntMap<>();
+        for (int key = -500; key < 500; key += 3) {
+            map.put(key * 1024, "room " + key);
+        }
+        assertEquals(334, map.size());
+        for (int key = -500; key < 500; key += 3) {
+            assertEquals("room " + key, map.get(key * 1024));
+        }
+        assertNull(map.get(1));
+        assertNull(map.get(-499 * 1024));
+
+        map.put(-500 * 1024, "replaced");
+        assertEquals("replaced", map.get(-500 * 1024));
+        assertEquals(334, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullValue() {
+        new IntMap<String>().put(1, null);
+    }
+}
@@ -0,0 +1,197 @@
+package bms.util;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TimedSensor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import static org.junit.Assert.*;
+
+public class TimedItemManagerTest {
+
+    private TimedItemManager clock;
+
+    @Before
+    public void setUp() {
+        clock = new TimedItemManager();
+    }
+
+    @Test
+    public void scopedRegistration() {
+        int globalCount = TimedItemManager.getInstance().getRegisteredCount();
+        TimedSensor sensor = ClockScope.call(clock, () -> {
+            assertSame(clock, TimedItemManager.getCurrent());
+            return new NoiseSensor(new int[]{55,62,69,63},1);
+        });
+        assertSame(TimedItemManager.getInstance(),
+                TimedItemManager.getCurrent());
+        assertEquals(1, clock.getRegisteredCount());
+        assertEquals(globalCount,
+                TimedItemManager.getInstance().getRegisteredCount());
+
+        clock.elapseOneMinute();
+        assertEquals(62, sensor.getCurrentReading());
+    }
+
+    @Test
+    public void nestedScopes() {
+        TimedItemManager inner = new TimedItemManager();
+        ClockScope.run(clock, () -> {
+            ClockScope.run(inner,
+                    () -> assertSame(inner, TimedItemManager.getCurrent()));
+            assertSame(clock, TimedItemManager.getCurrent());
+        });
+    }
+
+    @Test
+    public void unregister() {
+        TimedSensor sensor1 = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55,62,69,63},1));
+        TimedSensor sensor2 = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55,62,69,63},1));
+        TimedSensor sensor3 = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55,62,69,63},1));
+        clock.unregisterTimedItem(sensor1);
+        clock.unregisterTimedItem(sensor1);
+        assertEquals(2, clock.getRegisteredCount());
+
+        clock.elapseOneMinute();
+        assertEquals(0, sensor1.getTimeElapsed());
+        assertEquals(1, sensor2.getTimeElapsed());
+        assertEquals(1, sensor3.getTimeElapsed());
+    }
+
+    @Test
+    public void registerTwice() {
+        TimedSensor sensor = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55,62,69,63},1));
+        clock.registerTimedItem(sensor);
+        clock.elapseOneMinute();
+        assertEquals(1, sensor.getTimeElapsed());
+    }
+
+    @Test
+    public void eventDriven() {
+        TimedSensor sensor1 = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55,62,69,63},1));
+        TimedSensor sensor2 = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55,62,69,63},3));
+        clock.setEventDriven(true);
+        for (int i = 0; i < 7; i++) {
+            clock.elapseOneMinute();
+        }
+        assertEquals(63, sensor1.getCurrentReading());
+        assertEquals(69, sensor2.getCurrentReading());
+        assertEquals(6, sensor2.getTimeElapsed());
+
+        clock.synchronise();
+        assertEquals(7, sensor2.getTimeElapsed());
+        assertEquals(7, clock.getMinutesElapsed());
+    }
+
+    @Test
+    public void loadIntoBuildingClock() throws Exception {
+        int globalCount = TimedItemManager.getInstance().getRegisteredCount();
+        Building building =
+                BuildingInitialiser.loadBuildings("saves/uqstlucia.txt").get(0);
+
+        assertEquals(globalCount,
+                TimedItemManager.getInstance().getRegisteredCount());
+        assertTrue(building.getClock().getRegisteredCount() > 0);
+    }
+
+    private List<TimedSensor> makeSensors(TimedItemManager manager,
+            Set<Thread> threads) {
+        return ClockScope.call(manager, () -> {
+            List<TimedSensor> sensors = new ArrayList<>();
+            // enough sensors to be split into several shards
+            for (int i = 0; i < 5000; i++) {
+                int[] readings = {i % 97, 40 + i % 13, 70, 55 + i % 3};
+                sensors.add(new NoiseSensor(readings, 1 + i % 5) {
+                    @Override
+                    public void elapseOneMinute() {
+                        threads.add(Thread.currentThread());
+                        super.elapseOneMinute();
+                    }
+                });
+            }
+            return sensors;
+        });
+    }
+
+    @Test
+    public void shardedSensors() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Set<Thread> threads = ConcurrentHashMap.newKeySet();
+            TimedItemManager sequential = new TimedItemManager();
+            sequential.setPool(null);
+            List<TimedSensor> expected = makeSensors(sequential, threads);
+            clock.setPool(pool);
+            List<TimedSensor> actual = makeSensors(clock, threads);
+            for (int minute = 0; minute < 3; minute++) {
+                sequential.elapseOneMinute();
+                clock.elapseOneMinute();
+            }
+            sequential.elapseMinutes(37);
+            clock.elapseMinutes(37);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getCurrentReading(),
+                        actual.get(i).getCurrentReading());
+                assertEquals(expected.get(i).getMinutesUntilChange(),
+                        actual.get(i).getMinutesUntilChange());
+                assertEquals(40, actual.get(i).getTimeElapsed());
+            }
+            boolean usedPool = false;
+            for (Thread thread : threads) {
+                usedPool |= thread instanceof ForkJoinWorkerThread
+                        && ((ForkJoinWorkerThread) thread).getPool() == pool;
+            }
+            assertTrue(usedPool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void itemsWhichDoNotLookAhead() {
+        TimedSensor sensor = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 1));
+        List<Integer> seen = new ArrayList<>();
+        clock.registerTimedItem(
+                (TimedItem) () -> seen.add(sensor.getCurrentReading()));
+        clock.elapseMinutes(3);
+        assertEquals(Arrays.asList(62, 69, 63), seen);
+        assertEquals(3, sensor.getTimeElapsed());
+        assertEquals(3, clock.getMinutesElapsed());
+    }
+
+    @Test
+    public void tickListeners() {
+        TimedSensor sensor = ClockScope.call(clock,
+                () -> new NoiseSensor(new int[]{55, 62, 69, 63}, 1));
+        List<Integer> seen = new ArrayList<>();
+        TickListener listener =
+                minutes -> seen.add(sensor.getCurrentReading());
+        clock.addTickListener(listener);
+        clock.addTickListener(listener);
+        clock.elapseOneMinute();
+        clock.elapseMinutes(2);
+        clock.setEventDriven(true);
+        clock.elapseOneMinute();
+        clock.removeTickListener(listener);
+        clock.elapseOneMinute();
+        // told about each minute of the bulk elapse
+        assertEquals(Arrays.asList(62, 69, 63, 55), seen);
+    }
+}